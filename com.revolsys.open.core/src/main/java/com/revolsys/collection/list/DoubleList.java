@@ -53,7 +53,7 @@ public class DoubleList extends AbstractList<Double> {
     return setDouble(index, value);
   }
 
-  private Double setDouble(final int index, final double value) {
+  public double setDouble(final int index, final double value) {
     if (index >= 0 && index <= this.size) {
       final double oldValue = this.values[index];
       this.values[index] = value;
@@ -67,4 +67,8 @@ public class DoubleList extends AbstractList<Double> {
   public int size() {
     return this.size;
   }
+
+  public double[] toDoubleArray() {
+    return Arrays.copyOf(this.values, this.size);
+  }
 }
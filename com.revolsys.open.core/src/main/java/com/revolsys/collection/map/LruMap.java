@@ -13,6 +13,10 @@ public class LruMap<K, V> extends LinkedHashMap<K, V> {
     this.maxSize = maxSize;
   }
 
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
   @Override
   protected boolean removeEldestEntry(final Entry<K, V> eldest) {
     return size() > this.maxSize;
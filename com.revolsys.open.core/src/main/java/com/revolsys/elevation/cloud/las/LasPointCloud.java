@@ -5,6 +5,7 @@ import java.nio.ByteOrder;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.GregorianCalendar;
@@ -18,7 +19,10 @@ import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.cloud.PointCloud;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkIndex;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkTable;
 import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
 import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
 import com.revolsys.elevation.cloud.las.zip.LasZipPointCloudWriterFactory;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
@@ -62,8 +66,20 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private final long[] classificationCounts = new long[256];
 
+  private LasZipChunkIndex chunkIndex;
+
   private boolean classificationsLoaded;
 
+  private boolean columnar = false;
+
+  private LasPointColumns columns;
+
+  private boolean decompressOrdered = true;
+
+  private int decompressSelective = LasZipDecompressSelective.ALL;
+
+  private int decompressThreadCount = 0;
+
   private boolean exists;
 
   private double fileGpsTime = 0;
@@ -74,6 +90,8 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private Resource lasResource;
 
+  private LasPoint pendingPoint;
+
   private List<LasPoint> points = new ArrayList<>();
 
   private ChannelReader reader;
@@ -109,10 +127,39 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.reader = open();
   }
 
+  /**
+   * Copy the pending point to the columns and set the new pending point.
+   */
+  private synchronized void addPendingPoint(final LasPoint point) {
+    final LasPoint pendingPoint = this.pendingPoint;
+    if (pendingPoint != null) {
+      this.columns.add(pendingPoint);
+    }
+    this.pendingPoint = point;
+  }
+
+  /**
+   * Add a new point to the point cloud. The attributes of the returned point can then be set.
+   * For a {@link #isColumnar()} point cloud the values of the point are copied to the columns
+   * when the next point is added or the points are read, so later changes to the point are not
+   * stored.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @param z The z coordinate.
+   * @return The point.
+   */
   @SuppressWarnings("unchecked")
   public <P extends LasPoint> P addPoint(final double x, final double y, final double z) {
     final LasPoint lasPoint = newLasPoint(x, y, z);
-    this.points.add(lasPoint);
+    if (this.columnar) {
+      loadAllPoints();
+    }
+    if (this.columns == null) {
+      this.points.add(lasPoint);
+    } else {
+      addPendingPoint(lasPoint);
+    }
     this.header.addCounts(lasPoint);
     return (P)lasPoint;
   }
@@ -121,6 +168,10 @@ public class LasPointCloud extends BaseObjectWithProperties
     closeReader();
     this.header.clear();
     this.points = new ArrayList<>();
+    this.pendingPoint = null;
+    if (this.columns != null) {
+      this.columns.clear();
+    }
   }
 
   @Override
@@ -138,7 +189,82 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   @Override
   public void forEachPoint(final Consumer<? super LasPoint> action) {
-    final Iterable<LasPoint> iterable = iterable();
+    final LasPointColumns columns = getColumns();
+    if (columns == null) {
+      final Iterable<LasPoint> iterable = iterable();
+      forEachPoint(iterable, action);
+    } else {
+      columns.forEachPoint(action);
+    }
+  }
+
+  /**
+   * Visit each point within the bounding box.
+   *
+   * @param boundingBox The bounding box or null for all points.
+   * @param action The action to perform on the points.
+   * @see #forEachPoint(BoundingBox, BitSet, int, Consumer)
+   */
+  public void forEachPoint(final BoundingBox boundingBox,
+    final Consumer<? super LasPoint> action) {
+    forEachPoint(boundingBox, null, this.decompressSelective, action);
+  }
+
+  /**
+   * Visit each point within the bounding box with one of the classifications. For chunked LAZ
+   * files that haven't been loaded into memory the {@link LasZipChunkIndex} is used to only
+   * decompress the chunks that may contain a matching point, and for layered LAZ files only the
+   * layers selected by decompressSelective are decompressed. For example
+   * {@link LasZipDecompressSelective#Z} only decompresses the x, y, z and return values.
+   *
+   * @param boundingBox The bounding box or null for all points.
+   * @param classifications The classifications or null for all classifications.
+   * @param decompressSelective The {@link LasZipDecompressSelective} layers to decompress.
+   * @param action The action to perform on the points.
+   */
+  public void forEachPoint(final BoundingBox boundingBox, final BitSet classifications,
+    final int decompressSelective, final Consumer<? super LasPoint> action) {
+    final boolean filtered = boundingBox != null || classifications != null;
+    if (!this.columnar && !this.allLoaded && this.points.isEmpty() && isChunkedLaz()) {
+      final LasZipChunkIndex chunkIndex = filtered ? getChunkIndex() : null;
+      if (chunkIndex != null || !filtered) {
+        final ChannelReader reader = takeReader();
+        if (reader != null) {
+          try {
+            if (chunkIndex != null) {
+              chunkIndex.forEachPoint(reader, boundingBox, classifications, decompressSelective,
+                action);
+              return;
+            } else {
+              final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+              final LasZipChunkTable chunkTable = LasZipChunkTable.read(reader,
+                lasZipHeader.getChunkSize(), getPointCount());
+              if (chunkTable != null) {
+                chunkTable.forEachPoint(this, reader, decompressSelective, action);
+                return;
+              }
+            }
+          } finally {
+            reader.close();
+          }
+        }
+      }
+    }
+    if (filtered) {
+      forEachPoint(point -> {
+        if (boundingBox == null || boundingBox.bboxIntersects(point.getX(), point.getY())) {
+          if (classifications == null || classifications.get(point.getClassification())) {
+            action.accept(point);
+          }
+        }
+      });
+    } else {
+      forEachPoint(action);
+    }
+  }
+
+  private void forEachPoint(final Iterable<LasPoint> iterable,
+    final Consumer<? super LasPoint> action) {
     try {
       iterable.forEach(action);
     } catch (RuntimeException | Error e) {
@@ -158,10 +284,44 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Get the index of the bounds and classifications of each chunk in a chunked LAZ file. The
+   * index is loaded from the .lazx file next to the LAZ file, or built and cached the first time
+   * it is requested.
+   *
+   * @return The chunk index or null if the file is not a chunked LAZ file.
+   */
+  public synchronized LasZipChunkIndex getChunkIndex() {
+    if (this.chunkIndex == null && isChunkedLaz()) {
+      final ChannelReader reader = takeReader();
+      if (reader != null) {
+        try {
+          this.chunkIndex = LasZipChunkIndex.newChunkIndex(this, reader);
+        } finally {
+          reader.close();
+        }
+      }
+    }
+    return this.chunkIndex;
+  }
+
   public long[] getClassificationCounts() {
     return this.classificationCounts.clone();
   }
 
+  /**
+   * Get the columnar storage of the points, loading the points if required.
+   *
+   * @return The columns or null if the point cloud is not columnar.
+   */
+  public LasPointColumns getColumns() {
+    if (this.columnar) {
+      loadAllPoints();
+      addPendingPoint(null);
+    }
+    return this.columns;
+  }
+
   public double getCurrentGpsTime() {
     if (isGpsTime()) {
       return System.currentTimeMillis() / 1000.0 - 315964800;
@@ -179,6 +339,14 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  public int getDecompressSelective() {
+    return this.decompressSelective;
+  }
+
+  public int getDecompressThreadCount() {
+    return this.decompressThreadCount;
+  }
+
   @Override
   public Predicate<Point> getDefaultFilter() {
     return point -> LasClassification.GROUND == ((LasPoint)point).getClassification();
@@ -207,13 +375,35 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   public List<LasPoint> getPoints() {
     loadAllPoints();
-    return this.points;
+    final LasPointColumns columns = getColumns();
+    if (columns == null) {
+      return this.points;
+    } else {
+      return columns.getPoints();
+    }
   }
 
   public Resource getResource() {
     return this.resource;
   }
 
+  private boolean isChunkedLaz() {
+    if (this.header == null || this.lasResource == null) {
+      return false;
+    } else {
+      final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+      return lasZipHeader != null && lasZipHeader.getCompressor().isChunked();
+    }
+  }
+
+  public boolean isColumnar() {
+    return this.columnar;
+  }
+
+  public boolean isDecompressOrdered() {
+    return this.decompressOrdered;
+  }
+
   public boolean isExists() {
     return this.exists;
   }
@@ -224,30 +414,13 @@ public class LasPointCloud extends BaseObjectWithProperties
   }
 
   public Iterable<LasPoint> iterable() {
-    if (this.allLoaded || !this.points.isEmpty()) {
+    final LasPointColumns columns = getColumns();
+    if (columns != null) {
+      return columns;
+    } else if (this.allLoaded || !this.points.isEmpty()) {
       return this.points;
     } else {
-      ChannelReader reader = this.reader;
-      this.reader = null;
-      if (reader == null) {
-        reader = open();
-      }
-      if (reader == null) {
-        return Collections.emptyList();
-      } else {
-        try {
-          final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
-          if (lasZipHeader == null) {
-            return new LasPointCloudIterator(this, reader);
-          } else {
-            final LasZipCompressorType compressor = lasZipHeader.getCompressor();
-            return compressor.newIterator(this, reader);
-          }
-        } catch (RuntimeException | Error e) {
-          reader.close();
-          throw e;
-        }
-      }
+      return newFileIterable();
     }
   }
 
@@ -257,11 +430,43 @@ public class LasPointCloud extends BaseObjectWithProperties
   }
 
   private synchronized void loadAllPoints() {
-    if (!this.allLoaded && this.lasResource != null) {
-      final List<LasPoint> points = new ArrayList<>((int)getPointCount());
-      forEachPoint(points::add);
-      this.points = points;
-      this.allLoaded = true;
+    if (!this.allLoaded) {
+      if (this.columnar) {
+        if (this.columns == null) {
+          final LasPointColumns columns = new LasPointColumns(this);
+          if (this.lasResource != null) {
+            final Iterable<LasPoint> iterable = newFileIterable();
+            forEachPoint(iterable, columns::add);
+          }
+          this.columns = columns;
+          this.allLoaded = true;
+        }
+      } else if (this.lasResource != null) {
+        final List<LasPoint> points = new ArrayList<>((int)getPointCount());
+        forEachPoint(points::add);
+        this.points = points;
+        this.allLoaded = true;
+      }
+    }
+  }
+
+  private Iterable<LasPoint> newFileIterable() {
+    final ChannelReader reader = takeReader();
+    if (reader == null) {
+      return Collections.emptyList();
+    } else {
+      try {
+        final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+        if (lasZipHeader == null) {
+          return new LasPointCloudIterator(this, reader);
+        } else {
+          final LasZipCompressorType compressor = lasZipHeader.getCompressor();
+          return compressor.newIterator(this, reader);
+        }
+      } catch (RuntimeException | Error e) {
+        reader.close();
+        throw e;
+      }
     }
   }
 
@@ -273,9 +478,14 @@ public class LasPointCloud extends BaseObjectWithProperties
   public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
     final GeometryFactory geometryFactory = getGeometryFactory();
     final QuadEdgeDelaunayTinBuilder tinBuilder = new QuadEdgeDelaunayTinBuilder(geometryFactory);
-    forEachPoint((lasPoint) -> {
-      tinBuilder.insertVertex(lasPoint);
-    });
+    final LasPointColumns columns = getColumns();
+    if (columns == null) {
+      forEachPoint(null, null, LasZipDecompressSelective.Z, (lasPoint) -> {
+        tinBuilder.insertVertex(lasPoint);
+      });
+    } else {
+      columns.insertVertices(tinBuilder);
+    }
     final TriangulatedIrregularNetwork tin = tinBuilder.newTriangulatedIrregularNetwork();
     return tin;
   }
@@ -325,11 +535,17 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   @Override
   public void refreshClassificationCounts() {
-    Arrays.fill(this.classificationCounts, 0);
-    forEachPoint(point -> {
-      final short classification = point.getClassification();
-      this.classificationCounts[classification]++;
-    });
+    final LasPointColumns columns = getColumns();
+    if (columns == null) {
+      Arrays.fill(this.classificationCounts, 0);
+      forEachPoint(point -> {
+        final short classification = point.getClassification();
+        this.classificationCounts[classification]++;
+      });
+    } else {
+      final long[] counts = columns.getClassificationCounts();
+      System.arraycopy(counts, 0, this.classificationCounts, 0, counts.length);
+    }
     this.classificationsLoaded = true;
   }
 
@@ -337,6 +553,50 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.byteBuffer = byteBuffer;
   }
 
+  /**
+   * Store the points in off-heap columns instead of a list of point objects. The points are
+   * loaded into the columns the first time they are accessed. All the attributes of the points
+   * are kept, but the points returned are copies so changes to them are not stored.
+   *
+   * @param columnar True if the points should be stored in columns.
+   * @see LasPointColumns
+   */
+  public void setColumnar(final boolean columnar) {
+    this.columnar = columnar;
+  }
+
+  /**
+   * If false, the points from a parallel decompressed LAZ file are returned in the order the
+   * chunks are decompressed rather than the file order. Use for aggregations where the order
+   * doesn't matter.
+   *
+   * @param decompressOrdered True if the points must be returned in file order.
+   */
+  public void setDecompressOrdered(final boolean decompressOrdered) {
+    this.decompressOrdered = decompressOrdered;
+  }
+
+  /**
+   * Set the {@link LasZipDecompressSelective} layers to decompress when reading a layered LAZ
+   * file. Layers that are not selected (e.g. RGB, NIR or wave packets) are skipped without
+   * decompressing them and the values are not set on the points.
+   *
+   * @param decompressSelective The selected layer flags.
+   */
+  public void setDecompressSelective(final int decompressSelective) {
+    this.decompressSelective = decompressSelective;
+  }
+
+  /**
+   * Set the number of threads used to decompress the chunks of a chunked LAZ file in parallel.
+   * Values less than 2 decompress the chunks sequentially on the reading thread.
+   *
+   * @param decompressThreadCount The number of threads.
+   */
+  public void setDecompressThreadCount(final int decompressThreadCount) {
+    this.decompressThreadCount = decompressThreadCount;
+  }
+
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
     this.geometryFactory = geometryFactory;
   }
@@ -346,6 +606,16 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.fileGpsTime = getCurrentGpsTime();
   }
 
+  private ChannelReader takeReader() {
+    final ChannelReader reader = this.reader;
+    this.reader = null;
+    if (reader == null) {
+      return open();
+    } else {
+      return reader;
+    }
+  }
+
   @Override
   public double toDoubleX(final int x) {
     return this.geometryFactory.toDoubleX(x);
@@ -0,0 +1,316 @@
+package com.revolsys.elevation.cloud.las;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Columnar storage for the points of a {@link LasPointCloud}. The x, y, z and classification
+ * values are stored in primitive columns in direct (off-heap) buffers, allocated in blocks of 1M
+ * points. All the other attributes of the point format (intensity, returns, flags, scan angle,
+ * user data, point source id, GPS time, colour and wave packets) are stored as the remaining
+ * bytes of the LAS point record in an attributes column, so the points are returned unchanged.
+ *
+ * {@link #add(LasPoint)} copies the values of the point into the columns, later changes to the
+ * point are not stored.
+ *
+ * {@link #forEachPoint(Consumer)} uses a single flyweight {@link LasPoint} that is updated for
+ * each point, so the consumer must not keep a reference to the point. The {@link #iterator()} and
+ * {@link #getPoint(long)} methods return a new point each time.
+ */
+public class LasPointColumns implements Iterable<LasPoint> {
+  private static final int BLOCK_SHIFT = 20;
+
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  private static final int X_OFFSET = 0;
+
+  private static final int Y_OFFSET = 4 * BLOCK_SIZE;
+
+  private static final int Z_OFFSET = 8 * BLOCK_SIZE;
+
+  private static final int CLASSIFICATION_OFFSET = 12 * BLOCK_SIZE;
+
+  private static final int ATTRIBUTES_OFFSET = 13 * BLOCK_SIZE;
+
+  /**
+   * The number of bytes for the x, y, z values at the start of a LAS point record.
+   */
+  private static final int XYZ_LENGTH = 12;
+
+  private final int attributesLength;
+
+  private final List<ByteBuffer> blocks = new ArrayList<>();
+
+  private final int gpsTimeOffset;
+
+  private final LasPointCloud pointCloud;
+
+  private final LasPointFormat pointFormat;
+
+  private final ByteArrayOutputStream recordOut;
+
+  private final ChannelWriter recordWriter;
+
+  private long size;
+
+  public LasPointColumns(final LasPointCloud pointCloud) {
+    this.pointCloud = pointCloud;
+    this.pointFormat = pointCloud.getPointFormat();
+    final int recordLength = this.pointFormat.getRecordLength();
+    this.attributesLength = recordLength - XYZ_LENGTH;
+    final int formatId = this.pointFormat.getId();
+    if (formatId >= 6) {
+      this.gpsTimeOffset = 22 - XYZ_LENGTH;
+    } else if (formatId == 1 || formatId >= 3) {
+      this.gpsTimeOffset = 20 - XYZ_LENGTH;
+    } else {
+      this.gpsTimeOffset = -1;
+    }
+    this.recordOut = new ByteArrayOutputStream(recordLength);
+    this.recordWriter = new ChannelWriter(Channels.newChannel(this.recordOut), recordLength,
+      ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Copy the values of the point to the end of the columns.
+   *
+   * @param point The point.
+   */
+  public synchronized void add(final LasPoint point) {
+    final int blockIndex = (int)(this.size >>> BLOCK_SHIFT);
+    if (blockIndex == this.blocks.size()) {
+      final int blockBytes = ATTRIBUTES_OFFSET + this.attributesLength * BLOCK_SIZE;
+      final ByteBuffer block = ByteBuffer.allocateDirect(blockBytes)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      this.blocks.add(block);
+    }
+    final ByteBuffer block = this.blocks.get(blockIndex);
+    final int index = (int)(this.size & BLOCK_MASK);
+    block.putInt(X_OFFSET + index * 4, point.getXInt());
+    block.putInt(Y_OFFSET + index * 4, point.getYInt());
+    block.putInt(Z_OFFSET + index * 4, point.getZInt());
+    block.put(CLASSIFICATION_OFFSET + index, (byte)point.getClassification());
+
+    this.recordOut.reset();
+    point.writeLasPoint(this.recordWriter);
+    this.recordWriter.flush();
+    final byte[] record = this.recordOut.toByteArray();
+    final int attributesLength = this.attributesLength;
+    final int attributesOffset = ATTRIBUTES_OFFSET + index * attributesLength;
+    for (int i = 0; i < attributesLength; i++) {
+      block.put(attributesOffset + i, record[XYZ_LENGTH + i]);
+    }
+    this.size++;
+  }
+
+  public void clear() {
+    this.blocks.clear();
+    this.size = 0;
+  }
+
+  /**
+   * Visit each point using a single flyweight point that is updated for each point.
+   *
+   * @param action The action to perform on the point.
+   */
+  public void forEachPoint(final Consumer<? super LasPoint> action) {
+    final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+    final ChannelReader reader = newRecordReader();
+    final byte[] record = new byte[XYZ_LENGTH + this.attributesLength];
+    for (long i = 0; i < this.size; i++) {
+      setPoint(point, reader, record, i);
+      action.accept(point);
+    }
+  }
+
+  private int getAttributesOffset(final long index) {
+    return ATTRIBUTES_OFFSET + (int)(index & BLOCK_MASK) * this.attributesLength;
+  }
+
+  private ByteBuffer getBlock(final long index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException(index + " not in 0.." + (this.size - 1));
+    }
+    return this.blocks.get((int)(index >>> BLOCK_SHIFT));
+  }
+
+  public short getClassification(final long index) {
+    final ByteBuffer block = getBlock(index);
+    return (short)(block.get(CLASSIFICATION_OFFSET + (int)(index & BLOCK_MASK)) & 0xFF);
+  }
+
+  /**
+   * Count the number of points for each classification directly from the classification column.
+   *
+   * @return The counts indexed by classification.
+   */
+  public long[] getClassificationCounts() {
+    final long[] counts = new long[256];
+    long remaining = this.size;
+    for (final ByteBuffer block : this.blocks) {
+      final int count = (int)Math.min(remaining, BLOCK_SIZE);
+      for (int i = 0; i < count; i++) {
+        final int classification = block.get(CLASSIFICATION_OFFSET + i) & 0xFF;
+        counts[classification]++;
+      }
+      remaining -= count;
+    }
+    return counts;
+  }
+
+  public double getGpsTime(final long index) {
+    if (this.gpsTimeOffset < 0) {
+      return 0;
+    } else {
+      final ByteBuffer block = getBlock(index);
+      return block.getDouble(getAttributesOffset(index) + this.gpsTimeOffset);
+    }
+  }
+
+  public int getIntensity(final long index) {
+    final ByteBuffer block = getBlock(index);
+    return block.getShort(getAttributesOffset(index)) & 0xFFFF;
+  }
+
+  /**
+   * Construct a new point with the values from the columns.
+   *
+   * @param index The index of the point.
+   * @return The point.
+   */
+  public LasPoint getPoint(final long index) {
+    final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+    final byte[] record = new byte[XYZ_LENGTH + this.attributesLength];
+    setPoint(point, newRecordReader(), record, index);
+    return point;
+  }
+
+  /**
+   * Get a read only list view of the points. Each call to get returns a new point.
+   *
+   * @return The list of points.
+   */
+  public List<LasPoint> getPoints() {
+    return new AbstractList<LasPoint>() {
+      @Override
+      public LasPoint get(final int index) {
+        return getPoint(index);
+      }
+
+      @Override
+      public int size() {
+        return (int)Math.min(LasPointColumns.this.size, Integer.MAX_VALUE);
+      }
+    };
+  }
+
+  public int getXInt(final long index) {
+    final ByteBuffer block = getBlock(index);
+    return block.getInt(X_OFFSET + (int)(index & BLOCK_MASK) * 4);
+  }
+
+  public int getYInt(final long index) {
+    final ByteBuffer block = getBlock(index);
+    return block.getInt(Y_OFFSET + (int)(index & BLOCK_MASK) * 4);
+  }
+
+  public int getZInt(final long index) {
+    final ByteBuffer block = getBlock(index);
+    return block.getInt(Z_OFFSET + (int)(index & BLOCK_MASK) * 4);
+  }
+
+  /**
+   * Insert the x, y, z coordinates of each point into the TIN builder without constructing any
+   * points.
+   *
+   * @param tinBuilder The TIN builder.
+   */
+  public void insertVertices(final QuadEdgeDelaunayTinBuilder tinBuilder) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    long remaining = this.size;
+    for (final ByteBuffer block : this.blocks) {
+      final int count = (int)Math.min(remaining, BLOCK_SIZE);
+      for (int i = 0; i < count; i++) {
+        final double x = pointCloud.toDoubleX(block.getInt(X_OFFSET + i * 4));
+        final double y = pointCloud.toDoubleY(block.getInt(Y_OFFSET + i * 4));
+        final double z = pointCloud.toDoubleZ(block.getInt(Z_OFFSET + i * 4));
+        tinBuilder.insertVertex(x, y, z);
+      }
+      remaining -= count;
+    }
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  @Override
+  public Iterator<LasPoint> iterator() {
+    return new Iterator<LasPoint>() {
+      private long index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.index < LasPointColumns.this.size;
+      }
+
+      @Override
+      public LasPoint next() {
+        if (hasNext()) {
+          return getPoint(this.index++);
+        } else {
+          throw new NoSuchElementException();
+        }
+      }
+    };
+  }
+
+  private ChannelReader newRecordReader() {
+    final int recordLength = XYZ_LENGTH + this.attributesLength;
+    final ChannelReader reader = new ChannelReader((ReadableByteChannel)null,
+      ByteBuffer.allocate(recordLength));
+    reader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    return reader;
+  }
+
+  /**
+   * Rebuild the LAS point record for the point from the columns and read it into the point.
+   */
+  private void setPoint(final LasPoint point, final ChannelReader reader, final byte[] record,
+    final long index) {
+    final ByteBuffer block = getBlock(index);
+    final int blockIndex = (int)(index & BLOCK_MASK);
+    final ByteBuffer recordBuffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+    recordBuffer.putInt(0, block.getInt(X_OFFSET + blockIndex * 4));
+    recordBuffer.putInt(4, block.getInt(Y_OFFSET + blockIndex * 4));
+    recordBuffer.putInt(8, block.getInt(Z_OFFSET + blockIndex * 4));
+    final int attributesLength = this.attributesLength;
+    final int attributesOffset = ATTRIBUTES_OFFSET + blockIndex * attributesLength;
+    for (int i = 0; i < attributesLength; i++) {
+      record[XYZ_LENGTH + i] = block.get(attributesOffset + i);
+    }
+    reader.init(record);
+    point.read(this.pointCloud, reader);
+  }
+
+  public long size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,291 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * The bounding box and classifications of the points in each chunk of a chunked LAZ file. Reads
+ * filtered by a bounding box or classification use the index to skip the chunks that can't
+ * contain a matching point.
+ *
+ * The index is built the first time it is required by decompressing the x, y, z and
+ * classification layers of each chunk. It is cached in a .lazx file next to the LAZ file, which
+ * is rebuilt if the size or last modified time of the LAZ file changes. If the file can't be
+ * written the index is only kept in memory.
+ */
+public class LasZipChunkIndex {
+  public static final String FILE_EXTENSION = "lazx";
+
+  private static final int MAGIC = 0x4C415A58;
+
+  private static final int VERSION = 1;
+
+  /**
+   * Load the chunk index from the cached index file or build it from the LAZ file. The reader
+   * must be positioned at the 8 byte chunk table offset that precedes the first chunk.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader.
+   * @return The chunk index or null if the file does not have a chunk table.
+   */
+  public static LasZipChunkIndex newChunkIndex(final LasPointCloud pointCloud,
+    final ChannelReader reader) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    if (lasZipHeader == null || !lasZipHeader.getCompressor().isChunked()) {
+      return null;
+    }
+    final LasZipChunkTable chunkTable = LasZipChunkTable.read(reader,
+      lasZipHeader.getChunkSize(), pointCloud.getPointCount());
+    if (chunkTable == null) {
+      return null;
+    }
+    final LasZipChunkIndex chunkIndex = new LasZipChunkIndex(pointCloud, chunkTable);
+    final Resource resource = pointCloud.getResource();
+    File lazFile = null;
+    File indexFile = null;
+    if (resource.isFile()) {
+      lazFile = resource.getFile();
+      indexFile = FileUtil.getFileWithExtension(lazFile, FILE_EXTENSION);
+      if (chunkIndex.readIndexFile(lazFile, indexFile)) {
+        return chunkIndex;
+      }
+    }
+    chunkIndex.build(reader);
+    if (indexFile != null && Files.isWritable(indexFile.getParentFile().toPath())) {
+      try {
+        chunkIndex.writeIndexFile(lazFile, indexFile);
+      } catch (final IOException e) {
+        Logs.debug(LasZipChunkIndex.class, "Unable to write chunk index " + indexFile, e);
+      }
+    }
+    return chunkIndex;
+  }
+
+  /** The minX, minY, minZ, maxX, maxY, maxZ scaled integer values for each chunk. */
+  private final int[] bounds;
+
+  private final LasZipChunkTable chunkTable;
+
+  /** A 256 bit set of the classifications used in each chunk. */
+  private final long[] classifications;
+
+  private final LasPointCloud pointCloud;
+
+  private LasZipChunkIndex(final LasPointCloud pointCloud, final LasZipChunkTable chunkTable) {
+    this.pointCloud = pointCloud;
+    this.chunkTable = chunkTable;
+    final int chunkCount = chunkTable.getChunkCount();
+    this.bounds = new int[chunkCount * 6];
+    this.classifications = new long[chunkCount * 4];
+  }
+
+  private void build(final ChannelReader reader) {
+    final int decompressSelective = LasZipDecompressSelective.Z
+      | LasZipDecompressSelective.CLASSIFICATION;
+    final int chunkCount = getChunkCount();
+    for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+      reader.seek(this.chunkTable.getChunkStart(chunkIndex));
+      final LasPoint[] points = this.chunkTable.readChunk(this.pointCloud, reader, chunkIndex,
+        decompressSelective);
+      int minX = Integer.MAX_VALUE;
+      int minY = Integer.MAX_VALUE;
+      int minZ = Integer.MAX_VALUE;
+      int maxX = Integer.MIN_VALUE;
+      int maxY = Integer.MIN_VALUE;
+      int maxZ = Integer.MIN_VALUE;
+      final int classificationIndex = chunkIndex * 4;
+      for (final LasPoint point : points) {
+        final int x = point.getXInt();
+        final int y = point.getYInt();
+        final int z = point.getZInt();
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+        final int classification = point.getClassification() & 0xFF;
+        this.classifications[classificationIndex + (classification >>> 6)] |= 1L << classification;
+      }
+      final int boundsIndex = chunkIndex * 6;
+      this.bounds[boundsIndex] = minX;
+      this.bounds[boundsIndex + 1] = minY;
+      this.bounds[boundsIndex + 2] = minZ;
+      this.bounds[boundsIndex + 3] = maxX;
+      this.bounds[boundsIndex + 4] = maxY;
+      this.bounds[boundsIndex + 5] = maxZ;
+    }
+  }
+
+  /**
+   * Visit the points within the bounding box with one of the classifications. Only the chunks
+   * that may contain a matching point are decompressed.
+   *
+   * @param reader The reader for the LAZ file.
+   * @param boundingBox The bounding box or null for all points.
+   * @param classifications The classifications or null for all classifications.
+   * @param decompressSelective The {@link LasZipDecompressSelective} layers to decompress.
+   * @param action The action to perform on the matching points.
+   */
+  public void forEachPoint(final ChannelReader reader, final BoundingBox boundingBox,
+    final BitSet classifications, final int decompressSelective,
+    final Consumer<? super LasPoint> action) {
+    int selective = decompressSelective;
+    if (classifications != null) {
+      selective |= LasZipDecompressSelective.CLASSIFICATION;
+    }
+    for (final int chunkIndex : getChunkIndexes(boundingBox, classifications)) {
+      reader.seek(this.chunkTable.getChunkStart(chunkIndex));
+      final LasPoint[] points = this.chunkTable.readChunk(this.pointCloud, reader, chunkIndex,
+        selective);
+      for (final LasPoint point : points) {
+        if (boundingBox == null || boundingBox.bboxIntersects(point.getX(), point.getY())) {
+          if (classifications == null || classifications.get(point.getClassification())) {
+            action.accept(point);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the bounding box of the points in the chunk.
+   *
+   * @param chunkIndex The index of the chunk.
+   * @return The bounding box.
+   */
+  public BoundingBox getChunkBoundingBox(final int chunkIndex) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    final int boundsIndex = chunkIndex * 6;
+    final double minX = pointCloud.toDoubleX(this.bounds[boundsIndex]);
+    final double minY = pointCloud.toDoubleY(this.bounds[boundsIndex + 1]);
+    final double minZ = pointCloud.toDoubleZ(this.bounds[boundsIndex + 2]);
+    final double maxX = pointCloud.toDoubleX(this.bounds[boundsIndex + 3]);
+    final double maxY = pointCloud.toDoubleY(this.bounds[boundsIndex + 4]);
+    final double maxZ = pointCloud.toDoubleZ(this.bounds[boundsIndex + 5]);
+    return pointCloud.getGeometryFactory().newBoundingBox(3, minX, minY, minZ, maxX, maxY, maxZ);
+  }
+
+  public int getChunkCount() {
+    return this.chunkTable.getChunkCount();
+  }
+
+  /**
+   * Get the indexes of the chunks that may contain points within the bounding box with one of
+   * the classifications.
+   *
+   * @param boundingBox The bounding box or null for all points.
+   * @param classifications The classifications or null for all classifications.
+   * @return The chunk indexes in file order.
+   */
+  public int[] getChunkIndexes(final BoundingBox boundingBox, final BitSet classifications) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    final int chunkCount = getChunkCount();
+    final int[] chunkIndexes = new int[chunkCount];
+    int count = 0;
+    for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+      boolean selected = true;
+      if (boundingBox != null) {
+        final int boundsIndex = chunkIndex * 6;
+        final double minX = pointCloud.toDoubleX(this.bounds[boundsIndex]);
+        final double minY = pointCloud.toDoubleY(this.bounds[boundsIndex + 1]);
+        final double maxX = pointCloud.toDoubleX(this.bounds[boundsIndex + 3]);
+        final double maxY = pointCloud.toDoubleY(this.bounds[boundsIndex + 4]);
+        selected = boundingBox.bboxIntersects(minX, minY, maxX, maxY);
+      }
+      if (selected && classifications != null) {
+        selected = false;
+        final int classificationIndex = chunkIndex * 4;
+        for (int i = classifications.nextSetBit(0); i >= 0 && i < 256; i = classifications
+          .nextSetBit(i + 1)) {
+          if ((this.classifications[classificationIndex + (i >>> 6)] & 1L << i) != 0) {
+            selected = true;
+            break;
+          }
+        }
+      }
+      if (selected) {
+        chunkIndexes[count++] = chunkIndex;
+      }
+    }
+    return Arrays.copyOf(chunkIndexes, count);
+  }
+
+  public LasZipChunkTable getChunkTable() {
+    return this.chunkTable;
+  }
+
+  private boolean readIndexFile(final File lazFile, final File indexFile) {
+    final int chunkCount = getChunkCount();
+    if (indexFile.exists() && indexFile.length() == 28 + chunkCount * 56L) {
+      try (
+        InputStream fileIn = Files.newInputStream(indexFile.toPath());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 65536))) {
+        if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == lazFile.length()
+          && in.readLong() == lazFile.lastModified() && in.readInt() == chunkCount) {
+          for (int i = 0; i < this.bounds.length; i++) {
+            this.bounds[i] = in.readInt();
+          }
+          for (int i = 0; i < this.classifications.length; i++) {
+            this.classifications[i] = in.readLong();
+          }
+          return true;
+        }
+      } catch (final IOException e) {
+        Logs.debug(this, "Invalid chunk index " + indexFile, e);
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return this.pointCloud.getResource() + " chunkCount=" + getChunkCount();
+  }
+
+  private void writeIndexFile(final File lazFile, final File indexFile) throws IOException {
+    final Path tempPath = Files.createTempFile(indexFile.getParentFile().toPath(),
+      indexFile.getName(), ".tmp");
+    try {
+      try (
+        OutputStream fileOut = Files.newOutputStream(tempPath);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(lazFile.length());
+        out.writeLong(lazFile.lastModified());
+        out.writeInt(getChunkCount());
+        for (final int value : this.bounds) {
+          out.writeInt(value);
+        }
+        for (final long value : this.classifications) {
+          out.writeLong(value);
+        }
+      }
+      Files.move(tempPath, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * The byte offsets and point indexes of the chunks in a chunked LAZ file. Each chunk is
+ * compressed independently so the table allows the chunks to be read in any order.
+ */
+public class LasZipChunkTable {
+
+  /**
+   * Read the chunk table for the LAZ file. The reader must be positioned at the 8 byte chunk
+   * table offset that precedes the first chunk. The reader is left positioned at the start of the
+   * first chunk.
+   *
+   * @param reader The reader.
+   * @param chunkSize The number of points per chunk or {@link Integer#MAX_VALUE} for variable
+   *          sized chunks.
+   * @param pointCount The number of points in the file.
+   * @return The chunk table or null if the reader is not seekable or the file does not have a
+   *         valid chunk table.
+   */
+  public static LasZipChunkTable read(final ChannelReader reader, final long chunkSize,
+    final long pointCount) {
+    if (!reader.isSeekable()) {
+      return null;
+    }
+    long chunkTableStart = reader.getLong();
+    final long chunksStart = reader.position();
+    if (chunkTableStart + 8 == chunksStart) {
+      // Compressor was interrupted before the chunk table was written
+      return null;
+    }
+    try {
+      if (chunkTableStart == -1) {
+        // Written to a non-seekable stream, the chunk table start is at the end
+        reader.seekEnd(8);
+        chunkTableStart = reader.getLong();
+      }
+      reader.seek(chunkTableStart);
+      final int version = reader.getInt();
+      if (version != 0) {
+        return null;
+      }
+      final int chunkCount = reader.getInt();
+      if (chunkCount < 0) {
+        return null;
+      }
+      final boolean variable = chunkSize == Integer.MAX_VALUE;
+      final long[] chunkStarts = new long[chunkCount + 1];
+      final long[] chunkPointIndexes = new long[chunkCount + 1];
+      chunkStarts[0] = chunksStart;
+      if (chunkCount > 0) {
+        final ArithmeticDecoder decoder = new ArithmeticDecoder();
+        decoder.init(reader);
+        final ArithmeticCodingInteger ic = new ArithmeticCodingInteger(decoder, 32, 2);
+        ic.initDecompressor();
+        int previousPointCount = 0;
+        int previousByteCount = 0;
+        for (int i = 1; i <= chunkCount; i++) {
+          if (variable) {
+            final int chunkPointCount = ic.decompress(previousPointCount, 0);
+            previousPointCount = chunkPointCount;
+            chunkPointIndexes[i] = chunkPointIndexes[i - 1] + chunkPointCount;
+          } else {
+            chunkPointIndexes[i] = Math.min(pointCount, i * chunkSize);
+          }
+          final int byteCount = ic.decompress(previousByteCount, 1);
+          previousByteCount = byteCount;
+          chunkStarts[i] = chunkStarts[i - 1] + byteCount;
+          if (chunkStarts[i] <= chunkStarts[i - 1]) {
+            return null;
+          }
+        }
+      }
+      if (chunkPointIndexes[chunkCount] != pointCount) {
+        return null;
+      }
+      return new LasZipChunkTable(chunkStarts, chunkPointIndexes);
+    } catch (final RuntimeException e) {
+      return null;
+    } finally {
+      reader.seek(chunksStart);
+    }
+  }
+
+  private final long[] chunkPointIndexes;
+
+  private final long[] chunkStarts;
+
+  public LasZipChunkTable(final long[] chunkStarts, final long[] chunkPointIndexes) {
+    this.chunkStarts = chunkStarts;
+    this.chunkPointIndexes = chunkPointIndexes;
+  }
+
+  /**
+   * Visit the points in all the chunks, only decompressing the selected layers. If the point
+   * cloud has a decompressThreadCount > 1 the chunks are decompressed in parallel using a
+   * {@link LasZipParallelChunkedIterator}.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader.
+   * @param decompressSelective The {@link LasZipDecompressSelective} layers to decompress.
+   * @param action The action to perform on the points.
+   */
+  public void forEachPoint(final LasPointCloud pointCloud, final ChannelReader reader,
+    final int decompressSelective, final Consumer<? super LasPoint> action) {
+    final int threadCount = pointCloud.getDecompressThreadCount();
+    if (threadCount > 1 && getChunkCount() > 1) {
+      final boolean ordered = pointCloud.isDecompressOrdered();
+      try (
+        LasZipParallelChunkedIterator iterator = new LasZipParallelChunkedIterator(pointCloud,
+          reader, this, threadCount, ordered, decompressSelective)) {
+        iterator.forEachRemaining(action);
+      }
+      return;
+    }
+    for (int chunkIndex = 0; chunkIndex < getChunkCount(); chunkIndex++) {
+      reader.seek(getChunkStart(chunkIndex));
+      final LasPoint[] points = readChunk(pointCloud, reader, chunkIndex, decompressSelective);
+      for (final LasPoint point : points) {
+        action.accept(point);
+      }
+    }
+  }
+
+  public int getChunkByteCount(final int chunkIndex) {
+    return (int)(this.chunkStarts[chunkIndex + 1] - this.chunkStarts[chunkIndex]);
+  }
+
+  public int getChunkCount() {
+    return this.chunkStarts.length - 1;
+  }
+
+  /**
+   * Get the index of the chunk containing the point.
+   *
+   * @param pointIndex The index of the point.
+   * @return The chunk index or -1 if the point index is outside the file.
+   */
+  public int getChunkIndex(final long pointIndex) {
+    if (pointIndex < 0 || pointIndex >= this.chunkPointIndexes[getChunkCount()]) {
+      return -1;
+    } else {
+      final int index = Arrays.binarySearch(this.chunkPointIndexes, pointIndex);
+      if (index >= 0) {
+        return index;
+      } else {
+        return -index - 2;
+      }
+    }
+  }
+
+  public int getChunkPointCount(final int chunkIndex) {
+    return (int)(this.chunkPointIndexes[chunkIndex + 1] - this.chunkPointIndexes[chunkIndex]);
+  }
+
+  public long getChunkPointIndex(final int chunkIndex) {
+    return this.chunkPointIndexes[chunkIndex];
+  }
+
+  public long getChunkStart(final int chunkIndex) {
+    return this.chunkStarts[chunkIndex];
+  }
+
+  /**
+   * Decompress the points in a chunk. The reader must be positioned at the start of the chunk.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader.
+   * @param chunkIndex The index of the chunk.
+   * @param decompressSelective The {@link LasZipDecompressSelective} layers to decompress.
+   * @return The points.
+   */
+  public LasPoint[] readChunk(final LasPointCloud pointCloud, final ChannelReader reader,
+    final int chunkIndex, final int decompressSelective) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    final boolean layered = lasZipHeader.isCompressor(LasZipCompressorType.LAYERED_CHUNKED);
+    final LasPointFormat pointFormat = pointCloud.getPointFormat();
+    final ArithmeticDecoder decoder = new ArithmeticDecoder();
+    final LasZipItemCodec[] codecs = lasZipHeader.newLazCodecs(decoder, decompressSelective);
+    final int pointCount = getChunkPointCount(chunkIndex);
+    final LasPoint[] points = new LasPoint[pointCount];
+    int contextIndex = 0;
+    for (int i = 0; i < pointCount; i++) {
+      final LasPoint point;
+      if (i == 0) {
+        point = pointFormat.readLasPoint(pointCloud, reader);
+        if (layered) {
+          decoder.init(reader, false);
+          reader.getInt();
+          for (final LasZipItemCodec codec : codecs) {
+            codec.readChunkSizes();
+          }
+          for (final LasZipItemCodec codec : codecs) {
+            contextIndex = codec.init(point, contextIndex);
+          }
+        } else {
+          for (final LasZipItemCodec codec : codecs) {
+            contextIndex = codec.init(point, contextIndex);
+          }
+          decoder.init(reader);
+        }
+      } else {
+        point = pointFormat.newLasPoint(pointCloud);
+        for (final LasZipItemCodec codec : codecs) {
+          contextIndex = codec.read(point, contextIndex);
+        }
+      }
+      points[i] = point;
+    }
+    return points;
+  }
+}
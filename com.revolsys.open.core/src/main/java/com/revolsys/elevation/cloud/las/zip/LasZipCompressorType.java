@@ -43,7 +43,27 @@ public enum LasZipCompressorType {
     return this.id;
   }
 
+  public boolean isChunked() {
+    return this != POINTWISE;
+  }
+
+  /**
+   * Construct a new iterator. If the point cloud has a decompressThreadCount > 1 and the file is
+   * chunked the chunks are decompressed in parallel.
+   */
   public LasPointCloudIterator newIterator(final LasPointCloud pointCloud,
+    final ChannelReader reader) {
+    final int threadCount = pointCloud.getDecompressThreadCount();
+    if (threadCount > 1 && isChunked()) {
+      final boolean ordered = pointCloud.isDecompressOrdered();
+      return LasZipParallelChunkedIterator.newIterator(pointCloud, reader, this, threadCount,
+        ordered);
+    } else {
+      return newSequentialIterator(pointCloud, reader);
+    }
+  }
+
+  public LasPointCloudIterator newSequentialIterator(final LasPointCloud pointCloud,
     final ChannelReader reader) {
     return this.iteratorConstructor.apply(pointCloud, reader);
   }
@@ -312,13 +312,26 @@ public class LasZipHeader implements MapSerializer {
   }
 
   public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec) {
+    return newLazCodecs(codec, LasZipDecompressSelective.ALL);
+  }
+
+  /**
+   * Construct the codecs for the items, only decompressing the layers selected by the
+   * {@link LasZipDecompressSelective} flags.
+   */
+  public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec,
+    final int decompressSelective) {
     final int itemCount = this.getNumItems();
     final LasZipItemCodec[] itemCodecs = new LasZipItemCodec[itemCount];
     for (int i = 0; i < itemCount; i++) {
       final LasZipItemType type = this.types[i];
       final int version = this.versions[i];
       final int size = this.sizes[i];
-      itemCodecs[i] = type.newCodec(codec, version, size);
+      final LasZipItemCodec itemCodec = type.newCodec(codec, version, size);
+      if (decompressSelective != LasZipDecompressSelective.ALL) {
+        itemCodec.setDecompressSelective(decompressSelective);
+      }
+      itemCodecs[i] = itemCodec;
     }
     return itemCodecs;
   }
@@ -46,6 +46,15 @@ public interface LasZipItemCodec {
   default void readChunkSizes() {
   }
 
+  /**
+   * Set the layers to decompress using the {@link LasZipDecompressSelective} flags. Layers that
+   * are not selected are skipped without decoding. Only the layered (v3) codecs support this.
+   *
+   * @param decompressSelective The selected layer flags.
+   */
+  default void setDecompressSelective(final int decompressSelective) {
+  }
+
   default int U32_ZERO_BIT_0(final int n) {
     return n & 0xFFFFFFFE;
   }
@@ -0,0 +1,172 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloudIterator;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.parallel.NamedThreadFactory;
+
+/**
+ * Decompress the chunks of a chunked LAZ file concurrently. The chunk table is read from the
+ * file, then the bytes for each chunk are read from the file and decompressed on a thread pool
+ * with their own decoder and codecs. The points are returned in file order, or in the order the
+ * chunks are decompressed if ordered is false.
+ */
+public class LasZipParallelChunkedIterator extends LasPointCloudIterator {
+
+  /**
+   * Construct a parallel iterator if the file has a chunk table, otherwise fall back to the
+   * sequential iterator for the compressor.
+   */
+  public static LasPointCloudIterator newIterator(final LasPointCloud pointCloud,
+    final ChannelReader reader, final LasZipCompressorType compressor, final int threadCount,
+    final boolean ordered) {
+    if (reader.isSeekable()) {
+      final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+      final long start = reader.position();
+      final LasZipChunkTable chunkTable = LasZipChunkTable.read(reader,
+        lasZipHeader.getChunkSize(), pointCloud.getPointCount());
+      if (chunkTable != null) {
+        return new LasZipParallelChunkedIterator(pointCloud, reader, chunkTable, threadCount,
+          ordered, pointCloud.getDecompressSelective());
+      }
+      reader.seek(start);
+    }
+    return compressor.newSequentialIterator(pointCloud, reader);
+  }
+
+  private final LasZipChunkTable chunkTable;
+
+  private final CompletionService<LasPoint[]> completionService;
+
+  private final int decompressSelective;
+
+  private final ThreadPoolExecutor executor;
+
+  private final int maxPendingCount;
+
+  private int nextChunkIndex = 0;
+
+  private final boolean ordered;
+
+  private final Deque<Future<LasPoint[]>> pendingChunks = new ArrayDeque<>();
+
+  private LasPoint[] points = new LasPoint[0];
+
+  private int pointsIndex = 0;
+
+  private final Object readLock = new Object();
+
+  public LasZipParallelChunkedIterator(final LasPointCloud pointCloud, final ChannelReader reader,
+    final LasZipChunkTable chunkTable, final int threadCount, final boolean ordered,
+    final int decompressSelective) {
+    super(pointCloud, reader);
+    this.decompressSelective = decompressSelective;
+    this.chunkTable = chunkTable;
+    this.ordered = ordered;
+    final int poolSize = Math.max(1, threadCount);
+    this.maxPendingCount = poolSize * 2;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 10, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), new NamedThreadFactory().setNamePrefix("laz-decompress"));
+    this.executor.allowCoreThreadTimeOut(true);
+    this.completionService = new ExecutorCompletionService<>(this.executor);
+  }
+
+  @Override
+  public void close() {
+    for (final Future<LasPoint[]> future : this.pendingChunks) {
+      future.cancel(true);
+    }
+    this.pendingChunks.clear();
+    this.executor.shutdownNow();
+    synchronized (this.readLock) {
+      super.close();
+    }
+  }
+
+  private LasPoint[] decompressChunk(final int chunkIndex) {
+    final byte[] bytes = new byte[this.chunkTable.getChunkByteCount(chunkIndex)];
+    synchronized (this.readLock) {
+      final ChannelReader reader = this.reader;
+      if (reader == null) {
+        return new LasPoint[0];
+      }
+      reader.seek(this.chunkTable.getChunkStart(chunkIndex));
+      reader.getBytes(bytes);
+    }
+    final ChannelReader chunkReader = new ChannelReader(new ByteArrayInputStream(bytes));
+    chunkReader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    return this.chunkTable.readChunk(this.pointCloud, chunkReader, chunkIndex,
+      this.decompressSelective);
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
+  private LasPoint[] nextChunk() throws InterruptedException, ExecutionException {
+    while (this.pendingChunks.size() < this.maxPendingCount
+      && this.nextChunkIndex < this.chunkTable.getChunkCount()) {
+      final int chunkIndex = this.nextChunkIndex++;
+      final Callable<LasPoint[]> task = () -> decompressChunk(chunkIndex);
+      final Future<LasPoint[]> future;
+      if (this.ordered) {
+        // Ordered chunks are taken from the head of pendingChunks, so they don't need to be
+        // queued on completion
+        future = this.executor.submit(task);
+      } else {
+        future = this.completionService.submit(task);
+      }
+      this.pendingChunks.add(future);
+    }
+    if (this.pendingChunks.isEmpty()) {
+      throw new IllegalStateException(
+        "Chunk table has fewer points than the header pointCount=" + this.pointCount);
+    } else if (this.ordered) {
+      final Future<LasPoint[]> future = this.pendingChunks.removeFirst();
+      return future.get();
+    } else {
+      final Future<LasPoint[]> future = this.completionService.take();
+      this.pendingChunks.remove(future);
+      return future.get();
+    }
+  }
+
+  @Override
+  protected LasPoint readNext() {
+    try {
+      while (this.pointsIndex >= this.points.length) {
+        this.points = nextChunk();
+        this.pointsIndex = 0;
+      }
+      final LasPoint point = this.points[this.pointsIndex];
+      this.points[this.pointsIndex++] = null;
+      return point;
+    } catch (final ExecutionException e) {
+      close();
+      throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(),
+        e.getCause());
+    } catch (final RuntimeException e) {
+      close();
+      throw e;
+    } catch (final Exception e) {
+      close();
+      throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(), e);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloudHeader;
+import com.revolsys.elevation.cloud.las.LasPointCloudWriter;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticEncoder;
+import com.revolsys.parallel.NamedThreadFactory;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Write a chunked LAZ file, compressing the chunks concurrently. The points for each chunk are
+ * buffered and the full chunk is compressed on a thread pool with its own encoder and codecs. The
+ * compressed chunks are written to the file in order and the chunk table is written when the
+ * writer is closed. If the output is not seekable the chunk table offset is written as -1 and the
+ * offset is appended after the chunk table. At most 2 chunks per thread are buffered before the
+ * writer waits for the oldest chunk to be written.
+ */
+public class LasZipParallelChunkedWriter extends LasPointCloudWriter {
+  private final List<Integer> chunkByteCounts = new ArrayList<>();
+
+  private int chunkPointCount;
+
+  private LasPoint[] chunkPoints;
+
+  private final int chunkSize;
+
+  private long chunkTableStartPosition = -1;
+
+  private final ThreadPoolExecutor executor;
+
+  private final boolean layered;
+
+  private final LasZipHeader lasZipHeader;
+
+  private final int maxPendingCount;
+
+  private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+
+  public LasZipParallelChunkedWriter(final LasPointCloud pointCloud,
+    final LasPointCloudHeader header, final LasZipHeader lasZipHeader, final Resource resource,
+    final MapEx properties, final int threadCount) {
+    super(resource);
+    setProperties(properties);
+    setPointCloud(pointCloud);
+    this.header = header;
+    this.lasZipHeader = lasZipHeader;
+    this.layered = lasZipHeader.isCompressor(LasZipCompressorType.LAYERED_CHUNKED);
+    this.chunkSize = (int)lasZipHeader.getChunkSize();
+    this.chunkPoints = new LasPoint[this.chunkSize];
+    final int poolSize = Math.max(1, threadCount);
+    this.maxPendingCount = poolSize * 2;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 10, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), new NamedThreadFactory().setNamePrefix("laz-compress"));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (this.out != null) {
+        if (this.chunkPointCount > 0) {
+          submitChunk();
+        }
+        while (!this.pendingChunks.isEmpty()) {
+          writeChunk();
+        }
+        writeChunkTable();
+      }
+    } finally {
+      for (final Future<byte[]> future : this.pendingChunks) {
+        future.cancel(true);
+      }
+      this.pendingChunks.clear();
+      this.executor.shutdownNow();
+      super.close();
+    }
+  }
+
+  private byte[] compressChunk(final LasPoint[] points) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final ChannelWriter chunkOut = new ChannelWriter(bytes);
+    chunkOut.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    final ArithmeticEncoder encoder = new ArithmeticEncoder(chunkOut);
+    final LasZipItemCodec[] codecs = this.lasZipHeader.newLazCodecs(encoder);
+    int contextIndex = 0;
+    for (int i = 0; i < points.length; i++) {
+      final LasPoint point = points[i];
+      if (i == 0) {
+        point.writeLasPoint(chunkOut);
+        for (final LasZipItemCodec codec : codecs) {
+          contextIndex = codec.init(point, contextIndex);
+        }
+        encoder.init();
+      } else {
+        for (final LasZipItemCodec codec : codecs) {
+          contextIndex = codec.write(point, contextIndex);
+        }
+      }
+    }
+    if (this.layered) {
+      chunkOut.putInt(points.length);
+      for (final LasZipItemCodec codec : codecs) {
+        codec.writeChunkSizes();
+      }
+      for (final LasZipItemCodec codec : codecs) {
+        codec.writeChunkBytes();
+      }
+    } else {
+      encoder.done();
+    }
+    chunkOut.flush();
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public void open() {
+    super.open();
+    if (this.out.isSeekable()) {
+      this.chunkTableStartPosition = this.out.position();
+    } else {
+      this.chunkTableStartPosition = -1;
+    }
+    this.out.putLong(this.chunkTableStartPosition);
+  }
+
+  private void submitChunk() {
+    LasPoint[] points = this.chunkPoints;
+    if (this.chunkPointCount < points.length) {
+      points = Arrays.copyOf(points, this.chunkPointCount);
+    }
+    this.chunkPoints = new LasPoint[this.chunkSize];
+    this.chunkPointCount = 0;
+    while (this.pendingChunks.size() >= this.maxPendingCount) {
+      writeChunk();
+    }
+    final LasPoint[] chunkPoints = points;
+    final Future<byte[]> future = this.executor.submit(() -> compressChunk(chunkPoints));
+    this.pendingChunks.add(future);
+  }
+
+  private void writeChunk() {
+    final Future<byte[]> future = this.pendingChunks.removeFirst();
+    try {
+      final byte[] bytes = future.get();
+      this.out.putBytes(bytes);
+      this.chunkByteCounts.add(bytes.length);
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap("Error compressing LAZ chunk", e.getCause());
+    } catch (final InterruptedException e) {
+      throw Exceptions.wrap("Interrupted compressing LAZ chunk", e);
+    }
+  }
+
+  private void writeChunkTable() {
+    final long position = this.out.position();
+    if (this.chunkTableStartPosition != -1) {
+      this.out.seek(this.chunkTableStartPosition);
+      this.out.putLong(position);
+      this.out.seek(position);
+    }
+
+    final int chunkCount = this.chunkByteCounts.size();
+    this.out.putInt(0);
+    this.out.putInt(chunkCount);
+    if (chunkCount > 0) {
+      final ArithmeticEncoder encoder = new ArithmeticEncoder(this.out);
+      encoder.init();
+      final ArithmeticCodingInteger ic = new ArithmeticCodingInteger(encoder, 32, 2);
+      ic.initCompressor();
+      for (int i = 0; i < chunkCount; i++) {
+        ic.compress(i != 0 ? this.chunkByteCounts.get(i - 1) : 0, this.chunkByteCounts.get(i), 1);
+      }
+      encoder.done();
+    }
+    if (this.chunkTableStartPosition == -1) {
+      this.out.putLong(position);
+    }
+  }
+
+  @Override
+  public void writePoint(final LasPoint point) {
+    this.header.addCounts(point);
+    this.chunkPoints[this.chunkPointCount++] = point.clone();
+    if (this.chunkPointCount == this.chunkSize) {
+      submitChunk();
+    }
+  }
+}
@@ -9,6 +9,8 @@ import com.revolsys.spring.resource.Resource;
 
 public class LasZipPointCloudWriterFactory extends BaseObjectWithProperties {
 
+  private int compressThreadCount = 0;
+
   private LasZipCompressorType compressor = LasZipCompressorType.POINTWISE;
 
   private LasZipHeader lasZipHeader;
@@ -38,6 +40,10 @@ public class LasZipPointCloudWriterFactory extends BaseObjectWithProperties {
     }
   }
 
+  public int getCompressThreadCount() {
+    return this.compressThreadCount;
+  }
+
   public int getLasZipVersion() {
     return this.lasZipVersion;
   }
@@ -45,6 +51,13 @@ public class LasZipPointCloudWriterFactory extends BaseObjectWithProperties {
   public LasPointCloudWriter newWriter() {
     LasPointCloudWriter writer;
     final MapEx properties = getProperties();
+    if (this.compressThreadCount > 1 && this.lasZipHeader.getCompressor().isChunked()
+      && this.lasZipHeader.getChunkSize() != Integer.MAX_VALUE) {
+      writer = new LasZipParallelChunkedWriter(this.pointCloud, this.header, this.lasZipHeader,
+        this.resource, properties, this.compressThreadCount);
+      writer.open();
+      return writer;
+    }
     switch (this.compressor) {
       case POINTWISE:
         writer = new LasZipPointwiseWriter(this.pointCloud, this.header, this.lasZipHeader,
@@ -65,6 +78,16 @@ public class LasZipPointCloudWriterFactory extends BaseObjectWithProperties {
     return writer;
   }
 
+  /**
+   * Set the number of threads used to compress the chunks of a chunked LAZ file in parallel.
+   * Values less than 2, or files with variable sized chunks, compress the chunks sequentially.
+   *
+   * @param compressThreadCount The number of threads.
+   */
+  public void setCompressThreadCount(final int compressThreadCount) {
+    this.compressThreadCount = compressThreadCount;
+  }
+
   public void setCompressor(final LasZipCompressorType compressor) {
     this.compressor = compressor;
   }
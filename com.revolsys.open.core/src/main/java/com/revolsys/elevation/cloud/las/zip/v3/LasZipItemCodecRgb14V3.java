@@ -54,8 +54,7 @@ public class LasZipItemCodecRgb14V3 implements LasZipItemCodec {
     for (int i = 0; i < this.contexts.length; i++) {
       this.contexts[i] = new LasZipContextRgb();
     }
-    final int decompressSelective = LasZipDecompressSelective.ALL;
-    this.rgbDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.RGB);
+    setDecompressSelective(LasZipDecompressSelective.ALL);
   }
 
   @Override
@@ -119,6 +118,11 @@ public class LasZipItemCodecRgb14V3 implements LasZipItemCodec {
     return this.currentContextIndex;
   }
 
+  @Override
+  public void setDecompressSelective(final int decompressSelective) {
+    this.rgbDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.RGB);
+  }
+
   @Override
   public int write(final LasPoint point, final int contextIndex) {
     LasZipContextRgb context = this.contexts[this.currentContextIndex];
@@ -85,7 +85,7 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
   }
 
   @Override
-  public void close() {
+  public synchronized void close() {
     super.close();
     final FileChannel fileChannel = this.channel;
     this.channel = null;
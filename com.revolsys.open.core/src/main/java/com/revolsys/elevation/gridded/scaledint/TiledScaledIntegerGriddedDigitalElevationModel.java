@@ -1,7 +1,11 @@
 package com.revolsys.elevation.gridded.scaledint;
 
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
 
 import com.revolsys.collection.map.LruMap;
 import com.revolsys.elevation.gridded.DirectFileElevationModel;
@@ -9,26 +13,89 @@ import com.revolsys.elevation.gridded.GriddedElevationModel;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.grid.AbstractGrid;
 import com.revolsys.spring.resource.Resource;
-import com.revolsys.util.IntPair;
 import com.revolsys.util.Strings;
 
+/**
+ * A gridded elevation model stored as a directory of
+ * {@link ScaledIntegerGriddedDigitalElevationModelFile} tiles.
+ *
+ * The open tiles are cached in a lock striped LRU cache so that lookups from multiple threads
+ * for different tiles don't contend on a single lock. Tiles evicted from the cache are closed.
+ * Use {@link #getValues(double[], double[], double[])} or
+ * {@link #getValues(double[], int, double[])} to look up the values for many coordinates, which
+ * avoids the cache lookup for consecutive coordinates in the same tile.
+ */
 public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
   implements GriddedElevationModel {
 
-  private int gridTileSize;
+  /**
+   * An LRU cache of tiles. The evicted tiles are held until they are removed using
+   * {@link #removeEvictedTiles()} so that they can be closed after the lock is released.
+   */
+  private static class TileCache extends LruMap<Long, DirectFileElevationModel> {
+    private static final long serialVersionUID = 1L;
 
-  private final int coordinateSystemId;
+    private final List<DirectFileElevationModel> evictedTiles = new ArrayList<>();
+
+    private TileCache(final int maxSize) {
+      super(maxSize);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Entry<Long, DirectFileElevationModel> eldest) {
+      if (super.removeEldestEntry(eldest)) {
+        this.evictedTiles.add(eldest.getValue());
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    private List<DirectFileElevationModel> removeEvictedTiles() {
+      if (this.evictedTiles.isEmpty()) {
+        return Collections.emptyList();
+      } else {
+        final List<DirectFileElevationModel> tiles = new ArrayList<>(this.evictedTiles);
+        this.evictedTiles.clear();
+        return tiles;
+      }
+    }
+
+    private void trimToMaxSize() {
+      final Iterator<DirectFileElevationModel> iterator = values().iterator();
+      while (size() > getMaxSize() && iterator.hasNext()) {
+        this.evictedTiles.add(iterator.next());
+        iterator.remove();
+      }
+    }
+  }
+
+  private static final int DEFAULT_MAX_TILE_COUNT = 5000;
 
-  private final Map<IntPair, DirectFileElevationModel> models = new LruMap<>(5000);
+  private static final int STRIPE_COUNT = 16;
+
+  private static void closeTiles(final List<DirectFileElevationModel> tiles) {
+    for (final DirectFileElevationModel tile : tiles) {
+      tile.close();
+    }
+  }
+
+  private static long tileKey(final int tileIndexX, final int tileIndexY) {
+    return (long)tileIndexX << 32 | tileIndexY & 0xFFFFFFFFL;
+  }
 
   private final Path baseDirectory;
 
-  private final IntPair getKey = new IntPair();
+  private final int coordinateSystemId;
 
   private final String filePrefix;
 
   private final int gridCellSize;
 
+  private int gridTileSize;
+
+  private final TileCache[] tileCaches = new TileCache[STRIPE_COUNT];
+
   private final String tileWidthString;
 
   public TiledScaledIntegerGriddedDigitalElevationModel(final Path baseDirectory,
@@ -45,6 +112,10 @@ public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
       .resolve(Integer.toString(this.coordinateSystemId)) //
       .resolve(this.tileWidthString)//
     ;
+    final int stripeMaxSize = getStripeMaxSize(DEFAULT_MAX_TILE_COUNT);
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      this.tileCaches[i] = new TileCache(stripeMaxSize);
+    }
   }
 
   public TiledScaledIntegerGriddedDigitalElevationModel(final Resource baseResource,
@@ -54,48 +125,128 @@ public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
       gridCellSize);
   }
 
+  /**
+   * Close and remove all the cached tiles.
+   */
   @Override
   public void clear() {
+    for (final TileCache tileCache : this.tileCaches) {
+      final List<DirectFileElevationModel> models;
+      synchronized (tileCache) {
+        models = new ArrayList<>(tileCache.values());
+        models.addAll(tileCache.removeEvictedTiles());
+        tileCache.clear();
+      }
+      closeTiles(models);
+    }
   }
 
   public int getGridTileSize() {
     return this.gridTileSize;
   }
 
+  private int getStripeMaxSize(final int maxTileCount) {
+    return Math.max(1, (maxTileCount + STRIPE_COUNT - 1) / STRIPE_COUNT);
+  }
+
+  private DirectFileElevationModel getTile(final int tileIndexX, final int tileIndexY) {
+    final long key = tileKey(tileIndexX, tileIndexY);
+    final int hash = (int)(key ^ key >>> 32) * 0x9E3779B9;
+    final TileCache tileCache = this.tileCaches[hash >>> 28];
+    final Long cacheKey = key;
+    synchronized (tileCache) {
+      final DirectFileElevationModel model = tileCache.get(cacheKey);
+      if (model != null) {
+        return model;
+      }
+    }
+    final DirectFileElevationModel newModel = newTile(tileIndexX, tileIndexY);
+    DirectFileElevationModel model;
+    final List<DirectFileElevationModel> evictedTiles;
+    synchronized (tileCache) {
+      model = tileCache.get(cacheKey);
+      if (model == null) {
+        tileCache.put(cacheKey, newModel);
+        model = newModel;
+      }
+      evictedTiles = tileCache.removeEvictedTiles();
+    }
+    // Close outside the lock as close waits for any reads from the tile to finish
+    closeTiles(evictedTiles);
+    if (model != newModel) {
+      newModel.close();
+    }
+    return model;
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
-    DirectFileElevationModel model;
-    final Map<IntPair, DirectFileElevationModel> models = this.models;
     final int tileSize = this.gridTileSize;
-    final int minGridX = Math.floorDiv(gridX, tileSize);
-    final int minGridY = Math.floorDiv(gridY, tileSize);
-    synchronized (models) {
-      final IntPair getKey = this.getKey;
-      getKey.setValues(minGridX, minGridY);
+    final int tileIndexX = Math.floorDiv(gridX, tileSize);
+    final int tileIndexY = Math.floorDiv(gridY, tileSize);
+    final int gridCellX = Math.floorMod(gridX, tileSize);
+    final int gridCellY = Math.floorMod(gridY, tileSize);
+    while (true) {
+      final DirectFileElevationModel model = getTile(tileIndexX, tileIndexY);
+      final double value = model.getValue(gridCellX, gridCellY);
+      if (model.isOpen()) {
+        return value;
+      }
+      // The tile was evicted and closed during the read so read it again
+    }
+  }
 
-      model = models.get(getKey);
-      if (model == null) {
-        final int cellSize = this.gridCellSize;
-        final int tileX = minGridX * tileSize * cellSize;
-        final int tileY = minGridY * tileSize * cellSize;
-        final GeometryFactory geometryFactory = getGeometryFactory();
-
-        final String fileName = Strings.toString("_", this.filePrefix,
-          getHorizontalCoordinateSystemId(), this.tileWidthString, tileX, tileY) + "."
-          + ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION;
-        final Path path = this.baseDirectory //
-          .resolve(Integer.toString(tileX)) //
-          .resolve(fileName);
-
-        model = new ScaledIntegerGriddedDigitalElevationModelFile(path, geometryFactory, tileX,
-          tileY, tileSize, tileSize, this.gridCellWidth);
-        models.put(getKey.clone(), model);
+  /**
+   * Get the values for the interleaved coordinates.
+   *
+   * @param coordinates The coordinates.
+   * @param axisCount The number of axis for each coordinate, the first 2 are x and y.
+   * @param values The array to write the values to, NaN if there is no value.
+   */
+  public void getValues(final double[] coordinates, final int axisCount, final double[] values) {
+    getValues(coordinates, 0, coordinates, 1, axisCount, values);
+  }
+
+  private void getValues(final double[] xCoordinates, final int xOffset,
+    final double[] yCoordinates, final int yOffset, final int step, final double[] values) {
+    final int tileSize = this.gridTileSize;
+    final int count = values.length;
+    DirectFileElevationModel model = null;
+    int currentTileIndexX = 0;
+    int currentTileIndexY = 0;
+    for (int i = 0; i < count; i++) {
+      final double x = xCoordinates[xOffset + i * step];
+      final double y = yCoordinates[yOffset + i * step];
+      final int gridX = getGridCellX(x);
+      final int gridY = getGridCellY(y);
+      final int tileIndexX = Math.floorDiv(gridX, tileSize);
+      final int tileIndexY = Math.floorDiv(gridY, tileSize);
+      final int gridCellX = Math.floorMod(gridX, tileSize);
+      final int gridCellY = Math.floorMod(gridY, tileSize);
+      if (model == null || tileIndexX != currentTileIndexX || tileIndexY != currentTileIndexY) {
+        model = getTile(tileIndexX, tileIndexY);
+        currentTileIndexX = tileIndexX;
+        currentTileIndexY = tileIndexY;
+      }
+      double value = model.getValue(gridCellX, gridCellY);
+      while (!model.isOpen()) {
+        model = getTile(tileIndexX, tileIndexY);
+        value = model.getValue(gridCellX, gridCellY);
       }
+      values[i] = value;
     }
-    final int gridCellX = gridX % tileSize;
-    final int gridCellY = gridY % tileSize;
+  }
 
-    return model.getValue(gridCellX, gridCellY);
+  /**
+   * Get the values for the x, y coordinates.
+   *
+   * @param xCoordinates The x coordinates.
+   * @param yCoordinates The y coordinates.
+   * @param values The array to write the values to, NaN if there is no value.
+   */
+  public void getValues(final double[] xCoordinates, final double[] yCoordinates,
+    final double[] values) {
+    getValues(xCoordinates, 0, yCoordinates, 0, 1, values);
   }
 
   @Override
@@ -114,10 +265,46 @@ public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
     throw new UnsupportedOperationException();
   }
 
+  private DirectFileElevationModel newTile(final int tileIndexX, final int tileIndexY) {
+    final int tileSize = this.gridTileSize;
+    final int cellSize = this.gridCellSize;
+    final int tileX = tileIndexX * tileSize * cellSize;
+    final int tileY = tileIndexY * tileSize * cellSize;
+    final GeometryFactory geometryFactory = getGeometryFactory();
+
+    final String fileName = Strings.toString("_", this.filePrefix,
+      getHorizontalCoordinateSystemId(), this.tileWidthString, tileX, tileY) + "."
+      + ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION;
+    final Path path = this.baseDirectory //
+      .resolve(Integer.toString(tileX)) //
+      .resolve(fileName);
+
+    return new ScaledIntegerGriddedDigitalElevationModelFile(path, geometryFactory, tileX, tileY,
+      tileSize, tileSize, this.gridCellWidth);
+  }
+
   public void setGridTileSize(final int gridTileSize) {
     this.gridTileSize = gridTileSize;
   }
 
+  /**
+   * Set the maximum number of open tiles. The limit is split evenly between the lock stripes.
+   *
+   * @param maxTileCount The maximum number of open tiles.
+   */
+  public void setMaxTileCount(final int maxTileCount) {
+    final int stripeMaxSize = getStripeMaxSize(maxTileCount);
+    for (final TileCache tileCache : this.tileCaches) {
+      final List<DirectFileElevationModel> evictedTiles;
+      synchronized (tileCache) {
+        tileCache.setMaxSize(stripeMaxSize);
+        tileCache.trimToMaxSize();
+        evictedTiles = tileCache.removeEvictedTiles();
+      }
+      closeTiles(evictedTiles);
+    }
+  }
+
   @Override
   public void setValue(final int x, final int y, final double elevation) {
   }
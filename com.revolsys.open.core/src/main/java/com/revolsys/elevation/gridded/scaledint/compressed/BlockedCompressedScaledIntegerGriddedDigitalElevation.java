@@ -0,0 +1,182 @@
+package com.revolsys.elevation.gridded.scaledint.compressed;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModelReaderFactory;
+import com.revolsys.elevation.gridded.GriddedElevationModelWriter;
+import com.revolsys.elevation.gridded.GriddedElevationModelWriterFactory;
+import com.revolsys.io.AbstractIoFactoryWithCoordinateSystem;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+import com.revolsys.math.arithmeticcoding.ArithmeticEncoder;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A variant of the compressed scaled integer format where the grid is split into square blocks
+ * (256x256 by default). Each block is compressed independently using the same serpentine delta
+ * predictor as the {@link CompressedScaledIntegerGriddedDigitalElevation} format, and the block
+ * directory after the header allows any block to be read without decompressing the rest of the
+ * file.
+ *
+ * <pre>
+ * header         136 bytes, the same as the compressed scaled integer format
+ * blockSize      int
+ * padding        int
+ * directory      long offset, int byteCount for each block in row order from the bottom left
+ * blocks         the compressed blocks
+ * </pre>
+ */
+public class BlockedCompressedScaledIntegerGriddedDigitalElevation
+  extends AbstractIoFactoryWithCoordinateSystem
+  implements GriddedElevationModelReaderFactory, GriddedElevationModelWriterFactory {
+
+  public static final int BLOCK_DIRECTORY_ENTRY_SIZE = 12;
+
+  public static final int DEFAULT_BLOCK_SIZE = 256;
+
+  public static final String FILE_EXTENSION = "sigdemb";
+
+  public static final String FILE_FORMAT = "SIGDEMB";
+
+  public static final byte[] FILE_FORMAT_BYTES = "SIGDEMB ".getBytes(StandardCharsets.UTF_8);
+
+  public static final int HEADER_SIZE = 144;
+
+  public static final String MEDIA_TYPE = "image/x-revolsys-sigdemb";
+
+  public static final short VERSION = 1;
+
+  private static int getValueInt(final GriddedElevationModel elevationModel, final int nullInt,
+    final int gridX, final int gridY) {
+    final int zInt = elevationModel.getValueInt(gridX, gridY);
+    if (zInt == Integer.MIN_VALUE) {
+      return nullInt;
+    } else {
+      return zInt;
+    }
+  }
+
+  /**
+   * Decompress a block into the cells array.
+   *
+   * @param reader The reader positioned at the start of the block.
+   * @param nullInt The value used for null cells.
+   * @param cells The cells to write the values to.
+   * @param cellsWidth The number of cells in a row of the cells array.
+   * @param cellX The x index in the cells array of the first cell in the block.
+   * @param cellY The y index in the cells array of the first cell in the block.
+   * @param blockWidth The number of cells in a row of the block.
+   * @param blockHeight The number of rows in the block.
+   */
+  public static void readBlock(final ChannelReader reader, final int nullInt, final int[] cells,
+    final int cellsWidth, final int cellX, final int cellY, final int blockWidth,
+    final int blockHeight) {
+    int previousZ = reader.getInt();
+    setCell(cells, cellY * cellsWidth + cellX, nullInt, previousZ);
+    final ArithmeticDecoder decoder = new ArithmeticDecoder();
+    decoder.init(reader);
+    final ArithmeticCodingInteger decompressor = decoder.newCodecInteger(32);
+    decompressor.init();
+    boolean leftToRight = true;
+    for (int y = 0; y < blockHeight; y++) {
+      final int rowIndex = (cellY + y) * cellsWidth + cellX;
+      if (leftToRight) {
+        int startX = 0;
+        if (y == 0) {
+          startX = 1;
+        }
+        for (int x = startX; x < blockWidth; x++) {
+          final int zInt = previousZ + decompressor.decompress(0);
+          setCell(cells, rowIndex + x, nullInt, zInt);
+          previousZ = zInt;
+        }
+      } else {
+        for (int x = blockWidth - 1; x >= 0; x--) {
+          final int zInt = previousZ + decompressor.decompress(0);
+          setCell(cells, rowIndex + x, nullInt, zInt);
+          previousZ = zInt;
+        }
+      }
+      leftToRight = !leftToRight;
+    }
+  }
+
+  private static void setCell(final int[] cells, final int index, final int nullInt,
+    final int zInt) {
+    if (zInt == nullInt) {
+      cells[index] = Integer.MIN_VALUE;
+    } else {
+      cells[index] = zInt;
+    }
+  }
+
+  /**
+   * Compress a block of the elevation model.
+   *
+   * @param elevationModel The elevation model.
+   * @param nullInt The value used for null cells.
+   * @param gridX The x index of the first cell in the block.
+   * @param gridY The y index of the first cell in the block.
+   * @param blockWidth The number of cells in a row of the block.
+   * @param blockHeight The number of rows in the block.
+   * @return The compressed bytes.
+   */
+  public static byte[] writeBlock(final GriddedElevationModel elevationModel, final int nullInt,
+    final int gridX, final int gridY, final int blockWidth, final int blockHeight) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (
+      ChannelWriter writer = new ChannelWriter(bytes)) {
+      try (
+        final ArithmeticEncoder encoder = new ArithmeticEncoder(writer)) {
+        final ArithmeticCodingInteger compressor = encoder.newCodecInteger(32);
+        int previousZ = getValueInt(elevationModel, nullInt, gridX, gridY);
+        writer.putInt(previousZ);
+        boolean leftToRight = true;
+        for (int y = 0; y < blockHeight; y++) {
+          if (leftToRight) {
+            int startX = 0;
+            if (y == 0) {
+              startX = 1;
+            }
+            for (int x = startX; x < blockWidth; x++) {
+              final int zInt = getValueInt(elevationModel, nullInt, gridX + x, gridY + y);
+              compressor.compress(previousZ, zInt);
+              previousZ = zInt;
+            }
+          } else {
+            for (int x = blockWidth - 1; x >= 0; x--) {
+              final int zInt = getValueInt(elevationModel, nullInt, gridX + x, gridY + y);
+              compressor.compress(previousZ, zInt);
+              previousZ = zInt;
+            }
+          }
+          leftToRight = !leftToRight;
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  public BlockedCompressedScaledIntegerGriddedDigitalElevation() {
+    super("Blocked Compressed Scaled Integer Gridded Elevation Model");
+    addMediaTypeAndFileExtension(MEDIA_TYPE, FILE_EXTENSION);
+  }
+
+  @Override
+  public BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader newGriddedElevationModelReader(
+    final Resource resource, final MapEx properties) {
+    return new BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader(resource,
+      properties);
+  }
+
+  @Override
+  public GriddedElevationModelWriter newGriddedElevationModelWriter(final Resource resource) {
+    return new BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter(resource);
+  }
+}
@@ -0,0 +1,293 @@
+package com.revolsys.elevation.gridded.scaledint.compressed;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.collection.map.LruMap;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.grid.AbstractGrid;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.file.Paths;
+
+/**
+ * Random access to a {@link BlockedCompressedScaledIntegerGriddedDigitalElevation} file. Only the
+ * header and block directory are read when the file is opened. Blocks are read using positional
+ * reads and decompressed on demand, and the most recently used blocks are cached.
+ */
+public class BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile extends AbstractGrid
+  implements GriddedElevationModel, BaseCloseable {
+
+  private int[] blockByteCounts;
+
+  private int blockCountX;
+
+  private int blockCountY;
+
+  private long[] blockOffsets;
+
+  private final LruMap<Integer, int[]> blocks;
+
+  private int blockSize;
+
+  private FileChannel channel;
+
+  private int nullInt;
+
+  private final Path path;
+
+  public BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile(final Path path) {
+    this(path, 64);
+  }
+
+  public BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile(final Path path,
+    final int maxCachedBlocks) {
+    this.path = path;
+    this.blocks = new LruMap<>(maxCachedBlocks);
+    try {
+      this.channel = FileChannel.open(path, Paths.OPEN_OPTIONS_READ_SET,
+        Paths.FILE_ATTRIBUTES_NONE);
+      readHeader();
+    } catch (final IOException e) {
+      close();
+      throw Exceptions.wrap("Unable to read: " + path, e);
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this.blocks) {
+      this.blocks.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    clear();
+    final FileChannel channel = this.channel;
+    this.channel = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (final IOException e) {
+      }
+    }
+  }
+
+  private int[] getBlock(final int blockIndex) {
+    final Integer key = blockIndex;
+    synchronized (this.blocks) {
+      final int[] cells = this.blocks.get(key);
+      if (cells != null) {
+        return cells;
+      }
+    }
+    final int[] cells = readBlock(blockIndex);
+    synchronized (this.blocks) {
+      this.blocks.put(key, cells);
+    }
+    return cells;
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  public Path getPath() {
+    return this.path;
+  }
+
+  @Override
+  public double getValueFast(final int gridX, final int gridY) {
+    final int valueInt = getValueIntFast(gridX, gridY);
+    if (valueInt == Integer.MIN_VALUE) {
+      return Double.NaN;
+    } else {
+      return getGeometryFactory().toDoubleZ(valueInt);
+    }
+  }
+
+  @Override
+  public int getValueInt(final int gridX, final int gridY) {
+    if (gridX >= 0 && gridX < this.gridWidth && gridY >= 0 && gridY < this.gridHeight) {
+      return getValueIntFast(gridX, gridY);
+    } else {
+      return Integer.MIN_VALUE;
+    }
+  }
+
+  private int getValueIntFast(final int gridX, final int gridY) {
+    final int blockSize = this.blockSize;
+    final int blockX = gridX / blockSize;
+    final int blockY = gridY / blockSize;
+    final int blockIndex = blockY * this.blockCountX + blockX;
+    final int[] cells = getBlock(blockIndex);
+    final int blockWidth = Math.min(blockSize, this.gridWidth - blockX * blockSize);
+    return cells[(gridY - blockY * blockSize) * blockWidth + gridX - blockX * blockSize];
+  }
+
+  @Override
+  public boolean hasValueFast(final int gridX, final int gridY) {
+    return getValueIntFast(gridX, gridY) != Integer.MIN_VALUE;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return false;
+  }
+
+  private int[] readBlock(final int blockIndex) {
+    final FileChannel channel = this.channel;
+    if (channel == null) {
+      throw new IllegalStateException("File closed: " + this.path);
+    }
+    final int blockSize = this.blockSize;
+    final int gridX = blockIndex % this.blockCountX * blockSize;
+    final int gridY = blockIndex / this.blockCountX * blockSize;
+    final int blockWidth = Math.min(blockSize, this.gridWidth - gridX);
+    final int blockHeight = Math.min(blockSize, this.gridHeight - gridY);
+    final byte[] bytes = new byte[this.blockByteCounts[blockIndex]];
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    long position = this.blockOffsets[blockIndex];
+    try {
+      while (buffer.hasRemaining()) {
+        final int count = channel.read(buffer, position);
+        if (count == -1) {
+          throw new IllegalStateException("Unexpected end of file reading block " + blockIndex
+            + " from " + this.path);
+        }
+        position += count;
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + this.path, e);
+    }
+    final int[] cells = new int[blockWidth * blockHeight];
+    final ChannelReader reader = new ChannelReader(new ByteArrayInputStream(bytes));
+    BlockedCompressedScaledIntegerGriddedDigitalElevation.readBlock(reader, this.nullInt, cells,
+      blockWidth, 0, 0, blockWidth, blockHeight);
+    return cells;
+  }
+
+  private void readHeader() {
+    final ChannelReader reader = new ChannelReader(this.channel);
+    final byte[] fileTypeBytes = new byte[8];
+    reader.getBytes(fileTypeBytes);
+    @SuppressWarnings("unused")
+    final short version = reader.getShort();
+    @SuppressWarnings("unused")
+    final short blank = reader.getShort();
+    final GeometryFactory geometryFactory = GeometryFactory.readOffsetScaled3d(reader);
+    final double minX = reader.getDouble();
+    final double minY = reader.getDouble();
+    final double minZ = reader.getDouble();
+    final double maxX = reader.getDouble();
+    final double maxY = reader.getDouble();
+    final double maxZ = reader.getDouble();
+    final int gridWidth = reader.getInt();
+    final int gridHeight = reader.getInt();
+    final double gridCellWidth = reader.getDouble();
+    final double gridCellHeight = reader.getDouble();
+    final int blockSize = reader.getInt();
+    @SuppressWarnings("unused")
+    final int padding = reader.getInt();
+
+    setGeometryFactory(geometryFactory);
+    final BoundingBox boundingBox = geometryFactory.newBoundingBox(3, minX, minY, minZ, maxX,
+      maxY, maxZ);
+    setBoundingBox(boundingBox);
+    setGridWidth(gridWidth);
+    setGridHeight(gridHeight);
+    setGridCellWidth(gridCellWidth);
+    setGridCellHeight(gridCellHeight);
+    this.nullInt = geometryFactory.toIntZ(minZ) - 1;
+
+    this.blockSize = blockSize;
+    this.blockCountX = (gridWidth + blockSize - 1) / blockSize;
+    this.blockCountY = (gridHeight + blockSize - 1) / blockSize;
+    final int blockCount = this.blockCountX * this.blockCountY;
+    this.blockOffsets = new long[blockCount];
+    this.blockByteCounts = new int[blockCount];
+    for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+      this.blockOffsets[blockIndex] = reader.getLong();
+      this.blockByteCounts[blockIndex] = reader.getInt();
+    }
+  }
+
+  /**
+   * Read a window of the grid into memory. Only the blocks that intersect the window are read,
+   * and they are decompressed in parallel.
+   *
+   * @param gridX The x index of the first cell of the window.
+   * @param gridY The y index of the first cell of the window.
+   * @param width The number of columns in the window.
+   * @param height The number of rows in the window.
+   * @return The elevation model for the window.
+   */
+  public IntArrayScaleGriddedElevationModel readWindow(final int gridX, final int gridY,
+    final int width, final int height) {
+    final int minGridX = Math.max(0, gridX);
+    final int minGridY = Math.max(0, gridY);
+    final int maxGridX = Math.min(this.gridWidth, gridX + width);
+    final int maxGridY = Math.min(this.gridHeight, gridY + height);
+    final int[] cells = new int[width * height];
+    Arrays.fill(cells, Integer.MIN_VALUE);
+    if (minGridX < maxGridX && minGridY < maxGridY) {
+      final int blockSize = this.blockSize;
+      final int minBlockX = minGridX / blockSize;
+      final int minBlockY = minGridY / blockSize;
+      final int maxBlockX = (maxGridX - 1) / blockSize;
+      final int maxBlockY = (maxGridY - 1) / blockSize;
+      final int windowBlockCountX = maxBlockX - minBlockX + 1;
+      final int windowBlockCount = windowBlockCountX * (maxBlockY - minBlockY + 1);
+      IntStream.range(0, windowBlockCount).parallel().forEach(i -> {
+        final int blockX = minBlockX + i % windowBlockCountX;
+        final int blockY = minBlockY + i / windowBlockCountX;
+        final int blockGridX = blockX * blockSize;
+        final int blockGridY = blockY * blockSize;
+        final int blockWidth = Math.min(blockSize, this.gridWidth - blockGridX);
+        final int[] blockCells = getBlock(blockY * this.blockCountX + blockX);
+        final int startX = Math.max(minGridX, blockGridX);
+        final int endX = Math.min(maxGridX, blockGridX + blockWidth);
+        final int startY = Math.max(minGridY, blockGridY);
+        final int endY = Math.min(maxGridY, blockGridY + blockSize);
+        for (int y = startY; y < endY; y++) {
+          System.arraycopy(blockCells, (y - blockGridY) * blockWidth + startX - blockGridX, cells,
+            (y - gridY) * width + startX - gridX, endX - startX);
+        }
+      });
+    }
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final double gridCellWidth = getGridCellWidth();
+    final double gridCellHeight = getGridCellHeight();
+    final double minX = getGridMinX() + gridX * gridCellWidth;
+    final double minY = getGridMinY() + gridY * gridCellHeight;
+    final BoundingBox boundingBox = geometryFactory.newBoundingBox(minX, minY,
+      minX + width * gridCellWidth, minY + height * gridCellHeight);
+    final IntArrayScaleGriddedElevationModel elevationModel = new IntArrayScaleGriddedElevationModel(
+      geometryFactory, boundingBox, width, height, gridCellWidth, gridCellHeight, cells);
+    elevationModel.updateValues();
+    return elevationModel;
+  }
+
+  @Override
+  public String toString() {
+    return this.path.toString();
+  }
+
+  /**
+   * The z range is stored in the header so there is no need to read all the blocks.
+   */
+  @Override
+  public void updateValues() {
+  }
+}
@@ -0,0 +1,226 @@
+package com.revolsys.elevation.gridded.scaledint.compressed;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModelReader;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.IoFactory;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.properties.BaseObjectWithProperties;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Read all the blocks of a {@link BlockedCompressedScaledIntegerGriddedDigitalElevation} file
+ * into memory. The blocks are decompressed in parallel unless parallel is set to false. Use
+ * {@link BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile} for random access to a
+ * file.
+ */
+public class BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader
+  extends BaseObjectWithProperties implements GriddedElevationModelReader {
+  private int blockSize;
+
+  private BoundingBox boundingBox;
+
+  private ByteBuffer byteBuffer;
+
+  private boolean exists;
+
+  private GeometryFactory geometryFactory = GeometryFactory.DEFAULT_3D;
+
+  private double gridCellHeight;
+
+  private double gridCellWidth;
+
+  private int gridHeight;
+
+  private int gridWidth;
+
+  private boolean initialized;
+
+  private boolean parallel = true;
+
+  private ChannelReader reader;
+
+  private Resource resource;
+
+  BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader(final Resource resource,
+    final Map<String, ? extends Object> properties) {
+    this.resource = resource;
+    setProperties(properties);
+    if (this.geometryFactory == GeometryFactory.DEFAULT_3D) {
+      this.geometryFactory = GeometryFactory.floating3d(resource, GeometryFactory.DEFAULT_3D);
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    final ChannelReader reader = this.reader;
+    this.reader = null;
+    if (reader != null) {
+      reader.close();
+    }
+    this.resource = null;
+  }
+
+  public int getBlockSize() {
+    init();
+    return this.blockSize;
+  }
+
+  @Override
+  public BoundingBox getBoundingBox() {
+    init();
+    return this.boundingBox;
+  }
+
+  public ByteBuffer getByteBuffer() {
+    return this.byteBuffer;
+  }
+
+  @Override
+  public double getGridCellHeight() {
+    init();
+    return this.gridCellHeight;
+  }
+
+  @Override
+  public double getGridCellWidth() {
+    init();
+    return this.gridCellWidth;
+  }
+
+  private void init() {
+    if (!this.initialized) {
+      this.initialized = true;
+      if (this.byteBuffer == null) {
+        this.reader = IoFactory.newChannelReader(this.resource, 8192);
+      } else {
+        this.reader = IoFactory.newChannelReader(this.resource, this.byteBuffer);
+      }
+      if (this.reader == null) {
+        this.exists = false;
+      } else {
+        this.exists = true;
+        try {
+          readHeader();
+        } catch (final Exception e) {
+          throw Exceptions.wrap("Unable to read DEM: " + this.resource, e);
+        }
+      }
+    }
+  }
+
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
+  @Override
+  public GriddedElevationModel read() {
+    init();
+    if (this.exists) {
+      try {
+        final ChannelReader reader = this.reader;
+        final int minZInt = this.geometryFactory.toIntZ(this.boundingBox.getMinZ());
+        final int nullInt = minZInt - 1;
+        final int gridWidth = this.gridWidth;
+        final int gridHeight = this.gridHeight;
+        final int blockSize = this.blockSize;
+        final int blockCountX = (gridWidth + blockSize - 1) / blockSize;
+        final int blockCountY = (gridHeight + blockSize - 1) / blockSize;
+        final int blockCount = blockCountX * blockCountY;
+        final int[] blockByteCounts = new int[blockCount];
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+          reader.getLong();
+          blockByteCounts[blockIndex] = reader.getInt();
+        }
+        final byte[][] blocks = new byte[blockCount][];
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+          final byte[] bytes = new byte[blockByteCounts[blockIndex]];
+          reader.getBytes(bytes);
+          blocks[blockIndex] = bytes;
+        }
+
+        final int[] elevations = new int[gridWidth * gridHeight];
+        IntStream blockIndexes = IntStream.range(0, blockCount);
+        if (this.parallel) {
+          blockIndexes = blockIndexes.parallel();
+        }
+        blockIndexes.forEach(blockIndex -> {
+          final int gridX = blockIndex % blockCountX * blockSize;
+          final int gridY = blockIndex / blockCountX * blockSize;
+          final int blockWidth = Math.min(blockSize, gridWidth - gridX);
+          final int blockHeight = Math.min(blockSize, gridHeight - gridY);
+          final ChannelReader blockReader = new ChannelReader(
+            new ByteArrayInputStream(blocks[blockIndex]));
+          BlockedCompressedScaledIntegerGriddedDigitalElevation.readBlock(blockReader, nullInt,
+            elevations, gridWidth, gridX, gridY, blockWidth, blockHeight);
+          blocks[blockIndex] = null;
+        });
+        final IntArrayScaleGriddedElevationModel elevationModel = new IntArrayScaleGriddedElevationModel(
+          this.geometryFactory, this.boundingBox, gridWidth, gridHeight, this.gridCellWidth,
+          this.gridCellHeight, elevations);
+        elevationModel.setResource(this.resource);
+        return elevationModel;
+      } catch (final RuntimeException e) {
+        if (Exceptions.isException(e, ClosedByInterruptException.class)) {
+          return null;
+        } else {
+          throw Exceptions.wrap("Unable to read DEM: " + this.resource, e);
+        }
+      }
+    } else {
+      return null;
+    }
+  }
+
+  private void readHeader() {
+    final byte[] fileTypeBytes = new byte[8];
+    this.reader.getBytes(fileTypeBytes);
+    @SuppressWarnings("unused")
+    final short version = this.reader.getShort();
+    @SuppressWarnings("unused")
+    final short blank = this.reader.getShort();
+    final GeometryFactory geometryFactory = GeometryFactory.readOffsetScaled3d(this.reader);
+    this.geometryFactory = geometryFactory;
+    final double minX = this.reader.getDouble();
+    final double minY = this.reader.getDouble();
+    final double minZ = this.reader.getDouble();
+    final double maxX = this.reader.getDouble();
+    final double maxY = this.reader.getDouble();
+    final double maxZ = this.reader.getDouble();
+    this.gridWidth = this.reader.getInt();
+    this.gridHeight = this.reader.getInt();
+    this.gridCellWidth = this.reader.getDouble();
+    this.gridCellHeight = this.reader.getDouble();
+    this.blockSize = this.reader.getInt();
+    @SuppressWarnings("unused")
+    final int padding = this.reader.getInt();
+    this.boundingBox = geometryFactory.newBoundingBox(3, minX, minY, minZ, maxX, maxY, maxZ);
+  }
+
+  public void setByteBuffer(final ByteBuffer byteBuffer) {
+    this.byteBuffer = byteBuffer;
+  }
+
+  public void setGeometryFactory(final GeometryFactory geometryFactory) {
+    if (geometryFactory == null) {
+      this.geometryFactory = GeometryFactory.DEFAULT_3D;
+    } else {
+      this.geometryFactory = geometryFactory;
+    }
+  }
+
+  public void setParallel(final boolean parallel) {
+    this.parallel = parallel;
+  }
+}
@@ -0,0 +1,139 @@
+package com.revolsys.elevation.gridded.scaledint.compressed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModelWriter;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.AbstractWriter;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Write a {@link BlockedCompressedScaledIntegerGriddedDigitalElevation} file. The blocks are
+ * compressed in parallel unless parallel is set to false.
+ */
+public class BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter
+  extends AbstractWriter<GriddedElevationModel> implements GriddedElevationModelWriter {
+
+  private int blockSize = BlockedCompressedScaledIntegerGriddedDigitalElevation.DEFAULT_BLOCK_SIZE;
+
+  private ByteBuffer byteBuffer;
+
+  private boolean parallel = true;
+
+  private Resource resource;
+
+  private ChannelWriter writer;
+
+  BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter(final Resource resource) {
+    this.resource = resource;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (this.writer != null) {
+      try {
+        this.writer.close();
+      } catch (final Throwable e) {
+      } finally {
+        this.writer = null;
+      }
+    }
+    this.resource = null;
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
+  @Override
+  public void open() {
+    if (this.writer == null) {
+      this.writer = this.resource.newChannelWriter(this.byteBuffer);
+    }
+  }
+
+  public void setBlockSize(final int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be > 0 not " + blockSize);
+    }
+    this.blockSize = blockSize;
+  }
+
+  public void setByteBuffer(final ByteBuffer buffer) {
+    this.byteBuffer = buffer;
+    if (buffer != null) {
+      buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+  }
+
+  public void setParallel(final boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  @Override
+  public void write(final GriddedElevationModel elevationModel) {
+    open();
+    try {
+      final ChannelWriter writer = this.writer;
+      final GeometryFactory geometryFactory = elevationModel.getGeometryFactory();
+      elevationModel.updateValues();
+      final BoundingBox boundingBox = elevationModel.getBoundingBox();
+      final int gridWidth = elevationModel.getGridWidth();
+      final int gridHeight = elevationModel.getGridHeight();
+      final double gridCellWidth = elevationModel.getGridCellWidth();
+      final double gridCellHeight = elevationModel.getGridCellHeight();
+      CompressedScaledIntegerGriddedDigitalElevationModelWriter.writeHeader(writer,
+        BlockedCompressedScaledIntegerGriddedDigitalElevation.FILE_FORMAT_BYTES,
+        BlockedCompressedScaledIntegerGriddedDigitalElevation.VERSION, boundingBox,
+        geometryFactory, gridWidth, gridHeight, gridCellWidth, gridCellHeight);
+      final int blockSize = this.blockSize;
+      writer.putInt(blockSize);
+      writer.putInt(0); // Padding to make multiples of 8 bytes in header
+
+      final int minZInt = geometryFactory.toIntZ(boundingBox.getMinZ());
+      final int nullInt = minZInt - 1;
+      final int blockCountX = (gridWidth + blockSize - 1) / blockSize;
+      final int blockCountY = (gridHeight + blockSize - 1) / blockSize;
+      final int blockCount = blockCountX * blockCountY;
+      IntStream blockIndexes = IntStream.range(0, blockCount);
+      if (this.parallel) {
+        blockIndexes = blockIndexes.parallel();
+      }
+      final byte[][] blocks = blockIndexes.mapToObj(blockIndex -> {
+        final int gridX = blockIndex % blockCountX * blockSize;
+        final int gridY = blockIndex / blockCountX * blockSize;
+        final int blockWidth = Math.min(blockSize, gridWidth - gridX);
+        final int blockHeight = Math.min(blockSize, gridHeight - gridY);
+        return BlockedCompressedScaledIntegerGriddedDigitalElevation.writeBlock(elevationModel,
+          nullInt, gridX, gridY, blockWidth, blockHeight);
+      }).toArray(byte[][]::new);
+
+      long offset = BlockedCompressedScaledIntegerGriddedDigitalElevation.HEADER_SIZE
+        + (long)blockCount
+          * BlockedCompressedScaledIntegerGriddedDigitalElevation.BLOCK_DIRECTORY_ENTRY_SIZE;
+      for (final byte[] block : blocks) {
+        writer.putLong(offset);
+        writer.putInt(block.length);
+        offset += block.length;
+      }
+      for (final byte[] block : blocks) {
+        writer.putBytes(block);
+      }
+    } catch (final IOException e) {
+      Exceptions.throwUncheckedException(e);
+    }
+  }
+}
@@ -21,9 +21,18 @@ public class CompressedScaledIntegerGriddedDigitalElevationModelWriter
   public static void writeHeader(final ChannelWriter writer, final BoundingBox boundingBox,
     final GeometryFactory geometryFactory, final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight) throws IOException {
+    writeHeader(writer, CompressedScaledIntegerGriddedDigitalElevation.FILE_FORMAT_BYTES,
+      CompressedScaledIntegerGriddedDigitalElevation.VERSION, boundingBox, geometryFactory,
+      gridWidth, gridHeight, gridCellWidth, gridCellHeight);
+  }
+
+  public static void writeHeader(final ChannelWriter writer, final byte[] fileFormatBytes,
+    final short version, final BoundingBox boundingBox, final GeometryFactory geometryFactory,
+    final int gridWidth, final int gridHeight, final double gridCellWidth,
+    final double gridCellHeight) throws IOException {
     final int coordinateSystemId = geometryFactory.getHorizontalCoordinateSystemId();
-    writer.putBytes(CompressedScaledIntegerGriddedDigitalElevation.FILE_FORMAT_BYTES);
-    writer.putShort(CompressedScaledIntegerGriddedDigitalElevation.VERSION);
+    writer.putBytes(fileFormatBytes);
+    writer.putShort(version);
     writer.putShort((short)0); // Padding to make multiples of 8 bytes in header
     writer.putInt(coordinateSystemId);
     for (int axisIndex = 0; axisIndex < 3; axisIndex++) {
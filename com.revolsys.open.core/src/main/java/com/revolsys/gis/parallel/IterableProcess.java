@@ -1,11 +1,51 @@
 package com.revolsys.gis.parallel;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jeometry.common.exception.Exceptions;
+
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.process.AbstractOutProcess;
 
 public class IterableProcess<T> extends AbstractOutProcess<T> {
+  /**
+   * The marker added to the queue after the last object read by an unordered parallel stream.
+   */
+  private static final Object END = new Object();
+
+  private static final int QUEUE_SIZE = 1000;
+
+  private static void put(final BlockingQueue<Object> queue, final AtomicBoolean running,
+    final Object object) {
+    try {
+      while (running.get()) {
+        if (queue.offer(object, 100, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+      if (object != END) {
+        throw new CancellationException();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Exceptions.wrap(e);
+    }
+  }
+
   private Iterable<T> iterable;
 
+  private boolean ordered = true;
+
+  private boolean parallel = false;
+
   public IterableProcess() {
 
   }
@@ -31,10 +71,61 @@ public class IterableProcess<T> extends AbstractOutProcess<T> {
     return this.iterable;
   }
 
+  /**
+   * Read the objects using the unordered parallel stream on the common fork join pool and add
+   * them to a bounded queue. The objects are taken from the queue and written on this thread, so
+   * {@link #write(Channel, Object)} is never called concurrently.
+   */
+  @SuppressWarnings("unchecked")
+  private void forEachUnordered(final Stream<T> stream, final Channel<T> out) {
+    final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+      try {
+        stream.forEach(object -> put(queue, running, object));
+      } finally {
+        put(queue, running, END);
+      }
+    });
+    try {
+      for (Object object = queue.take(); object != END; object = queue.take()) {
+        write(out, (T)object);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Exceptions.wrap(e);
+    } finally {
+      running.set(false);
+      queue.clear();
+    }
+    try {
+      future.join();
+    } catch (final CompletionException e) {
+      Exceptions.throwUncheckedException(e.getCause());
+    }
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
   @Override
   protected void run(final Channel<T> out) {
-    for (final T object : this.iterable) {
-      write(out, object);
+    if (this.parallel) {
+      final Stream<T> stream = StreamSupport.stream(this.iterable.spliterator(), true);
+      if (this.ordered) {
+        stream.forEachOrdered(object -> write(out, object));
+      } else {
+        forEachUnordered(stream, out);
+      }
+    } else {
+      for (final T object : this.iterable) {
+        write(out, object);
+      }
     }
   }
 
@@ -45,6 +136,27 @@ public class IterableProcess<T> extends AbstractOutProcess<T> {
     this.iterable = iterable;
   }
 
+  /**
+   * If parallel is true, write the objects to the channel in the order they were read from the
+   * iterable. Otherwise write them as soon as they are read. In both cases the objects are
+   * written to the channel one at a time.
+   *
+   * @param ordered True if the order must be preserved.
+   */
+  public void setOrdered(final boolean ordered) {
+    this.ordered = ordered;
+  }
+
+  /**
+   * Read the iterable using a parallel stream over its {@link java.util.Spliterator}. Readers
+   * such as the ShapefileRecordReader split the file so the objects are read on multiple threads.
+   *
+   * @param parallel True if the iterable should be read in parallel.
+   */
+  public void setParallel(final boolean parallel) {
+    this.parallel = parallel;
+  }
+
   @Override
   public String toString() {
     return this.iterable.toString();
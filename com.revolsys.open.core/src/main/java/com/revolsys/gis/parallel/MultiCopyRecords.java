@@ -65,6 +65,8 @@ public class MultiCopyRecords implements Process {
             Collections.<String, Boolean> emptyMap());
           final CopyRecords copy = new CopyRecords(this.sourceRecordStore, typePath, orderBy,
             this.targetRecordStore, hasSequence);
+          final int partitionCount = Maps.getInteger(processDefinition, "partitionCount", 1);
+          copy.setPartitionCount(partitionCount);
           return copy;
         } else {
           Logs.error(this, "Parameter 'typePath' required for type='copyRecords'");
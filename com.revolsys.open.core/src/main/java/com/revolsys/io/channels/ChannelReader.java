@@ -313,6 +313,20 @@ public class ChannelReader implements BaseCloseable {
     }
   }
 
+  /**
+   * Hint that the byte ranges will be read. For channels that read from a remote resource the
+   * ranges are read into the channel's cache using parallel requests, other channels ignore the
+   * hint.
+   *
+   * @param offsets The start offset of each range.
+   * @param lengths The length of each range.
+   */
+  public void prefetch(final long[] offsets, final long[] lengths) {
+    if (this.channel instanceof HttpSeekableByteChannel && offsets != null && lengths != null) {
+      ((HttpSeekableByteChannel)this.channel).prefetch(offsets, lengths);
+    }
+  }
+
   private void read(final int minCount) {
     final ReadableByteChannel channel = this.channel;
     final ByteBuffer buffer = this.buffer;
@@ -0,0 +1,530 @@
+package com.revolsys.io.channels;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+/**
+ * A least recently used cache of fixed size blocks of a HTTP resource. The blocks are read using
+ * HTTP range requests. Missing blocks that are adjacent are read using a single request and on a
+ * cache miss the following blocks are read ahead to support sequential reads. The rest of each
+ * response body is read before the stream is closed so the HTTP keep-alive connection can be
+ * reused, unless more than {@link #MAX_DRAIN_LENGTH} bytes remain, in which case the connection is
+ * disconnected.
+ * <p>
+ * If the server ignores the range and returns the whole resource, the blocks following the
+ * requested blocks are also cached, up to the maximum number of blocks for a request.
+ * </p>
+ * <p>
+ * The cache can be shared by multiple {@link HttpSeekableByteChannel}s and used by multiple
+ * threads. A block that is being read by one thread is not requested again by another thread, the
+ * other thread waits for the first request to finish.
+ * </p>
+ */
+public class HttpBlockCache {
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  public static final int DEFAULT_MAX_BLOCK_COUNT = 256;
+
+  public static final int DEFAULT_MAX_REQUEST_BLOCK_COUNT = 64;
+
+  public static final int DEFAULT_READ_AHEAD_BLOCK_COUNT = 4;
+
+  /**
+   * The maximum number of unused bytes to read from a response body so the connection can be
+   * reused.
+   */
+  public static final int MAX_DRAIN_LENGTH = 64 * 1024;
+
+  /**
+   * Read and discard the rest of the input stream, up to the maximum length.
+   *
+   * @return The number of bytes read, or -1 if the end of the stream was not reached.
+   */
+  private static long drain(final InputStream in, final long maxLength) throws IOException {
+    final byte[] buffer = new byte[8192];
+    long count = 0;
+    while (count <= maxLength) {
+      final int readCount = in.read(buffer);
+      if (readCount == -1) {
+        return count;
+      }
+      count += readCount;
+    }
+    return -1;
+  }
+
+  private static long parseContentRangeLength(final String contentRange) {
+    final int slashIndex = contentRange.indexOf('/');
+    if (slashIndex != -1) {
+      final String length = contentRange.substring(slashIndex + 1).trim();
+      if (!"*".equals(length)) {
+        return Long.parseLong(length);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Read the bytes from the input stream until the length has been read or the end of the stream
+   * is reached.
+   *
+   * @return The number of bytes read, less than the length if the end of the stream was reached.
+   */
+  private static int readFully(final InputStream in, final byte[] bytes, final int length)
+    throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      final int readCount = in.read(bytes, offset, length - offset);
+      if (readCount == -1) {
+        break;
+      }
+      offset += readCount;
+    }
+    return offset;
+  }
+
+  private final LinkedHashMap<Long, byte[]> blocks;
+
+  private final int blockSize;
+
+  private final Consumer<HttpURLConnection> connectionInitializer;
+
+  private volatile long length = -1;
+
+  private final int maxBlockCount;
+
+  /**
+   * The fetch that is reading each block that is not yet in the cache.
+   */
+  private final Map<Long, CompletableFuture<Void>> pendingFetches = new HashMap<>();
+
+  private int maxRequestBlockCount = DEFAULT_MAX_REQUEST_BLOCK_COUNT;
+
+  private int readAheadBlockCount = DEFAULT_READ_AHEAD_BLOCK_COUNT;
+
+  private final URL url;
+
+  public HttpBlockCache(final URL url) {
+    this(url, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCK_COUNT, null);
+  }
+
+  /**
+   * Construct a new cache.
+   *
+   * @param url The URL of the resource.
+   * @param blockSize The size of each block in bytes.
+   * @param maxBlockCount The maximum number of blocks to keep in memory.
+   * @param connectionInitializer Initializer to set headers (e.g. authorization) on each request,
+   * or null.
+   */
+  public HttpBlockCache(final URL url, final int blockSize, final int maxBlockCount,
+    final Consumer<HttpURLConnection> connectionInitializer) {
+    this.url = url;
+    this.blockSize = blockSize;
+    this.maxBlockCount = maxBlockCount;
+    this.connectionInitializer = connectionInitializer;
+    this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Entry<Long, byte[]> eldest) {
+        return size() > maxBlockCount;
+      }
+    };
+  }
+
+  /**
+   * Add the fetch as the pending fetch of the blocks from the first block index, stopping at the
+   * first block that is cached or being read. Must be called while synchronized on the blocks.
+   *
+   * @return The index of the last block to read, less than the first block index if the first
+   * block is cached or being read.
+   */
+  private long addPendingFetch(final CompletableFuture<Void> fetch, final long firstBlockIndex,
+    final long lastBlockIndex) {
+    long blockIndex = firstBlockIndex;
+    while (blockIndex <= lastBlockIndex && !this.blocks.containsKey(blockIndex)
+      && !this.pendingFetches.containsKey(blockIndex)) {
+      this.pendingFetches.put(blockIndex, fetch);
+      blockIndex++;
+    }
+    return blockIndex - 1;
+  }
+
+  /**
+   * Wait for a fetch by another thread to finish.
+   */
+  private void awaitFetch(final CompletableFuture<Void> fetch) throws IOException {
+    try {
+      fetch.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw new IOException("Unable to read " + this.url, cause);
+      } else {
+        Exceptions.throwUncheckedException(cause);
+      }
+    }
+  }
+
+  /**
+   * Read the blocks that were added as pending for the fetch and complete the fetch, so other
+   * threads waiting for the blocks can continue.
+   */
+  private void fetchBlocks(final CompletableFuture<Void> fetch, final long firstBlockIndex,
+    final long lastBlockIndex) throws IOException {
+    Throwable error = null;
+    try {
+      fetchBlocks(firstBlockIndex, lastBlockIndex);
+    } catch (final IOException | RuntimeException | Error e) {
+      error = e;
+      throw e;
+    } finally {
+      synchronized (this.blocks) {
+        for (long blockIndex = firstBlockIndex; blockIndex <= lastBlockIndex; blockIndex++) {
+          this.pendingFetches.remove(blockIndex, fetch);
+        }
+      }
+      if (error == null) {
+        fetch.complete(null);
+      } else {
+        fetch.completeExceptionally(error);
+      }
+    }
+  }
+
+  /**
+   * Read the blocks from the first to the last block index inclusive using a single range
+   * request.
+   */
+  private void fetchBlocks(final long firstBlockIndex, final long lastBlockIndex)
+    throws IOException {
+    final int blockSize = this.blockSize;
+    final long start = firstBlockIndex * blockSize;
+    long end = (lastBlockIndex + 1) * blockSize - 1;
+    long length = this.length;
+    if (length >= 0) {
+      end = Math.min(end, length - 1);
+      if (start > end) {
+        return;
+      }
+    }
+    final URLConnection connection = this.url.openConnection();
+    connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+    HttpURLConnection httpConnection = null;
+    if (connection instanceof HttpURLConnection) {
+      httpConnection = (HttpURLConnection)connection;
+      if (this.connectionInitializer != null) {
+        this.connectionInitializer.accept(httpConnection);
+      }
+      final int responseCode = httpConnection.getResponseCode();
+      if (responseCode >= 400) {
+        if (responseCode == 416) {
+          final String contentRange = httpConnection.getHeaderField("Content-Range");
+          if (contentRange != null) {
+            setLength(parseContentRangeLength(contentRange));
+          }
+        }
+        boolean disconnect = false;
+        final InputStream errorStream = httpConnection.getErrorStream();
+        if (errorStream != null) {
+          try (
+            InputStream in = errorStream) {
+            disconnect = drain(in, MAX_DRAIN_LENGTH) == -1;
+          }
+        }
+        if (disconnect) {
+          httpConnection.disconnect();
+        }
+        if (responseCode == 416) {
+          // Range not satisfiable, the start is past the end of the resource
+          return;
+        } else {
+          throw new IOException("Unable to read " + this.url + " bytes " + start + "-" + end
+            + ": " + responseCode + " " + httpConnection.getResponseMessage());
+        }
+      }
+    }
+    boolean disconnect = false;
+    try (
+      InputStream in = connection.getInputStream()) {
+      final String contentRange = connection.getHeaderField("Content-Range");
+      final boolean wholeResource = contentRange == null;
+      long lastCacheBlockIndex = lastBlockIndex;
+      if (wholeResource) {
+        // The server ignored the range and returned the whole resource
+        length = connection.getContentLengthLong();
+        setLength(length);
+        long skipCount = start;
+        while (skipCount > 0) {
+          final long skipped = in.skip(skipCount);
+          if (skipped > 0) {
+            skipCount -= skipped;
+          } else if (in.read() == -1) {
+            // The start is past the end of the resource
+            setLength(start - skipCount);
+            return;
+          } else {
+            skipCount--;
+          }
+        }
+        // Cache the following blocks as they are in the body anyway
+        final int maxCacheBlockCount = Math.min(this.maxRequestBlockCount, this.maxBlockCount);
+        lastCacheBlockIndex = Math.max(lastBlockIndex, firstBlockIndex + maxCacheBlockCount - 1);
+      } else {
+        length = parseContentRangeLength(contentRange);
+        setLength(length);
+      }
+      long position = start;
+      for (long blockIndex = firstBlockIndex; blockIndex <= lastCacheBlockIndex; blockIndex++) {
+        final long blockStart = blockIndex * blockSize;
+        int blockLength = blockSize;
+        if (length >= 0) {
+          blockLength = (int)Math.min(blockSize, length - blockStart);
+        }
+        if (blockLength <= 0) {
+          break;
+        }
+        byte[] block = new byte[blockLength];
+        final int readCount = readFully(in, block, blockLength);
+        position += readCount;
+        if (readCount < blockLength) {
+          if (length >= 0) {
+            throw new EOFException();
+          }
+          // The length is not known, the end of the resource is in this block
+          length = position;
+          setLength(length);
+          if (readCount == 0) {
+            break;
+          }
+          block = Arrays.copyOf(block, readCount);
+        }
+        synchronized (this.blocks) {
+          this.blocks.put(blockIndex, block);
+        }
+      }
+      // Read the rest of the body so the keep-alive connection can be reused
+      final long remainingCount = drain(in, MAX_DRAIN_LENGTH);
+      if (remainingCount == -1) {
+        disconnect = true;
+      } else if (wholeResource && this.length < 0) {
+        setLength(position + remainingCount);
+      }
+    }
+    if (disconnect && httpConnection != null) {
+      // Too much of the body is left, close the connection instead of reading it
+      httpConnection.disconnect();
+    }
+  }
+
+  /**
+   * Get the block from the cache, reading it and the read ahead blocks if it is not cached. If
+   * another thread is reading the block then wait for that thread.
+   *
+   * @return The block, or null if the block is past the end of the resource.
+   */
+  private byte[] getBlock(final long blockIndex) throws IOException {
+    while (true) {
+      CompletableFuture<Void> fetch;
+      long lastBlockIndex = -1;
+      synchronized (this.blocks) {
+        final byte[] block = this.blocks.get(blockIndex);
+        if (block != null) {
+          return block;
+        }
+        fetch = this.pendingFetches.get(blockIndex);
+        if (fetch == null) {
+          fetch = new CompletableFuture<>();
+          lastBlockIndex = addPendingFetch(fetch, blockIndex,
+            blockIndex + this.readAheadBlockCount);
+        }
+      }
+      if (lastBlockIndex == -1) {
+        awaitFetch(fetch);
+      } else {
+        fetchBlocks(fetch, blockIndex, lastBlockIndex);
+        synchronized (this.blocks) {
+          return this.blocks.get(blockIndex);
+        }
+      }
+    }
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  /**
+   * Get the length of the resource, reading the first block if the length is not known.
+   *
+   * @return The length in bytes, or -1 if the server did not return the length and the end of the
+   * resource has not been read.
+   */
+  public long getLength() throws IOException {
+    if (this.length < 0) {
+      getBlock(0);
+    }
+    return this.length;
+  }
+
+  public URL getUrl() {
+    return this.url;
+  }
+
+  /**
+   * Read the byte ranges that will be read later into the cache. Missing blocks that are adjacent
+   * are read using a single request and the requests are executed in parallel. Only as many
+   * blocks as fit in the cache are read. Blocks that are being read by another thread are not
+   * read again.
+   *
+   * @param offsets The start offset of each range.
+   * @param lengths The length of each range.
+   */
+  public void prefetch(final long[] offsets, final long[] lengths) {
+    final int blockSize = this.blockSize;
+    final List<long[]> runs = new ArrayList<>();
+    final List<CompletableFuture<Void>> fetches = new ArrayList<>();
+    synchronized (this.blocks) {
+      final List<Long> blockIndexes = new ArrayList<>();
+      for (int i = 0; i < offsets.length && i < lengths.length; i++) {
+        final long length = lengths[i];
+        if (length > 0) {
+          final long offset = offsets[i];
+          final long firstBlockIndex = offset / blockSize;
+          final long lastBlockIndex = (offset + length - 1) / blockSize;
+          for (long blockIndex = firstBlockIndex; blockIndex <= lastBlockIndex; blockIndex++) {
+            if (!this.blocks.containsKey(blockIndex)
+              && !this.pendingFetches.containsKey(blockIndex)) {
+              blockIndexes.add(blockIndex);
+            }
+          }
+        }
+      }
+      final long[] sortedIndexes = blockIndexes.stream()
+        .mapToLong(Long::longValue)
+        .sorted()
+        .distinct()
+        .toArray();
+      long runStart = -1;
+      long runEnd = -1;
+      int blockCount = 0;
+      final int maxBlockCount = this.maxBlockCount;
+      for (final long blockIndex : sortedIndexes) {
+        if (blockCount++ >= maxBlockCount) {
+          break;
+        } else if (runStart != -1 && blockIndex == runEnd + 1
+          && runEnd - runStart + 1 < this.maxRequestBlockCount) {
+          runEnd = blockIndex;
+        } else {
+          if (runStart != -1) {
+            runs.add(new long[] {
+              runStart, runEnd
+            });
+          }
+          runStart = blockIndex;
+          runEnd = blockIndex;
+        }
+      }
+      if (runStart != -1) {
+        runs.add(new long[] {
+          runStart, runEnd
+        });
+      }
+      for (final long[] run : runs) {
+        final CompletableFuture<Void> fetch = new CompletableFuture<>();
+        addPendingFetch(fetch, run[0], run[1]);
+        fetches.add(fetch);
+      }
+    }
+    IntStream.range(0, runs.size()).parallel().forEach(i -> {
+      final long[] run = runs.get(i);
+      try {
+        fetchBlocks(fetches.get(i), run[0], run[1]);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to read " + this.url, e);
+      }
+    });
+  }
+
+  /**
+   * Read bytes starting at the position into the buffer.
+   *
+   * @param position The position in the resource.
+   * @param buffer The buffer to read into.
+   * @return The number of bytes read, or -1 if the position is at or past the end of the resource.
+   */
+  public int read(final long position, final ByteBuffer buffer) throws IOException {
+    final int blockSize = this.blockSize;
+    int totalCount = 0;
+    long currentPosition = position;
+    while (buffer.hasRemaining()) {
+      final long length = this.length;
+      if (length >= 0 && currentPosition >= length) {
+        break;
+      }
+      final long blockIndex = currentPosition / blockSize;
+      final byte[] block = getBlock(blockIndex);
+      if (block == null) {
+        break;
+      }
+      final int blockOffset = (int)(currentPosition - blockIndex * blockSize);
+      final int count = Math.min(block.length - blockOffset, buffer.remaining());
+      if (count <= 0) {
+        break;
+      }
+      buffer.put(block, blockOffset, count);
+      totalCount += count;
+      currentPosition += count;
+    }
+    if (totalCount == 0 && buffer.hasRemaining()) {
+      return -1;
+    } else {
+      return totalCount;
+    }
+  }
+
+  private synchronized void setLength(final long length) {
+    if (length >= 0) {
+      this.length = length;
+    }
+  }
+
+  /**
+   * Set the maximum number of blocks to read in a single range request.
+   */
+  public void setMaxRequestBlockCount(final int maxRequestBlockCount) {
+    this.maxRequestBlockCount = Math.max(1, maxRequestBlockCount);
+  }
+
+  /**
+   * Set the number of blocks after a missing block to read in the same request.
+   */
+  public void setReadAheadBlockCount(final int readAheadBlockCount) {
+    this.readAheadBlockCount = Math.max(0, readAheadBlockCount);
+  }
+
+  @Override
+  public String toString() {
+    return this.url.toString();
+  }
+}
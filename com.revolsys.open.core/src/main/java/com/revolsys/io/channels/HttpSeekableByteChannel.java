@@ -2,54 +2,43 @@ package com.revolsys.io.channels;
 
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SeekableByteChannel;
 
+/**
+ * A read only seekable channel for a HTTP resource. Changing the position does not make a new
+ * request, the bytes are read through a {@link HttpBlockCache} using range requests. Channels
+ * created with the same cache share the blocks that have been read.
+ */
 public class HttpSeekableByteChannel implements SeekableByteChannel {
 
-  private final URL url;
+  private final HttpBlockCache cache;
 
-  private ReadableByteChannel channel;
+  private boolean open = true;
 
   private long position;
 
-  private long length;
+  public HttpSeekableByteChannel(final HttpBlockCache cache) {
+    this.cache = cache;
+  }
 
   public HttpSeekableByteChannel(final URL url) {
-    this.url = url;
+    this(new HttpBlockCache(url));
   }
 
   @Override
   public void close() throws IOException {
-    this.channel.close();
-    this.channel = null;
+    this.open = false;
   }
 
-  private ReadableByteChannel getChannel() throws IOException {
-    if (this.channel == null) {
-      final URLConnection connection = this.url.openConnection();
-      if (this.position > 0) {
-        final String range = "bytes=" + this.position + "-";
-        connection.addRequestProperty("Range", range);
-      }
-      this.channel = Channels.newChannel(connection.getInputStream());
-      final String contentRange = connection.getHeaderField("Content-Range");
-      if (contentRange == null) {
-        final String contentLength = connection.getHeaderField("Content-Length");
-        this.length = Long.parseLong(contentLength);
-      } else {
-        this.length = Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
-      }
-    }
-    return this.channel;
+  public HttpBlockCache getCache() {
+    return this.cache;
   }
 
   @Override
   public boolean isOpen() {
-    return this.channel != null && this.channel.isOpen();
+    return this.open;
   }
 
   @Override
@@ -59,29 +48,48 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
 
   @Override
   public SeekableByteChannel position(final long position) throws IOException {
-    if (position != this.position) {
-      if (this.channel != null) {
-        this.channel.close();
-        this.channel = null;
-      }
+    if (position < 0) {
+      throw new IllegalArgumentException("Position must be >= 0: " + position);
     }
     this.position = position;
     return this;
   }
 
+  /**
+   * Read the byte ranges that will be read later into the cache using parallel requests.
+   *
+   * @param offsets The start offset of each range.
+   * @param lengths The length of each range.
+   * @see HttpBlockCache#prefetch(long[], long[])
+   */
+  public void prefetch(final long[] offsets, final long[] lengths) {
+    this.cache.prefetch(offsets, lengths);
+  }
+
   @Override
   public int read(final ByteBuffer buffer) throws IOException {
-    final ReadableByteChannel channel = getChannel();
-    final int value = channel.read(buffer);
-    if (value != -1) {
-      this.position += value;
+    if (!this.open) {
+      throw new ClosedChannelException();
+    }
+    final int count = this.cache.read(this.position, buffer);
+    if (count > 0) {
+      this.position += count;
     }
-    return value;
+    return count;
   }
 
+  /**
+   * Get the length of the resource.
+   *
+   * @throws IOException If the server did not return the length.
+   */
   @Override
   public long size() throws IOException {
-    return this.length;
+    final long length = this.cache.getLength();
+    if (length < 0) {
+      throw new IOException("Length of " + this.cache.getUrl() + " is not known");
+    }
+    return length;
   }
 
   @Override
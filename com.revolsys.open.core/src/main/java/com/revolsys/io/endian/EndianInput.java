@@ -227,6 +227,21 @@ public interface EndianInput extends Closeable {
     return Double.longBitsToDouble(value);
   }
 
+  /**
+   * Read count little endian doubles into the values array starting at offset.
+   *
+   * @param values The array to read the values into.
+   * @param offset The index in values to write the first value.
+   * @param count The number of values to read.
+   * @throws IOException If an I/O error occurs.
+   */
+  default void readLEDoubles(final double[] values, final int offset, final int count)
+    throws IOException {
+    for (int i = 0; i < count; i++) {
+      values[offset + i] = readLEDouble();
+    }
+  }
+
   default float readLEFloat() throws IOException {
     final int value = readLEInt();
     return Float.intBitsToFloat(value);
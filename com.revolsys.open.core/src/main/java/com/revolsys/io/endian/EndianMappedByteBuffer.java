@@ -23,6 +23,7 @@ package com.revolsys.io.endian;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
@@ -30,9 +31,14 @@ import java.nio.channels.FileChannel.MapMode;
 
 import org.jeometry.common.exception.Exceptions;
 
+import com.revolsys.io.EndOfFileException;
+
 public class EndianMappedByteBuffer implements EndianInputOutput {
   private final MappedByteBuffer buffer;
 
+  /** Little endian view of the buffer used for absolute reads without changing the byte order. */
+  private final ByteBuffer leBuffer;
+
   private final RandomAccessFile randomAccessFile;
 
   public EndianMappedByteBuffer(final File file, final MapMode mapMode) throws IOException {
@@ -44,6 +50,8 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
     final FileChannel channel = this.randomAccessFile.getChannel();
     this.buffer = channel.map(mapMode, 0, this.randomAccessFile.length());
     this.buffer.order(ByteOrder.BIG_ENDIAN);
+    this.leBuffer = this.buffer.duplicate();
+    this.leBuffer.order(ByteOrder.LITTLE_ENDIAN);
   }
 
   public EndianMappedByteBuffer(final String name, final MapMode mapMode) throws IOException {
@@ -68,6 +76,17 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
     return this.buffer.position();
   }
 
+  /**
+   * Get the little endian view of the mapped file. The position of the view is independent of
+   * this file's position, use {@link #getFilePointer()} and {@link #seek(long)} to keep them in
+   * sync.
+   *
+   * @return The little endian buffer.
+   */
+  public ByteBuffer getLittleEndianBuffer() {
+    return this.leBuffer;
+  }
+
   @Override
   public long length() throws IOException {
     return this.randomAccessFile.length();
@@ -75,7 +94,11 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public int read() throws IOException {
-    return this.buffer.get();
+    if (this.buffer.hasRemaining()) {
+      return this.buffer.get() & 0xFF;
+    } else {
+      return -1;
+    }
   }
 
   @Override
@@ -91,17 +114,27 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public int readInt() throws IOException {
+    if (this.buffer.remaining() < 4) {
+      throw new EndOfFileException();
+    }
     return this.buffer.getInt();
   }
 
   @Override
   public double readLEDouble() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
-    try {
-      return this.buffer.getDouble();
-    } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
-    }
+    final int position = this.buffer.position();
+    final double value = this.leBuffer.getDouble(position);
+    this.buffer.position(position + 8);
+    return value;
+  }
+
+  @Override
+  public void readLEDoubles(final double[] values, final int offset, final int count)
+    throws IOException {
+    final int position = this.buffer.position();
+    this.leBuffer.position(position);
+    this.leBuffer.asDoubleBuffer().get(values, offset, count);
+    this.buffer.position(position + count * 8);
   }
 
   @Override
@@ -112,32 +145,26 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public int readLEInt() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
-    try {
-      return this.buffer.getInt();
-    } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
-    }
+    final int position = this.buffer.position();
+    final int value = this.leBuffer.getInt(position);
+    this.buffer.position(position + 4);
+    return value;
   }
 
   @Override
   public long readLELong() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
-    try {
-      return this.buffer.getLong();
-    } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
-    }
+    final int position = this.buffer.position();
+    final long value = this.leBuffer.getLong(position);
+    this.buffer.position(position + 8);
+    return value;
   }
 
   @Override
   public short readLEShort() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
-    try {
-      return this.buffer.getShort();
-    } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
-    }
+    final int position = this.buffer.position();
+    final short value = this.leBuffer.getShort(position);
+    this.buffer.position(position + 2);
+    return value;
   }
 
   @Override
@@ -22,6 +22,7 @@ import java.util.UUID;
 import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 
+import org.apache.commons.dbcp2.BasicDataSource;
 import org.jeometry.common.data.identifier.Identifier;
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
@@ -35,6 +36,7 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 import com.revolsys.collection.ResultPager;
 import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.collection.map.Maps;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.io.PathUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
@@ -51,6 +53,7 @@ import com.revolsys.record.io.RecordStoreExtension;
 import com.revolsys.record.io.RecordStoreQueryReader;
 import com.revolsys.record.io.RecordWriter;
 import com.revolsys.record.property.GlobalIdProperty;
+import com.revolsys.record.query.Q;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.AbstractRecordStore;
 import com.revolsys.record.schema.FieldDefinition;
@@ -86,10 +89,14 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   private List<String> excludeTablePatterns = new ArrayList<>();
 
+  private int fetchSize = 10;
+
   private final Map<String, JdbcFieldAdder> fieldDefinitionAdders = new HashMap<>();
 
   private boolean flushBetweenTypes;
 
+  private int prefetchSize = 0;
+
   private String primaryKeySql;
 
   private String primaryKeyTableCondition;
@@ -311,6 +318,16 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return this.excludeTablePaths;
   }
 
+  /**
+   * Get the default number of rows to fetch from the database in each round trip for queries.
+   *
+   * @return The fetch size.
+   */
+  @Override
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public JdbcFieldDefinition getField(final String schemaName, final String tableName,
     final String columnName) {
     final String typePath = PathUtil.toPath(schemaName, tableName);
@@ -356,10 +373,77 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return new JdbcConnection(this.dataSource, autoCommit);
   }
 
+  /**
+   * Get the minimum and maximum value of the id field for the records matched by the query.
+   *
+   * @param query The query.
+   * @param idField The numeric id field.
+   * @return The min and max value or null if there are no records.
+   */
+  protected long[] getKeyRange(final Query query, final JdbcFieldDefinition idField) {
+    final Query rangeQuery = query.clone();
+    rangeQuery.setSql(null);
+    rangeQuery.clearOrderBy();
+    final StringBuilder columnName = new StringBuilder();
+    idField.appendColumnName(columnName);
+    rangeQuery.setFieldNames("MIN(" + columnName + ")", "MAX(" + columnName + ")");
+    final String sql = JdbcUtils.getSelectSql(rangeQuery);
+    try (
+      JdbcConnection connection = getJdbcConnection()) {
+      try (
+        final PreparedStatement statement = connection.prepareStatement(sql)) {
+        JdbcUtils.setPreparedStatementParameters(statement, rangeQuery);
+        try (
+          final ResultSet resultSet = statement.executeQuery()) {
+          if (resultSet.next()) {
+            final Object min = resultSet.getObject(1);
+            final Object max = resultSet.getObject(2);
+            if (min instanceof Number && max instanceof Number) {
+              return new long[] {
+                ((Number)min).longValue(), ((Number)max).longValue()
+              };
+            }
+          }
+          return null;
+        }
+      } catch (final SQLException e) {
+        throw connection.getException("getKeyRange", sql, e);
+      }
+    }
+  }
+
   protected Identifier getNextPrimaryKey(final String typePath) {
     return null;
   }
 
+  /**
+   * Get the maximum number of connections in the data source's pool. If the pool size is not
+   * limited or not known the number of available processors is returned.
+   *
+   * @return The maximum number of connections.
+   */
+  public int getMaxConnections() {
+    final DataSource dataSource = getDataSource();
+    if (dataSource instanceof BasicDataSource) {
+      final int maxTotal = ((BasicDataSource)dataSource).getMaxTotal();
+      if (maxTotal > 0) {
+        return maxTotal;
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Get the default number of records that query iterators decode in a background thread ahead of
+   * the consumer. 0 disables prefetching.
+   *
+   * @return The prefetch size.
+   */
+  @Override
+  public int getPrefetchSize() {
+    return this.prefetchSize;
+  }
+
   @Override
   public int getRecordCount(Query query) {
     if (query == null) {
@@ -629,6 +713,82 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     }
   }
 
+  /**
+   * Split the query into a grid of partitions over the bounding box.
+   *
+   * @see JdbcQueryPartition#newBoundingBoxPartitions(Query, BoundingBox, int, int)
+   */
+  public List<JdbcQueryPartition> newBoundingBoxPartitions(final Query query,
+    final BoundingBox boundingBox, final int gridWidth, final int gridHeight) {
+    return JdbcQueryPartition.newBoundingBoxPartitions(query, boundingBox, gridWidth, gridHeight);
+  }
+
+  /**
+   * Split the query into partitions by ranges of a single numeric primary key field. The ranges
+   * are calculated from the minimum and maximum id of the records matched by the query. The first
+   * partition has no lower bound and the last no upper bound so every record is returned by
+   * exactly one partition. A single partition is returned if the record definition does not have a
+   * single numeric id field or the query has an offset or limit.
+   *
+   * @param query The query to split.
+   * @param partitionCount The maximum number of partitions.
+   * @return The partitions.
+   */
+  public List<JdbcQueryPartition> newKeyRangePartitions(final Query query,
+    final int partitionCount) {
+    final List<JdbcQueryPartition> partitions = new ArrayList<>();
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    final List<FieldDefinition> idFields = recordDefinition.getIdFields();
+    if (partitionCount > 1 && idFields.size() == 1 && query.getOffset() == 0
+      && query.getLimit() == Integer.MAX_VALUE) {
+      final FieldDefinition idField = idFields.get(0);
+      if (idField instanceof JdbcFieldDefinition
+        && Number.class.isAssignableFrom(idField.getDataType().getJavaClass())) {
+        final long[] range = getKeyRange(query, (JdbcFieldDefinition)idField);
+        if (range != null) {
+          final long min = range[0];
+          final long max = range[1];
+          final double step = ((double)max - min + 1) / partitionCount;
+          long previousBoundary = min;
+          for (int i = 0; i < partitionCount; i++) {
+            final Query partitionQuery = query.clone();
+            if (i > 0) {
+              partitionQuery.and(Q.greaterThanEqual(idField, previousBoundary));
+            }
+            if (i < partitionCount - 1) {
+              final long boundary = min + (long)Math.ceil(step * (i + 1));
+              if (boundary <= previousBoundary) {
+                continue;
+              }
+              partitionQuery.and(Q.lessThan(idField, boundary));
+              previousBoundary = boundary;
+            }
+            partitions.add(new JdbcQueryPartition(partitionQuery));
+          }
+          return partitions;
+        }
+      }
+    }
+    partitions.add(new JdbcQueryPartition(query.clone()));
+    return partitions;
+  }
+
+  /**
+   * Construct a reader that reads the query using up to partitionCount concurrent connections. The
+   * query is split using {@link #newKeyRangePartitions(Query, int)}. If ordered is true the
+   * records are returned in id range order, otherwise in the order they are read.
+   *
+   * @param query The query.
+   * @param partitionCount The maximum number of partitions.
+   * @param ordered True if the partitions should be returned in order.
+   * @return The reader.
+   */
+  public JdbcPartitionedRecordReader newPartitionedRecordReader(final Query query,
+    final int partitionCount, final boolean ordered) {
+    final List<JdbcQueryPartition> partitions = newKeyRangePartitions(query, partitionCount);
+    return new JdbcPartitionedRecordReader(this, partitions, ordered);
+  }
+
   protected Identifier newPrimaryIdentifier(final JdbcRecordDefinition recordDefinition) {
     final GlobalIdProperty globalIdProperty = GlobalIdProperty.getProperty(recordDefinition);
     if (globalIdProperty == null) {
@@ -865,10 +1025,18 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.excludeTablePatterns = new ArrayList<>(Arrays.asList(excludeTablePatterns));
   }
 
+  public void setFetchSize(final int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
 
+  public void setPrefetchSize(final int prefetchSize) {
+    this.prefetchSize = prefetchSize;
+  }
+
   public void setPrimaryKeySql(final String primaryKeySql) {
     this.primaryKeySql = primaryKeySql;
   }
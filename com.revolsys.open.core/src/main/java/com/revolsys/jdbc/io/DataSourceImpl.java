@@ -1,32 +1,178 @@
 package com.revolsys.jdbc.io;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import org.apache.commons.dbcp2.BasicDataSource;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.jmx.ConnectionPoolMXBean;
 
+/**
+ * A pooled data source that retries once if a connection could not be checked out before the
+ * wait timeout. Connections are checked out without any lock other than those in the pool itself.
+ * The pool statistics can be exposed through JMX by setting the poolMetricsName.
+ */
 public class DataSourceImpl extends BasicDataSource {
 
-  @Override
-  public synchronized Connection getConnection() throws SQLException {
-    try {
-      return super.getConnection();
-    } catch (final Exception e) {
-      final Throwable cause = e.getCause();
-      if (cause instanceof NoSuchElementException
-        && "Timeout waiting for idle object".equals(cause.getMessage())) {
-        // Retry once on timeout
-        return super.getConnection();
+  private static boolean isTimeout(final Exception e) {
+    final Throwable cause = e.getCause();
+    return cause instanceof NoSuchElementException
+      && "Timeout waiting for idle object".equals(cause.getMessage());
+  }
+
+  private class PoolMetrics implements ConnectionPoolMXBean {
+    @Override
+    public int getActiveCount() {
+      return DataSourceImpl.this.getNumActive();
+    }
+
+    @Override
+    public long getConnectionCount() {
+      return DataSourceImpl.this.connectionCount.sum();
+    }
+
+    @Override
+    public int getIdleCount() {
+      return DataSourceImpl.this.getNumIdle();
+    }
+
+    @Override
+    public int getMaxTotal() {
+      return DataSourceImpl.this.getMaxTotal();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+      return DataSourceImpl.this.timeoutCount.sum();
+    }
+
+    @Override
+    public double getWaitTimeAverageMillis() {
+      final long connectionCount = DataSourceImpl.this.connectionCount.sum()
+        + DataSourceImpl.this.timeoutCount.sum();
+      if (connectionCount == 0) {
+        return 0;
       } else {
-        throw e;
+        return DataSourceImpl.this.waitTimeNanos.sum() / 1000000.0 / connectionCount;
       }
     }
+
+    @Override
+    public double getWaitTimeMaxMillis() {
+      return DataSourceImpl.this.waitTimeMaxNanos.get() / 1000000.0;
+    }
+
+    @Override
+    public void resetStatistics() {
+      DataSourceImpl.this.connectionCount.reset();
+      DataSourceImpl.this.timeoutCount.reset();
+      DataSourceImpl.this.waitTimeNanos.reset();
+      DataSourceImpl.this.waitTimeMaxNanos.set(0);
+    }
+  }
+
+  private final LongAdder connectionCount = new LongAdder();
+
+  private final PoolMetrics poolMetrics = new PoolMetrics();
+
+  private ObjectName poolMetricsObjectName;
+
+  private final LongAdder timeoutCount = new LongAdder();
+
+  private final AtomicLong waitTimeMaxNanos = new AtomicLong();
+
+  private final LongAdder waitTimeNanos = new LongAdder();
+
+  @Override
+  public synchronized void close() throws SQLException {
+    unregisterPoolMetrics();
+    super.close();
   }
 
   @Override
-  public synchronized Connection getConnection(final String user, final String pass)
-    throws SQLException {
-    return super.getConnection(user, pass);
+  public Connection getConnection() throws SQLException {
+    final long startTime = System.nanoTime();
+    try {
+      Connection connection;
+      try {
+        connection = super.getConnection();
+      } catch (final Exception e) {
+        if (isTimeout(e)) {
+          this.timeoutCount.increment();
+          // Retry once on timeout
+          try {
+            connection = super.getConnection();
+          } catch (final Exception retryException) {
+            if (isTimeout(retryException)) {
+              this.timeoutCount.increment();
+            }
+            throw retryException;
+          }
+        } else {
+          throw e;
+        }
+      }
+      this.connectionCount.increment();
+      return connection;
+    } finally {
+      final long waitTime = System.nanoTime() - startTime;
+      this.waitTimeNanos.add(waitTime);
+      this.waitTimeMaxNanos.accumulateAndGet(waitTime, Math::max);
+    }
+  }
+
+  public ConnectionPoolMXBean getPoolMetrics() {
+    return this.poolMetrics;
+  }
+
+  public String getPoolMetricsName() {
+    if (this.poolMetricsObjectName == null) {
+      return null;
+    } else {
+      return this.poolMetricsObjectName.getKeyProperty("name");
+    }
+  }
+
+  /**
+   * Register the pool statistics with the platform MBean server using the object name
+   * com.revolsys.jdbc:type=ConnectionPool,name=poolMetricsName.
+   *
+   * @param poolMetricsName The name of the pool, null to unregister.
+   */
+  public synchronized void setPoolMetricsName(final String poolMetricsName) {
+    unregisterPoolMetrics();
+    if (poolMetricsName != null) {
+      try {
+        final ObjectName objectName = new ObjectName(
+          "com.revolsys.jdbc:type=ConnectionPool,name=" + ObjectName.quote(poolMetricsName));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new StandardMBean(this.poolMetrics, ConnectionPoolMXBean.class, true),
+          objectName);
+        this.poolMetricsObjectName = objectName;
+      } catch (final Exception e) {
+        Logs.error(this, "Unable to register connection pool metrics: " + poolMetricsName, e);
+      }
+    }
+  }
+
+  private void unregisterPoolMetrics() {
+    final ObjectName objectName = this.poolMetricsObjectName;
+    if (objectName != null) {
+      this.poolMetricsObjectName = null;
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (final Exception e) {
+        Logs.debug(this, "Unable to unregister connection pool metrics: " + objectName, e);
+      }
+    }
   }
 }
@@ -0,0 +1,259 @@
+package com.revolsys.jdbc.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * Read the partitions of a query concurrently, each partition using a pooled connection. The
+ * partitions are read in order by a fixed number of threads, by default no more than the
+ * maximum number of connections in the record store's pool. If ordered is true the records are
+ * returned in partition order, otherwise records are returned in the order they are read from any
+ * of the partitions.
+ */
+public class JdbcPartitionedRecordReader extends AbstractIterator<Record> implements RecordReader {
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+  private static final Object END_OF_PARTITION = new Object();
+
+  private volatile boolean closed;
+
+  private int currentPartitionIndex;
+
+  private ExecutorService executor;
+
+  private final boolean ordered;
+
+  private final List<JdbcQueryPartition> partitions;
+
+  private List<BlockingQueue<Object>> queues = Collections.emptyList();
+
+  private int queueSize = DEFAULT_QUEUE_SIZE;
+
+  private final AbstractJdbcRecordStore recordStore;
+
+  private int remainingPartitionCount;
+
+  private int threadCount;
+
+  public JdbcPartitionedRecordReader(final AbstractJdbcRecordStore recordStore,
+    final List<JdbcQueryPartition> partitions, final boolean ordered) {
+    this(recordStore, partitions, ordered, Collections.emptyMap());
+  }
+
+  public JdbcPartitionedRecordReader(final AbstractJdbcRecordStore recordStore,
+    final List<JdbcQueryPartition> partitions, final boolean ordered,
+    final Map<String, Object> properties) {
+    this.recordStore = recordStore;
+    this.partitions = new ArrayList<>(partitions);
+    this.ordered = ordered;
+    setProperties(properties);
+  }
+
+  @Override
+  @PreDestroy
+  protected void closeDo() {
+    this.closed = true;
+    for (final BlockingQueue<Object> queue : this.queues) {
+      queue.clear();
+    }
+    final ExecutorService executor = this.executor;
+    this.executor = null;
+    if (executor != null) {
+      executor.shutdown();
+      boolean interrupted = false;
+      boolean terminated = false;
+      while (!terminated) {
+        try {
+          terminated = executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    this.queues = Collections.emptyList();
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    while (this.remainingPartitionCount > 0) {
+      BlockingQueue<Object> queue;
+      if (this.ordered) {
+        queue = this.queues.get(this.currentPartitionIndex);
+      } else {
+        queue = this.queues.get(0);
+      }
+      final Object value;
+      try {
+        value = queue.take();
+      } catch (final InterruptedException e) {
+        close();
+        throw new ThreadInterruptedException(e);
+      }
+      if (value instanceof Record) {
+        return (Record)value;
+      } else if (value == END_OF_PARTITION) {
+        this.remainingPartitionCount--;
+        this.currentPartitionIndex++;
+      } else {
+        close();
+        if (value instanceof RuntimeException) {
+          throw (RuntimeException)value;
+        } else if (value instanceof Error) {
+          throw (Error)value;
+        } else {
+          throw new RuntimeException("Unable to read partition", (Throwable)value);
+        }
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  public List<JdbcQueryPartition> getPartitions() {
+    return Collections.unmodifiableList(this.partitions);
+  }
+
+  public int getQueueSize() {
+    return this.queueSize;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    if (this.partitions.isEmpty()) {
+      return null;
+    } else {
+      return this.partitions.get(0).getQuery().getRecordDefinition();
+    }
+  }
+
+  @Override
+  public AbstractJdbcRecordStore getRecordStore() {
+    return this.recordStore;
+  }
+
+  /**
+   * Get the number of threads used to read the partitions. If not set this is the smaller of the
+   * number of partitions and the maximum number of connections in the pool.
+   *
+   * @return The number of threads.
+   */
+  public int getThreadCount() {
+    int threadCount = this.threadCount;
+    if (threadCount <= 0) {
+      threadCount = this.recordStore.getMaxConnections();
+    }
+    return Math.max(1, Math.min(threadCount, this.partitions.size()));
+  }
+
+  @Override
+  protected void initDo() {
+    final int partitionCount = this.partitions.size();
+    final List<BlockingQueue<Object>> queues = new ArrayList<>();
+    if (this.ordered) {
+      for (int i = 0; i < partitionCount; i++) {
+        queues.add(new ArrayBlockingQueue<>(this.queueSize));
+      }
+    } else {
+      queues.add(new ArrayBlockingQueue<>(this.queueSize));
+    }
+    this.queues = queues;
+    this.remainingPartitionCount = partitionCount;
+    final AtomicInteger threadIndex = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(getThreadCount(), runnable -> {
+      final Thread thread = new Thread(runnable,
+        "JdbcPartitionedRecordReader-" + threadIndex.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = executor;
+    for (int i = 0; i < partitionCount; i++) {
+      final JdbcQueryPartition partition = this.partitions.get(i);
+      final BlockingQueue<Object> queue = queues.get(this.ordered ? i : 0);
+      executor.execute(() -> readPartition(partition, queue));
+    }
+    executor.shutdown();
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
+  private boolean put(final BlockingQueue<Object> queue, final Object value) {
+    try {
+      while (!this.closed) {
+        if (queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (final InterruptedException e) {
+    }
+    return false;
+  }
+
+  /**
+   * Read the records from the partition into the queue. The executor starts the partitions in
+   * order, so in ordered mode the partition being returned is always running or finished.
+   */
+  private void readPartition(final JdbcQueryPartition partition,
+    final BlockingQueue<Object> queue) {
+    if (this.closed) {
+      return;
+    }
+    try (
+      AbstractIterator<Record> iterator = this.recordStore.newIterator(partition.getQuery(),
+        getProperties())) {
+      while (!this.closed && iterator.hasNext()) {
+        final Record record = iterator.next();
+        if (partition.isMatched(record)) {
+          if (!put(queue, record)) {
+            return;
+          }
+        }
+      }
+      put(queue, END_OF_PARTITION);
+    } catch (final Throwable e) {
+      if (!this.closed) {
+        put(queue, e);
+      }
+    }
+  }
+
+  /**
+   * Set the maximum number of records buffered for each partition (ordered) or for all the
+   * partitions (unordered).
+   *
+   * @param queueSize The queue size.
+   */
+  public void setQueueSize(final int queueSize) {
+    this.queueSize = Math.max(1, queueSize);
+  }
+
+  /**
+   * Set the number of threads used to read the partitions. Values less than 1 use the maximum
+   * number of connections in the pool.
+   *
+   * @param threadCount The number of threads.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+}
@@ -8,16 +8,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
 
 import org.jeometry.common.io.PathName;
+import org.jeometry.common.number.Integers;
 
 import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.io.FileUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.RecordState;
@@ -30,6 +35,18 @@ import com.revolsys.util.count.LabelCountMap;
 import com.revolsys.util.count.LabelCounters;
 
 public class JdbcQueryIterator extends AbstractIterator<Record> implements RecordReader {
+  private static final Object END_OF_RESULTS = new Object();
+
+  private static int getInteger(final Map<String, Object> properties, final String name,
+    final int defaultValue) {
+    final Integer value = Integers.toInteger(properties.get(name));
+    if (value == null) {
+      return defaultValue;
+    } else {
+      return value;
+    }
+  }
+
   public static Record getNextRecord(final JdbcRecordStore recordStore,
     final RecordDefinition recordDefinition, final List<FieldDefinition> fields,
     final RecordFactory<Record> recordFactory, final ResultSet resultSet,
@@ -67,10 +84,18 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   private final int currentQueryIndex = -1;
 
-  private final int fetchSize = 10;
+  private int fetchSize;
 
   private List<FieldDefinition> fields = new ArrayList<>();
 
+  private volatile boolean prefetchClosed;
+
+  private BlockingQueue<Object> prefetchQueue;
+
+  private int prefetchSize;
+
+  private Thread prefetchThread;
+
   private List<Query> queries;
 
   private Query query;
@@ -89,9 +114,31 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   public JdbcQueryIterator(final JdbcRecordStore recordStore, final Query query,
     final Map<String, Object> properties) {
+    this(recordStore, query, properties, false);
+  }
+
+  /**
+   * The fetch size is read from the query, then the fetchSize property and then the record store.
+   * The prefetchSize property or record store prefetch size is the number of records decoded in a
+   * background thread ahead of the consumer.
+   *
+   * @param cursorStreaming If true and the fetch size is &gt; 0 the connection is always used
+   * with auto commit off, so that drivers such as PostgreSQL stream the rows from a server side
+   * cursor instead of reading the whole result set into memory.
+   */
+  protected JdbcQueryIterator(final JdbcRecordStore recordStore, final Query query,
+    final Map<String, Object> properties, final boolean cursorStreaming) {
     super();
+    this.fetchSize = query.getFetchSize();
+    if (this.fetchSize == 0) {
+      this.fetchSize = getInteger(properties, "fetchSize", recordStore.getFetchSize());
+    }
+    this.prefetchSize = getInteger(properties, "prefetchSize", recordStore.getPrefetchSize());
 
-    final boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
+    boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
+    if (cursorStreaming && this.fetchSize > 0) {
+      autoCommit = false;
+    }
     this.internStrings = Booleans.getBoolean(properties.get("internStrings"));
     this.connection = recordStore.getJdbcConnection(autoCommit);
     this.recordFactory = query.getRecordFactory();
@@ -109,6 +156,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
   @Override
   @PreDestroy
   public void closeDo() {
+    stopPrefetch();
     JdbcUtils.close(this.statement, this.resultSet);
     FileUtil.closeSilent(this.connection);
     this.fields = null;
@@ -116,6 +164,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     this.recordFactory = null;
     this.recordStore = null;
     this.recordDefinition = null;
+    this.prefetchQueue = null;
     this.queries = null;
     this.query = null;
     this.resultSet = null;
@@ -131,8 +180,15 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   @Override
   protected Record getNext() throws NoSuchElementException {
+    if (this.prefetchQueue != null) {
+      return getNextPrefetched();
+    }
     try {
       if (this.resultSet != null && this.resultSet.next() && !this.query.isCancelled()) {
         final Record record = getNextRecord(this.recordStore, this.recordDefinition, this.fields,
@@ -157,6 +213,38 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  private Record getNextPrefetched() {
+    final Object value;
+    try {
+      value = this.prefetchQueue.take();
+    } catch (final InterruptedException e) {
+      close();
+      throw new ThreadInterruptedException(e);
+    }
+    if (value instanceof Record) {
+      final Record record = (Record)value;
+      if (this.labelCountMap != null) {
+        this.labelCountMap.addCount(record);
+      }
+      return record;
+    } else {
+      close();
+      if (value instanceof SQLException) {
+        throw new RuntimeException(getErrorMessage(), (SQLException)value);
+      } else if (value instanceof RuntimeException) {
+        throw (RuntimeException)value;
+      } else if (value instanceof Error) {
+        throw (Error)value;
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  public int getPrefetchSize() {
+    return this.prefetchSize;
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     if (this.recordDefinition == null) {
@@ -250,12 +338,47 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
   @Override
   protected void initDo() {
     this.resultSet = getResultSet();
+    if (this.prefetchSize > 0) {
+      startPrefetch();
+    }
   }
 
   public boolean isInternStrings() {
     return this.internStrings;
   }
 
+  private void prefetch(final BlockingQueue<Object> queue, final JdbcRecordStore recordStore,
+    final RecordDefinition recordDefinition, final List<FieldDefinition> fields,
+    final RecordFactory<Record> recordFactory, final ResultSet resultSet,
+    final boolean internStrings, final Query query) {
+    try {
+      while (!this.prefetchClosed && resultSet.next() && !query.isCancelled()) {
+        final Record record = getNextRecord(recordStore, recordDefinition, fields, recordFactory,
+          resultSet, internStrings);
+        if (!prefetchPut(queue, record)) {
+          return;
+        }
+      }
+      prefetchPut(queue, END_OF_RESULTS);
+    } catch (final Throwable e) {
+      if (!this.prefetchClosed) {
+        prefetchPut(queue, e);
+      }
+    }
+  }
+
+  private boolean prefetchPut(final BlockingQueue<Object> queue, final Object value) {
+    try {
+      while (!this.prefetchClosed) {
+        if (queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (final InterruptedException e) {
+    }
+    return false;
+  }
+
   public void setInternStrings(final boolean internStrings) {
     this.internStrings = internStrings;
   }
@@ -264,4 +387,47 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     this.query = query;
   }
 
+  private void startPrefetch() {
+    final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(this.prefetchSize);
+    final JdbcRecordStore recordStore = this.recordStore;
+    final RecordDefinition recordDefinition = this.recordDefinition;
+    final List<FieldDefinition> fields = this.fields;
+    final RecordFactory<Record> recordFactory = this.recordFactory;
+    final ResultSet resultSet = this.resultSet;
+    final boolean internStrings = this.internStrings;
+    final Query query = this.query;
+    final Thread thread = new Thread(() -> prefetch(queue, recordStore, recordDefinition, fields,
+      recordFactory, resultSet, internStrings, query), "JdbcQueryIterator-prefetch");
+    thread.setDaemon(true);
+    this.prefetchQueue = queue;
+    this.prefetchThread = thread;
+    thread.start();
+  }
+
+  /**
+   * Stop the prefetch thread and wait for it to finish before the result set is closed.
+   */
+  private void stopPrefetch() {
+    this.prefetchClosed = true;
+    final Thread thread = this.prefetchThread;
+    this.prefetchThread = null;
+    if (thread != null && thread != Thread.currentThread()) {
+      final BlockingQueue<Object> queue = this.prefetchQueue;
+      if (queue != null) {
+        queue.clear();
+      }
+      boolean interrupted = false;
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
 }
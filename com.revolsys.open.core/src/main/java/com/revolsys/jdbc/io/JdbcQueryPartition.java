@@ -0,0 +1,135 @@
+package com.revolsys.jdbc.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.ParenthesisCondition;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.functions.F;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * A partition of a query read by a {@link JdbcPartitionedRecordReader}. The optional filter is
+ * applied to the records returned by the query, for example to remove records that will also be
+ * returned by an adjacent spatial partition.
+ */
+public class JdbcQueryPartition {
+  private static int getPartitionIndex(final double[] boundaries, final double value) {
+    final int lastIndex = boundaries.length - 2;
+    for (int i = lastIndex; i > 0; i--) {
+      if (value >= boundaries[i]) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Split the query into a grid of partitions over the bounding box. Each tile partition query
+   * includes the records whose geometry's envelope intersects the tile. A record is only returned
+   * from the partition whose tile contains its first vertex, so a record that crosses tiles is not
+   * duplicated. A first vertex outside the bounding box is assigned to the nearest tile on the edge
+   * of the grid, that tile intersects the record's envelope. The last partition returns the
+   * records with a null or empty geometry or whose envelope does not intersect the bounding box,
+   * so the partitions together return the same records as the query.
+   *
+   * @param query The query to split.
+   * @param boundingBox The bounding box to split into tiles.
+   * @param gridWidth The number of tile columns.
+   * @param gridHeight The number of tile rows.
+   * @return The partitions.
+   */
+  public static List<JdbcQueryPartition> newBoundingBoxPartitions(final Query query,
+    BoundingBox boundingBox, final int gridWidth, final int gridHeight) {
+    final List<JdbcQueryPartition> partitions = new ArrayList<>();
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    final FieldDefinition geometryField = recordDefinition.getGeometryField();
+    if (geometryField == null || boundingBox == null || boundingBox.isEmpty() || gridWidth < 1
+      || gridHeight < 1) {
+      partitions.add(new JdbcQueryPartition(query.clone()));
+    } else {
+      final GeometryFactory geometryFactory = recordDefinition.getGeometryFactory();
+      boundingBox = boundingBox.bboxToCs(geometryFactory);
+      final double[] xs = newPartitionBoundaries(boundingBox.getMinX(), boundingBox.getMaxX(),
+        gridWidth);
+      final double[] ys = newPartitionBoundaries(boundingBox.getMinY(), boundingBox.getMaxY(),
+        gridHeight);
+      for (int row = 0; row < gridHeight; row++) {
+        for (int column = 0; column < gridWidth; column++) {
+          final BoundingBox tile = geometryFactory.newBoundingBox(xs[column], ys[row],
+            xs[column + 1], ys[row + 1]);
+          final Query partitionQuery = query.clone();
+          partitionQuery.and(F.envelopeIntersects(geometryField, tile));
+          final int tileColumn = column;
+          final int tileRow = row;
+          final Predicate<Record> filter = record -> {
+            final Geometry geometry = record.getGeometry();
+            if (geometry != null) {
+              final Point point = geometry.getPoint();
+              if (point != null && !point.isEmpty()) {
+                return getPartitionIndex(xs, point.getX()) == tileColumn
+                  && getPartitionIndex(ys, point.getY()) == tileRow;
+              }
+            }
+            return false;
+          };
+          partitions.add(new JdbcQueryPartition(partitionQuery, filter));
+        }
+      }
+      final Query outsideQuery = query.clone();
+      outsideQuery.and(Q.or(Q.isNull(geometryField),
+        Q.not(new ParenthesisCondition(F.envelopeIntersects(geometryField, boundingBox)))));
+      partitions.add(new JdbcQueryPartition(outsideQuery));
+    }
+    return partitions;
+  }
+
+  private static double[] newPartitionBoundaries(final double min, final double max,
+    final int count) {
+    final double[] boundaries = new double[count + 1];
+    final double step = (max - min) / count;
+    for (int i = 0; i < count; i++) {
+      boundaries[i] = min + step * i;
+    }
+    boundaries[count] = max;
+    return boundaries;
+  }
+
+  private final Predicate<Record> filter;
+
+  private final Query query;
+
+  public JdbcQueryPartition(final Query query) {
+    this(query, null);
+  }
+
+  public JdbcQueryPartition(final Query query, final Predicate<Record> filter) {
+    this.query = query;
+    this.filter = filter;
+  }
+
+  public Predicate<Record> getFilter() {
+    return this.filter;
+  }
+
+  public Query getQuery() {
+    return this.query;
+  }
+
+  public boolean isMatched(final Record record) {
+    return this.filter == null || this.filter.test(record);
+  }
+
+  @Override
+  public String toString() {
+    return this.query.toString();
+  }
+}
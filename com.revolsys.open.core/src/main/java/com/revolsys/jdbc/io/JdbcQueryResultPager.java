@@ -4,8 +4,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.annotation.PreDestroy;
 
@@ -15,22 +17,98 @@ import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Booleans;
 
 public class JdbcQueryResultPager implements ResultPager<Record> {
+  /**
+   * Construct a condition that selects the records after the key in the order by order.
+   * For order by a, b DESC, id it is a &gt; ? OR (a = ? AND b &lt; ?) OR (a = ? AND b = ? AND id
+   * &gt; ?).
+   */
+  public static Condition newKeysetCondition(final Map<FieldDefinition, Boolean> orderBy,
+    final Object[] key) {
+    final List<Condition> conditions = new ArrayList<>();
+    final List<Condition> equals = new ArrayList<>();
+    int i = 0;
+    for (final Entry<FieldDefinition, Boolean> entry : orderBy.entrySet()) {
+      final FieldDefinition field = entry.getKey();
+      final Object value = key[i++];
+      final List<Condition> and = new ArrayList<>(equals);
+      if (entry.getValue()) {
+        and.add(Q.greaterThan(field, value));
+      } else {
+        and.add(Q.lessThan(field, value));
+      }
+      conditions.add(Q.and(and));
+      equals.add(Q.equal(field, value));
+    }
+    return Q.or(conditions);
+  }
+
+  /**
+   * Construct the order by fields for keyset pagination of the query. These are the query's order
+   * by fields followed by the id fields that are not already in the order by. All the fields must
+   * be required as the seek condition does not select records with null values.
+   *
+   * @param recordDefinition The record definition.
+   * @param query The query.
+   * @return The order by fields or null if keyset pagination is not supported for the query.
+   */
+  public static Map<FieldDefinition, Boolean> newKeysetOrderBy(
+    final RecordDefinition recordDefinition, final Query query) {
+    if (recordDefinition != null && query.getSql() == null && recordDefinition.hasIdField()) {
+      final List<String> fieldNames = query.getFieldNames();
+      final boolean allFields = fieldNames.isEmpty() || fieldNames.contains("*");
+      final Map<FieldDefinition, Boolean> orderBy = new LinkedHashMap<>();
+      for (final Entry<CharSequence, Boolean> entry : query.getOrderBy().entrySet()) {
+        final FieldDefinition field = recordDefinition.getField(entry.getKey().toString());
+        if (field == null || !field.isRequired()
+          || !allFields && !fieldNames.contains(field.getName())) {
+          return null;
+        }
+        orderBy.put(field, entry.getValue());
+      }
+      for (final FieldDefinition idField : recordDefinition.getIdFields()) {
+        if (!orderBy.containsKey(idField)) {
+          if (!idField.isRequired() || !allFields && !fieldNames.contains(idField.getName())) {
+            return null;
+          }
+          orderBy.put(idField, true);
+        }
+      }
+      return orderBy;
+    }
+    return null;
+  }
+
   private JdbcConnection connection;
 
+  /** The order by fields used for keyset pagination, null if not supported for the query. */
+  private Map<FieldDefinition, Boolean> keysetOrderBy;
+
+  private boolean keysetOrderByInitialized;
+
+  private boolean keysetPagination;
+
   /** The number of pages. */
   private int numPages;
 
   /** The total number of results. */
   private int numResults;
 
+  private boolean numResultsCounted;
+
   /** The current page number. */
   private int pageNumber = -1;
 
+  /** The key of the last record in each page that has been read, for keyset pagination. */
+  private final List<Object[]> pageBoundaryKeys = new ArrayList<>();
+
   /** The number of objects in a page. */
   private int pageSize = 10;
 
@@ -71,6 +149,7 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
 
     this.sql = JdbcUtils.getSelectSql(query);
     this.internStrings = (Boolean)properties.getOrDefault(properties, false);
+    this.keysetPagination = Booleans.getBoolean(properties.get("keysetPagination"));
   }
 
   @Override
@@ -107,6 +186,90 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     }
   }
 
+  /**
+   * Get the order by fields for keyset pagination.
+   *
+   * @return The order by fields or null if keyset pagination is disabled or not supported for the
+   * query.
+   * @see #newKeysetOrderBy(RecordDefinition, Query)
+   */
+  protected Map<FieldDefinition, Boolean> getKeysetOrderBy() {
+    if (!this.keysetPagination) {
+      return null;
+    } else if (!this.keysetOrderByInitialized) {
+      this.keysetOrderByInitialized = true;
+      this.keysetOrderBy = newKeysetOrderBy(this.recordDefinition, this.query);
+    }
+    return this.keysetOrderBy;
+  }
+
+  /**
+   * Read the records in the current page using keyset pagination. The key of the last record in
+   * each page is remembered so that the next page is read using a seek condition on the order by
+   * fields instead of an offset. Records inserted before the current position don't move the
+   * later pages. If the key of the previous page is not known, the nearest known key before it is
+   * used with an offset for the remaining pages. A jump to a page far past the pages that have
+   * been read therefore uses an OFFSET of the skipped pages, with the same cost as offset
+   * pagination, and the following pages use the seek condition.
+   *
+   * @return The records in the page.
+   */
+  protected List<Record> getKeysetResults() {
+    final List<Record> results = new ArrayList<>();
+    final int pageIndex = getPageNumber() - 1;
+    final Map<FieldDefinition, Boolean> orderBy = getKeysetOrderBy();
+    if (pageIndex >= 0 && orderBy != null) {
+      final int pageSize = this.pageSize;
+      int offset = pageIndex * pageSize;
+      Object[] seekKey = null;
+      for (int i = Math.min(pageIndex, this.pageBoundaryKeys.size()) - 1; i >= 0
+        && seekKey == null; i--) {
+        seekKey = this.pageBoundaryKeys.get(i);
+        if (seekKey != null) {
+          offset = (pageIndex - 1 - i) * pageSize;
+        }
+      }
+      final Query query = this.query.clone();
+      query.setOrderBy(orderBy);
+      if (seekKey != null) {
+        query.and(newKeysetCondition(orderBy, seekKey));
+      }
+      final String sql = getPageSql(query, offset, pageSize);
+      final List<FieldDefinition> fields = getSelectFields();
+      try (
+        JdbcConnection connection = this.recordStore.getJdbcConnection()) {
+        try (
+          final PreparedStatement statement = connection.prepareStatement(sql);
+          final ResultSet resultSet = JdbcQueryIterator.getResultSet(statement, query)) {
+          while (results.size() < pageSize && resultSet.next()) {
+            final Record record = JdbcQueryIterator.getNextRecord(this.recordStore,
+              this.recordDefinition, fields, this.recordFactory, resultSet, this.internStrings);
+            results.add(record);
+          }
+        } catch (final SQLException e) {
+          throw connection.getException("updateResults", sql, e);
+        }
+      }
+      if (!results.isEmpty()) {
+        final Record lastRecord = results.get(results.size() - 1);
+        final Object[] key = new Object[orderBy.size()];
+        int i = 0;
+        for (final FieldDefinition field : orderBy.keySet()) {
+          final Object value = lastRecord.getValue(field.getName());
+          if (value == null) {
+            return results;
+          }
+          key[i++] = value;
+        }
+        while (this.pageBoundaryKeys.size() <= pageIndex) {
+          this.pageBoundaryKeys.add(null);
+        }
+        this.pageBoundaryKeys.set(pageIndex, key);
+      }
+    }
+    return results;
+  }
+
   /**
    * Get the list of objects in the current page.
    *
@@ -170,6 +333,23 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageSize;
   }
 
+  /**
+   * Get the SQL to read limit records starting at offset for the query. By default the SQL:2008
+   * OFFSET and FETCH clauses are used.
+   *
+   * @param query The query.
+   * @param offset The number of records to skip.
+   * @param limit The maximum number of records to return.
+   * @return The SQL.
+   */
+  protected String getPageSql(final Query query, final int offset, final int limit) {
+    String sql = JdbcUtils.getSelectSql(query);
+    if (offset > 0) {
+      sql += " OFFSET " + offset + " ROWS";
+    }
+    return sql + " FETCH FIRST " + limit + " ROWS ONLY";
+  }
+
   /**
    * Get the page number of the previous page.
    *
@@ -196,6 +376,26 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.recordStore;
   }
 
+  private List<FieldDefinition> getSelectFields() {
+    final List<String> fieldNames = this.query.getFieldNames();
+    if (fieldNames.isEmpty()) {
+      return this.recordDefinition.getFields();
+    } else {
+      final List<FieldDefinition> fields = new ArrayList<>();
+      for (final String fieldName : fieldNames) {
+        if (fieldName.equals("*")) {
+          fields.addAll(this.recordDefinition.getFields());
+        } else {
+          final FieldDefinition field = this.recordDefinition.getField(fieldName);
+          if (field != null) {
+            fields.add(field);
+          }
+        }
+      }
+      return fields;
+    }
+  }
+
   protected String getSql() {
     return this.sql;
   }
@@ -234,6 +434,17 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageNumber > 0;
   }
 
+  /**
+   * Count the results of the query, the count is only run once for the query.
+   */
+  protected void initNumResults() {
+    if (!this.numResultsCounted) {
+      this.numResultsCounted = true;
+      setNumResults(this.recordStore.getRecordCount(this.query));
+      updateNumPages();
+    }
+  }
+
   private void initResultSet() {
     if (this.resultSet == null) {
       try {
@@ -265,6 +476,16 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageNumber == 0;
   }
 
+  /**
+   * Check if keyset pagination is enabled. Keyset pagination is only used if all the order by
+   * values are required fields and the record definition has a required id field.
+   *
+   * @return True if keyset pagination is enabled.
+   */
+  public boolean isKeysetPagination() {
+    return this.keysetPagination;
+  }
+
   /**
    * Check to see if this is the last page.
    *
@@ -275,6 +496,13 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageNumber == getNumPages();
   }
 
+  public void setKeysetPagination(final boolean keysetPagination) {
+    this.keysetPagination = keysetPagination;
+    this.keysetOrderBy = null;
+    this.keysetOrderByInitialized = false;
+    this.pageBoundaryKeys.clear();
+  }
+
   protected void setNumResults(final int numResults) {
     this.numResults = numResults;
   }
@@ -303,6 +531,9 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     } else {
       this.pageNumber = pageNumber - 1;
     }
+    if (pageSize != this.pageSize) {
+      this.pageBoundaryKeys.clear();
+    }
     this.pageSize = pageSize;
     updateNumPages();
     updateResults();
@@ -315,6 +546,9 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
    */
   @Override
   public void setPageSize(final int pageSize) {
+    if (pageSize != this.pageSize) {
+      this.pageBoundaryKeys.clear();
+    }
     this.pageSize = pageSize;
     updateNumPages();
     updateResults();
@@ -332,6 +566,20 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
    * Update the cached results for the current page.
    */
   protected void updateResults() {
+    if (getKeysetOrderBy() == null) {
+      updateResultsOffset();
+    } else {
+      try {
+        initNumResults();
+        this.results = getKeysetResults();
+      } catch (final RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+  }
+
+  private void updateResultsOffset() {
     this.results = new ArrayList<>();
     try {
       initResultSet();
@@ -10,12 +10,16 @@ import com.revolsys.record.schema.RecordStore;
 
 public interface JdbcRecordStore extends RecordStore {
 
+  int getFetchSize();
+
   String getGeneratePrimaryKeySql(JdbcRecordDefinition recordDefinition);
 
   JdbcConnection getJdbcConnection();
 
   JdbcConnection getJdbcConnection(boolean autoCommit);
 
+  int getPrefetchSize();
+
   JdbcRecordDefinition getRecordDefinition(String tableName, ResultSetMetaData resultSetMetaData,
     String dbTableName);
 
@@ -302,6 +302,10 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     return this.batchSize;
   }
 
+  public JdbcConnection getConnection() {
+    return this.connection;
+  }
+
   private String getDeleteSql(final JdbcRecordDefinition recordDefinition) {
     final List<FieldDefinition> idFields = recordDefinition.getIdFields();
     if (idFields.isEmpty()) {
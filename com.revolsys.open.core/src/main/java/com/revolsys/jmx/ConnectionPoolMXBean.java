@@ -0,0 +1,60 @@
+package com.revolsys.jmx;
+
+/**
+ * The JMX management interface for the statistics of a JDBC connection pool.
+ */
+public interface ConnectionPoolMXBean {
+  /**
+   * Get the number of connections currently checked out of the pool.
+   *
+   * @return The number of active connections.
+   */
+  int getActiveCount();
+
+  /**
+   * Get the number of connections successfully checked out of the pool.
+   *
+   * @return The number of connections.
+   */
+  long getConnectionCount();
+
+  /**
+   * Get the number of idle connections in the pool.
+   *
+   * @return The number of idle connections.
+   */
+  int getIdleCount();
+
+  /**
+   * Get the maximum number of connections in the pool.
+   *
+   * @return The maximum number of connections.
+   */
+  int getMaxTotal();
+
+  /**
+   * Get the number of times a connection could not be checked out before the wait timeout.
+   *
+   * @return The number of timeouts.
+   */
+  long getTimeoutCount();
+
+  /**
+   * Get the average time in milliseconds to check out a connection.
+   *
+   * @return The average wait time.
+   */
+  double getWaitTimeAverageMillis();
+
+  /**
+   * Get the maximum time in milliseconds to check out a connection.
+   *
+   * @return The maximum wait time.
+   */
+  double getWaitTimeMaxMillis();
+
+  /**
+   * Reset the connection, timeout and wait time statistics.
+   */
+  void resetStatistics();
+}
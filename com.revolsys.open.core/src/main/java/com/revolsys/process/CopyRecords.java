@@ -8,6 +8,7 @@ import org.jeometry.common.data.identifier.Identifier;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
+import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
 import com.revolsys.parallel.process.AbstractProcess;
 import com.revolsys.record.Record;
 import com.revolsys.record.io.RecordReader;
@@ -22,6 +23,8 @@ public class CopyRecords extends AbstractProcess {
 
   private Map<String, Boolean> orderBy = new HashMap<>();
 
+  private int partitionCount = 1;
+
   private RecordStore sourceRecordStore;
 
   private RecordStore targetRecordStore;
@@ -51,6 +54,10 @@ public class CopyRecords extends AbstractProcess {
     return this.orderBy;
   }
 
+  public int getPartitionCount() {
+    return this.partitionCount;
+  }
+
   public RecordStore getSourceRecordStore() {
     return this.sourceRecordStore;
   }
@@ -67,6 +74,37 @@ public class CopyRecords extends AbstractProcess {
     return this.hasSequence;
   }
 
+  /**
+   * Check if the query can be read in partitions. The partitions are id ranges returned in order,
+   * so the records are only in the order by order if there is no order by or the order by is the
+   * id field ascending.
+   */
+  private boolean isPartitioned(final Query query) {
+    if (this.partitionCount > 1 && this.sourceRecordStore instanceof AbstractJdbcRecordStore) {
+      final Map<String, Boolean> orderBy = this.orderBy;
+      if (orderBy.isEmpty()) {
+        return true;
+      } else if (orderBy.size() == 1) {
+        final RecordDefinition recordDefinition = query.getRecordDefinition();
+        if (recordDefinition != null) {
+          final String idFieldName = recordDefinition.getIdFieldName();
+          return idFieldName != null && Boolean.TRUE.equals(orderBy.get(idFieldName));
+        }
+      }
+    }
+    return false;
+  }
+
+  private RecordReader newReader(final Query query) {
+    if (isPartitioned(query)) {
+      final AbstractJdbcRecordStore recordStore = (AbstractJdbcRecordStore)this.sourceRecordStore;
+      final boolean ordered = this.hasSequence || !this.orderBy.isEmpty();
+      return recordStore.newPartitionedRecordReader(query, this.partitionCount, ordered);
+    } else {
+      return this.sourceRecordStore.getRecords(query);
+    }
+  }
+
   @Override
   public void run() {
     try {
@@ -74,7 +112,7 @@ public class CopyRecords extends AbstractProcess {
       query.setOrderBy(this.orderBy);
 
       try (
-        final RecordReader reader = this.sourceRecordStore.getRecords(query);
+        final RecordReader reader = newReader(query);
         final RecordWriter targetWriter = this.targetRecordStore.newRecordWriter();) {
         final RecordDefinition targetRecordDefinition = this.targetRecordStore
           .getRecordDefinition(this.typePath);
@@ -111,6 +149,17 @@ public class CopyRecords extends AbstractProcess {
     this.hasSequence = hasSequence;
   }
 
+  /**
+   * Set the number of partitions to read a JDBC source record store with concurrently. The
+   * partitions are returned in id range order if there is an order by or sequence. Partitions are
+   * only used if there is no order by or the order by is the id field.
+   *
+   * @param partitionCount The number of partitions.
+   */
+  public void setPartitionCount(final int partitionCount) {
+    this.partitionCount = Math.max(1, partitionCount);
+  }
+
   public void setSourceRecordStore(final RecordStore sourceRecordStore) {
     this.sourceRecordStore = sourceRecordStore;
   }
@@ -1,12 +1,17 @@
 package com.revolsys.raster;
-// Mesh and Warp Canvas
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.awt.image.DataBufferInt;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.jeometry.coordinatesystem.operation.CoordinatesOperation;
 import org.jeometry.coordinatesystem.operation.CoordinatesOperationPoint;
@@ -17,204 +22,347 @@ import com.revolsys.geometry.model.GeometryFactoryProxy;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.util.Cancellable;
 
+/**
+ * Project a {@link GeoreferencedImage} to another coordinate system.
+ * <p>
+ * The target image is split into tiles which are projected in parallel. The location of the
+ * source pixel for each target pixel is interpolated from the exact locations at the corners of a
+ * rectangle. The rectangle is subdivided until the interpolation error is less than
+ * {@link #setMaxError(double)} source pixels. The source pixels are resampled directly from the
+ * ARGB pixel arrays using the {@link ImageResampling} method.
+ * </p>
+ * <p>
+ * If the source is a {@link TiledGeoreferencedImage} only the source tiles that overlap a target
+ * tile are read. The image returned by {@link #newTiledImage()} projects each tile when it is
+ * read, so a large image can be projected and written (e.g. to a cloud optimized GeoTIFF) without
+ * holding the whole source or target image in memory.
+ * </p>
+ */
 public class ImageProjector {
 
-  private static interface Grid {
-    double getValue(int x, int y);
-  }
+  private class ProjectedImage extends AbstractGeoreferencedImage
+    implements TiledGeoreferencedImage {
+
+    /**
+     * The tiles returned by the last call to {@link #getOverlappingMapTiles(BoundingBox, double)}
+     * so a tile that overlaps consecutive requests (e.g. bands of rows) is only projected once.
+     */
+    private Map<Integer, ProjectedMapTile> tiles = Collections.emptyMap();
 
-  private class SourceXGrid implements Grid {
-    private final double[] percents = new double[ImageProjector.this.gridWidth + 1];
+    private ProjectedImage() {
+      setBoundingBox(ImageProjector.this.targetBoundingBox);
+      setImageWidth(ImageProjector.this.targetImageWidth);
+      setImageHeight(ImageProjector.this.targetImageHeight);
+      postConstruct();
+    }
 
-    private SourceXGrid() {
-      final double max = ImageProjector.this.gridWidth;
-      for (int i = 0; i < this.percents.length; i++) {
-        this.percents[i] = i / max;
+    @Override
+    public List<GeoreferencedImageMapTile> getOverlappingMapTiles(final BoundingBox boundingBox,
+      final double resolution) {
+      final Map<Integer, ProjectedMapTile> tiles = new LinkedHashMap<>();
+      final BoundingBox targetBoundingBox = ImageProjector.this.targetBoundingBox;
+      final BoundingBox tilesBoundingBox = boundingBox.bboxToCs(targetBoundingBox);
+      final double minX = targetBoundingBox.getMinX();
+      final double maxY = targetBoundingBox.getMaxY();
+      final double resolutionX = ImageProjector.this.targetResolutionX;
+      final double resolutionY = ImageProjector.this.targetResolutionY;
+      final int pixelMinX = Math.max(0,
+        (int)Math.floor((tilesBoundingBox.getMinX() - minX) / resolutionX + 1e-6));
+      final int pixelMaxX = Math.min(ImageProjector.this.targetImageWidth,
+        (int)Math.ceil((tilesBoundingBox.getMaxX() - minX) / resolutionX - 1e-6));
+      final int pixelMinY = Math.max(0,
+        (int)Math.floor((maxY - tilesBoundingBox.getMaxY()) / resolutionY + 1e-6));
+      final int pixelMaxY = Math.min(ImageProjector.this.targetImageHeight,
+        (int)Math.ceil((maxY - tilesBoundingBox.getMinY()) / resolutionY - 1e-6));
+      if (pixelMinX < pixelMaxX && pixelMinY < pixelMaxY) {
+        final int tileSize = ImageProjector.this.tileSize;
+        final int tileCountX = getTileCountX();
+        synchronized (this) {
+          final Map<Integer, ProjectedMapTile> previousTiles = this.tiles;
+          for (int tileY = pixelMinY / tileSize; tileY <= (pixelMaxY - 1) / tileSize; tileY++) {
+            for (int tileX = pixelMinX / tileSize; tileX <= (pixelMaxX - 1) / tileSize; tileX++) {
+              final int tileIndex = tileY * tileCountX + tileX;
+              ProjectedMapTile tile = previousTiles.get(tileIndex);
+              if (tile == null) {
+                tile = new ProjectedMapTile(tileX, tileY);
+              }
+              tiles.put(tileIndex, tile);
+            }
+          }
+          this.tiles = tiles;
+        }
       }
+      tiles.values().parallelStream().forEach(ProjectedMapTile::project);
+      return new ArrayList<>(tiles.values());
     }
 
-    private double getValue(final int x) {
-      return this.percents[x];
+    @Override
+    public RenderedImage getRenderedImage() {
+      RenderedImage renderedImage = super.getRenderedImage();
+      if (renderedImage == null) {
+        renderedImage = newImage().getRenderedImage();
+        setRenderedImage(renderedImage);
+      }
+      return renderedImage;
     }
 
     @Override
-    public double getValue(final int x, final int y) {
-      return this.percents[x];
+    public double getResolution(final BoundingBox boundingBox, final double resolution) {
+      return getResolutionX();
     }
 
     @Override
     public String toString() {
-      return Arrays.toString(this.percents);
+      return "Projected " + ImageProjector.this.sourceImage;
     }
   }
 
-  private class SourceYGrid implements Grid {
-    private final double[] percents = new double[ImageProjector.this.gridHeight + 1];
+  private class ProjectedMapTile extends GeoreferencedImageMapTile {
 
-    private SourceYGrid() {
-      final double max = ImageProjector.this.gridHeight;
-      for (int i = 0; i < this.percents.length; i++) {
-        this.percents[i] = i / max;
-      }
-    }
+    private BufferedImage image;
+
+    private final int tileX;
 
-    private double getValue(final int y) {
-      return this.percents[y];
+    private final int tileY;
+
+    private ProjectedMapTile(final int tileX, final int tileY) {
+      super(getTileBoundingBox(tileX, tileY), getTileWidth(tileX), getTileHeight(tileY));
+      this.tileX = tileX;
+      this.tileY = tileY;
     }
 
     @Override
-    public double getValue(final int x, final int y) {
-      return this.percents[y];
+    protected synchronized BufferedImage loadBuffferedImage() {
+      if (this.image == null) {
+        this.image = newTileImage(this.tileX, this.tileY);
+      }
+      return this.image;
     }
 
-    @Override
-    public String toString() {
-      return Arrays.toString(this.percents);
+    private void project() {
+      if (!isCancelled()) {
+        loadBuffferedImage();
+      }
     }
   }
 
-  private class TargetGrid implements Grid {
-    private final double[][] percentRows;
+  /**
+   * The ARGB pixels for a rectangle of the source image.
+   */
+  private static class SourcePixels {
+    private final int height;
 
-    private TargetGrid() {
-      final double[][] grid = new double[ImageProjector.this.gridHeight + 1][];
-      for (int i = 0; i < grid.length; i++) {
-        grid[i] = new double[ImageProjector.this.gridWidth + 1];
-      }
-      this.percentRows = grid;
-    }
+    private final int minX;
 
-    @Override
-    public double getValue(final int x, final int y) {
-      return this.percentRows[y][x];
+    private final int minY;
+
+    private final int[] pixels;
+
+    private final int width;
+
+    private SourcePixels(final BufferedImage image, final int minX, final int minY) {
+      this.pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+      this.minX = minX;
+      this.minY = minY;
+      this.width = image.getWidth();
+      this.height = image.getHeight();
     }
+  }
+
+  /**
+   * The state used to project one tile of the target image.
+   */
+  private class TileProjection {
+    private final int offset;
+
+    private final int[] pixels;
+
+    private final CoordinatesOperationPoint point = new CoordinatesOperationPoint();
+
+    private final SourcePixels sourcePixels;
+
+    private final int stride;
+
+    private final int tileMinX;
 
-    private void setValue(final int x, final int y, final double value) {
-      this.percentRows[y][x] = value;
+    private final int tileMinY;
+
+    private double x;
+
+    private double y;
+
+    private TileProjection(final int[] pixels, final int offset, final int stride,
+      final int tileMinX, final int tileMinY, final SourcePixels sourcePixels) {
+      this.pixels = pixels;
+      this.offset = offset;
+      this.stride = stride;
+      this.tileMinX = tileMinX;
+      this.tileMinY = tileMinY;
+      this.sourcePixels = sourcePixels;
     }
 
-    @Override
-    public String toString() {
-      final StringBuilder string = new StringBuilder();
-      for (final double[] percents : this.percentRows) {
-        string.append(Arrays.toString(percents));
-        string.append("\n");
-      }
-      return string.toString();
+    private int getIndex(final int x, final int y) {
+      return this.offset + (y - this.tileMinY) * this.stride + x - this.tileMinX;
     }
-  }
 
-  private static void gauss(final double[][] matrix) {
-    final double[] scalingFactor = new double[3];
-    for (int i = 0; i < 3; i++) {
-      scalingFactor[i] = maxAbs(matrix[i]);
+    private int getSourcePixel(final double sourceX, final double sourceY) {
+      final SourcePixels sourcePixels = this.sourcePixels;
+      return ImageProjector.this.resampling.getPixel(sourcePixels.pixels, sourcePixels.width,
+        sourcePixels.height, sourceX - sourcePixels.minX, sourceY - sourcePixels.minY);
     }
 
-    int j = 2;
-    for (int k = 0; k < 2; k++) {
-      --j;
-      double maxR = 0;
-      for (int i = k; i < 3; i++) {
-        final double r = Math.abs(matrix[i][k] / scalingFactor[i]);
-        if (r > maxR) {
-          maxR = r;
-          j = i;
+    /**
+     * Project the rectangle of target pixels, subdividing it if interpolating the source pixel
+     * locations from the corners is not accurate enough.
+     */
+    private void project(final int minX, final int minY, final int width, final int height) {
+      final double x1 = minX + 0.5;
+      final double x2 = minX + width - 0.5;
+      final double y1 = minY + 0.5;
+      final double y2 = minY + height - 0.5;
+      toSourcePixel(x1, y1);
+      final double x11 = this.x;
+      final double y11 = this.y;
+      toSourcePixel(x2, y1);
+      final double x21 = this.x;
+      final double y21 = this.y;
+      toSourcePixel(x1, y2);
+      final double x12 = this.x;
+      final double y12 = this.y;
+      toSourcePixel(x2, y2);
+      final double x22 = this.x;
+      final double y22 = this.y;
+
+      double error = 0;
+      for (final double[] percents : ERROR_SAMPLE_PERCENTS) {
+        final double xPercent = percents[0];
+        final double yPercent = percents[1];
+        toSourcePixel(x1 + (x2 - x1) * xPercent, y1 + (y2 - y1) * yPercent);
+        final double x = bilinear(x11, x21, x12, x22, xPercent, yPercent);
+        final double y = bilinear(y11, y21, y12, y22, xPercent, yPercent);
+        final double distance = Math.max(Math.abs(this.x - x), Math.abs(this.y - y));
+        if (!(distance <= error)) {
+          error = distance;
         }
       }
-      final double[] rowK = matrix[k];
-      for (int i = k + 1; i < 3; i++) {
-        final double[] rowI = matrix[i];
-        final double xmult = rowI[k] / rowK[k];
-        rowI[k] = xmult;
-        for (j = k + 1; j < 3; j++) {
-          rowI[j] = rowI[j] - xmult * rowK[j];
+      if (error <= ImageProjector.this.maxError) {
+        for (int row = 0; row < height; row++) {
+          final double yPercent = height == 1 ? 0 : row / (double)(height - 1);
+          final double leftX = x11 + (x12 - x11) * yPercent;
+          final double leftY = y11 + (y12 - y11) * yPercent;
+          final double rightX = x21 + (x22 - x21) * yPercent;
+          final double rightY = y21 + (y22 - y21) * yPercent;
+          int index = getIndex(minX, minY + row);
+          for (int column = 0; column < width; column++) {
+            final double xPercent = width == 1 ? 0 : column / (double)(width - 1);
+            final double sourceX = leftX + (rightX - leftX) * xPercent;
+            final double sourceY = leftY + (rightY - leftY) * xPercent;
+            this.pixels[index++] = getSourcePixel(sourceX, sourceY);
+          }
+        }
+      } else if (width <= MIN_SUBDIVIDE_SIZE && height <= MIN_SUBDIVIDE_SIZE) {
+        for (int row = 0; row < height; row++) {
+          int index = getIndex(minX, minY + row);
+          for (int column = 0; column < width; column++) {
+            toSourcePixel(minX + column + 0.5, minY + row + 0.5);
+            this.pixels[index++] = getSourcePixel(this.x, this.y);
+          }
+        }
+      } else {
+        final int width1 = (width + 1) / 2;
+        final int height1 = (height + 1) / 2;
+        final int width2 = width - width1;
+        final int height2 = height - height1;
+        project(minX, minY, width1, height1);
+        if (width2 > 0) {
+          project(minX + width1, minY, width2, height1);
+        }
+        if (height2 > 0) {
+          project(minX, minY + height1, width1, height2);
+          if (width2 > 0) {
+            project(minX + width1, minY + height1, width2, height2);
+          }
         }
       }
     }
-  }
 
-  private static double maxAbs(final double[] values) {
-    double max = 0;
-    for (final double value : values) {
-      final double absValue = Math.abs(value);
-      if (absValue > max) {
-        max = absValue;
-      }
+    private void toSourcePixel(final double targetX, final double targetY) {
+      final CoordinatesOperationPoint point = this.point;
+      ImageProjector.this.toSourcePixel(point, targetX, targetY);
+      this.x = point.x;
+      this.y = point.y;
     }
-    return max;
   }
 
-  private static double[] solve(final double[][] matrix, final double[] b) {
-    final double[] x = new double[3];
-    for (int k = 0; k < 2; k++) {
-      final int indexK = k;
-      for (int i = k + 1; i < 3; i++) {
-        final int indexI = i;
-        b[indexI] -= matrix[indexI][k] * b[indexK];
-      }
-    }
-    final int indexLast = 2;
-    x[2] = b[indexLast] / matrix[indexLast][2];
-
-    for (int i = 1; i >= 0; --i) {
-      final int index = i;
-      double sum = b[index];
-      for (int j = i + 1; j < 3; j++) {
-        sum = sum - matrix[index][j] * x[j];
-      }
-      x[i] = sum / matrix[index][i];
-
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  /**
+   * The locations, as a percent of the rectangle, where the interpolation error is checked.
+   */
+  private static final double[][] ERROR_SAMPLE_PERCENTS = {
+    {
+      0.5, 0.5
+    }, {
+      0.5, 0
+    }, {
+      0, 0.5
+    }, {
+      1, 0.5
+    }, {
+      0.5, 1
     }
-    return x;
+  };
+
+  /**
+   * Rectangles this size or smaller are projected exactly instead of being subdivided.
+   */
+  private static final int MIN_SUBDIVIDE_SIZE = 8;
+
+  /**
+   * The number of intervals along each side of a tile used to calculate the source rectangle.
+   */
+  private static final int SOURCE_SAMPLE_COUNT = 16;
+
+  private static double bilinear(final double value11, final double value21,
+    final double value12, final double value22, final double xPercent, final double yPercent) {
+    final double value1 = value11 + (value21 - value11) * xPercent;
+    final double value2 = value12 + (value22 - value12) * xPercent;
+    return value1 + (value2 - value1) * yPercent;
   }
 
-  private final GeoreferencedImage sourceImage;
-
-  private final BufferedImage sourceBufferdImage;
-
-  private BufferedGeoreferencedImage targetImage;
+  private static BufferedImage newArgbImage(final int width, final int height) {
+    return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+  }
 
-  private final ImageProjectorTriangle targetTriangle = new ImageProjectorTriangle();
+  private Cancellable cancellable = Cancellable.FALSE;
 
-  private final CoordinatesOperationPoint point = new CoordinatesOperationPoint();
+  private double maxError = 0.125;
 
   private final CoordinatesOperation operation;
 
-  private Graphics2D g2;
-
-  private GeometryFactory targetGeometryFactory;
-
-  private final AffineTransform transform = new AffineTransform();
-
-  private final SourceXGrid sourceXGrid;
+  private ImageResampling resampling = ImageResampling.BILINEAR;
 
-  private final SourceYGrid sourceYGrid;
-
-  private final TargetGrid targetXGrid;
+  private final GeoreferencedImage sourceImage;
 
-  private final TargetGrid targetYGrid;
+  private SourcePixels sourcePixels;
 
-  private final int gridWidth;
+  private final BoundingBox targetBoundingBox;
 
-  private final int gridHeight;
+  private final GeometryFactory targetGeometryFactory;
 
-  private final BoundingBox sourceBoundingBox;
+  private final int targetImageHeight;
 
-  private final int step = 50;
+  private final int targetImageWidth;
 
-  private final BoundingBox targetBoundingBox;
+  private final double targetResolutionX;
 
-  private int targetImageWidth;
+  private final double targetResolutionY;
 
-  private int targetImageHeight;
-
-  private Cancellable cancellable = Cancellable.FALSE;
+  private int tileSize = DEFAULT_TILE_SIZE;
 
   public ImageProjector(final GeoreferencedImage sourceImage,
     final GeometryFactoryProxy targetGeometryFactory) {
     this.sourceImage = sourceImage;
-    this.sourceBoundingBox = sourceImage.getBoundingBox();
-    this.sourceBufferdImage = sourceImage.getBufferedImage();
 
     if (targetGeometryFactory == null) {
       this.targetGeometryFactory = GeometryFactory.DEFAULT_2D;
@@ -222,106 +370,60 @@ public class ImageProjector {
       this.targetGeometryFactory = targetGeometryFactory.getGeometryFactory();
     }
 
-    this.operation = this.sourceImage.getCoordinatesOperation(targetGeometryFactory);
-    this.targetBoundingBox = this.sourceBoundingBox.bboxToCs(this.targetGeometryFactory);
-
-    final int imageWidth = this.sourceImage.getImageWidth();
-    final int imageHeight = this.sourceImage.getImageHeight();
-    this.gridWidth = (int)Math.ceil(imageWidth / (double)this.step);
-    this.gridHeight = (int)Math.ceil(imageHeight / (double)this.step);
-
-    this.sourceXGrid = new SourceXGrid();
-    this.sourceYGrid = new SourceYGrid();
-    this.targetXGrid = new TargetGrid();
-    this.targetYGrid = new TargetGrid();
-
-    final CoordinatesOperationPoint point = this.point;
-    final double sourceMinX = this.sourceBoundingBox.getMinX();
-    final double sourceMaxY = this.sourceBoundingBox.getMaxY();
-    final double sourceWidth = this.sourceBoundingBox.getWidth();
-    final double sourceHeight = this.sourceBoundingBox.getHeight();
-
-    final double targetMinX = this.targetBoundingBox.getMinX();
-    final double targetMaxY = this.targetBoundingBox.getMaxY();
-    final double targetWidth = this.targetBoundingBox.getWidth();
-    final double targetHeight = this.targetBoundingBox.getHeight();
-
-    final CoordinatesOperation operation = this.operation;
-    for (int gridY = 0; gridY <= this.gridHeight; gridY++) {
-      final double yPercent = this.sourceYGrid.getValue(gridY);
-      final double sourceY = sourceMaxY - yPercent * sourceHeight;
-      for (int gridX = 0; gridX <= this.gridWidth; gridX++) {
-        final double xPercent = this.sourceXGrid.getValue(gridX);
-        final double sourceX = sourceMinX + xPercent * sourceWidth;
-        point.setPoint(sourceX, sourceY);
-        operation.perform(point);
-        final double targetPercentX = (point.x - targetMinX) / targetWidth;
-        final double targetPercentY = (targetMaxY - point.y) / targetHeight;
-        this.targetXGrid.setValue(gridX, gridY, targetPercentX);
-        this.targetYGrid.setValue(gridX, gridY, targetPercentY);
-      }
-    }
+    this.operation = this.targetGeometryFactory
+      .getCoordinatesOperation(sourceImage.getGeometryFactory());
+
+    final BoundingBox sourceBoundingBox = sourceImage.getBoundingBox();
+    this.targetBoundingBox = sourceBoundingBox.bboxToCs(this.targetGeometryFactory);
+
+    final Point p1 = sourceBoundingBox.getCornerPoint(0).convertPoint2d(this.targetGeometryFactory);
+    final Point p2 = sourceBoundingBox.getCornerPoint(1).convertPoint2d(this.targetGeometryFactory);
+    final Point p3 = sourceBoundingBox.getCornerPoint(2).convertPoint2d(this.targetGeometryFactory);
+    final Point p4 = sourceBoundingBox.getCornerPoint(3).convertPoint2d(this.targetGeometryFactory);
+
+    final double sourceResolutionX = sourceImage.getResolutionX();
+    final double sourceWidth = sourceBoundingBox.getWidth() / sourceResolutionX;
+    final double width1 = p1.distancePoint(p2);
+    final double width2 = p3.distancePoint(p4);
+    final double targetResolutionX = getResolution(sourceWidth, width1, width2);
+
+    final double sourceResolutionY = sourceImage.getResolutionY();
+    final double sourceHeight = sourceBoundingBox.getHeight() / sourceResolutionY;
+    final double height1 = p1.distancePoint(p4);
+    final double height2 = p2.distancePoint(p3);
+    final double targetResolutionY = getResolution(sourceHeight, height1, height2);
+
+    final double width = this.targetBoundingBox.getWidth();
+    final double height = this.targetBoundingBox.getHeight();
+    this.targetImageWidth = Math.max(1, (int)(width / targetResolutionX));
+    this.targetImageHeight = Math.max(1, (int)(height / targetResolutionY));
+    this.targetResolutionX = width / this.targetImageWidth;
+    this.targetResolutionY = height / this.targetImageHeight;
   }
 
+  /**
+   * Draw the projected image to the graphics, which must use the target image pixel coordinates.
+   * Each row of tiles is projected in parallel and then drawn.
+   *
+   * @param graphics The graphics to draw to.
+   */
   public void drawImage(final Graphics2D graphics) {
-    this.g2 = graphics;
-
-    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-      RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-
-    final Shape clip = graphics.getClip();
-
-    final int imageWidth = this.sourceImage.getImageWidth();
-    final int imageHeight = this.sourceImage.getImageHeight();
-
-    final double gridCellWidth = imageWidth / 10.0;
-    final double gridCellHeight = imageHeight / 10.0;
-    for (int gridY = 0; gridY < 10 && !isCancelled(); gridY++) {
-      final double imageY = gridY * gridCellHeight;
-      final double imageY2 = imageY + gridCellHeight;
-      for (int gridX = 0; gridX < 10 && !isCancelled(); gridX++) {
-        final double imageX = gridX * gridCellWidth;
-        final double imageX2 = imageX + gridCellWidth;
-        drawTriangle(imageX2, imageY, imageX, imageY2, imageX, imageY);
-        drawTriangle(imageX2, imageY, imageX, imageY2, imageX2, imageY2);
+    final int tileCountX = getTileCountX();
+    final int tileCountY = getTileCountY();
+    for (int tileY = 0; tileY < tileCountY && !isCancelled(); tileY++) {
+      final int rowTileY = tileY;
+      final BufferedImage[] tiles = IntStream.range(0, tileCountX)
+        .parallel()
+        .mapToObj(tileX -> newTileImage(tileX, rowTileY))
+        .toArray(BufferedImage[]::new);
+      for (int tileX = 0; tileX < tileCountX && !isCancelled(); tileX++) {
+        graphics.drawImage(tiles[tileX], tileX * this.tileSize, tileY * this.tileSize, null);
       }
     }
-    graphics.setClip(clip);
   }
 
-  private void drawTriangle(final double x1, final double y1, final double x2, final double y2,
-    final double x3, final double y3) {
-    final GeoreferencedImage sourceImage = this.sourceImage;
-    final ImageProjectorTriangle targetTriangle = this.targetTriangle;
-    final CoordinatesOperationPoint point = this.point;
-    final CoordinatesOperation operation = this.operation;
-    final BufferedGeoreferencedImage targetImage = this.targetImage;
-    targetTriangle.setCorner(0, sourceImage, x1, y1, point, operation, targetImage);
-    targetTriangle.setCorner(1, sourceImage, x2, y2, point, operation, targetImage);
-    targetTriangle.setCorner(2, sourceImage, x3, y3, point, operation, targetImage);
-
-    final double[][] a = new double[][] {
-      {
-        x1, y1, 1
-      }, {
-        x2, y2, 1
-      }, {
-        x3, y3, 1
-      }
-    };
-
-    gauss(a);
-
-    final double[] bx = targetTriangle.xCoordinates.clone();
-    final double[] x = solve(a, bx);
-
-    final double[] by = targetTriangle.yCoordinates.clone();
-    final double[] y = solve(a, by);
-
-    this.transform.setTransform(x[0], y[0], x[1], y[1], x[2], y[2]);
-    final Graphics2D g2 = this.g2;
-    g2.setClip(targetTriangle);
-    g2.drawImage(this.sourceBufferdImage, this.transform, null);
+  public double getMaxError() {
+    return this.maxError;
   }
 
   private double getResolution(final double originalDistance, final double distance1,
@@ -337,45 +439,220 @@ public class ImageProjector {
     return targetPixelSize;
   }
 
+  public ImageResampling getResampling() {
+    return this.resampling;
+  }
+
+  /**
+   * Get the source pixels used to project the rectangle of target pixels. For a tiled source
+   * image only the source tiles that overlap the rectangle are read.
+   */
+  private SourcePixels getSourcePixels(final int minX, final int minY, final int width,
+    final int height) {
+    final GeoreferencedImage sourceImage = this.sourceImage;
+    if (sourceImage instanceof TiledGeoreferencedImage) {
+      final CoordinatesOperationPoint point = new CoordinatesOperationPoint();
+      double sourceMinX = Double.POSITIVE_INFINITY;
+      double sourceMinY = Double.POSITIVE_INFINITY;
+      double sourceMaxX = Double.NEGATIVE_INFINITY;
+      double sourceMaxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i <= SOURCE_SAMPLE_COUNT; i++) {
+        final double y = minY + height * i / (double)SOURCE_SAMPLE_COUNT;
+        for (int j = 0; j <= SOURCE_SAMPLE_COUNT; j++) {
+          final double x = minX + width * j / (double)SOURCE_SAMPLE_COUNT;
+          toSourcePixel(point, x, y);
+          if (Double.isFinite(point.x) && Double.isFinite(point.y)) {
+            sourceMinX = Math.min(sourceMinX, point.x);
+            sourceMinY = Math.min(sourceMinY, point.y);
+            sourceMaxX = Math.max(sourceMaxX, point.x);
+            sourceMaxY = Math.max(sourceMaxY, point.y);
+          }
+        }
+      }
+      // Expand by the pixels used by the resampling and approximation errors
+      final int pixelMinX = Math.max(0, (int)Math.floor(sourceMinX) - 3);
+      final int pixelMinY = Math.max(0, (int)Math.floor(sourceMinY) - 3);
+      final int pixelMaxX = Math.min(sourceImage.getImageWidth(), (int)Math.ceil(sourceMaxX) + 3);
+      final int pixelMaxY = Math.min(sourceImage.getImageHeight(), (int)Math.ceil(sourceMaxY) + 3);
+      if (pixelMinX < pixelMaxX && pixelMinY < pixelMaxY) {
+        return readSourcePixels((TiledGeoreferencedImage)sourceImage, pixelMinX, pixelMinY,
+          pixelMaxX - pixelMinX, pixelMaxY - pixelMinY);
+      } else {
+        return null;
+      }
+    } else {
+      return getSourcePixels();
+    }
+  }
+
+  /**
+   * Get the ARGB pixels for the whole source image.
+   */
+  private synchronized SourcePixels getSourcePixels() {
+    if (this.sourcePixels == null) {
+      final RenderedImage renderedImage = this.sourceImage.getRenderedImage();
+      if (renderedImage != null) {
+        BufferedImage image;
+        if (renderedImage instanceof BufferedImage
+          && ((BufferedImage)renderedImage).getType() == BufferedImage.TYPE_INT_ARGB) {
+          image = (BufferedImage)renderedImage;
+        } else {
+          image = newArgbImage(renderedImage.getWidth(), renderedImage.getHeight());
+          final Graphics2D graphics = image.createGraphics();
+          try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawRenderedImage(renderedImage, new AffineTransform());
+          } finally {
+            graphics.dispose();
+          }
+        }
+        this.sourcePixels = new SourcePixels(image, 0, 0);
+      }
+    }
+    return this.sourcePixels;
+  }
+
+  public BoundingBox getTargetBoundingBox() {
+    return this.targetBoundingBox;
+  }
+
+  public int getTargetImageHeight() {
+    return this.targetImageHeight;
+  }
+
+  public int getTargetImageWidth() {
+    return this.targetImageWidth;
+  }
+
+  private BoundingBox getTileBoundingBox(final int tileX, final int tileY) {
+    final double minX = this.targetBoundingBox.getMinX() + tileX * this.tileSize
+      * this.targetResolutionX;
+    final double maxY = this.targetBoundingBox.getMaxY() - tileY * this.tileSize
+      * this.targetResolutionY;
+    final double maxX = minX + getTileWidth(tileX) * this.targetResolutionX;
+    final double minY = maxY - getTileHeight(tileY) * this.targetResolutionY;
+    return this.targetGeometryFactory.newBoundingBox(minX, minY, maxX, maxY);
+  }
+
+  private int getTileCountX() {
+    return (this.targetImageWidth + this.tileSize - 1) / this.tileSize;
+  }
+
+  private int getTileCountY() {
+    return (this.targetImageHeight + this.tileSize - 1) / this.tileSize;
+  }
+
+  private int getTileHeight(final int tileY) {
+    return Math.min(this.tileSize, this.targetImageHeight - tileY * this.tileSize);
+  }
+
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  private int getTileWidth(final int tileX) {
+    return Math.min(this.tileSize, this.targetImageWidth - tileX * this.tileSize);
+  }
+
   public boolean isCancelled() {
     return this.cancellable.isCancelled();
   }
 
+  /**
+   * Project the whole image. The tiles are projected in parallel.
+   *
+   * @return The projected image.
+   */
   public GeoreferencedImage newImage() {
-    final BoundingBox sourceBoundingBox = this.sourceBoundingBox;
-    final Point p1 = sourceBoundingBox.getCornerPoint(0).convertPoint2d(this.targetGeometryFactory);
-    final Point p2 = sourceBoundingBox.getCornerPoint(1).convertPoint2d(this.targetGeometryFactory);
-    final Point p3 = sourceBoundingBox.getCornerPoint(2).convertPoint2d(this.targetGeometryFactory);
-    final Point p4 = sourceBoundingBox.getCornerPoint(3).convertPoint2d(this.targetGeometryFactory);
-
-    final double sourceResolutionX = this.sourceImage.getResolutionX();
-    final double sourceWidth = sourceBoundingBox.getWidth() / sourceResolutionX;
-    final double width1 = p1.distancePoint(p2);
-    final double width2 = p3.distancePoint(p4);
-    final double targetResolutionX = getResolution(sourceWidth, width1, width2);
+    final int imageWidth = this.targetImageWidth;
+    final BufferedGeoreferencedImage targetImage = BufferedGeoreferencedImage
+      .newImage(this.targetBoundingBox, imageWidth, this.targetImageHeight);
+    final BufferedImage image = targetImage.getBufferedImage();
+    final int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    final int tileCountX = getTileCountX();
+    final int tileCount = tileCountX * getTileCountY();
+    IntStream.range(0, tileCount).parallel().forEach(tileIndex -> {
+      if (!isCancelled()) {
+        final int minX = tileIndex % tileCountX * this.tileSize;
+        final int minY = tileIndex / tileCountX * this.tileSize;
+        projectPixels(pixels, minY * imageWidth + minX, imageWidth, minX, minY);
+      }
+    });
+    return targetImage;
+  }
 
-    final double sourceResolutionY = this.sourceImage.getResolutionY();
-    final double sourceHeight = sourceBoundingBox.getHeight() / sourceResolutionY;
-    final double height1 = p1.distancePoint(p4);
-    final double height2 = p2.distancePoint(p3);
-    final double targetResolutionY = getResolution(sourceHeight, height1, height2);
+  /**
+   * Get an image that projects each tile when it is read. Use this to write a large projected
+   * image without creating the whole image in memory.
+   *
+   * @return The tiled image.
+   */
+  public TiledGeoreferencedImage newTiledImage() {
+    return new ProjectedImage();
+  }
 
-    final BoundingBox targetBoundingBox = this.targetBoundingBox;
-    final double width = targetBoundingBox.getWidth();
-    final double height = targetBoundingBox.getHeight();
-    this.targetImageWidth = (int)(width / targetResolutionX);
+  private BufferedImage newTileImage(final int tileX, final int tileY) {
+    final int width = getTileWidth(tileX);
+    final int height = getTileHeight(tileY);
+    final BufferedImage image = newArgbImage(width, height);
+    final int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    projectPixels(pixels, 0, width, tileX * this.tileSize, tileY * this.tileSize);
+    return image;
+  }
 
-    this.targetImageHeight = (int)(height / targetResolutionY);
+  /**
+   * Project the tile with the top left target pixel minX, minY into the pixels.
+   *
+   * @param pixels The target pixels.
+   * @param offset The index in the pixels of the top left pixel of the tile.
+   * @param stride The number of pixels in each row of the pixels.
+   */
+  private void projectPixels(final int[] pixels, final int offset, final int stride,
+    final int minX, final int minY) {
+    final int width = Math.min(this.tileSize, this.targetImageWidth - minX);
+    final int height = Math.min(this.tileSize, this.targetImageHeight - minY);
+    final SourcePixels sourcePixels = getSourcePixels(minX, minY, width, height);
+    if (sourcePixels != null) {
+      new TileProjection(pixels, offset, stride, minX, minY, sourcePixels).project(minX, minY,
+        width, height);
+    }
+  }
 
-    this.targetImage = BufferedGeoreferencedImage.newImage(targetBoundingBox, this.targetImageWidth,
-      this.targetImageHeight);
-    final Graphics2D graphics = this.targetImage.getBufferedImage().createGraphics();
+  private SourcePixels readSourcePixels(final TiledGeoreferencedImage sourceImage,
+    final int pixelMinX, final int pixelMinY, final int width, final int height) {
+    final BoundingBox boundingBox = sourceImage.getBoundingBox();
+    final double resolutionX = sourceImage.getResolutionX();
+    final double resolutionY = sourceImage.getResolutionY();
+    final double minX = boundingBox.getMinX() + pixelMinX * resolutionX;
+    final double maxY = boundingBox.getMaxY() - pixelMinY * resolutionY;
+    // Inset by half a pixel so the tiles that only touch the rectangle are not read
+    final BoundingBox sourceBoundingBox = boundingBox.getGeometryFactory()
+      .newBoundingBox(minX + resolutionX / 2, maxY - (height - 0.5) * resolutionY,
+        minX + (width - 0.5) * resolutionX, maxY - resolutionY / 2);
+
+    final BufferedImage image = newArgbImage(width, height);
+    final Graphics2D graphics = image.createGraphics();
     try {
-      drawImage(graphics);
+      graphics.setComposite(AlphaComposite.Src);
+      for (final GeoreferencedImageMapTile tile : sourceImage
+        .getOverlappingMapTiles(sourceBoundingBox, resolutionX)) {
+        final GeoreferencedImage tileImage = tile.loadData();
+        if (tileImage != null) {
+          final RenderedImage tileRenderedImage = tileImage.getRenderedImage();
+          // The tile bounding box may be padded so only use its origin and draw the tile's pixels
+          // at scale 1
+          final BoundingBox tileBoundingBox = tile.getBoundingBox();
+          final double x = (tileBoundingBox.getMinX() - minX) / resolutionX;
+          final double y = (maxY - tileBoundingBox.getMaxY()) / resolutionY;
+          final AffineTransform transform = AffineTransform.getTranslateInstance(Math.round(x),
+            Math.round(y));
+          graphics.drawRenderedImage(tileRenderedImage, transform);
+        }
+      }
     } finally {
       graphics.dispose();
     }
-    return this.targetImage;
+    return new SourcePixels(image, pixelMinX, pixelMinY);
   }
 
   public ImageProjector setCancellable(final Cancellable cancellable) {
@@ -383,16 +660,41 @@ public class ImageProjector {
     return this;
   }
 
-  public void setCorner(final ImageProjectorTriangle targetTriangle, final int i,
-    final GeoreferencedImage sourceImage, final double imageX, final double imageY,
-    final CoordinatesOperationPoint point, final CoordinatesOperation operation,
-    final BufferedGeoreferencedImage targetImage) {
-    sourceImage.copyModelPoint(point, imageX, imageY);
-    operation.perform(point);
-    targetImage.toImagePoint(point);
-    final double targetImageX = point.x;
-    final double targetImageY = point.y;
-    targetTriangle.setPoint(i, targetImageX, targetImageY);
+  /**
+   * Set the maximum error, in source pixels, of the interpolated source pixel locations.
+   *
+   * @param maxError The maximum error.
+   * @return this
+   */
+  public ImageProjector setMaxError(final double maxError) {
+    this.maxError = maxError;
+    return this;
+  }
+
+  public ImageProjector setResampling(final ImageResampling resampling) {
+    this.resampling = resampling;
+    return this;
   }
 
+  public ImageProjector setTileSize(final int tileSize) {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("Tile size must be > 0: " + tileSize);
+    }
+    this.tileSize = tileSize;
+    return this;
+  }
+
+  /**
+   * Calculate the location of the source pixel for the target pixel location.
+   */
+  private void toSourcePixel(final CoordinatesOperationPoint point, final double targetX,
+    final double targetY) {
+    final double x = this.targetBoundingBox.getMinX() + targetX * this.targetResolutionX;
+    final double y = this.targetBoundingBox.getMaxY() - targetY * this.targetResolutionY;
+    point.setPoint(x, y);
+    if (this.operation != null) {
+      this.operation.perform(point);
+    }
+    this.sourceImage.toImagePoint(point);
+  }
 }
@@ -0,0 +1,144 @@
+package com.revolsys.raster;
+
+/**
+ * Methods to calculate the ARGB value at a location in an array of ARGB pixels. The location is
+ * in pixel coordinates where the pixel (x, y) covers x to x + 1 and y to y + 1, so the center of
+ * the pixel is at x + 0.5, y + 0.5. The colors are weighted by the alpha of each pixel. Locations
+ * outside the pixels are transparent.
+ */
+public enum ImageResampling {
+  NEAREST {
+    @Override
+    public int getPixel(final int[] pixels, final int width, final int height, final double x,
+      final double y) {
+      if (isInside(width, height, x, y)) {
+        final int pixelX = (int)x;
+        final int pixelY = (int)y;
+        return pixels[pixelY * width + pixelX];
+      } else {
+        return 0;
+      }
+    }
+  },
+  BILINEAR {
+    @Override
+    public int getPixel(final int[] pixels, final int width, final int height, final double x,
+      final double y) {
+      if (isInside(width, height, x, y)) {
+        final double pixelX = x - 0.5;
+        final double pixelY = y - 0.5;
+        final int minX = (int)Math.floor(pixelX);
+        final int minY = (int)Math.floor(pixelY);
+        final double xPercent = pixelX - minX;
+        final double yPercent = pixelY - minY;
+        final double[] weightsX = {
+          1 - xPercent, xPercent
+        };
+        final double[] weightsY = {
+          1 - yPercent, yPercent
+        };
+        return interpolate(pixels, width, height, minX, minY, weightsX, weightsY);
+      } else {
+        return 0;
+      }
+    }
+  },
+  BICUBIC {
+    @Override
+    public int getPixel(final int[] pixels, final int width, final int height, final double x,
+      final double y) {
+      if (isInside(width, height, x, y)) {
+        final double pixelX = x - 0.5;
+        final double pixelY = y - 0.5;
+        final int minX = (int)Math.floor(pixelX);
+        final int minY = (int)Math.floor(pixelY);
+        final double[] weightsX = cubicWeights(pixelX - minX);
+        final double[] weightsY = cubicWeights(pixelY - minY);
+        return interpolate(pixels, width, height, minX - 1, minY - 1, weightsX, weightsY);
+      } else {
+        return 0;
+      }
+    }
+  };
+
+  private static int clamp(final int value, final int max) {
+    if (value < 0) {
+      return 0;
+    } else if (value >= max) {
+      return max - 1;
+    } else {
+      return value;
+    }
+  }
+
+  private static int clampByte(final double value) {
+    final long rounded = Math.round(value);
+    if (rounded < 0) {
+      return 0;
+    } else if (rounded > 255) {
+      return 255;
+    } else {
+      return (int)rounded;
+    }
+  }
+
+  /**
+   * The Catmull-Rom weights for the 4 pixels around the location, as used by
+   * {@link com.revolsys.grid.Grid#cubicInterpolate(double, double, double, double, double)}.
+   */
+  private static double[] cubicWeights(final double t) {
+    return new double[] {
+      ((-0.5 * t + 1) * t - 0.5) * t, //
+      (1.5 * t - 2.5) * t * t + 1, //
+      ((-1.5 * t + 2) * t + 0.5) * t, //
+      (0.5 * t - 0.5) * t * t
+    };
+  }
+
+  /**
+   * Calculate the weighted average of the pixels from minX, minY. Pixels outside the image use
+   * the value of the closest edge pixel.
+   */
+  private static int interpolate(final int[] pixels, final int width, final int height,
+    final int minX, final int minY, final double[] weightsX, final double[] weightsY) {
+    double alpha = 0;
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int j = 0; j < weightsY.length; j++) {
+      final int rowOffset = clamp(minY + j, height) * width;
+      final double weightY = weightsY[j];
+      for (int i = 0; i < weightsX.length; i++) {
+        final int pixel = pixels[rowOffset + clamp(minX + i, width)];
+        final double pixelAlpha = (pixel >>> 24) * weightsX[i] * weightY;
+        alpha += pixelAlpha;
+        red += (pixel >>> 16 & 0xff) * pixelAlpha;
+        green += (pixel >>> 8 & 0xff) * pixelAlpha;
+        blue += (pixel & 0xff) * pixelAlpha;
+      }
+    }
+    if (alpha <= 0) {
+      return 0;
+    } else {
+      return clampByte(alpha) << 24 | clampByte(red / alpha) << 16 | clampByte(green / alpha) << 8
+        | clampByte(blue / alpha);
+    }
+  }
+
+  private static boolean isInside(final int width, final int height, final double x,
+    final double y) {
+    return x >= 0 && x < width && y >= 0 && y < height;
+  }
+
+  /**
+   * Get the ARGB value at the location.
+   *
+   * @param pixels The ARGB pixels.
+   * @param width The width of the pixels.
+   * @param height The height of the pixels.
+   * @param x The x pixel coordinate.
+   * @param y The y pixel coordinate.
+   * @return The ARGB value or 0 (transparent) if the location is outside the pixels.
+   */
+  public abstract int getPixel(int[] pixels, int width, int height, double x, double y);
+}
@@ -0,0 +1,645 @@
+package com.revolsys.raster.io.format.tiff;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.RenderedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.raster.GeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImageMapTile;
+import com.revolsys.raster.TiledGeoreferencedImage;
+import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.raster.io.format.tiff.code.TiffExtensionTag;
+import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
+import com.revolsys.raster.io.format.tiff.code.TiffPrivateTag;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwOutputStream;
+import com.revolsys.raster.io.format.tiff.image.TiffMultiResolutionImage;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Write a tiled GeoTIFF with internal overviews using the cloud optimized GeoTIFF (COG) layout.
+ * The image file directories and the tile offsets are at the start of the file, followed by the
+ * tiles of the smallest overview through to the tiles of the full resolution image.
+ * <p>
+ * The source is read one row of tiles at a time. Each overview is created by averaging 2x2 pixels
+ * of the previous level as the rows are read and the tiles in each row are compressed in parallel.
+ * The compressed tiles for each level are written to a temporary file and copied to the resource
+ * after the whole source has been read.
+ * </p>
+ */
+public class CloudOptimizedGeoTiffWriter {
+
+  private class ElevationLevel extends Level {
+
+    private final float[] values;
+
+    private ElevationLevel(final int width, final int height) {
+      super(width, height);
+      this.values = new float[width * CloudOptimizedGeoTiffWriter.this.tileSize];
+    }
+
+    @Override
+    protected void downsample(final Level level, final int rowCount) {
+      final ElevationLevel sourceLevel = (ElevationLevel)level;
+      final float[] sourceValues = sourceLevel.values;
+      final int sourceWidth = sourceLevel.getWidth();
+      final int sourceRowCount = sourceLevel.rowCount;
+      final int width = getWidth();
+      final int rowOffset = this.rowCount;
+      IntStream.range(0, rowCount).parallel().forEach(row -> {
+        final int sourceIndex1 = row * 2 * sourceWidth;
+        final int sourceIndex2 = Math.min(row * 2 + 1, sourceRowCount - 1) * sourceWidth;
+        final int targetIndex = (rowOffset + row) * width;
+        for (int x = 0; x < width; x++) {
+          final int sourceX1 = x * 2;
+          final int sourceX2 = Math.min(sourceX1 + 1, sourceWidth - 1);
+          this.values[targetIndex + x] = average(sourceValues[sourceIndex1 + sourceX1],
+            sourceValues[sourceIndex1 + sourceX2], sourceValues[sourceIndex2 + sourceX1],
+            sourceValues[sourceIndex2 + sourceX2]);
+        }
+      });
+    }
+
+    @Override
+    protected byte[] getTileBytes(final int tileX) {
+      final int tileSize = CloudOptimizedGeoTiffWriter.this.tileSize;
+      final byte[] bytes = new byte[tileSize * tileSize * 4];
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes)
+        .order(CloudOptimizedGeoTiffWriter.this.byteOrder);
+      final int width = getWidth();
+      final int minX = tileX * tileSize;
+      final int columnCount = Math.min(tileSize, width - minX);
+      for (int row = 0; row < tileSize; row++) {
+        final int index = row * width + minX;
+        for (int column = 0; column < tileSize; column++) {
+          if (row < this.rowCount && column < columnCount) {
+            buffer.putFloat(this.values[index + column]);
+          } else {
+            buffer.putFloat(Float.NaN);
+          }
+        }
+      }
+      return bytes;
+    }
+
+    @Override
+    protected Level newOverview(final int width, final int height) {
+      return new ElevationLevel(width, height);
+    }
+
+    private void readRows(final GriddedElevationModel elevationModel) {
+      final int width = getWidth();
+      final int gridHeight = elevationModel.getGridHeight();
+      final int minY = getTileY() * CloudOptimizedGeoTiffWriter.this.tileSize;
+      for (int row = 0; row < this.rowCount; row++) {
+        final int gridY = gridHeight - 1 - (minY + row);
+        final int index = row * width;
+        for (int gridX = 0; gridX < width; gridX++) {
+          final double value = elevationModel.getValue(gridX, gridY);
+          this.values[index + gridX] = (float)value;
+        }
+      }
+    }
+  }
+
+  private class ImageLevel extends Level {
+
+    private final int[] pixels;
+
+    private ImageLevel(final int width, final int height) {
+      this(width, height, new int[width * CloudOptimizedGeoTiffWriter.this.tileSize]);
+    }
+
+    private ImageLevel(final int width, final int height, final int[] pixels) {
+      super(width, height);
+      this.pixels = pixels;
+    }
+
+    @Override
+    protected void downsample(final Level level, final int rowCount) {
+      final ImageLevel sourceLevel = (ImageLevel)level;
+      final int[] sourcePixels = sourceLevel.pixels;
+      final int sourceWidth = sourceLevel.getWidth();
+      final int sourceRowCount = sourceLevel.rowCount;
+      final int width = getWidth();
+      final int rowOffset = this.rowCount;
+      IntStream.range(0, rowCount).parallel().forEach(row -> {
+        final int sourceIndex1 = row * 2 * sourceWidth;
+        final int sourceIndex2 = Math.min(row * 2 + 1, sourceRowCount - 1) * sourceWidth;
+        final int targetIndex = (rowOffset + row) * width;
+        for (int x = 0; x < width; x++) {
+          final int sourceX1 = x * 2;
+          final int sourceX2 = Math.min(sourceX1 + 1, sourceWidth - 1);
+          this.pixels[targetIndex + x] = average(sourcePixels[sourceIndex1 + sourceX1],
+            sourcePixels[sourceIndex1 + sourceX2], sourcePixels[sourceIndex2 + sourceX1],
+            sourcePixels[sourceIndex2 + sourceX2]);
+        }
+      });
+    }
+
+    @Override
+    protected byte[] getTileBytes(final int tileX) {
+      final int tileSize = CloudOptimizedGeoTiffWriter.this.tileSize;
+      final boolean alpha = CloudOptimizedGeoTiffWriter.this.alpha;
+      final int samplesPerPixel = alpha ? 4 : 3;
+      final byte[] bytes = new byte[tileSize * tileSize * samplesPerPixel];
+      final int width = getWidth();
+      final int minX = tileX * tileSize;
+      final int columnCount = Math.min(tileSize, width - minX);
+      for (int row = 0; row < this.rowCount; row++) {
+        int byteIndex = row * tileSize * samplesPerPixel;
+        final int index = row * width + minX;
+        for (int column = 0; column < columnCount; column++) {
+          final int pixel = this.pixels[index + column];
+          bytes[byteIndex++] = (byte)(pixel >>> 16);
+          bytes[byteIndex++] = (byte)(pixel >>> 8);
+          bytes[byteIndex++] = (byte)pixel;
+          if (alpha) {
+            bytes[byteIndex++] = (byte)(pixel >>> 24);
+          }
+        }
+      }
+      return bytes;
+    }
+
+    @Override
+    protected Level newOverview(final int width, final int height) {
+      return new ImageLevel(width, height);
+    }
+  }
+
+  private abstract class Level implements BaseCloseable {
+
+    private final Path file;
+
+    private long fileSize;
+
+    private final int height;
+
+    private final OutputStream out;
+
+    private Level overview;
+
+    protected int rowCount;
+
+    private final long[] tileByteCounts;
+
+    private final int tileCountX;
+
+    private final long[] tileOffsets;
+
+    private int tileY;
+
+    private final int width;
+
+    private Level(final int width, final int height) {
+      final int tileSize = CloudOptimizedGeoTiffWriter.this.tileSize;
+      this.width = width;
+      this.height = height;
+      this.tileCountX = (width + tileSize - 1) / tileSize;
+      final int tileCountY = (height + tileSize - 1) / tileSize;
+      final int tileCount = this.tileCountX * tileCountY;
+      this.tileOffsets = new long[tileCount];
+      this.tileByteCounts = new long[tileCount];
+      try {
+        this.file = Files.createTempFile("cog", ".tiles");
+        this.out = new BufferedOutputStream(Files.newOutputStream(this.file));
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to create temporary file", e);
+      }
+    }
+
+    /**
+     * Add the next rows from the previous level, writing the tiles if the band of rows is full.
+     */
+    private void addRows(final Level level) throws IOException {
+      final int rowCount = (level.rowCount + 1) / 2;
+      downsample(level, rowCount);
+      this.rowCount += rowCount;
+      final int tileSize = CloudOptimizedGeoTiffWriter.this.tileSize;
+      if (this.rowCount == tileSize || this.tileY * tileSize + this.rowCount == this.height) {
+        writeTiles();
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        this.out.close();
+        Files.deleteIfExists(this.file);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to delete temporary file: " + this.file, e);
+      } finally {
+        if (this.overview != null) {
+          this.overview.close();
+        }
+      }
+    }
+
+    private byte[] compressTile(final int tileX) {
+      final byte[] bytes = getTileBytes(tileX);
+      return compress(bytes);
+    }
+
+    /**
+     * Average 2x2 pixels from the rows in the previous level to create the rows in this level.
+     *
+     * @param level The previous level.
+     * @param rowCount The number of rows to add to this level.
+     */
+    protected abstract void downsample(Level level, int rowCount);
+
+    protected abstract byte[] getTileBytes(int tileX);
+
+    protected int getTileY() {
+      return this.tileY;
+    }
+
+    protected int getWidth() {
+      return this.width;
+    }
+
+    protected abstract Level newOverview(int width, int height);
+
+    /**
+     * Compress the tiles for the current band of rows in parallel, write them to the temporary
+     * file and add the rows to the overview.
+     */
+    protected void writeTiles() throws IOException {
+      final byte[][] tiles = IntStream.range(0, this.tileCountX)
+        .parallel()
+        .mapToObj(this::compressTile)
+        .toArray(byte[][]::new);
+      for (int tileX = 0; tileX < this.tileCountX; tileX++) {
+        final byte[] tile = tiles[tileX];
+        final int tileIndex = this.tileY * this.tileCountX + tileX;
+        this.tileOffsets[tileIndex] = this.fileSize;
+        this.tileByteCounts[tileIndex] = tile.length;
+        this.out.write(tile);
+        this.fileSize += tile.length;
+      }
+      final int tileSize = CloudOptimizedGeoTiffWriter.this.tileSize;
+      if (this.overview == null && (this.width > tileSize || this.height > tileSize)) {
+        this.overview = newOverview((this.width + 1) / 2, (this.height + 1) / 2);
+      }
+      if (this.overview != null) {
+        this.overview.addRows(this);
+      }
+      this.tileY++;
+      this.rowCount = 0;
+    }
+  }
+
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  /**
+   * The estimated file size above which a BigTIFF file is written.
+   */
+  private static final long MAX_TIFF_SIZE = 0xFFFFFFFFL - 64 * 1024 * 1024;
+
+  /**
+   * Average the values ignoring NaN values.
+   */
+  private static float average(final float value1, final float value2, final float value3,
+    final float value4) {
+    double sum = 0;
+    int count = 0;
+    if (!Float.isNaN(value1)) {
+      sum += value1;
+      count++;
+    }
+    if (!Float.isNaN(value2)) {
+      sum += value2;
+      count++;
+    }
+    if (!Float.isNaN(value3)) {
+      sum += value3;
+      count++;
+    }
+    if (!Float.isNaN(value4)) {
+      sum += value4;
+      count++;
+    }
+    if (count == 0) {
+      return Float.NaN;
+    } else {
+      return (float)(sum / count);
+    }
+  }
+
+  /**
+   * Average the colors of the ARGB pixels weighted by the alpha.
+   */
+  private static int average(final int pixel1, final int pixel2, final int pixel3,
+    final int pixel4) {
+    final int alpha1 = pixel1 >>> 24;
+    final int alpha2 = pixel2 >>> 24;
+    final int alpha3 = pixel3 >>> 24;
+    final int alpha4 = pixel4 >>> 24;
+    final int alphaSum = alpha1 + alpha2 + alpha3 + alpha4;
+    if (alphaSum == 0) {
+      return 0;
+    } else {
+      final int redSum = (pixel1 >>> 16 & 0xff) * alpha1 + (pixel2 >>> 16 & 0xff) * alpha2
+        + (pixel3 >>> 16 & 0xff) * alpha3 + (pixel4 >>> 16 & 0xff) * alpha4;
+      final int greenSum = (pixel1 >>> 8 & 0xff) * alpha1 + (pixel2 >>> 8 & 0xff) * alpha2
+        + (pixel3 >>> 8 & 0xff) * alpha3 + (pixel4 >>> 8 & 0xff) * alpha4;
+      final int blueSum = (pixel1 & 0xff) * alpha1 + (pixel2 & 0xff) * alpha2
+        + (pixel3 & 0xff) * alpha3 + (pixel4 & 0xff) * alpha4;
+      final int halfAlphaSum = alphaSum / 2;
+      final int alpha = (alphaSum + 2) / 4;
+      final int red = (redSum + halfAlphaSum) / alphaSum;
+      final int green = (greenSum + halfAlphaSum) / alphaSum;
+      final int blue = (blueSum + halfAlphaSum) / alphaSum;
+      return alpha << 24 | red << 16 | green << 8 | blue;
+    }
+  }
+
+  private boolean alpha;
+
+  private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+
+  private TiffCompression compression = TiffCompression.ADOBE_DEFLATE;
+
+  private final Resource resource;
+
+  private int tileSize = DEFAULT_TILE_SIZE;
+
+  public CloudOptimizedGeoTiffWriter(final Resource resource) {
+    this.resource = resource;
+  }
+
+  private byte[] compress(final byte[] bytes) {
+    if (this.compression == TiffCompression.NONE) {
+      return bytes;
+    } else {
+      final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(bytes.length / 4);
+      try (
+        OutputStream out = newCompressedOutputStream(bytesOut)) {
+        out.write(bytes);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to compress tile", e);
+      }
+      return bytesOut.toByteArray();
+    }
+  }
+
+  public ByteOrder getByteOrder() {
+    return this.byteOrder;
+  }
+
+  public TiffCompression getCompression() {
+    return this.compression;
+  }
+
+  public Resource getResource() {
+    return this.resource;
+  }
+
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  private OutputStream newCompressedOutputStream(final OutputStream out) {
+    if (this.compression == TiffCompression.LZW) {
+      return new TiffLzwOutputStream(out);
+    } else {
+      return new DeflaterOutputStream(out);
+    }
+  }
+
+  private void readImageRows(final GeoreferencedImage image, final RenderedImage renderedImage,
+    final Graphics2D graphics, final int minY, final double resolutionX,
+    final double resolutionY) {
+    if (renderedImage == null) {
+      final TiledGeoreferencedImage tiledImage = (TiledGeoreferencedImage)image;
+      final BoundingBox boundingBox = image.getBoundingBox();
+      final GeometryFactory geometryFactory = boundingBox.getGeometryFactory();
+      final double minX = boundingBox.getMinX();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY() - minY * resolutionY;
+      final double rowsMinY = Math.max(boundingBox.getMinY(), maxY - this.tileSize * resolutionY);
+      // Inset by half a pixel so the tiles that only touch the band of rows are not read
+      final BoundingBox rowsBoundingBox = geometryFactory.newBoundingBox(minX + resolutionX / 2,
+        rowsMinY + resolutionY / 2, maxX - resolutionX / 2, maxY - resolutionY / 2);
+      for (final GeoreferencedImageMapTile tile : tiledImage.getOverlappingMapTiles(rowsBoundingBox,
+        resolutionX)) {
+        final GeoreferencedImage tileImage = tile.loadData();
+        if (tileImage != null) {
+          final RenderedImage tileRenderedImage = tileImage.getRenderedImage();
+          if (minY == 0 && tileRenderedImage.getColorModel().hasAlpha()) {
+            this.alpha = true;
+          }
+          // The tile bounding box may be padded so only use its origin and draw the tile's pixels
+          // at scale 1
+          final BoundingBox tileBoundingBox = tile.getBoundingBox();
+          final double x = (tileBoundingBox.getMinX() - minX) / resolutionX;
+          final double y = (maxY - tileBoundingBox.getMaxY()) / resolutionY;
+          final AffineTransform transform = AffineTransform.getTranslateInstance(Math.round(x),
+            Math.round(y));
+          graphics.drawRenderedImage(tileRenderedImage, transform);
+        }
+      }
+    } else {
+      graphics.drawRenderedImage(renderedImage, AffineTransform.getTranslateInstance(0, -minY));
+    }
+  }
+
+  public CloudOptimizedGeoTiffWriter setByteOrder(final ByteOrder byteOrder) {
+    this.byteOrder = byteOrder;
+    return this;
+  }
+
+  /**
+   * Set the compression for the tiles. Supported values are {@link TiffCompression#NONE},
+   * {@link TiffCompression#LZW}, {@link TiffCompression#ADOBE_DEFLATE} and
+   * {@link TiffCompression#DEFLATE}.
+   *
+   * @param compression The compression.
+   * @return this
+   */
+  public CloudOptimizedGeoTiffWriter setCompression(final TiffCompression compression) {
+    switch (compression) {
+      case NONE:
+      case LZW:
+      case ADOBE_DEFLATE:
+      case DEFLATE:
+        this.compression = compression;
+      break;
+
+      default:
+        throw new IllegalArgumentException("Compression not supported: " + compression);
+    }
+    return this;
+  }
+
+  /**
+   * Set the width and height of the tiles. The tile size must be a multiple of 16.
+   *
+   * @param tileSize The tile size.
+   * @return this
+   */
+  public CloudOptimizedGeoTiffWriter setTileSize(final int tileSize) {
+    if (tileSize <= 0 || tileSize % 16 != 0) {
+      throw new IllegalArgumentException("Tile size must be a multiple of 16: " + tileSize);
+    }
+    this.tileSize = tileSize;
+    return this;
+  }
+
+  /**
+   * Write the image as 8 bit RGB (or RGBA if the image has alpha).
+   *
+   * @param image The image.
+   */
+  public void write(final GeoreferencedImage image) {
+    GeoreferencedImage fullResolutionImage = image;
+    if (image instanceof TiffMultiResolutionImage) {
+      // Write multi-resolution images at the full resolution
+      fullResolutionImage = ((TiffMultiResolutionImage)image).getFullResolutionImage();
+    }
+    final int width = fullResolutionImage.getImageWidth();
+    final int height = fullResolutionImage.getImageHeight();
+    final double resolutionX = fullResolutionImage.getResolutionX();
+    final double resolutionY = fullResolutionImage.getResolutionY();
+    final BufferedImage rowsImage = new BufferedImage(width, this.tileSize,
+      BufferedImage.TYPE_INT_ARGB);
+    final int[] pixels = ((DataBufferInt)rowsImage.getRaster().getDataBuffer()).getData();
+    RenderedImage renderedImage = null;
+    if (image instanceof TiledGeoreferencedImage) {
+      this.alpha = false;
+    } else {
+      renderedImage = image.getRenderedImage();
+      if (renderedImage == null) {
+        return;
+      }
+      this.alpha = renderedImage.getColorModel().hasAlpha();
+    }
+    try (
+      ImageLevel level = new ImageLevel(width, height, pixels)) {
+      final Graphics2D graphics = rowsImage.createGraphics();
+      try {
+        graphics.setComposite(AlphaComposite.Src);
+        for (int minY = 0; minY < height; minY += this.tileSize) {
+          Arrays.fill(pixels, 0);
+          readImageRows(image, renderedImage, graphics, minY, resolutionX, resolutionY);
+          level.rowCount = Math.min(this.tileSize, height - minY);
+          level.writeTiles();
+        }
+      } finally {
+        graphics.dispose();
+      }
+      final int samplesPerPixel = this.alpha ? 4 : 3;
+      final int[] bitsPerSample = new int[samplesPerPixel];
+      Arrays.fill(bitsPerSample, 8);
+      writeTiff(level, TiffPhotogrametricInterpretation.RGB, directory -> {
+        directory.setBitsPerSample(bitsPerSample);
+        if (this.alpha) {
+          // Unassociated alpha
+          directory.setUnsignedShort(TiffBaselineTag.ExtraSamples, 2);
+        }
+      }, image.getBoundingBox(), resolutionX, resolutionY);
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to write: " + this.resource, e);
+    }
+  }
+
+  /**
+   * Write the elevation model as 32 bit floating point values with NaN for null values.
+   *
+   * @param elevationModel The elevation model.
+   */
+  public void write(final GriddedElevationModel elevationModel) {
+    final int width = elevationModel.getGridWidth();
+    final int height = elevationModel.getGridHeight();
+    try (
+      ElevationLevel level = new ElevationLevel(width, height)) {
+      for (int minY = 0; minY < height; minY += this.tileSize) {
+        level.rowCount = Math.min(this.tileSize, height - minY);
+        level.readRows(elevationModel);
+        level.writeTiles();
+      }
+      writeTiff(level, TiffPhotogrametricInterpretation.MIN_IS_BLACK, directory -> {
+        directory.setBitsPerSample(32);
+        // IEEE floating point
+        directory.setUnsignedShort(TiffExtensionTag.SampleFormat, 3);
+        directory.setAscii(TiffPrivateTag.GDAL_NODATA, "nan");
+      }, elevationModel.getBoundingBox(), elevationModel.getGridCellWidth(),
+        elevationModel.getGridCellHeight());
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to write: " + this.resource, e);
+    }
+  }
+
+  /**
+   * Write the directories followed by the tiles for each level from the smallest overview to the
+   * full resolution image.
+   */
+  private void writeTiff(final Level image,
+    final TiffPhotogrametricInterpretation photogrametricInterpretation,
+    final Consumer<TiffDirectoryBuilder> sampleInitializer, final BoundingBox boundingBox,
+    final double resolutionX, final double resolutionY) throws IOException {
+    final List<Level> levels = new ArrayList<>();
+    long size = 0;
+    for (Level level = image; level != null; level = level.overview) {
+      level.out.close();
+      levels.add(level);
+      size += level.fileSize + level.tileOffsets.length * 16L;
+    }
+    try (
+      TiffFileBuilder fileBuilder = new TiffFileBuilder(this.resource)) {
+      fileBuilder.setBigTiff(size > MAX_TIFF_SIZE);
+      fileBuilder.setByteOrder(this.byteOrder);
+      final List<TiffDirectoryBuilder> directories = fileBuilder.newImageWithOverviews(
+        builder -> new TiffDirectoryBuilder(builder, photogrametricInterpretation), image.width,
+        image.height, this.tileSize);
+      if (directories.size() != levels.size()) {
+        throw new IllegalStateException(
+          "Expecting " + levels.size() + " directories not " + directories.size());
+      }
+      for (final TiffDirectoryBuilder directory : directories) {
+        directory.setCompression(this.compression);
+        sampleInitializer.accept(directory);
+      }
+      final TiffDirectoryBuilder imageDirectory = directories.get(0);
+      final GeoTiffKeysBuilder geoKeys = new GeoTiffKeysBuilder(
+        boundingBox.getGeometryFactory());
+      geoKeys.setTransformation(imageDirectory, boundingBox, resolutionX, resolutionY);
+      geoKeys.setGeoKeys(imageDirectory);
+
+      fileBuilder.reserveDirectories();
+      for (int levelIndex = levels.size() - 1; levelIndex >= 0; levelIndex--) {
+        final Level level = levels.get(levelIndex);
+        final TiffDirectoryBuilder directory = directories.get(levelIndex);
+        final long offset = fileBuilder.writeData(level.file);
+        for (int tileIndex = 0; tileIndex < level.tileOffsets.length; tileIndex++) {
+          directory.setTile(tileIndex, offset + level.tileOffsets[tileIndex],
+            level.tileByteCounts[tileIndex]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package com.revolsys.raster.io.format.tiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jeometry.coordinatesystem.model.Authority;
+import org.jeometry.coordinatesystem.model.Ellipsoid;
+import org.jeometry.coordinatesystem.model.GeographicCoordinateSystem;
+import org.jeometry.coordinatesystem.model.ParameterName;
+import org.jeometry.coordinatesystem.model.ParameterValue;
+import org.jeometry.coordinatesystem.model.PrimeMeridian;
+import org.jeometry.coordinatesystem.model.ProjectedCoordinateSystem;
+import org.jeometry.coordinatesystem.model.datum.GeodeticDatum;
+import org.jeometry.coordinatesystem.model.unit.AngularUnit;
+import org.jeometry.coordinatesystem.model.unit.LinearUnit;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.raster.io.format.tiff.code.GeoTiffConstants;
+import com.revolsys.raster.io.format.tiff.code.GeoTiffCoordinateTransformationCode;
+import com.revolsys.raster.io.format.tiff.code.GeoTiffKey;
+import com.revolsys.raster.io.format.tiff.code.GeoTiffKeyProjectionParameterName;
+import com.revolsys.raster.io.format.tiff.code.GeoTiffKeys;
+import com.revolsys.raster.io.format.tiff.code.TiffPrivateTag;
+
+/**
+ * Build the GeoTIFF keys for a coordinate system and set the GeoTIFF tags on a
+ * {@link TiffDirectoryBuilder}.
+ */
+public class GeoTiffKeysBuilder implements GeoTiffConstants {
+
+  private static final int CUSTOM = 32767;
+
+  private final StringBuilder geoAsciiParams = new StringBuilder();
+
+  private final List<Double> geoDoubleParams = new ArrayList<>();
+
+  private final List<Integer> geoKeys = new ArrayList<>();
+
+  public GeoTiffKeysBuilder(final GeometryFactory geometryFactory) {
+    if (geometryFactory != null) {
+      if (geometryFactory.isProjected()) {
+        addProjectedCoordinateSystem(geometryFactory);
+      } else if (geometryFactory.isGeographic()) {
+        addGeographicCoordinateSystem(geometryFactory);
+      }
+    }
+    addGeoKeyShort(GeoTiffKeys.GTRasterTypeGeoKey, RasterPixelIsArea);
+  }
+
+  private void addGeographicCoordinateSystem(final GeographicCoordinateSystem coordinateSystem) {
+    if (!addGeoKeyAuthority(GeoTiffKeys.GeographicTypeGeoKey, coordinateSystem.getAuthority())) {
+      final AngularUnit unit = coordinateSystem.getAngularUnit();
+      final Authority authority = unit.getAuthority();
+      if (!addGeoKeyAuthority(GeoTiffKeys.GeogAngularUnitsGeoKey, authority)) {
+        addGeoKeyDouble(GeoTiffKeys.GeogAngularUnitSizeGeoKey, unit.toDegrees(1));
+      }
+      final GeodeticDatum datum = coordinateSystem.getGeodeticDatum();
+      if (!addGeoKeyAuthority(GeoTiffKeys.GeogGeodeticDatumGeoKey, datum.getAuthority())) {
+        final Ellipsoid ellipsoid = datum.getEllipsoid();
+        if (!addGeoKeyAuthority(GeoTiffKeys.GeogEllipsoidGeoKey, ellipsoid.getAuthority())) {
+          addGeoKeyDouble(GeoTiffKeys.GeogSemiMajorAxisGeoKey, ellipsoid.getSemiMajorAxis());
+          addGeoKeyDouble(GeoTiffKeys.GeogSemiMinorAxisGeoKey, ellipsoid.getSemiMinorAxis());
+        }
+      }
+      final PrimeMeridian primeMeridian = coordinateSystem.getPrimeMeridian();
+      if (!addGeoKeyAuthority(GeoTiffKeys.GeogPrimeMeridianGeoKey,
+        primeMeridian.getAuthority())) {
+        addGeoKeyShort(GeoTiffKeys.GeogPrimeMeridianGeoKey, CUSTOM);
+        addGeoKeyDouble(GeoTiffKeys.GeogPrimeMeridianLongGeoKey, primeMeridian.getLongitude());
+      }
+    }
+  }
+
+  private void addGeographicCoordinateSystem(final GeometryFactory geometryFactory) {
+    addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeGeographic);
+
+    final GeographicCoordinateSystem coordinateSystem = geometryFactory
+      .getHorizontalCoordinateSystem();
+    final String coordinateSystemName = coordinateSystem.getCoordinateSystemName();
+    addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
+    addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, coordinateSystemName);
+
+    addGeographicCoordinateSystem(coordinateSystem);
+  }
+
+  private void addGeoKey(final GeoTiffKey keyId, final int tiffTag, final int valueCount,
+    final int valueOrOffset) {
+    this.geoKeys.add(keyId.getId());
+    this.geoKeys.add(tiffTag);
+    this.geoKeys.add(valueCount);
+    this.geoKeys.add(valueOrOffset);
+  }
+
+  private boolean addGeoKeyAuthority(final GeoTiffKeys keyId, final Authority authority) {
+    final int id = authority.getId();
+    if (id > 0 && id <= 65535 && id != CUSTOM) {
+      addGeoKeyShort(keyId, id);
+      return true;
+    } else {
+      addGeoKeyShort(keyId, CUSTOM);
+      return false;
+    }
+  }
+
+  public void addGeoKeyDouble(final GeoTiffKey keyId, final double value) {
+    addGeoKey(keyId, TiffPrivateTag.GeoDoubleParamsTag.getId(), 1, this.geoDoubleParams.size());
+    this.geoDoubleParams.add(value);
+  }
+
+  public void addGeoKeyShort(final GeoTiffKey keyId, final int value) {
+    addGeoKey(keyId, 0, 1, value);
+  }
+
+  public void addGeoKeyString(final GeoTiffKey keyId, final String value) {
+    if (value != null && value.length() > 0) {
+      final int offset = this.geoAsciiParams.length();
+      final int stringLength = value.length() + 1;
+      addGeoKey(keyId, TiffPrivateTag.GeoAsciiParamsTag.getId(), stringLength, offset);
+      this.geoAsciiParams.append(value);
+      this.geoAsciiParams.append('|');
+    }
+  }
+
+  private void addProjectedCoordinateSystem(final GeometryFactory geometryFactory) {
+    final ProjectedCoordinateSystem projectedCoordinateSystem = geometryFactory
+      .getCoordinateSystem();
+    final GeographicCoordinateSystem geographicCoordinateSystem = projectedCoordinateSystem
+      .getGeographicCoordinateSystem();
+    final int coordinateSystemId = geometryFactory.getHorizontalCoordinateSystemId();
+    final String coordinateSystemName = geometryFactory.getCoordinateSystemName();
+
+    final String geographicCSName = geographicCoordinateSystem.getCoordinateSystemName();
+
+    final LinearUnit linearUnit = projectedCoordinateSystem.getLinearUnit();
+
+    addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeProjected);
+    addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
+    addGeoKeyString(GeoTiffKeys.PCSCitationGeoKey, coordinateSystemName);
+    addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, geographicCSName);
+
+    if (!addGeoKeyAuthority(GeoTiffKeys.ProjectedCSTypeGeoKey,
+      projectedCoordinateSystem.getAuthority())) {
+      addGeographicCoordinateSystem(geographicCoordinateSystem);
+
+      addGeoKeyShort(GeoTiffKeys.ProjectedCSTypeGeoKey, coordinateSystemId);
+
+      final int projectionCode = GeoTiffCoordinateTransformationCode
+        .getCode(projectedCoordinateSystem);
+      addGeoKeyShort(GeoTiffKeys.ProjCoordTransGeoKey, projectionCode);
+
+      final Authority authority = linearUnit.getAuthority();
+      if (!addGeoKeyAuthority(GeoTiffKeys.ProjLinearUnitsGeoKey, authority)) {
+        addGeoKeyDouble(GeoTiffKeys.ProjLinearUnitSizeGeoKey, linearUnit.toMetres(1));
+      }
+      for (final Entry<ParameterName, ParameterValue> entry : projectedCoordinateSystem
+        .getParameterValues()
+        .entrySet()) {
+        final ParameterName parameterName = entry.getKey();
+        final ParameterValue value = entry.getValue();
+
+        final GeoTiffKey key = GeoTiffKeyProjectionParameterName.getById(parameterName);
+        final double valueDouble = ((Number)value.getValue()).doubleValue();
+        addGeoKeyDouble(key, valueDouble);
+      }
+    }
+  }
+
+  public String getGeoAsciiParams() {
+    return this.geoAsciiParams.toString();
+  }
+
+  public double[] getGeoDoubleParams() {
+    final double[] geoDoubleParamsArray = new double[this.geoDoubleParams.size()];
+    for (int i = 0; i < geoDoubleParamsArray.length; i++) {
+      geoDoubleParamsArray[i] = this.geoDoubleParams.get(i);
+    }
+    return geoDoubleParamsArray;
+  }
+
+  /**
+   * Get the GeoTIFF key directory, the header followed by the keys.
+   *
+   * @return The key directory, or an empty array if there are no keys.
+   */
+  public int[] getGeoKeyDirectory() {
+    if (this.geoKeys.isEmpty()) {
+      return new int[0];
+    } else {
+      final int[] geoKeysArray = new int[this.geoKeys.size() + 4];
+      geoKeysArray[0] = 1;
+      geoKeysArray[1] = 1;
+      geoKeysArray[2] = 1;
+      geoKeysArray[3] = this.geoKeys.size() / 4;
+      for (int i = 0; i < this.geoKeys.size(); i++) {
+        geoKeysArray[i + 4] = this.geoKeys.get(i);
+      }
+      return geoKeysArray;
+    }
+  }
+
+  /**
+   * Set the GeoTIFF key directory and params tags on the directory.
+   *
+   * @param directory The directory.
+   */
+  public void setGeoKeys(final TiffDirectoryBuilder directory) {
+    if (!this.geoKeys.isEmpty()) {
+      directory.setUnsignedShort(TiffPrivateTag.GeoKeyDirectoryTag, getGeoKeyDirectory());
+      if (this.geoAsciiParams.length() > 0) {
+        directory.setAscii(TiffPrivateTag.GeoAsciiParamsTag, getGeoAsciiParams());
+      }
+      if (!this.geoDoubleParams.isEmpty()) {
+        directory.setDouble(TiffPrivateTag.GeoDoubleParamsTag, getGeoDoubleParams());
+      }
+    }
+  }
+
+  /**
+   * Set the model tie point and pixel scale tags on the directory.
+   *
+   * @param directory The directory.
+   * @param boundingBox The bounding box of the image.
+   * @param resolutionX The width of a pixel in model units.
+   * @param resolutionY The height of a pixel in model units.
+   */
+  public void setTransformation(final TiffDirectoryBuilder directory,
+    final BoundingBox boundingBox, final double resolutionX, final double resolutionY) {
+    final double minX = boundingBox.getMinX();
+    final double maxY = boundingBox.getMaxY();
+    directory.setDouble(TiffPrivateTag.ModelTiepointTag, //
+      0, 0, 0, //
+      minX, maxY, 0 //
+    );
+    directory.setDouble(TiffPrivateTag.ModelPixelScaleTag, resolutionX, resolutionY, 0);
+  }
+}
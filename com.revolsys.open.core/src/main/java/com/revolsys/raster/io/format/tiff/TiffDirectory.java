@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.io.channels.ChannelWriter;
 import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
@@ -23,11 +24,12 @@ import com.revolsys.raster.io.format.tiff.image.TiffImage;
 import com.revolsys.raster.io.format.tiff.image.TiffJpegImage;
 import com.revolsys.raster.io.format.tiff.image.TiffPaletteColorImage;
 import com.revolsys.raster.io.format.tiff.image.TiffRgbFullColorImage;
+import com.revolsys.raster.io.format.tiff.image.TiffTileCache;
 import com.revolsys.raster.io.format.tiff.image.TiffTransparencyMaskImage;
 import com.revolsys.raster.io.format.tiff.image.TiffYCbCrImage;
 import com.revolsys.spring.resource.Resource;
 
-public class TiffDirectory {
+public class TiffDirectory implements BaseCloseable {
 
   private final Map<TiffTag, TiffDirectoryEntry> entryByTag = new TreeMap<>(
     (a, b) -> Integer.compare(a.getId(), b.getId()));
@@ -73,6 +75,19 @@ public class TiffDirectory {
     this.entryByTag.put(tag, entry);
   }
 
+  /**
+   * Close the image read from this directory, removing its decoded tiles from the
+   * {@link TiffTileCache}.
+   */
+  @Override
+  public void close() {
+    final TiffImage image = this.imageReference.get();
+    this.imageReference = new WeakReference<>(null);
+    if (image instanceof BaseCloseable) {
+      ((BaseCloseable)image).close();
+    }
+  }
+
   public void dump(final PrintStream out) {
     out.print("Directory ");
     out.print(this.index);
@@ -9,6 +9,8 @@ import com.revolsys.raster.io.format.tiff.code.TiffExtensionTag;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
 import com.revolsys.raster.io.format.tiff.code.TiffTag;
 import com.revolsys.raster.io.format.tiff.directory.entry.AbstractTiffDirectoryEntry;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryAscii;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryDoubleArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedIntArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedLongArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedShortArray;
@@ -17,6 +19,8 @@ public class TiffDirectoryBuilder extends TiffDirectory {
 
   private final TiffFileBuilder fileBuilder;
 
+  private long offset = -1;
+
   private int writtenSize = 0;
 
   private int imageWidth;
@@ -45,6 +49,11 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this.fileBuilder;
   }
 
+  @Override
+  public long getOffset() {
+    return this.offset;
+  }
+
   public int getSize() {
     final int recordCount = getEntryCount();
     if (isBigTiff()) {
@@ -73,6 +82,33 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return entry;
   }
 
+  /**
+   * Reserve the space for the directory and the values of the entries that aren't inline.
+   */
+  void reserveDirectory() {
+    final int size = getSize();
+    this.offset = this.fileBuilder.reserveSpace(size);
+    this.writtenSize = size;
+    reserveEntryValues();
+  }
+
+  private void reserveEntryValues() {
+    for (final TiffDirectoryEntry entry : getEntries()) {
+      if (!entry.isInline()) {
+        if (entry.getOffset() == -1) {
+          final int entrySize = entry.getSizeBytes();
+          final long offset = this.fileBuilder.reserveSpace(entrySize);
+          ((AbstractTiffDirectoryEntry<?>)entry).setOffset(offset);
+        }
+      }
+    }
+  }
+
+  public TiffDirectoryBuilder setAscii(final TiffTag tag, final String value) {
+    newEntryValue(tag, TiffDirectoryEntryAscii::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setBitsPerSample(final int... value) {
     setUnsignedShort(TiffBaselineTag.SamplesPerPixel, value.length);
     setUnsignedShort(TiffBaselineTag.BitsPerSample, value);
@@ -84,6 +120,11 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this;
   }
 
+  public TiffDirectoryBuilder setDouble(final TiffTag tag, final double... value) {
+    newEntryValue(tag, TiffDirectoryEntryDoubleArray::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setImageHeight(final int height) {
     this.imageHeight = height;
     if (height < 1 << 16) {
@@ -105,12 +146,28 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this;
   }
 
+  void setOffset(final long offset) {
+    this.offset = offset;
+  }
+
   protected void setPhotogrametricInterpretation(
     final TiffPhotogrametricInterpretation photogrametricInterpretation) {
     setUnsignedShort(TiffBaselineTag.PhotometricInterpretation,
       photogrametricInterpretation.getId());
   }
 
+  /**
+   * Set the offset and size in bytes of the tile's data.
+   *
+   * @param tileIndex The index of the tile (tileY * tileCountX + tileX).
+   * @param offset The offset of the tile's data in the file.
+   * @param byteCount The size of the tile's data in bytes.
+   */
+  public void setTile(final int tileIndex, final long offset, final long byteCount) {
+    getEntryRequired(TiffExtensionTag.TileOffsets).getLongArray()[tileIndex] = offset;
+    getEntryRequired(TiffExtensionTag.TileByteCounts).getLongArray()[tileIndex] = byteCount;
+  }
+
   public TiffDirectoryBuilder setTileHeight(final int tileHeight) {
     this.tileHeight = tileHeight;
     setUnsignedShort(TiffExtensionTag.TileLength, tileHeight);
@@ -173,14 +230,8 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     } else {
       out.putUnsignedShort(recordCount);
     }
+    reserveEntryValues();
     for (final TiffDirectoryEntry entry : getEntries()) {
-      if (!entry.isInline()) {
-        if (entry.getOffset() == -1) {
-          final int entrySize = entry.getSizeBytes();
-          final long offset = this.fileBuilder.reserveSpace(entrySize);
-          ((AbstractTiffDirectoryEntry<?>)entry).setOffset(offset);
-        }
-      }
       entry.writeEntry(this, out);
     }
   }
@@ -1,12 +1,17 @@
 package com.revolsys.raster.io.format.tiff;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
+import org.jeometry.common.exception.Exceptions;
+
 import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.channels.ChannelWriter;
 import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
@@ -27,7 +32,11 @@ public class TiffFileBuilder implements BaseCloseable {
   private final ChannelWriter out;
 
   public TiffFileBuilder(final Path file) {
-    this.resource = Resource.getResource(file);
+    this(Resource.getResource(file));
+  }
+
+  public TiffFileBuilder(final Resource resource) {
+    this.resource = resource;
     this.out = this.resource.newChannelWriter();
   }
 
@@ -57,6 +66,14 @@ public class TiffFileBuilder implements BaseCloseable {
     return this.directories.size();
   }
 
+  private int getOffsetSize() {
+    if (isBigTiff()) {
+      return 8;
+    } else {
+      return 4;
+    }
+  }
+
   public Resource getResource() {
     return this.resource;
   }
@@ -83,16 +100,32 @@ public class TiffFileBuilder implements BaseCloseable {
   }
 
   public <B extends TiffDirectoryBuilder> List<B> newImageWithOverviews(
-    final Function<TiffFileBuilder, B> constructor, int width, int height) {
+    final Function<TiffFileBuilder, B> constructor, final int width, final int height) {
+    return newImageWithOverviews(constructor, width, height, 512);
+  }
+
+  /**
+   * Create the image and the overviews. Each overview is half the width and height of the
+   * previous image until the overview fits in a single tile.
+   *
+   * @param constructor The constructor for the directory builders.
+   * @param width The width of the full resolution image.
+   * @param height The height of the full resolution image.
+   * @param tileSize The width and height of the tiles.
+   * @return The directories for the image and overviews.
+   */
+  public <B extends TiffDirectoryBuilder> List<B> newImageWithOverviews(
+    final Function<TiffFileBuilder, B> constructor, int width, int height, final int tileSize) {
     final List<B> directories = new ArrayList<>();
     boolean running = true;
     while (running) {
       final B directory = newImage(constructor, width, height);
+      directory.setTileSize(tileSize);
       if (!directories.isEmpty()) {
         directory.setUnsignedInt(TiffBaselineTag.NewSubfileType, 1);
       }
       directories.add(directory);
-      if (width <= 512 && height <= 512) {
+      if (width <= tileSize && height <= tileSize) {
         running = false;
       } else {
         width = (int)Math.ceil(width / 2.0);
@@ -102,7 +135,30 @@ public class TiffFileBuilder implements BaseCloseable {
     return directories;
   }
 
-  long reserveSpace(final int size) {
+  /**
+   * Reserve the space for the header, image file directories and the values of the entries at the
+   * start of the file. Data written after this (e.g. using {@link #writeData(Path)}) will be after
+   * the directories as required for a cloud optimized GeoTIFF.
+   */
+  public void reserveDirectories() {
+    if (this.size == 0) {
+      this.size = getOffsetSize();
+    }
+    for (final TiffDirectoryBuilder directory : this.directories) {
+      if (directory.getOffset() == -1) {
+        if (directory.getIndex() == 0) {
+          reserveSpace(getOffsetSize());
+        }
+        directory.reserveDirectory();
+      }
+    }
+  }
+
+  long reserveSpace(final long size) {
+    if (this.size % 2 == 1) {
+      // Offsets must be on a word boundary
+      this.size++;
+    }
     final long offset = this.size;
     this.size += size;
     return offset;
@@ -114,16 +170,39 @@ public class TiffFileBuilder implements BaseCloseable {
 
   public void setByteOrder(final ByteOrder byteOrder) {
     this.byteOrder = byteOrder;
+    this.out.setByteOrder(byteOrder);
+  }
+
+  /**
+   * Copy the contents of the file to the end of the TIFF file.
+   *
+   * @param file The file to copy.
+   * @return The offset of the data in the TIFF file.
+   */
+  public long writeData(final Path file) {
+    try (
+      InputStream in = Files.newInputStream(file)) {
+      final long offset = reserveSpace(Files.size(file));
+      this.out.seek(offset);
+      final byte[] buffer = new byte[8192];
+      for (int count = in.read(buffer); count != -1; count = in.read(buffer)) {
+        this.out.putBytes(buffer, 0, count);
+      }
+      return offset;
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to copy " + file + " to " + this.resource, e);
+    }
   }
 
   private void writeDirectories(final ChannelWriter out) {
     for (final TiffDirectoryBuilder directory : this.directories) {
       long offset = directory.getOffset();
       if (offset == -1 && directory.getIndex() == 0) {
-        reserveSpace(4);
+        reserveSpace(getOffsetSize());
       }
       if (offset == -1 || directory.isSizeIncreased()) {
         offset = reserveSpace(directory.getSize());
+        directory.setOffset(offset);
       }
       writeOffsetOrCount(out, offset);
       out.seek(offset);
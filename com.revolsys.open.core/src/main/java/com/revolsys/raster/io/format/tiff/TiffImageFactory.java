@@ -28,6 +28,7 @@ import com.revolsys.raster.io.format.tiff.code.GeoTiffKey;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffKeyProjectionParameterName;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffKeys;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
+import com.revolsys.raster.io.format.tiff.image.AbstractTiffImage;
 import com.revolsys.raster.io.format.tiff.image.TiffCommonsImagingImage;
 import com.revolsys.raster.io.format.tiff.image.TiffImage;
 import com.revolsys.raster.io.format.tiff.image.TiffMultiResolutionImage;
@@ -36,6 +37,11 @@ import com.revolsys.spring.resource.Resource;
 public class TiffImageFactory extends AbstractIoFactory
   implements GeoreferencedImageReadFactory, GeoreferencedImageWriterFactory {
 
+  /**
+   * Images with more pixels than this are read a tile (or strip) at a time when rendered.
+   */
+  public static final long READ_TILES_MIN_PIXEL_COUNT = 4096L * 4096;
+
   public static void addDoubleParameter(final Map<ParameterName, ParameterValue> parameters,
     final ParameterName name, final Map<GeoTiffKey, Object> geoKeys, final GeoTiffKey key) {
     final Double value = Maps.getDouble(geoKeys, key);
@@ -102,6 +108,21 @@ public class TiffImageFactory extends AbstractIoFactory
     return GeoTiffCoordinateTransformationCode.getCoordinateOperationMethod(projectionId);
   }
 
+  private static boolean isReadTiles(final TiffImage image) {
+    if (image instanceof AbstractTiffImage) {
+      final AbstractTiffImage tiffImage = (AbstractTiffImage)image;
+      if (tiffImage.isTiled()) {
+        return true;
+      } else {
+        final long pixelCount = (long)image.getImageWidth() * image.getImageHeight();
+        return pixelCount >= READ_TILES_MIN_PIXEL_COUNT
+          && tiffImage.getRowsPerStrip() < image.getImageHeight();
+      }
+    } else {
+      return false;
+    }
+  }
+
   public TiffImageFactory() {
     super("TIFF/GeoTIFF");
     addMediaTypeAndFileExtension("image/tiff", "tif");
@@ -131,7 +152,13 @@ public class TiffImageFactory extends AbstractIoFactory
         }
       }
       if (images.size() == 1) {
-        return images.get(0);
+        final TiffImage image = images.get(0);
+        if (isReadTiles(image)) {
+          // Decode the tiles when they are rendered instead of the whole image
+          return new TiffMultiResolutionImage(images);
+        } else {
+          return image;
+        }
       } else if (!images.isEmpty()) {
         return new TiffMultiResolutionImage(images);
       }
@@ -0,0 +1,144 @@
+package com.revolsys.raster.io.format.tiff.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compress bytes using the TIFF variant of LZW. The codes are written most significant bit first
+ * and the code width is increased one code early, as read by {@link TiffLzwInputStream}. A clear
+ * code is written before the table is full.
+ */
+public class TiffLzwOutputStream extends OutputStream {
+
+  private static final int CODE_CLEAR = 256;
+
+  private static final int CODE_EOI = 257;
+
+  private static final int CODE_FIRST = 258;
+
+  private static final int CODE_MAX = 4094;
+
+  private static final int HASH_SIZE = 8192;
+
+  private int bitCount;
+
+  private int bits;
+
+  private int codeLength;
+
+  private boolean finished;
+
+  private final int[] hashCodes = new int[HASH_SIZE];
+
+  private final int[] hashKeys = new int[HASH_SIZE];
+
+  private int maxCode;
+
+  private int nextCode;
+
+  private final OutputStream out;
+
+  private int prefix = -1;
+
+  public TiffLzwOutputStream(final OutputStream out) {
+    this.out = out;
+    initializeTable();
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    this.out.close();
+  }
+
+  /**
+   * Write the remaining code and the end of information code without closing the underlying
+   * stream.
+   */
+  public void finish() throws IOException {
+    if (!this.finished) {
+      this.finished = true;
+      if (this.prefix != -1) {
+        writeCode(this.prefix);
+        nextCode();
+      }
+      writeCode(CODE_EOI);
+      if (this.bitCount > 0) {
+        this.out.write(this.bits << 8 - this.bitCount);
+        this.bitCount = 0;
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.out.flush();
+  }
+
+  private void initializeTable() {
+    Arrays.fill(this.hashKeys, -1);
+    this.nextCode = CODE_FIRST;
+    this.codeLength = 9;
+    this.maxCode = 511;
+  }
+
+  /**
+   * Increment the next code, increasing the code length or clearing the table if it is full.
+   */
+  private void nextCode() throws IOException {
+    this.nextCode++;
+    if (this.nextCode == CODE_MAX) {
+      writeCode(CODE_CLEAR);
+      initializeTable();
+    } else if (this.nextCode > this.maxCode) {
+      this.codeLength++;
+      this.maxCode = (1 << this.codeLength) - 1;
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    final int value = b & 0xff;
+    if (this.prefix == -1) {
+      writeCode(CODE_CLEAR);
+      this.prefix = value;
+    } else {
+      final int key = value << 12 | this.prefix;
+      int index = key * 0x9E3779B1 >>> 19;
+      while (true) {
+        final int hashKey = this.hashKeys[index];
+        if (hashKey == key) {
+          this.prefix = this.hashCodes[index];
+          return;
+        } else if (hashKey == -1) {
+          break;
+        } else {
+          index = index + 1 & HASH_SIZE - 1;
+        }
+      }
+      writeCode(this.prefix);
+      this.hashKeys[index] = key;
+      this.hashCodes[index] = this.nextCode;
+      nextCode();
+      this.prefix = value;
+    }
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      write(bytes[offset + i]);
+    }
+  }
+
+  private void writeCode(final int code) throws IOException {
+    this.bits = this.bits << this.codeLength | code;
+    this.bitCount += this.codeLength;
+    while (this.bitCount >= 8) {
+      this.bitCount -= 8;
+      this.out.write(this.bits >>> this.bitCount);
+    }
+    this.bits &= (1 << this.bitCount) - 1;
+  }
+}
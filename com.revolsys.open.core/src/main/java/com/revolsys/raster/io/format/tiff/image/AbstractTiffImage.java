@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.zip.InflaterInputStream;
 
 import org.jeometry.common.exception.Exceptions;
@@ -24,6 +25,7 @@ import org.jeometry.common.number.Longs;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.raster.AbstractGeoreferencedImage;
 import com.revolsys.raster.GeoreferencedImageMapTile;
@@ -44,7 +46,8 @@ import com.revolsys.raster.io.format.tiff.compression.TiffLzwInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffThunderscanInputStream;
 
-public abstract class AbstractTiffImage extends AbstractGeoreferencedImage implements TiffImage {
+public abstract class AbstractTiffImage extends AbstractGeoreferencedImage
+  implements BaseCloseable, TiffImage {
 
   private class TiffImageTiledMapTile extends GeoreferencedImageMapTile {
     private final int tileX;
@@ -64,7 +67,9 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
         return true;
       } else if (obj instanceof TiffImageTiledMapTile) {
         final TiffImageTiledMapTile other = (TiffImageTiledMapTile)obj;
-        if (this.tileX != other.tileX) {
+        if (getTiffImage() != other.getTiffImage()) {
+          return false;
+        } else if (this.tileX != other.tileX) {
           return false;
         } else if (this.tileY != other.tileY) {
           return false;
@@ -76,10 +81,18 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
       }
     }
 
+    private int getTileIndex() {
+      return this.tileY * AbstractTiffImage.this.tileCountX + this.tileX;
+    }
+
+    private AbstractTiffImage getTiffImage() {
+      return AbstractTiffImage.this;
+    }
+
     @Override
     public int hashCode() {
       final int prime = 31;
-      int result = 1;
+      int result = System.identityHashCode(AbstractTiffImage.this);
       result = prime * result + this.tileX;
       result = prime * result + this.tileY;
       return result;
@@ -87,23 +100,18 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
     @Override
     protected BufferedImage loadBuffferedImage() {
-      try (
-        ChannelReader in = AbstractTiffImage.this.directory.newChannelReader()) {
-        final int tileIndex = this.tileY * AbstractTiffImage.this.tileCountX + this.tileX;
-        final int actualTileWidth = getWidthPixels();
-        final int actualTileHeight = getHeightPixels();
-        final BufferedImage bufferedImage = newBufferedImage(actualTileWidth, actualTileHeight);
-
-        readImagePart(in, bufferedImage, AbstractTiffImage.this.tileOffsets,
-          AbstractTiffImage.this.tileByteCounts, tileIndex, 0, 0,
-          AbstractTiffImage.this.tileWidthPixels, actualTileHeight, actualTileWidth);
-
-        return bufferedImage;
-      }
+      final int tileIndex = getTileIndex();
+      return getTileImage(tileIndex);
     }
 
   }
 
+  /**
+   * The minimum height in pixels of the map tiles for a strip image. Consecutive strips are read
+   * as one map tile so an image with a small RowsPerStrip doesn't have a map tile for each row.
+   */
+  private static final int STRIP_MAP_TILE_MIN_HEIGHT = 256;
+
   private static Map<GeoTiffKey, Object> getGeoKeys(final TiffDirectory directory) {
     final Map<GeoTiffKey, Object> geoKeys = new LinkedHashMap<>();
 
@@ -172,6 +180,8 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   private final int stripCount;
 
+  private final int stripsPerMapTile;
+
   private final int tileCountX;
 
   private final int tileCountY;
@@ -258,16 +268,38 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
         setBoundingBox(x1, y1, pixelWidth, -pixelHeight);
       }
     }
-    this.tileCountX = (imageWidth + this.tileWidthPixels - 1) / this.tileWidthPixels;
-    this.tileCountY = (imageHeight + this.tileHeightPixels - 1) / this.tileHeightPixels;
     this.stripCount = (imageHeight + this.rowsPerStrip - 1) / this.rowsPerStrip;
     if (isTiled()) {
-      this.stripOrTileCount = this.tileCountX + this.tileCountY;
+      this.tileCountX = (imageWidth + this.tileWidthPixels - 1) / this.tileWidthPixels;
+      this.tileCountY = (imageHeight + this.tileHeightPixels - 1) / this.tileHeightPixels;
+      this.stripOrTileCount = this.tileCountX * this.tileCountY;
+      this.stripsPerMapTile = 1;
     } else {
+      // Consecutive strips are grouped into map tiles the width of the image
+      this.stripsPerMapTile = (STRIP_MAP_TILE_MIN_HEIGHT + this.rowsPerStrip - 1)
+        / this.rowsPerStrip;
+      this.tileCountX = 1;
+      this.tileCountY = (this.stripCount + this.stripsPerMapTile - 1) / this.stripsPerMapTile;
       this.stripOrTileCount = this.stripCount;
     }
   }
 
+  /**
+   * Discard the decoded tiles in the {@link TiffTileCache} so they are read again.
+   */
+  @Override
+  public void cancelChanges() {
+    TiffTileCache.clear(this);
+  }
+
+  /**
+   * Remove the decoded tiles for this image from the {@link TiffTileCache}.
+   */
+  @Override
+  public void close() {
+    TiffTileCache.clear(this);
+  }
+
   private InputStream getInputStream(final ChannelReader in, final long[] offsets,
     final long[] counts, final int index) {
     final long offset = offsets[index];
@@ -275,57 +307,73 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return in.getInputStream(offset, byteCount);
   }
 
+  private int getMapTileHeight() {
+    if (isTiled()) {
+      return this.tileHeightPixels;
+    } else {
+      return this.rowsPerStrip * this.stripsPerMapTile;
+    }
+  }
+
+  private int getMapTileWidth() {
+    if (isTiled()) {
+      return this.tileWidthPixels;
+    } else {
+      return getImageWidth();
+    }
+  }
+
+  /**
+   * Get the map tiles for the tiles (or groups of strips) that overlap the bounding box. The tile
+   * images are decoded when the tile is loaded and are cached in the {@link TiffTileCache}.
+   */
   @Override
   public List<GeoreferencedImageMapTile> getOverlappingMapTiles(BoundingBox boundingBox) {
     final BoundingBox imageBoundingBox = getBoundingBox();
     boundingBox = boundingBox.bboxToCs(this);
-    if (bboxIntersects(imageBoundingBox)) {
+    if (imageBoundingBox.bboxIntersects(boundingBox) && this.tileOffsets.length > 0) {
       final List<GeoreferencedImageMapTile> tiles = new ArrayList<>();
-      if (isTiled()) {
-        final int lastTileWidthPixels = getImageWidth() % this.tileWidthPixels;
-        final int lastTileHeightPixels = getImageHeight() % this.tileHeightPixels;
-        final double tileWidth = getResolutionX() * this.tileWidthPixels;
-        final double tileHeight = getResolutionY() * this.tileHeightPixels;
-        final double imageMinX = imageBoundingBox.getMinX();
-        final double imageMaxY = imageBoundingBox.getMaxY();
-
-        final double minX = boundingBox.getMinX();
-        final double minY = boundingBox.getMinY();
-        final double maxX = boundingBox.getMaxX();
-        final double maxY = boundingBox.getMaxY();
-
-        // Tiles start at the North-West corner of the map
-        int minTileX = (int)Math.floor((minX - imageMinX) / tileWidth);
-        if (minTileX < 0) {
-          minTileX = 0;
-        }
-        int minTileY = (int)Math.floor((imageMaxY - maxY) / tileHeight);
-        if (minTileY < 0) {
-          minTileY = 0;
-        }
-        int maxTileX = (int)Math.floor((maxX - imageMinX) / tileWidth);
-        if (maxTileX >= this.tileCountX) {
-          maxTileX = this.tileCountX - 1;
-        }
-        int maxTileY = (int)Math.floor((imageMaxY - minY) / tileHeight);
-        if (maxTileY >= this.tileCountY) {
-          maxTileY = this.tileCountY - 1;
-        }
+      final int imageWidth = getImageWidth();
+      final int imageHeight = getImageHeight();
+      final int mapTileWidthPixels = getMapTileWidth();
+      final int mapTileHeightPixels = getMapTileHeight();
+      final double tileWidth = getResolutionX() * mapTileWidthPixels;
+      final double tileHeight = getResolutionY() * mapTileHeightPixels;
+      final double imageMinX = imageBoundingBox.getMinX();
+      final double imageMaxY = imageBoundingBox.getMaxY();
+
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+
+      // Tiles start at the North-West corner of the map
+      int minTileX = (int)Math.floor((minX - imageMinX) / tileWidth);
+      if (minTileX < 0) {
+        minTileX = 0;
+      }
+      int minTileY = (int)Math.floor((imageMaxY - maxY) / tileHeight);
+      if (minTileY < 0) {
+        minTileY = 0;
+      }
+      int maxTileX = (int)Math.floor((maxX - imageMinX) / tileWidth);
+      if (maxTileX >= this.tileCountX) {
+        maxTileX = this.tileCountX - 1;
+      }
+      int maxTileY = (int)Math.floor((imageMaxY - minY) / tileHeight);
+      if (maxTileY >= this.tileCountY) {
+        maxTileY = this.tileCountY - 1;
+      }
 
-        int tileHeightPixels = this.tileHeightPixels;
-        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-          if (tileY == this.tileCountY - 1) {
-            tileHeightPixels = lastTileHeightPixels;
-          }
-          int tileWidthPixels = this.tileWidthPixels;
-          for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-            if (tileX == this.tileCountX - 1) {
-              tileWidthPixels = lastTileWidthPixels;
-            }
-            final GeoreferencedImageMapTile tile = new TiffImageTiledMapTile(tileX, tileY,
-              tileWidthPixels, tileHeightPixels);
-            tiles.add(tile);
-          }
+      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+        final int tileHeightPixels = Math.min(mapTileHeightPixels,
+          imageHeight - tileY * mapTileHeightPixels);
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+          final int tileWidthPixels = Math.min(mapTileWidthPixels,
+            imageWidth - tileX * mapTileWidthPixels);
+          final GeoreferencedImageMapTile tile = new TiffImageTiledMapTile(tileX, tileY,
+            tileWidthPixels, tileHeightPixels);
+          tiles.add(tile);
         }
       }
       return tiles;
@@ -334,6 +382,14 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  /**
+   * Get the number of map tiles for the image. For a strip image each map tile contains
+   * {@link #getStripsPerMapTile()} strips.
+   */
+  public int getMapTileCount() {
+    return this.tileCountX * this.tileCountY;
+  }
+
   public TiffPhotogrametricInterpretation getPhotometricInterpretation() {
     return this.photometricInterpretation;
   }
@@ -343,15 +399,14 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     RenderedImage image = super.getRenderedImage();
     if (image == null) {
       BufferedImage bufferedImage;
-      try (
-        ChannelReader in = this.directory.newChannelReader()) {
-        if (isTiled()) {
-          bufferedImage = newBufferedImageTiles(in);
-        } else if (this.stripOffsets.length > 0) {
-          bufferedImage = newBufferedImageStrips(in);
-        } else {
-          throw new IllegalArgumentException("Data must be in strips or tiles: " + this.directory);
-        }
+      if (isTiled()) {
+        prefetch(this.tileOffsets, this.tileByteCounts);
+        bufferedImage = newBufferedImageTiles();
+      } else if (this.stripOffsets.length > 0) {
+        prefetch(this.stripOffsets, this.stripByteCounts);
+        bufferedImage = newBufferedImageStrips();
+      } else {
+        throw new IllegalArgumentException("Data must be in strips or tiles: " + this.directory);
       }
       image = bufferedImage;
       setRenderedImage(image);
@@ -363,6 +418,10 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return this.rowsPerStrip;
   }
 
+  public int getStripsPerMapTile() {
+    return this.stripsPerMapTile;
+  }
+
   protected int getStripOrTileCount() {
     return this.stripOrTileCount;
   }
@@ -376,6 +435,25 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return this.tileHeightPixels;
   }
 
+  /**
+   * Get the decoded image for the map tile (a tile or a group of strips), reading it if it is not
+   * in the {@link TiffTileCache}.
+   *
+   * @param tileIndex The index of the tile.
+   * @return The tile image.
+   */
+  public BufferedImage getTileImage(final int tileIndex) {
+    BufferedImage tileImage = TiffTileCache.getTile(this, tileIndex);
+    if (tileImage == null) {
+      try (
+        ChannelReader in = this.directory.newChannelReader()) {
+        tileImage = newTileImage(in, tileIndex);
+      }
+      TiffTileCache.putTile(this, tileIndex, tileImage);
+    }
+    return tileImage;
+  }
+
   public int getTileWidth() {
     return this.tileWidthPixels;
   }
@@ -384,6 +462,26 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return this.tileWidthPixels > 0 && this.tileHeightPixels > 0;
   }
 
+  /**
+   * Decode the images for the map tiles in parallel and add them to the {@link TiffTileCache}.
+   * Tiles that are already in the cache or are not from this image are ignored.
+   */
+  @Override
+  public void loadMapTiles(final List<GeoreferencedImageMapTile> tiles) {
+    final int[] tileIndexes = tiles.stream()
+      .filter(tile -> tile instanceof TiffImageTiledMapTile)
+      .map(tile -> (TiffImageTiledMapTile)tile)
+      .filter(tile -> tile.getTiffImage() == this)
+      .mapToInt(TiffImageTiledMapTile::getTileIndex)
+      .filter(tileIndex -> !TiffTileCache.containsTile(this, tileIndex))
+      .distinct()
+      .toArray();
+    if (tileIndexes.length > 0) {
+      prefetchTiles(tileIndexes);
+      IntStream.of(tileIndexes).parallel().forEach(this::getTileImage);
+    }
+  }
+
   private BufferedImage newBufferedImage() {
     final int imageWidth = getImageWidth();
     final int imageHeight = getImageHeight();
@@ -412,56 +510,52 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
-  private BufferedImage newBufferedImageStrips(final ChannelReader in) {
+  private BufferedImage newBufferedImageStrips() {
     final BufferedImage bufferedImage = newBufferedImage();
     final int imageWidth = getImageWidth();
     final int imageHeight = getImageHeight();
-    for (int stripIndex = 0; stripIndex < this.stripCount; stripIndex++) {
-      final int imageY = stripIndex * this.rowsPerStrip;
-      final int index = stripIndex;
-      int stripHeight = this.rowsPerStrip;
-      if (stripIndex == this.stripCount - 1) {
-        stripHeight = imageHeight - imageY;
+    final int stripCount = this.stripCount;
+    // Each task reads a range of strips using its own reader
+    final int taskCount = Math.min(stripCount, Runtime.getRuntime().availableProcessors() * 4);
+    IntStream.range(0, taskCount).parallel().forEach(taskIndex -> {
+      final int startStripIndex = (int)((long)stripCount * taskIndex / taskCount);
+      final int endStripIndex = (int)((long)stripCount * (taskIndex + 1) / taskCount);
+      try (
+        ChannelReader in = this.directory.newChannelReader()) {
+        for (int stripIndex = startStripIndex; stripIndex < endStripIndex; stripIndex++) {
+          final int imageY = stripIndex * this.rowsPerStrip;
+          final int stripHeight = Math.min(this.rowsPerStrip, imageHeight - imageY);
+          readImagePart(in, bufferedImage, this.stripOffsets, this.stripByteCounts, stripIndex, 0,
+            imageY, imageWidth, stripHeight, imageWidth);
+        }
       }
-      readImagePart(in, bufferedImage, this.stripOffsets, this.stripByteCounts, index, 0, imageY,
-        imageWidth, stripHeight, imageWidth);
-    }
+    });
     return bufferedImage;
   }
 
-  private BufferedImage newBufferedImageTiles(final ChannelReader in) {
+  private BufferedImage newBufferedImageTiles() {
     final BufferedImage bufferedImage = newBufferedImage();
     final int imageWidth = getImageWidth();
     final int imageHeight = getImageHeight();
 
-    int lastTileWidth = imageWidth % this.tileWidthPixels;
-    if (lastTileWidth == 0) {
-      lastTileWidth = this.tileWidthPixels;
-    }
-    int lastTileHeight = imageHeight % this.tileHeightPixels;
-    if (lastTileHeight == 0) {
-      lastTileHeight = this.tileHeightPixels;
-    }
-    int tileIndex = 0;
-    for (int tileY = 0; tileY < this.tileCountY; tileY++) {
+    // Each row of tiles is read in parallel using its own reader
+    IntStream.range(0, this.tileCountY).parallel().forEach(tileY -> {
       final int imageY = tileY * this.tileHeightPixels;
-      int actualTileHeight = this.tileHeightPixels;
-      if (tileY == this.tileCountY - 1) {
-        actualTileHeight = lastTileHeight;
-      }
-      for (int tileX = 0; tileX < this.tileCountX; tileX++) {
-        final int imageX = tileX * this.tileWidthPixels;
-        int actualTileWidth = this.tileWidthPixels;
-        if (tileX == this.tileCountX - 1) {
-          actualTileWidth = lastTileWidth;
-        }
+      final int actualTileHeight = Math.min(this.tileHeightPixels, imageHeight - imageY);
+      try (
+        ChannelReader in = this.directory.newChannelReader()) {
+        int tileIndex = tileY * this.tileCountX;
+        for (int tileX = 0; tileX < this.tileCountX; tileX++) {
+          final int imageX = tileX * this.tileWidthPixels;
+          final int actualTileWidth = Math.min(this.tileWidthPixels, imageWidth - imageX);
 
-        readImagePart(in, bufferedImage, this.tileOffsets, this.tileByteCounts, tileIndex, imageX,
-          imageY, this.tileWidthPixels, actualTileHeight, actualTileWidth);
+          readImagePart(in, bufferedImage, this.tileOffsets, this.tileByteCounts, tileIndex,
+            imageX, imageY, this.tileWidthPixels, actualTileHeight, actualTileWidth);
 
-        tileIndex++;
+          tileIndex++;
+        }
       }
-    }
+    });
     return bufferedImage;
   }
 
@@ -571,13 +665,73 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     final double resolutionX = getResolutionX();
     final double resolutionY = getResolutionY();
     final BoundingBox imageBoundingBox = getBoundingBox();
-    final double minX = imageBoundingBox.getMinX() + tileX * this.tileWidthPixels * resolutionX;
-    final double maxY = imageBoundingBox.getMaxY() - tileY * this.tileHeightPixels * resolutionY;
+    final double minX = imageBoundingBox.getMinX() + tileX * getMapTileWidth() * resolutionX;
+    final double maxY = imageBoundingBox.getMaxY() - tileY * getMapTileHeight() * resolutionY;
     final double maxX = minX + tileWidthPixels * resolutionX + resolutionX;
     final double minY = maxY - tileHeightPixels * resolutionY - resolutionX;
     return geometryFactory.newBoundingBox(minX, maxY, maxX, minY);
   }
 
+  private BufferedImage newTileImage(final ChannelReader in, final int tileIndex) {
+    final int mapTileWidth = getMapTileWidth();
+    final int mapTileHeight = getMapTileHeight();
+    final int tileX = tileIndex % this.tileCountX;
+    final int tileY = tileIndex / this.tileCountX;
+    final int tileWidth = Math.min(mapTileWidth, getImageWidth() - tileX * mapTileWidth);
+    final int tileHeight = Math.min(mapTileHeight, getImageHeight() - tileY * mapTileHeight);
+    final BufferedImage bufferedImage = newBufferedImage(tileWidth, tileHeight);
+    if (isTiled()) {
+      readImagePart(in, bufferedImage, this.tileOffsets, this.tileByteCounts, tileIndex, 0, 0,
+        mapTileWidth, tileHeight, tileWidth);
+    } else {
+      final int startStripIndex = tileIndex * this.stripsPerMapTile;
+      final int endStripIndex = Math.min(this.stripCount, startStripIndex + this.stripsPerMapTile);
+      for (int stripIndex = startStripIndex; stripIndex < endStripIndex; stripIndex++) {
+        final int imageY = (stripIndex - startStripIndex) * this.rowsPerStrip;
+        final int stripHeight = Math.min(this.rowsPerStrip, tileHeight - imageY);
+        readImagePart(in, bufferedImage, this.stripOffsets, this.stripByteCounts, stripIndex, 0,
+          imageY, tileWidth, stripHeight, tileWidth);
+      }
+    }
+    return bufferedImage;
+  }
+
+  private void prefetch(final long[] offsets, final long[] counts) {
+    try (
+      ChannelReader in = this.directory.newChannelReader()) {
+      in.prefetch(offsets, counts);
+    }
+  }
+
+  /**
+   * Prefetch the bytes for the map tiles (the tiles or the strips in each map tile), including all
+   * the sample planes for planar images.
+   */
+  private void prefetchTiles(final int[] tileIndexes) {
+    int planeCount = 1;
+    if (this.planarConfiguration == 2 && this.stripOrTileCount > 0) {
+      planeCount = Math.max(1, this.tileOffsets.length / this.stripOrTileCount);
+    }
+    final long[] offsets = new long[tileIndexes.length * this.stripsPerMapTile * planeCount];
+    final long[] counts = new long[offsets.length];
+    int i = 0;
+    for (int planeIndex = 0; planeIndex < planeCount; planeIndex++) {
+      for (final int tileIndex : tileIndexes) {
+        final int startIndex = tileIndex * this.stripsPerMapTile;
+        final int endIndex = Math.min(this.stripOrTileCount, startIndex + this.stripsPerMapTile);
+        for (int index = startIndex; index < endIndex; index++) {
+          final int partIndex = planeIndex * this.stripOrTileCount + index;
+          if (partIndex < this.tileOffsets.length && partIndex < this.tileByteCounts.length) {
+            offsets[i] = this.tileOffsets[partIndex];
+            counts[i] = this.tileByteCounts[partIndex];
+          }
+          i++;
+        }
+      }
+    }
+    prefetch(offsets, counts);
+  }
+
   protected void readImagePart(final ChannelReader in, final BufferedImage bufferedImage,
     final long[] offsets, final long[] counts, final int partIndex, final int imageX,
     final int imageY, final int dataWidth, final int dataHeight, final int cropWidth) {
@@ -24,6 +24,8 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
 
   private final float[] percents = new float[3];
 
+  private volatile int[] colorTable;
+
   private ComponentColorModel colorModel;
 
   private final long max;
@@ -59,25 +61,35 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
   }
 
   private int getColor(final int index) {
-    Integer color = this.colorMap.get(index);
-    if (color == null) {
+    synchronized (this.colorMap) {
+      Integer color = this.colorMap.get(index);
+      if (color == null) {
+        color = newColor(index);
+        this.colorMap.put(index, color);
+      }
+      return color;
+    }
+  }
+
+  /**
+   * Get the table of colors for each gray index, only used if bitsPerSample <= 16. The table
+   * avoids synchronizing on the color map when parts are read in parallel.
+   */
+  private int[] getColorTable() {
+    int[] colorTable = this.colorTable;
+    if (colorTable == null) {
       synchronized (this.colorMap) {
-        final float percent = (float)((double)Integer.toUnsignedLong(index) / this.max);
-        this.percents[0] = percent;
-        this.percents[1] = percent;
-        this.percents[2] = percent;
-        final float[] f = colorSpace.fromRGB(this.percents);
-        if (this.bitsPerSample <= 8) {
-          final byte[] dataElements = (byte[])this.colorModel.getDataElements(f, 0, null);
-          color = (int)dataElements[0];
-        } else {
-          final short[] dataElements = (short[])this.colorModel.getDataElements(f, 0, null);
-          color = (int)dataElements[0];
+        colorTable = this.colorTable;
+        if (colorTable == null) {
+          colorTable = new int[1 << this.bitsPerSample];
+          for (int i = 0; i < colorTable.length; i++) {
+            colorTable[i] = newColor(i);
+          }
+          this.colorTable = colorTable;
         }
-        this.colorMap.put(index, color);
       }
     }
-    return color;
+    return colorTable;
   }
 
   @Override
@@ -89,6 +101,21 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
     }
   }
 
+  private int newColor(final int index) {
+    final float percent = (float)((double)Integer.toUnsignedLong(index) / this.max);
+    this.percents[0] = percent;
+    this.percents[1] = percent;
+    this.percents[2] = percent;
+    final float[] f = colorSpace.fromRGB(this.percents);
+    if (this.bitsPerSample <= 8) {
+      final byte[] dataElements = (byte[])this.colorModel.getDataElements(f, 0, null);
+      return dataElements[0];
+    } else {
+      final short[] dataElements = (short[])this.colorModel.getDataElements(f, 0, null);
+      return dataElements[0];
+    }
+  }
+
   @Override
   protected void readImagePartDo(final BufferedImage bufferedImage,
     final TiffDecompressor decompressor, final int imageX, final int imageY, final int dataWidth,
@@ -101,18 +128,21 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
         return getColor(grayIndex);
       };
     } else if (bitsPerSample == 8) {
+      final int[] colorTable = getColorTable();
       readSampleInt = () -> {
-        return getColor(decompressor.getByte());
+        return colorTable[decompressor.getByte() & 0xff];
       };
     } else if (bitsPerSample == 16) {
+      final int[] colorTable = getColorTable();
       readSampleInt = () -> {
         final int grayIndex = decompressor.getShort();
-        return getColor(grayIndex);
+        return colorTable[grayIndex & 0xffff];
       };
     } else {
+      final int[] colorTable = getColorTable();
       readSampleInt = () -> {
         final int grayIndex = decompressor.getBitsAsInt(bitsPerSample);
-        return getColor(grayIndex);
+        return colorTable[grayIndex];
       };
     }
     if (this.invert) {
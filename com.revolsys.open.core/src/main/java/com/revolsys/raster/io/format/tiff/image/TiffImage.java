@@ -11,4 +11,12 @@ public interface TiffImage extends GeoreferencedImage {
   List<GeoreferencedImageMapTile> getOverlappingMapTiles(BoundingBox boundingBox);
 
   TiffDirectory getTiffDirectory();
+
+  /**
+   * Decode the images for the map tiles so that loading the tiles does not need to read the
+   * image.
+   *
+   * @param tiles The map tiles returned from {@link #getOverlappingMapTiles(BoundingBox)}.
+   */
+  void loadMapTiles(List<GeoreferencedImageMapTile> tiles);
 }
@@ -39,6 +39,15 @@ public class TiffMultiResolutionImage extends AbstractGeoreferencedImage
     return this.firstImage.getBufferedImage();
   }
 
+  /**
+   * Get the image with the highest resolution.
+   *
+   * @return The image.
+   */
+  public TiffImage getFullResolutionImage() {
+    return this.images.get(this.images.size() - 1);
+  }
+
   public TiffImage getImage(final BoundingBox boundingBox, final double resolution) {
     TiffImage previousImage = this.images.get(0);
     for (final TiffImage image : this.images) {
@@ -64,7 +73,9 @@ public class TiffMultiResolutionImage extends AbstractGeoreferencedImage
   public List<GeoreferencedImageMapTile> getOverlappingMapTiles(final BoundingBox boundingBox,
     final double resolution) {
     final TiffImage image = getImage(boundingBox, resolution);
-    return image.getOverlappingMapTiles(boundingBox);
+    final List<GeoreferencedImageMapTile> tiles = image.getOverlappingMapTiles(boundingBox);
+    image.loadMapTiles(tiles);
+    return tiles;
   }
 
   @Override
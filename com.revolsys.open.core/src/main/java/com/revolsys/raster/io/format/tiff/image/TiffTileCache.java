@@ -0,0 +1,135 @@
+package com.revolsys.raster.io.format.tiff.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * A least recently used cache of the decoded tiles of {@link AbstractTiffImage}s. The cache is
+ * shared by all the images and is bounded by the number of bytes used by the decoded tiles.
+ */
+public class TiffTileCache {
+  private static class TileKey {
+    private final AbstractTiffImage image;
+
+    private final int tileIndex;
+
+    private TileKey(final AbstractTiffImage image, final int tileIndex) {
+      this.image = image;
+      this.tileIndex = tileIndex;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj instanceof TileKey) {
+        final TileKey key = (TileKey)obj;
+        return this.image == key.image && this.tileIndex == key.tileIndex;
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(this.image) + this.tileIndex;
+    }
+  }
+
+  private static final LinkedHashMap<TileKey, BufferedImage> TILES = new LinkedHashMap<>(256,
+    0.75f, true);
+
+  private static long maxSize = Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+
+  private static long size;
+
+  public static void clear() {
+    synchronized (TILES) {
+      TILES.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Remove all the tiles for the image from the cache.
+   *
+   * @param image The image.
+   */
+  public static void clear(final AbstractTiffImage image) {
+    synchronized (TILES) {
+      for (final Iterator<Entry<TileKey, BufferedImage>> iterator = TILES.entrySet()
+        .iterator(); iterator.hasNext();) {
+        final Entry<TileKey, BufferedImage> entry = iterator.next();
+        if (entry.getKey().image == image) {
+          size -= getSize(entry.getValue());
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  public static boolean containsTile(final AbstractTiffImage image, final int tileIndex) {
+    synchronized (TILES) {
+      return TILES.containsKey(new TileKey(image, tileIndex));
+    }
+  }
+
+  public static long getMaxSize() {
+    return maxSize;
+  }
+
+  public static long getSize() {
+    synchronized (TILES) {
+      return size;
+    }
+  }
+
+  private static long getSize(final BufferedImage image) {
+    final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    final int dataType = dataBuffer.getDataType();
+    return (long)dataBuffer.getSize() * dataBuffer.getNumBanks()
+      * DataBuffer.getDataTypeSize(dataType) / 8;
+  }
+
+  public static BufferedImage getTile(final AbstractTiffImage image, final int tileIndex) {
+    synchronized (TILES) {
+      return TILES.get(new TileKey(image, tileIndex));
+    }
+  }
+
+  public static void putTile(final AbstractTiffImage image, final int tileIndex,
+    final BufferedImage tile) {
+    final long tileSize = getSize(tile);
+    synchronized (TILES) {
+      final BufferedImage oldTile = TILES.put(new TileKey(image, tileIndex), tile);
+      if (oldTile != null) {
+        size -= getSize(oldTile);
+      }
+      size += tileSize;
+      removeEldestTiles();
+    }
+  }
+
+  private static void removeEldestTiles() {
+    for (final Iterator<BufferedImage> iterator = TILES.values().iterator(); size > maxSize
+      && iterator.hasNext();) {
+      final BufferedImage tile = iterator.next();
+      size -= getSize(tile);
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Set the maximum number of bytes used by the decoded tiles in the cache.
+   *
+   * @param maxSize The maximum size in bytes.
+   */
+  public static void setMaxSize(final long maxSize) {
+    synchronized (TILES) {
+      TiffTileCache.maxSize = maxSize;
+      removeEldestTiles();
+    }
+  }
+
+}
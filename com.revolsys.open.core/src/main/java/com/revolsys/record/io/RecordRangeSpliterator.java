@@ -0,0 +1,139 @@
+package com.revolsys.record.io;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.revolsys.record.Record;
+
+/**
+ * A {@link Spliterator} over a range of record indexes in a file with random access to the
+ * records. The range is split in half until it is smaller than the minimum split size. Each
+ * partition creates its own {@link RecordReader} for its range of records when it is first
+ * advanced, allowing the partitions to be decoded concurrently by a parallel stream. The reader
+ * is closed when the partition has been read or reading it fails.
+ */
+public class RecordRangeSpliterator implements Spliterator<Record> {
+  @FunctionalInterface
+  public interface RangeRecordReaderFactory {
+    /**
+     * Construct a new reader for the records from fromIndex (inclusive) to toIndex (exclusive).
+     */
+    RecordReader newRecordReader(int fromIndex, int toIndex);
+  }
+
+  public static final int DEFAULT_MIN_SPLIT_SIZE = 4096;
+
+  private int fromIndex;
+
+  private Iterator<Record> iterator;
+
+  private final int minSplitSize;
+
+  private RecordReader reader;
+
+  private final RangeRecordReaderFactory readerFactory;
+
+  private final int toIndex;
+
+  public RecordRangeSpliterator(final RangeRecordReaderFactory readerFactory,
+    final int fromIndex, final int toIndex) {
+    this(readerFactory, fromIndex, toIndex, DEFAULT_MIN_SPLIT_SIZE);
+  }
+
+  public RecordRangeSpliterator(final RangeRecordReaderFactory readerFactory,
+    final int fromIndex, final int toIndex, final int minSplitSize) {
+    this.readerFactory = readerFactory;
+    this.fromIndex = fromIndex;
+    this.toIndex = toIndex;
+    this.minSplitSize = Math.max(1, minSplitSize);
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  private void closeReader() {
+    if (this.reader != null) {
+      this.reader.close();
+      this.reader = null;
+    }
+  }
+
+  @Override
+  public long estimateSize() {
+    if (this.iterator == null) {
+      return this.toIndex - this.fromIndex;
+    } else if (this.reader == null) {
+      return 0;
+    } else {
+      return Long.MAX_VALUE;
+    }
+  }
+
+  @Override
+  public void forEachRemaining(final Consumer<? super Record> action) {
+    if (initIterator()) {
+      try {
+        while (this.iterator.hasNext()) {
+          final Record record = this.iterator.next();
+          action.accept(record);
+        }
+      } finally {
+        closeReader();
+      }
+    }
+  }
+
+  private boolean initIterator() {
+    if (this.iterator == null) {
+      if (this.fromIndex >= this.toIndex) {
+        return false;
+      } else {
+        this.reader = this.readerFactory.newRecordReader(this.fromIndex, this.toIndex);
+        this.iterator = this.reader.iterator();
+      }
+    }
+    return this.reader != null;
+  }
+
+  @Override
+  public String toString() {
+    return this.fromIndex + "-" + this.toIndex;
+  }
+
+  @Override
+  public boolean tryAdvance(final Consumer<? super Record> action) {
+    if (initIterator()) {
+      boolean advanced = false;
+      try {
+        if (this.iterator.hasNext()) {
+          final Record record = this.iterator.next();
+          action.accept(record);
+          advanced = true;
+        }
+      } finally {
+        if (!advanced) {
+          closeReader();
+        }
+      }
+      return advanced;
+    }
+    return false;
+  }
+
+  @Override
+  public Spliterator<Record> trySplit() {
+    final int size = this.toIndex - this.fromIndex;
+    if (this.iterator != null || size < this.minSplitSize * 2) {
+      return null;
+    } else {
+      final int splitIndex = this.fromIndex + size / 2;
+      final RecordRangeSpliterator prefix = new RecordRangeSpliterator(this.readerFactory,
+        this.fromIndex, splitIndex, this.minSplitSize);
+      this.fromIndex = splitIndex;
+      return prefix;
+    }
+  }
+}
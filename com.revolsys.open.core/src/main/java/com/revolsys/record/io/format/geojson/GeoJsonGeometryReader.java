@@ -8,6 +8,7 @@ import java.util.NoSuchElementException;
 import org.jeometry.coordinatesystem.model.systems.EpsgId;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.collection.list.DoubleList;
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.geometry.io.GeometryReader;
 import com.revolsys.geometry.model.ClockDirection;
@@ -32,6 +33,7 @@ public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements
 
   public GeoJsonGeometryReader(final Resource resource, final MapEx properties) {
     this.in = new JsonParser(resource);
+    this.in.setFastNumbers(true);
     setProperties(properties);
   }
 
@@ -89,37 +91,37 @@ public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements
   }
 
   private LineString readCoordinatesList(final boolean cogo, final boolean ring) {
-    final List<Double> coordinates = new ArrayList<>();
+    final DoubleList coordinates = new DoubleList();
     final int axisCount = readCoordinatesList(coordinates);
     if (cogo) {
       final int vertexCount = coordinates.size() / axisCount;
       if (vertexCount > 0) {
-        final double firstX = coordinates.get(0);
-        final double firstY = coordinates.get(1);
+        final double firstX = coordinates.getDouble(0);
+        final double firstY = coordinates.getDouble(1);
         double previousX = firstX;
         double previousY = firstY;
         for (int i = 1; i < vertexCount; i++) {
-          final double distance = coordinates.get(i * axisCount);
-          final double angleDegrees = coordinates.get(i * axisCount + 1);
+          final double distance = coordinates.getDouble(i * axisCount);
+          final double angleDegrees = coordinates.getDouble(i * axisCount + 1);
           final double angle = Math.toRadians((450 - angleDegrees) % 360);
           final double x = previousX + distance * Math.cos(angle);
           final double y = previousY + distance * Math.sin(angle);
 
-          coordinates.set(i * axisCount, x);
-          coordinates.set(i * axisCount + 1, y);
+          coordinates.setDouble(i * axisCount, x);
+          coordinates.setDouble(i * axisCount + 1, y);
           previousX = x;
           previousY = y;
         }
         if (ring) {
-          coordinates.set((vertexCount - 1) * axisCount, firstX);
-          coordinates.set((vertexCount - 1) * axisCount + 1, firstY);
+          coordinates.setDouble((vertexCount - 1) * axisCount, firstX);
+          coordinates.setDouble((vertexCount - 1) * axisCount + 1, firstY);
         }
       }
     }
-    return new LineStringDouble(axisCount, coordinates);
+    return new LineStringDouble(axisCount, coordinates.toDoubleArray());
   }
 
-  private int readCoordinatesList(final List<Double> coordinates) {
+  private int readCoordinatesList(final DoubleList coordinates) {
     int axisCount = 0;
     if (this.in.getEvent() == EventType.startArray
       || this.in.hasNext() && this.in.next() == EventType.startArray) {
@@ -140,36 +142,33 @@ public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements
   }
 
   /**
-   * Read one points coordinates and add them to the list of coordinate values.
+   * Read one points coordinates and add them to the list of coordinate values. The numbers are
+   * read directly from the parser as doubles without creating intermediate objects.
    *
    * @param values The list to add the points coordinates to.
    * @return The dimension of the coordinate read.
    */
-  private int readCoordinatesListCoordinates(final List<Double> values) {
+  private int readCoordinatesListCoordinates(final DoubleList values) {
     int numAxis = 0;
-    if (this.in.getEvent() == EventType.startArray
-      || this.in.hasNext() && this.in.next() == EventType.startArray) {
-      EventType event = this.in.getEvent();
-      do {
-        final JsonParser parser = this.in;
-        final Object value = parser.getValue();
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          values.add(((Number)value).doubleValue());
-          numAxis++;
-          event = this.in.next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
+    final JsonParser parser = this.in;
+    if (parser.getEvent() == EventType.startArray
+      || parser.hasNext() && parser.next() == EventType.startArray) {
+      EventType event = parser.next();
+      while (event == EventType.number) {
+        values.addDouble(parser.getDouble());
+        numAxis++;
+        event = parser.next();
+        if (event == EventType.comma) {
+          event = parser.next();
         }
-      } while (event == EventType.comma);
+      }
       if (event != EventType.endArray) {
-        throw new IllegalStateException("Exepecting end array, not: " + event);
+        throw new IllegalStateException("Exepecting number or end array, not: " + event);
       }
 
       return numAxis;
     } else {
-      throw new IllegalStateException("Exepecting start array, not: " + this.in.getEvent());
+      throw new IllegalStateException("Exepecting start array, not: " + parser.getEvent());
     }
   }
 
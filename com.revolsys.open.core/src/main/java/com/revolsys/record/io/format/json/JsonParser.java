@@ -1,6 +1,5 @@
 package com.revolsys.record.io.format.json;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,6 +9,7 @@ import java.math.BigDecimal;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -17,7 +17,6 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.jeometry.common.exception.WrappedException;
-import org.jeometry.common.number.Doubles;
 import org.jeometry.common.number.Integers;
 
 import com.revolsys.collection.map.LinkedHashMapEx;
@@ -30,6 +29,20 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     booleanValue, colon, comma, endArray, endDocument, endObject, nullValue, number, startArray, startDocument, startObject, string, unknown
   }
 
+  /** Powers of ten that are exactly representable as a double. */
+  private static final double[] DOUBLE_POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /** The largest mantissa that can be exactly represented as a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /** The maximum number of mantissa digits that can be accumulated in a long. */
+  private static final int MAX_MANTISSA_DIGITS = 18;
+
+  private static final int SYMBOL_TABLE_CAPACITY = 4096;
+
   public static Map<String, Object> getMap(final InputStream in) {
     if (in == null) {
       return null;
@@ -122,28 +135,54 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     return (V)read(new StringReader(in));
   }
 
+  private final char[] buffer = new char[8192];
+
+  private int bufferIndex;
+
+  private int bufferLength;
+
   private int currentCharacter;
 
+  private double currentDouble;
+
   private EventType currentEvent = EventType.startDocument;
 
+  private long currentLong;
+
+  private boolean currentNumberLong;
+
   private Object currentValue;
 
   private int depth;
 
+  private boolean fastNumbers = false;
+
+  private double nextDouble;
+
   private EventType nextEvent = EventType.startDocument;
 
+  private long nextLong;
+
+  private boolean nextNumberLong;
+
   private Object nextValue;
 
+  private char[] numberChars = new char[32];
+
   private final Reader reader;
 
+  private char[] stringChars = new char[64];
+
+  private final JsonSymbolTable symbolTable = new JsonSymbolTable(SYMBOL_TABLE_CAPACITY);
+
   public JsonParser(final InputStream in) {
     this(FileUtil.newUtf8Reader(in));
   }
 
   public JsonParser(final Reader reader) {
-    this.reader = new BufferedReader(reader, 10000);
+    this.reader = reader;
     try {
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     } catch (final IOException e) {
       throw new RuntimeException(e);
     }
@@ -153,6 +192,20 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     this(resource.newBufferedReader());
   }
 
+  private void appendNumberChar(final int length, final int character) {
+    if (length == this.numberChars.length) {
+      this.numberChars = Arrays.copyOf(this.numberChars, length * 2);
+    }
+    this.numberChars[length] = (char)character;
+  }
+
+  private void appendStringChar(final int length, final int character) {
+    if (length == this.stringChars.length) {
+      this.stringChars = Arrays.copyOf(this.stringChars, length * 2);
+    }
+    this.stringChars[length] = (char)character;
+  }
+
   @Override
   public void close() {
     FileUtil.closeSilent(this.reader);
@@ -167,12 +220,11 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
         if (value instanceof EventType) {
           event = (EventType)value;
           if (event == EventType.comma) {
-            throw new IllegalStateException(
-              "Missing value before ',' " + FileUtil.getString(this.reader, 80));
+            throw new IllegalStateException("Missing value before ',' " + readText(80));
           } else if (event == EventType.endArray) {
             if (!list.isEmpty()) {
               throw new IllegalStateException(
-                "Missing value after ',' and before ']' " + FileUtil.getString(this.reader, 80));
+                "Missing value after ',' and before ']' " + readText(80));
             }
           }
         } else {
@@ -192,6 +244,13 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   @SuppressWarnings("unchecked")
   public <T> T getCurrentValue() {
+    if (this.currentValue == null && this.currentEvent == EventType.number) {
+      if (this.currentNumberLong) {
+        this.currentValue = this.currentLong;
+      } else {
+        this.currentValue = this.currentDouble;
+      }
+    }
     return (T)this.currentValue;
   }
 
@@ -199,26 +258,55 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     return this.depth;
   }
 
+  /**
+   * Get the current number event's value as a double without boxing the value in fast numbers
+   * mode.
+   *
+   * @return The value.
+   */
+  public double getDouble() {
+    if (this.currentEvent == EventType.number) {
+      if (this.currentValue == null) {
+        return this.currentDouble;
+      } else {
+        return ((Number)this.currentValue).doubleValue();
+      }
+    } else {
+      throw new IllegalStateException("Expecting a number, not: " + this.currentEvent);
+    }
+  }
+
   public double[] getDoubleArray() {
     if (getEvent() == EventType.startArray || hasNext() && next() == EventType.startArray) {
-      EventType event = getEvent();
-      final List<Number> list = new ArrayList<>();
-      do {
-        final Object value = getValue();
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          list.add((Number)value);
+      double[] values = new double[4];
+      int size = 0;
+      EventType event = next();
+      if (event != EventType.endArray) {
+        do {
+          if (event == EventType.number) {
+            if (size == values.length) {
+              values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = getDouble();
+          } else {
+            throw new IllegalArgumentException("Expecting number, not: " + getCurrentValue());
+          }
           event = next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
-        }
-      } while (event == EventType.comma);
+          if (event == EventType.comma) {
+            event = next();
+          } else {
+            break;
+          }
+        } while (true);
+      }
       if (event != EventType.endArray) {
         throw new IllegalStateException("Exepecting end array, not: " + event);
       }
-
-      return Doubles.toDoubleArray(list);
+      if (size == values.length) {
+        return values;
+      } else {
+        return Arrays.copyOf(values, size);
+      }
     } else if (getEvent() == EventType.nullValue) {
       return null;
     } else {
@@ -300,13 +388,14 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     }
   }
 
+  /**
+   * Get the current string. Short strings are shared from the parser's bounded symbol table
+   * instead of using {@link String#intern()}.
+   *
+   * @return The string.
+   */
   public String getStringIntern() {
-    final String string = getString();
-    if (string == null) {
-      return null;
-    } else {
-      return string.intern();
-    }
+    return getString();
   }
 
   public Object getValue() {
@@ -351,6 +440,14 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     return false;
   }
 
+  /**
+   * Check if numbers are parsed directly to long or double values instead of
+   * {@link BigDecimal}.
+   */
+  public boolean isFastNumbers() {
+    return this.fastNumbers;
+  }
+
   private void moveNext() {
     this.nextValue = null;
     try {
@@ -358,59 +455,59 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
       switch (this.currentCharacter) {
         case ',':
           this.nextEvent = EventType.comma;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case ':':
           this.nextEvent = EventType.colon;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '{':
           this.nextEvent = EventType.startObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth++;
         break;
         case '}':
           this.nextEvent = EventType.endObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth--;
         break;
         case '[':
           this.nextEvent = EventType.startArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case ']':
           this.nextEvent = EventType.endArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 't':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.TRUE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 'f':
           for (int i = 0; i < 4; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.FALSE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 'n':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.nullValue;
           this.nextValue = null;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '"':
           this.nextEvent = EventType.string;
 
           processString();
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '-':
           this.nextEvent = EventType.number;
@@ -439,6 +536,9 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     if (hasNext()) {
       this.currentValue = this.nextValue;
       this.currentEvent = this.nextEvent;
+      this.currentDouble = this.nextDouble;
+      this.currentLong = this.nextLong;
+      this.currentNumberLong = this.nextNumberLong;
       moveNext();
       return this.currentEvent;
     } else {
@@ -446,104 +546,209 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     }
   }
 
+  /**
+   * Read a number. The characters are copied to a reused buffer and the mantissa and exponent are
+   * accumulated as they are read. In fast numbers mode numbers that can be converted exactly are
+   * returned as a long or double without creating any objects and other decimal numbers are parsed
+   * with {@link Double#parseDouble(String)}. Otherwise numbers are parsed from the buffer as a
+   * {@link BigDecimal}.
+   */
   private void processNumber() throws IOException {
-    final StringBuilder text = new StringBuilder();
+    int length = 0;
+    boolean negative = false;
+    boolean integer = true;
+    long mantissa = 0;
+    int mantissaDigits = 0;
+    int exponent = 0;
     if (this.currentCharacter == '-') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      negative = true;
+      appendNumberChar(length++, this.currentCharacter);
+      this.currentCharacter = read();
     }
     while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      appendNumberChar(length++, this.currentCharacter);
+      if (mantissa != 0 || this.currentCharacter != '0') {
+        mantissa = mantissa * 10 + this.currentCharacter - '0';
+        mantissaDigits++;
+      }
+      this.currentCharacter = read();
     }
 
     if (this.currentCharacter == '.') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      integer = false;
+      appendNumberChar(length++, this.currentCharacter);
+      this.currentCharacter = read();
       while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        appendNumberChar(length++, this.currentCharacter);
+        if (mantissa != 0 || this.currentCharacter != '0') {
+          mantissa = mantissa * 10 + this.currentCharacter - '0';
+          mantissaDigits++;
+        }
+        exponent--;
+        this.currentCharacter = read();
       }
     }
 
     if (this.currentCharacter == 'e' || this.currentCharacter == 'E') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      integer = false;
+      appendNumberChar(length++, this.currentCharacter);
+      this.currentCharacter = read();
+      boolean negativeExponent = false;
       if (this.currentCharacter == '-' || this.currentCharacter == '+') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        negativeExponent = this.currentCharacter == '-';
+        appendNumberChar(length++, this.currentCharacter);
+        this.currentCharacter = read();
       }
+      int exponentValue = 0;
       while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        appendNumberChar(length++, this.currentCharacter);
+        if (exponentValue < 10000) {
+          exponentValue = exponentValue * 10 + this.currentCharacter - '0';
+        }
+        this.currentCharacter = read();
+      }
+      if (negativeExponent) {
+        exponent -= exponentValue;
+      } else {
+        exponent += exponentValue;
       }
     }
-    this.nextValue = new BigDecimal(text.toString());
+    if (this.fastNumbers && mantissaDigits <= MAX_MANTISSA_DIGITS) {
+      if (integer) {
+        final long value = negative ? -mantissa : mantissa;
+        this.nextValue = null;
+        this.nextNumberLong = true;
+        this.nextLong = value;
+        this.nextDouble = value;
+        return;
+      } else if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+        double value = mantissa;
+        if (exponent < 0) {
+          value /= DOUBLE_POWERS_OF_TEN[-exponent];
+        } else {
+          value *= DOUBLE_POWERS_OF_TEN[exponent];
+        }
+        if (negative) {
+          value = -value;
+        }
+        this.nextValue = null;
+        this.nextNumberLong = false;
+        this.nextDouble = value;
+        return;
+      }
+    }
+    this.nextNumberLong = false;
+    if (this.fastNumbers && !integer) {
+      this.nextValue = null;
+      this.nextDouble = Double.parseDouble(new String(this.numberChars, 0, length));
+    } else {
+      this.nextValue = new BigDecimal(this.numberChars, 0, length);
+    }
   }
 
   private void processString() throws IOException {
-    final StringBuilder text = new StringBuilder();
-    this.currentCharacter = this.reader.read();
+    int length = 0;
+    this.currentCharacter = read();
     while (this.currentCharacter != '"' && this.currentCharacter != -1) {
       if (this.currentCharacter == '\\') {
-        this.currentCharacter = this.reader.read();
+        this.currentCharacter = read();
         switch (this.currentCharacter) {
           case -1:
           break;
           case 'b':
-            text.setLength(text.length() - 1);
+            if (length > 0) {
+              length--;
+            }
           break;
           case '"':
-            text.append('"');
+            appendStringChar(length++, '"');
           break;
           case '/':
-            text.append('/');
+            appendStringChar(length++, '/');
           break;
           case '\\':
-            text.append('\\');
+            appendStringChar(length++, '\\');
           break;
           case 'f':
-            text.append('\f');
+            appendStringChar(length++, '\f');
+          break;
           case 'n':
-            text.append('\n');
+            appendStringChar(length++, '\n');
           break;
           case 'r':
-            text.append('\r');
+            appendStringChar(length++, '\r');
           break;
           case 't':
-            text.append('\t');
+            appendStringChar(length++, '\t');
           break;
           case 'u':
-            final char[] buf = new char[4];
-            final int readCount = this.reader.read(buf);
-            final String unicodeText = String.valueOf(buf, 0, readCount);
-            if (readCount == 4) {
-              try {
-                final int unicode = Integer.parseInt(unicodeText, 16);
-                text.append((char)unicode);
-              } catch (final NumberFormatException e) {
-                throw e;
+            int unicode = 0;
+            for (int i = 0; i < 4; i++) {
+              final int character = read();
+              final int digit = Character.digit(character, 16);
+              if (digit == -1) {
+                throw new IllegalStateException(
+                  "Unicode escape not correct " + (char)character + " " + readText(80));
               }
-            } else {
-              throw new IllegalStateException("Unicode escape not correct " + unicodeText);
+              unicode = unicode * 16 + digit;
             }
+            appendStringChar(length++, unicode);
           break;
           default:
             throw new IllegalStateException(
               "Invalid escape character: \\" + (char)this.currentCharacter);
         }
       } else {
-        text.append((char)this.currentCharacter);
+        appendStringChar(length++, this.currentCharacter);
+      }
+      this.currentCharacter = read();
+    }
+    this.nextValue = this.symbolTable.getSymbol(this.stringChars, 0, length);
+  }
+
+  private int read() throws IOException {
+    if (this.bufferIndex == this.bufferLength) {
+      final int readCount = this.reader.read(this.buffer, 0, this.buffer.length);
+      if (readCount <= 0) {
+        return -1;
+      }
+      this.bufferIndex = 0;
+      this.bufferLength = readCount;
+    }
+    return this.buffer[this.bufferIndex++];
+  }
+
+  private String readText(final int count) {
+    final StringBuilder text = new StringBuilder();
+    try {
+      for (int i = 0; i < count; i++) {
+        final int character = read();
+        if (character == -1) {
+          break;
+        } else {
+          text.append((char)character);
+        }
       }
-      this.currentCharacter = this.reader.read();
+    } catch (final IOException e) {
     }
-    this.nextValue = text.toString();
+    return text.toString();
   }
 
   @Override
   public void remove() {
   }
 
+  /**
+   * Set if numbers are parsed directly to long or double values instead of {@link BigDecimal}.
+   * Numbers are returned as {@link Long} if they are integers or {@link Double} otherwise. Integers
+   * that are too large for a long are returned as a {@link BigDecimal}.
+   *
+   * @param fastNumbers True if fast number parsing is enabled.
+   */
+  public void setFastNumbers(final boolean fastNumbers) {
+    this.fastNumbers = fastNumbers;
+  }
+
   /** Skip to next attribute in any object.*/
   public String skipToAttribute() {
     while (hasNext()) {
@@ -628,13 +833,13 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   private void skipWhitespace() throws IOException {
     while (Character.isWhitespace(this.currentCharacter)) {
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     }
   }
 
   @Override
   public String toString() {
     return this.currentEvent + " : " + this.currentValue + " "
-      + Character.toString((char)this.currentCharacter) + FileUtil.getString(this.reader, 80);
+      + Character.toString((char)this.currentCharacter) + readText(80);
   }
 }
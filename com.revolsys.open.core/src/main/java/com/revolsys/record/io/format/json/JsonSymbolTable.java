@@ -0,0 +1,82 @@
+package com.revolsys.record.io.format.json;
+
+/**
+ * A bounded table of the strings read by a {@link JsonParser}. Repeated short strings such as
+ * object keys are returned as the same instance without allocating a new string. Once the table
+ * is full new strings are returned without being added to the table.
+ */
+class JsonSymbolTable {
+  private static final int MAX_SYMBOL_LENGTH = 64;
+
+  private final int[] hashes;
+
+  private final int mask;
+
+  private final int maxSize;
+
+  private int size;
+
+  private final String[] symbols;
+
+  public JsonSymbolTable(final int capacity) {
+    int tableSize = 16;
+    while (tableSize < capacity) {
+      tableSize <<= 1;
+    }
+    this.hashes = new int[tableSize];
+    this.symbols = new String[tableSize];
+    this.mask = tableSize - 1;
+    this.maxSize = tableSize * 3 / 4;
+  }
+
+  /**
+   * Get the string for the characters. If an equal string is in the table it is returned,
+   * otherwise a new string is created.
+   *
+   * @param chars The characters.
+   * @param offset The offset of the first character.
+   * @param length The number of characters.
+   * @return The string.
+   */
+  public String getSymbol(final char[] chars, final int offset, final int length) {
+    if (length == 0) {
+      return "";
+    } else if (length > MAX_SYMBOL_LENGTH) {
+      return new String(chars, offset, length);
+    } else {
+      int hash = 0;
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + chars[offset + i];
+      }
+      int index = (hash ^ hash >>> 16) & this.mask;
+      String symbol;
+      while ((symbol = this.symbols[index]) != null) {
+        if (this.hashes[index] == hash && isEqual(symbol, chars, offset, length)) {
+          return symbol;
+        }
+        index = index + 1 & this.mask;
+      }
+      symbol = new String(chars, offset, length);
+      if (this.size < this.maxSize) {
+        this.hashes[index] = hash;
+        this.symbols[index] = symbol;
+        this.size++;
+      }
+      return symbol;
+    }
+  }
+
+  private boolean isEqual(final String symbol, final char[] chars, final int offset,
+    final int length) {
+    if (symbol.length() == length) {
+      for (int i = 0; i < length; i++) {
+        if (symbol.charAt(i) != chars[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return false;
+    }
+  }
+}
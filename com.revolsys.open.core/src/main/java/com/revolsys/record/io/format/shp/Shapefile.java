@@ -35,7 +35,9 @@ public class Shapefile extends AbstractRecordIoFactory implements RecordWriterFa
   public RecordReader newRecordReader(final Resource resource,
     final RecordFactory<? extends Record> recordFactory, final MapEx properties) {
     try {
-      return new ShapefileRecordReader(resource, recordFactory);
+      final ShapefileRecordReader reader = new ShapefileRecordReader(resource, recordFactory);
+      reader.setProperties(properties);
+      return reader;
     } catch (final IOException e) {
       throw new RuntimeException("Unable to create reader for " + resource, e);
     }
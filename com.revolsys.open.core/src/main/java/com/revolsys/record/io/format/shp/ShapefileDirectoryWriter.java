@@ -94,6 +94,11 @@ public class ShapefileDirectoryWriter extends AbstractRecordWriter {
     return this.directory;
   }
 
+  public File getFile(final RecordDefinition recordDefinition) {
+    final File directory = getDirectory(recordDefinition);
+    return new File(directory, getFileName(recordDefinition) + this.nameSuffix + ".shp");
+  }
+
   private String getFileName(final RecordDefinition recordDefinition) {
     return recordDefinition.getName();
   }
@@ -115,10 +120,8 @@ public class ShapefileDirectoryWriter extends AbstractRecordWriter {
     final String path = recordDefinition.getPath();
     Writer<Record> writer = this.writers.get(path);
     if (writer == null) {
-      final File directory = getDirectory(recordDefinition);
-      directory.mkdirs();
-      final File file = new File(directory,
-        getFileName(recordDefinition) + this.nameSuffix + ".shp");
+      final File file = getFile(recordDefinition);
+      file.getParentFile().mkdirs();
       writer = RecordWriter.newRecordWriter(recordDefinition, new PathResource(file));
 
       ((XbaseRecordWriter)writer).setUseZeroForNull(this.useZeroForNull);
@@ -22,6 +22,8 @@ import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
 import com.revolsys.geometry.model.Punctual;
 import com.revolsys.geometry.model.impl.LineStringDouble;
+import com.revolsys.geometry.model.impl.LineStringDoubleGf;
+import com.revolsys.geometry.model.impl.LinearRingDoubleGf;
 import com.revolsys.geometry.model.vertex.Vertex;
 import com.revolsys.io.endian.EndianOutput;
 
@@ -201,12 +203,42 @@ public final class ShapefileGeometryHandler {
     return parts;
   }
 
+  /**
+   * Construct a new line string. If the geometry factory is floating and has the same axis count
+   * the coordinates array is used directly by the line instead of being copied.
+   */
+  public LineString newLineString(final GeometryFactory geometryFactory, final int axisCount,
+    final double[] coordinates) {
+    final int vertexCount = coordinates.length / axisCount;
+    if (vertexCount > 0 && geometryFactory.isFloating()
+      && geometryFactory.getAxisCount() == axisCount) {
+      return new LineStringDoubleGf(geometryFactory, axisCount, vertexCount, coordinates);
+    } else {
+      return geometryFactory.lineString(axisCount, coordinates);
+    }
+  }
+
+  /**
+   * Construct a new linear ring. If the geometry factory is floating and has the same axis count
+   * the coordinates array is used directly by the ring instead of being copied.
+   */
+  public LinearRing newLinearRing(final GeometryFactory geometryFactory, final int axisCount,
+    final double[] coordinates) {
+    final int vertexCount = coordinates.length / axisCount;
+    if (vertexCount > 0 && geometryFactory.isFloating()
+      && geometryFactory.getAxisCount() == axisCount) {
+      return new LinearRingDoubleGf(geometryFactory, axisCount, vertexCount, coordinates);
+    } else {
+      return geometryFactory.linearRing(axisCount, coordinates);
+    }
+  }
+
   public Geometry newPolygonGeometryFromParts(final GeometryFactory geometryFactory,
     final List<double[]> parts, final int axisCount) {
     final List<Polygon> polygons = new ArrayList<>();
     final List<LinearRing> currentParts = new ArrayList<>();
     for (final double[] coordinates : parts) {
-      final LinearRing ring = geometryFactory.linearRing(axisCount, coordinates);
+      final LinearRing ring = newLinearRing(geometryFactory, axisCount, coordinates);
       final boolean ringClockwise = ring.isClockwise();
       if (ringClockwise) {
         if (!currentParts.isEmpty()) {
@@ -480,7 +512,7 @@ public final class ShapefileGeometryHandler {
       buffer.getInt();
       final double[] coordinates = readXYCoordinates(buffer, vertexCount, axisCount);
 
-      return geometryFactory.lineString(2, coordinates);
+      return newLineString(geometryFactory, 2, coordinates);
     } else {
       final int[] partIndex = new int[numParts + 1];
       partIndex[numParts] = vertexCount;
@@ -494,7 +526,7 @@ public final class ShapefileGeometryHandler {
         final int endIndex = partIndex[i + 1];
         final int numCoords = endIndex - startIndex;
         final double[] coordinates = readXYCoordinates(buffer, numCoords, axisCount);
-        lines.add(geometryFactory.lineString(2, coordinates));
+        lines.add(newLineString(geometryFactory, 2, coordinates));
       }
       return geometryFactory.lineal(lines);
     }
@@ -516,7 +548,7 @@ public final class ShapefileGeometryHandler {
       buffer.getDouble();
       setCoordinatesNaN(coordinates, allVertexCount, axisCount, 2);
       readCoordinates(buffer, allVertexCount, axisCount, coordinates, 3);
-      return geometryFactory.lineString(axisCount, coordinates);
+      return newLineString(geometryFactory, axisCount, coordinates);
     } else {
       final int[] partIndex = new int[partCount + 1];
       partIndex[partCount] = allVertexCount;
@@ -539,8 +571,11 @@ public final class ShapefileGeometryHandler {
         readCoordinates(buffer, vertexCount, axisCount, coordinates, 3);
       }
 
-      return geometryFactory.lineal(axisCount,
-        coordinatesList.toArray(new double[coordinatesList.size()][]));
+      final LineString[] lines = new LineString[coordinatesList.size()];
+      for (int i = 0; i < lines.length; i++) {
+        lines[i] = newLineString(geometryFactory, axisCount, coordinatesList.get(i));
+      }
+      return geometryFactory.lineal(lines);
     }
   }
 
@@ -564,7 +599,7 @@ public final class ShapefileGeometryHandler {
       buffer.getDouble();
       buffer.getDouble();
       readCoordinates(buffer, allVertexCount, axisCount, coordinates, 2);
-      return geometryFactory.lineString(axisCount, coordinates);
+      return newLineString(geometryFactory, axisCount, coordinates);
     } else {
       final int[] partIndex = new int[partCount + 1];
       partIndex[partCount] = allVertexCount;
@@ -585,7 +620,11 @@ public final class ShapefileGeometryHandler {
         final int vertexCount = coordinates.length / axisCount;
         readCoordinates(buffer, vertexCount, axisCount, coordinates, 2);
       }
-      return geometryFactory.lineal(axisCount, linesCoordinates);
+      final LineString[] lines = new LineString[partCount];
+      for (int i = 0; i < partCount; i++) {
+        lines[i] = newLineString(geometryFactory, axisCount, linesCoordinates[i]);
+      }
+      return geometryFactory.lineal(lines);
     }
   }
 
@@ -611,7 +650,7 @@ public final class ShapefileGeometryHandler {
         buffer.getDouble();
         buffer.getDouble();
         readCoordinates(buffer, vertexCount, axisCount, coordinates, 3);
-        return geometryFactory.lineString(axisCount, coordinates);
+        return newLineString(geometryFactory, axisCount, coordinates);
       } else {
         final int[] partIndex = new int[geometryCount + 1];
         partIndex[geometryCount] = vertexCount;
@@ -640,7 +679,7 @@ public final class ShapefileGeometryHandler {
         }
         final List<LineString> lines = new ArrayList<>();
         for (final double[] coordinates : coordinatesList) {
-          lines.add(geometryFactory.lineString(axisCount, coordinates));
+          lines.add(newLineString(geometryFactory, axisCount, coordinates));
         }
         return geometryFactory.lineal(lines);
       }
@@ -656,11 +695,17 @@ public final class ShapefileGeometryHandler {
 
   public void readXYCoordinates(final ByteBuffer buffer, final int axisCount, final int vertexCount,
     final double[] coordinates) {
-    for (int j = 0; j < vertexCount; j++) {
-      final double x = buffer.getDouble();
-      final double y = buffer.getDouble();
-      coordinates[j * axisCount] = x;
-      coordinates[j * axisCount + 1] = y;
+    if (axisCount == 2) {
+      final int position = buffer.position();
+      buffer.asDoubleBuffer().get(coordinates, 0, vertexCount * 2);
+      buffer.position(position + vertexCount * 16);
+    } else {
+      for (int j = 0; j < vertexCount; j++) {
+        final double x = buffer.getDouble();
+        final double y = buffer.getDouble();
+        coordinates[j * axisCount] = x;
+        coordinates[j * axisCount + 1] = y;
+      }
     }
   }
 
@@ -2,13 +2,21 @@ package com.revolsys.record.io.format.shp;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryDataTypes;
@@ -17,12 +25,14 @@ import com.revolsys.io.EndOfFileException;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.IoConstants;
 import com.revolsys.io.endian.EndianInput;
+import com.revolsys.io.endian.EndianInputOutput;
 import com.revolsys.io.endian.EndianInputStream;
 import com.revolsys.io.endian.EndianMappedByteBuffer;
 import com.revolsys.io.endian.LittleEndianRandomAccessFile;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.Records;
+import com.revolsys.record.io.RecordRangeSpliterator;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.io.format.xbase.XbaseRecordReader;
 import com.revolsys.record.schema.RecordDefinition;
@@ -31,28 +41,57 @@ import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 
 public class ShapefileRecordReader extends AbstractIterator<Record> implements RecordReader {
+  private BoundingBox boundingBox;
+
   private boolean closeFile = true;
 
+  private Collection<String> fieldNames;
+
+  private int fromIndex = 0;
+
   private GeometryFactory geometryFactory;
 
   private EndianInput in;
 
   private EndianMappedByteBuffer indexIn;
 
+  private boolean internStrings = false;
+
+  private boolean memoryMapped = false;
+
   private final String name;
 
+  /**
+   * The reader that created this partition reader.
+   */
+  private ShapefileRecordReader parentReader;
+
+  private final List<RecordReader> partitionReaders = new ArrayList<>();
+
   private int position;
 
+  private int[] recordIndexes;
+
+  private int recordIndexesPosition;
+
   private RecordDefinition recordDefinition;
 
   private RecordFactory recordFactory;
 
   private Resource resource;
 
+  private Record returnRecord;
+
   private RecordDefinition returnRecordDefinition;
 
+  private boolean reuseRecord = false;
+
+  private Record reusedRecord;
+
   private int shapeType;
 
+  private int toIndex = Integer.MAX_VALUE;
+
   private PathName typeName;
 
   private XbaseRecordReader xbaseRecordReader;
@@ -68,6 +107,21 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   @Override
   protected void closeDo() {
+    final List<RecordReader> partitionReaders;
+    synchronized (this.partitionReaders) {
+      partitionReaders = new ArrayList<>(this.partitionReaders);
+      this.partitionReaders.clear();
+    }
+    for (final RecordReader reader : partitionReaders) {
+      reader.close();
+    }
+    final ShapefileRecordReader parentReader = this.parentReader;
+    if (parentReader != null) {
+      this.parentReader = null;
+      synchronized (parentReader.partitionReaders) {
+        parentReader.partitionReaders.remove(this);
+      }
+    }
     if (this.closeFile) {
       forceClose();
     }
@@ -82,47 +136,95 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     this.geometryFactory = null;
     this.in = null;
     this.indexIn = null;
+    this.recordIndexes = null;
+    this.returnRecord = null;
+    this.reusedRecord = null;
     this.recordDefinition = null;
     this.resource = null;
     this.xbaseRecordReader = null;
   }
 
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
   @Override
   protected Record getNext() {
+    if (this.recordIndexes != null) {
+      return getNextIndexed();
+    }
     Record record;
     try {
-      if (this.xbaseRecordReader != null) {
-        if (this.xbaseRecordReader.hasNext()) {
-          record = this.xbaseRecordReader.next();
-          for (int i = 0; i < this.xbaseRecordReader.getDeletedCount(); i++) {
-            this.position++;
-            readGeometry();
+      boolean matched;
+      do {
+        if (this.position >= this.toIndex) {
+          throw new NoSuchElementException();
+        } else if (this.xbaseRecordReader != null) {
+          if (this.xbaseRecordReader.hasNext()) {
+            record = this.xbaseRecordReader.next();
+            for (int i = 0; i < this.xbaseRecordReader.getDeletedCount(); i++) {
+              this.position++;
+              readGeometry();
+            }
+          } else {
+            throw new NoSuchElementException();
           }
         } else {
-          throw new NoSuchElementException();
+          record = newRecord();
         }
-      } else {
-        record = this.recordFactory.newRecord(this.recordDefinition);
-      }
+        this.position++;
 
-      try {
-        final Geometry geometry = readGeometry();
-        record.setGeometryValue(geometry);
-      } catch (final IllegalArgumentException e) {
-        Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
-      }
+        matched = true;
+        try {
+          final Geometry geometry = readGeometry();
+          record.setGeometryValue(geometry);
+          if (this.boundingBox != null) {
+            matched = geometry != null && geometry.bboxIntersects(this.boundingBox);
+          }
+        } catch (final IllegalArgumentException e) {
+          Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+        }
+      } while (!matched);
     } catch (final EndOfFileException e) {
       throw new NoSuchElementException();
     } catch (final IOException e) {
       throw new RuntimeException("Error reading geometry " + this.resource, e);
     }
-    if (this.returnRecordDefinition == null) {
-      return record;
-    } else {
-      final Record copy = this.recordFactory.newRecord(this.returnRecordDefinition);
-      copy.setValues(record);
-      return copy;
+    return newReturnRecord(record);
+  }
+
+  /**
+   * Get the next record from the spatial index results, using the offset from the .shx file to
+   * seek to the record in the .shp file and the record index to seek in the .dbf file.
+   */
+  private Record getNextIndexed() {
+    while (this.recordIndexesPosition < this.recordIndexes.length) {
+      final int recordIndex = this.recordIndexes[this.recordIndexesPosition++];
+      try {
+        Record record;
+        if (this.xbaseRecordReader != null) {
+          record = this.xbaseRecordReader.readRecord(recordIndex);
+        } else {
+          record = newRecord();
+        }
+        if (record != null) {
+          seekRecord(recordIndex);
+          this.position = recordIndex + 1;
+          try {
+            final Geometry geometry = readGeometry();
+            record.setGeometryValue(geometry);
+          } catch (final IllegalArgumentException e) {
+            Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+          }
+          return newReturnRecord(record);
+        }
+      } catch (final EndOfFileException e) {
+        throw new NoSuchElementException();
+      } catch (final IOException e) {
+        throw new RuntimeException("Error reading geometry " + this.resource, e);
+      }
     }
+    throw new NoSuchElementException();
   }
 
   @Override
@@ -156,7 +258,11 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
         try {
           if (this.resource.isFile()) {
             final File file = this.resource.getFile();
-            this.in = new LittleEndianRandomAccessFile(file, "r");
+            if (this.memoryMapped && file.length() <= Integer.MAX_VALUE) {
+              this.in = new EndianMappedByteBuffer(file, MapMode.READ_ONLY);
+            } else {
+              this.in = new LittleEndianRandomAccessFile(file, "r");
+            }
           } else {
             this.in = new EndianInputStream(this.resource.getInputStream());
           }
@@ -170,8 +276,15 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
             () -> updateRecordDefinition());
           this.xbaseRecordReader.setTypeName(this.typeName);
           this.xbaseRecordReader.setCloseFile(this.closeFile);
+          this.xbaseRecordReader.setReuseRecord(this.reuseRecord);
+          this.xbaseRecordReader.setRecordRange(this.fromIndex, this.toIndex);
+          this.xbaseRecordReader.setFieldNames(this.fieldNames);
+          this.xbaseRecordReader.setInternStrings(this.internStrings);
         }
         loadHeader();
+        if (this.fromIndex > 0) {
+          seekRecord(this.fromIndex);
+        }
         int axisCount;
         switch (this.shapeType) {
           case ShapefileConstants.POINT_SHAPE: // 1
@@ -211,6 +324,10 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
         if (this.xbaseRecordReader != null) {
           this.xbaseRecordReader.hasNext();
         }
+        if (this.boundingBox != null) {
+          this.boundingBox = this.boundingBox.bboxToCs(this.geometryFactory);
+          initSpatialIndex();
+        }
         if (this.recordDefinition == null) {
           this.recordDefinition = Records.newGeometryRecordDefinition();
         }
@@ -221,10 +338,48 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Use the spatial index to find the records that intersect the bounding box. If the index
+   * cannot be used the records are read sequentially and filtered by the bounding box.
+   */
+  private void initSpatialIndex() throws IOException {
+    if (this.in instanceof EndianInputOutput
+      && (this.xbaseRecordReader == null || this.xbaseRecordReader.isRandomAccess())) {
+      final ShapefileSpatialIndex spatialIndex = ShapefileSpatialIndex.open(this.resource);
+      if (spatialIndex != null) {
+        try {
+          int[] recordIndexes = spatialIndex.query(this.boundingBox);
+          if (this.fromIndex > 0 || this.toIndex < Integer.MAX_VALUE) {
+            recordIndexes = Arrays.stream(recordIndexes)
+              .filter(index -> index >= this.fromIndex && index < this.toIndex)
+              .toArray();
+          }
+          this.recordIndexes = recordIndexes;
+          this.recordIndexesPosition = 0;
+          openIndex();
+        } finally {
+          spatialIndex.close();
+        }
+      }
+    }
+  }
+
   public boolean isCloseFile() {
     return this.closeFile;
   }
 
+  public boolean isInternStrings() {
+    return this.internStrings;
+  }
+
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
+  public boolean isReuseRecord() {
+    return this.reuseRecord;
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -247,39 +402,111 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final double maxM = this.in.readLEDouble();
   }
 
+  private Geometry newEmptyGeometry() {
+    switch (this.shapeType) {
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return this.geometryFactory.point();
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return this.geometryFactory.lineString();
+
+      case ShapefileConstants.POLYGON_SHAPE:
+      case ShapefileConstants.POLYGON_M_SHAPE:
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return this.geometryFactory.polygon();
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
+  private RecordReader newPartitionReader(final int fromIndex, final int toIndex) {
+    try {
+      final ShapefileRecordReader reader = new ShapefileRecordReader(this.resource,
+        this.recordFactory);
+      reader.setProperties(getProperties());
+      reader.setTypeName(this.typeName);
+      reader.setMemoryMapped(this.memoryMapped);
+      reader.setReuseRecord(this.reuseRecord);
+      reader.setRecordRange(fromIndex, toIndex);
+      reader.setFieldNames(this.fieldNames);
+      reader.setInternStrings(this.internStrings);
+      if (this.returnRecordDefinition != null) {
+        reader.setRecordDefinition(this.returnRecordDefinition);
+      }
+      if (this.recordIndexes == null) {
+        reader.setBoundingBox(this.boundingBox);
+      } else {
+        reader.recordIndexes = Arrays.stream(this.recordIndexes)
+          .filter(index -> index >= fromIndex && index < toIndex)
+          .toArray();
+      }
+      reader.parentReader = this;
+      synchronized (this.partitionReaders) {
+        this.partitionReaders.add(reader);
+      }
+      return reader;
+    } catch (final IOException e) {
+      throw new RuntimeException("Error opening " + this.resource, e);
+    }
+  }
+
+  private Record newRecord() {
+    if (this.reuseRecord) {
+      if (this.reusedRecord == null) {
+        this.reusedRecord = this.recordFactory.newRecord(this.recordDefinition);
+      }
+      return this.reusedRecord;
+    } else {
+      return this.recordFactory.newRecord(this.recordDefinition);
+    }
+  }
+
+  private Record newReturnRecord(final Record record) {
+    if (this.returnRecordDefinition == null) {
+      return record;
+    } else {
+      Record copy = this.returnRecord;
+      if (copy == null || !this.reuseRecord) {
+        copy = this.recordFactory.newRecord(this.returnRecordDefinition);
+        if (this.reuseRecord) {
+          this.returnRecord = copy;
+        }
+      }
+      copy.setValues(record);
+      return copy;
+    }
+  }
+
+  private void openIndex() throws IOException {
+    if (this.indexIn == null) {
+      final File indexFile = this.resource.newResourceChangeExtension("shx").getFile();
+      this.indexIn = new EndianMappedByteBuffer(indexFile, MapMode.READ_ONLY);
+    }
+  }
+
   @SuppressWarnings("unused")
   private Geometry readGeometry() throws IOException {
+    if (this.in instanceof EndianMappedByteBuffer) {
+      return readGeometryMapped();
+    }
     final int recordNumber = this.in.readInt();
     final int recordLength = this.in.readInt();
     final int shapeType = this.in.readLEInt();
     final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
     switch (shapeType) {
       case ShapefileConstants.NULL_SHAPE:
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE:
-          case ShapefileConstants.POINT_M_SHAPE:
-          case ShapefileConstants.POINT_Z_SHAPE:
-          case ShapefileConstants.POINT_ZM_SHAPE:
-          case ShapefileConstants.MULTI_POINT_SHAPE:
-          case ShapefileConstants.MULTI_POINT_M_SHAPE:
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-            return this.geometryFactory.point();
-
-          case ShapefileConstants.POLYLINE_SHAPE:
-          case ShapefileConstants.POLYLINE_M_SHAPE:
-          case ShapefileConstants.POLYLINE_Z_SHAPE:
-          case ShapefileConstants.POLYLINE_ZM_SHAPE:
-            return this.geometryFactory.lineString();
-
-          case ShapefileConstants.POLYGON_SHAPE:
-          case ShapefileConstants.POLYGON_M_SHAPE:
-          case ShapefileConstants.POLYGON_Z_SHAPE:
-          case ShapefileConstants.POLYGON_ZM_SHAPE:
-            return this.geometryFactory.polygon();
-          default:
-            throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
-        }
+        return newEmptyGeometry();
       case ShapefileConstants.POINT_SHAPE:
         return util.readPoint(this.geometryFactory, this.in, recordLength);
       case ShapefileConstants.POINT_M_SHAPE:
@@ -320,6 +547,97 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Read the geometry directly from the little endian view of the memory mapped file. The
+   * coordinates are read in bulk into the arrays used by the geometries.
+   */
+  @SuppressWarnings("unused")
+  private Geometry readGeometryMapped() throws IOException {
+    final EndianMappedByteBuffer in = (EndianMappedByteBuffer)this.in;
+    final ByteBuffer buffer = in.getLittleEndianBuffer();
+    final int recordStart = (int)in.getFilePointer();
+    if (buffer.limit() - recordStart < 12) {
+      throw new EndOfFileException();
+    }
+    buffer.position(recordStart);
+    final int recordNumber = Integer.reverseBytes(buffer.getInt());
+    final int recordLength = Integer.reverseBytes(buffer.getInt());
+    final int shapeType = buffer.getInt();
+    in.seek(recordStart + 8 + recordLength * 2L);
+    final ShapefileGeometryHandler handler = ShapefileGeometryHandler.SHP_INSTANCE;
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        return newEmptyGeometry();
+      case ShapefileConstants.POINT_SHAPE:
+        return handler.readPoint(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_M_SHAPE:
+        return handler.readPointM(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_Z_SHAPE:
+        return handler.readPointZ(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        return handler.readPointZM(this.geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+        return handler.readMultipoint(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+        return handler.readMultipointM(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+        return handler.readMultipointZ(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return handler.readMultipointZM(this.geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+        return handler.readPolyline(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+        return handler.readPolylineM(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+        return handler.readPolylineZ(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return handler.readPolylineZM(this.geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYGON_SHAPE:
+        return handler.readPolygon(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_M_SHAPE:
+        return handler.readPolygonM(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+        return handler.readPolygonZ(this.geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return handler.readPolygonZM(this.geometryFactory, buffer, recordLength);
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
+  /**
+   * Seek to the start of the record in the .shp file using the offset from the .shx file.
+   *
+   * @param recordIndex The index of the record.
+   */
+  private void seekRecord(final int recordIndex) throws IOException {
+    if (this.in instanceof EndianInputOutput) {
+      openIndex();
+      this.indexIn.seek(100 + 8L * recordIndex);
+      final long offset = (this.indexIn.readInt() & 0xFFFFFFFFL) * 2;
+      ((EndianInputOutput)this.in).seek(offset);
+    } else {
+      throw new IllegalStateException("Random access not supported for " + this.resource);
+    }
+  }
+
+  /**
+   * Only return records whose geometry bounding box intersects the bounding box. If the
+   * shapefile is a file the records are found using {@link ShapefileSpatialIndex}.
+   *
+   * @param boundingBox The bounding box.
+   */
+  public void setBoundingBox(final BoundingBox boundingBox) {
+    if (boundingBox == null || boundingBox.isEmpty()) {
+      this.boundingBox = null;
+    } else {
+      this.boundingBox = boundingBox;
+    }
+  }
+
   public void setCloseFile(final boolean closeFile) {
     this.closeFile = closeFile;
     if (this.xbaseRecordReader != null) {
@@ -327,17 +645,92 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Only read the values for the fields from the .dbf file, the other fields will be null. The
+   * geometry is always read.
+   *
+   * @param fieldNames The names of the fields to read, null to read all fields.
+   * @see XbaseRecordReader#setFieldNames(Collection)
+   */
+  public void setFieldNames(final Collection<String> fieldNames) {
+    this.fieldNames = fieldNames;
+  }
+
+  /**
+   * @see XbaseRecordReader#setInternStrings(boolean)
+   */
+  public void setInternStrings(final boolean internStrings) {
+    this.internStrings = internStrings;
+  }
+
+  /**
+   * Read the .shp file using a memory mapped buffer. The coordinates are read in bulk from the
+   * mapped buffer. Only used for files less than 2GB.
+   *
+   * @param memoryMapped True if the file should be memory mapped.
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
   public void setRecordDefinition(final RecordDefinition recordDefinition) {
     this.returnRecordDefinition = recordDefinition;
     ((RecordDefinitionImpl)recordDefinition).setPolygonRingDirection(ClockDirection.CLOCKWISE);
   }
 
+  /**
+   * Only read the records from fromIndex (inclusive) to toIndex (exclusive). The .shx file is used
+   * to seek to the first record. Must be called before the reader is opened.
+   *
+   * @param fromIndex The index of the first record to read.
+   * @param toIndex The index after the last record to read.
+   */
+  public void setRecordRange(final int fromIndex, final int toIndex) {
+    this.fromIndex = Math.max(0, fromIndex);
+    this.toIndex = toIndex;
+    this.position = this.fromIndex;
+  }
+
+  /**
+   * Return the same record instance from each call to next, for streaming pipelines that do not
+   * retain the records. The values of the record are replaced on each call to next.
+   *
+   * @param reuseRecord True if the record should be re-used.
+   */
+  public void setReuseRecord(final boolean reuseRecord) {
+    this.reuseRecord = reuseRecord;
+    if (this.xbaseRecordReader != null) {
+      this.xbaseRecordReader.setReuseRecord(reuseRecord);
+    }
+  }
+
   public void setTypeName(final PathName typeName) {
     if (Property.hasValue(typeName)) {
       this.typeName = typeName;
     }
   }
 
+  /**
+   * Return a {@link Spliterator} that uses the record offsets in the .shx file to split the
+   * shapefile into ranges of records that are read concurrently by separate readers when used in
+   * a parallel stream. The partition readers are closed when this reader is closed. This reader
+   * should not also be iterated.
+   */
+  @Override
+  public Spliterator<Record> spliterator() {
+    open();
+    if (this.in instanceof EndianInputOutput
+      && (this.xbaseRecordReader == null || this.xbaseRecordReader.isRandomAccess())) {
+      final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+      if (indexResource != null && indexResource.exists()) {
+        final int recordCount = (int)((indexResource.getFile().length() - 100) / 8);
+        final int toIndex = Math.min(this.toIndex, recordCount);
+        return new RecordRangeSpliterator(this::newPartitionReader, this.fromIndex, toIndex);
+      }
+    }
+    return super.spliterator();
+  }
+
   @Override
   public String toString() {
     return ShapefileConstants.DESCRIPTION + " " + this.resource;
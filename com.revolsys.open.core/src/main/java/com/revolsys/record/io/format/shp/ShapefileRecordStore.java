@@ -1,14 +1,30 @@
 package com.revolsys.record.io.format.shp;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
 
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.collection.iterator.FilterIterator;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.Buffers;
 import com.revolsys.io.FileUtil;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.xbase.XbaseRecordReader;
+import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
 import com.revolsys.record.schema.AbstractRecordStore;
 import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.spring.resource.PathResource;
 
 public class ShapefileRecordStore extends AbstractRecordStore {
   private ShapefileDirectoryWriter writer;
@@ -26,9 +42,105 @@ public class ShapefileRecordStore extends AbstractRecordStore {
     this.writer = null;
   }
 
+  /**
+   * Get the number of records matching the query. If the query has no where condition the count
+   * is calculated from the deleted flags in the .dbf file, or the length of the .shx file if there
+   * is no .dbf file. Otherwise the matching records are read and counted.
+   */
   @Override
   public int getRecordCount(final Query query) {
-    return 0;
+    final Condition whereCondition = query.getWhereCondition();
+    if (whereCondition == null || whereCondition.isEmpty()) {
+      final int count = getRecordCountFromHeader(query);
+      if (count >= 0) {
+        return count;
+      }
+    }
+    int count = 0;
+    try (
+      RecordReader reader = getRecords(query)) {
+      for (final Iterator<Record> iterator = reader.iterator(); iterator.hasNext(); iterator
+        .next()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of records in the shapefile without reading the records. The record count in
+   * the .dbf header and the length of the .shx file include deleted records, so if there is a
+   * .dbf file only the deleted flag of each record is read to count the records that aren't
+   * deleted.
+   *
+   * @return The number of records, or -1 if it can't be calculated.
+   */
+  private int getRecordCountFromHeader(final Query query) {
+    RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (recordDefinition == null) {
+      recordDefinition = getRecordDefinition(query.getTypeName());
+    }
+    if (recordDefinition != null) {
+      final File file = this.writer.getFile(recordDefinition);
+      if (file.exists()) {
+        this.writer.flush();
+        final File dbfFile = FileUtil.getFileWithExtension(file, "dbf");
+        if (dbfFile.exists()) {
+          return getRecordCountFromXbase(dbfFile);
+        }
+        final File indexFile = FileUtil.getFileWithExtension(file, "shx");
+        if (indexFile.exists()) {
+          return (int)((indexFile.length() - 100) / 8);
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Count the records in the .dbf file that aren't deleted, stopping at the end of file marker
+   * the same way as the {@link XbaseRecordReader}.
+   *
+   * @return The number of records, or -1 if the header can't be read.
+   */
+  private int getRecordCountFromXbase(final File dbfFile) {
+    try (
+      FileChannel channel = FileChannel.open(dbfFile.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+      if (Buffers.readAll(channel, header) != 12) {
+        return -1;
+      }
+      final int recordCount = header.getInt(4);
+      final int headerSize = header.getShort(8) & 0xFFFF;
+      final int recordSize = header.getShort(10) & 0xFFFF;
+      if (recordSize == 0) {
+        return -1;
+      }
+      channel.position(headerSize);
+      final ByteBuffer buffer = ByteBuffer
+        .allocate(Math.max(1, 65536 / recordSize) * recordSize);
+      int count = 0;
+      int index = 0;
+      while (index < recordCount) {
+        buffer.clear();
+        final int readCount = Buffers.readAll(channel, buffer);
+        if (readCount < 1) {
+          return count;
+        }
+        for (int offset = 0; offset < readCount && index < recordCount; offset += recordSize) {
+          final byte deleteFlag = buffer.get(offset);
+          if (deleteFlag == ' ') {
+            count++;
+          } else if (deleteFlag != '*') {
+            return count;
+          }
+          index++;
+        }
+      }
+      return count;
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to read " + dbfFile, e);
+    }
   }
 
   @Override
@@ -46,6 +158,48 @@ public class ShapefileRecordStore extends AbstractRecordStore {
     this.writer.write(record);
   }
 
+  /**
+   * Read the records from the shapefile for the query's type. If the query has a bounding box
+   * condition the records are found using the {@link ShapefileSpatialIndex}, any other conditions
+   * are applied as a filter.
+   */
+  @Override
+  public AbstractIterator<Record> newIterator(final Query query,
+    final Map<String, Object> properties) {
+    RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (recordDefinition == null) {
+      recordDefinition = getRecordDefinition(query.getTypeName());
+    }
+    if (recordDefinition == null) {
+      return null;
+    } else {
+      final File file = this.writer.getFile(recordDefinition);
+      if (file.exists()) {
+        this.writer.flush();
+        try {
+          final ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(file),
+            getRecordFactory());
+          if (properties != null) {
+            reader.setProperties(properties);
+          }
+          final BoundingBox boundingBox = QueryValue.getBoundingBox(query);
+          reader.setBoundingBox(boundingBox);
+          final Condition whereCondition = query.getWhereCondition();
+          if (whereCondition == null || whereCondition.isEmpty()) {
+            reader.setFieldNames(query.getFieldNames());
+            return reader;
+          } else {
+            return new FilterIterator<>(whereCondition, reader);
+          }
+        } catch (final IOException e) {
+          throw new RuntimeException("Unable to read " + file, e);
+        }
+      } else {
+        return null;
+      }
+    }
+  }
+
   @Override
   public Record newRecord(final RecordDefinition recordDefinition) {
     final String typePath = recordDefinition.getPath();
@@ -0,0 +1,534 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.index.strtree.StrTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.impl.BoundingBoxDoubleXY;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.endian.EndianMappedByteBuffer;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * <p>A packed Hilbert R-tree of the bounding boxes of the records in a shapefile. The index is
+ * built from the .shx offsets and the bounding box stored in each .shp record header and is
+ * written to a sidecar file ({@link #FILE_EXTENSION}) next to the .shp so that it can be re-used
+ * by later readers. If the sidecar cannot be written (e.g. a read-only directory) an in-memory
+ * {@link StrTree} is used instead.</p>
+ *
+ * <p>The sidecar is invalidated and re-built if the length or last modified time of the .shp
+ * file differ from the values recorded when the index was created.</p>
+ *
+ * <p>The sidecar file is big endian and has the following layout.</p>
+ *
+ * <pre>
+ * int    magic ('RSSX')
+ * int    version
+ * long   .shp file length
+ * long   .shp last modified
+ * int    node capacity
+ * int    level count
+ * int[]  entry count for each level (root level first)
+ * level entries (root level first)
+ *   double minX, minY, maxX, maxY
+ *   int    record index (leaf level only)
+ * </pre>
+ *
+ * <p>The children of entry i in a level are the entries [i * nodeCapacity, (i + 1) * nodeCapacity)
+ * in the next level.</p>
+ */
+public class ShapefileSpatialIndex implements BaseCloseable {
+  public static final String FILE_EXTENSION = "rssx";
+
+  private static final int MAGIC = 0x52535358;
+
+  private static final int VERSION = 1;
+
+  private static final int NODE_CAPACITY = 16;
+
+  private static final int NODE_SIZE = 32;
+
+  private static final int LEAF_SIZE = 36;
+
+  private static final int HILBERT_MAX = (1 << 16) - 1;
+
+  private static long hilbert(final int x, final int y) {
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int A = a | b >> 1;
+    int B = a >> 1 ^ a;
+    int C = c >> 1 ^ b & d >> 1 ^ c;
+    int D = a & c >> 1 ^ d >> 1 ^ d;
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    A = a & a >> 2 ^ b & b >> 2;
+    B = a & b >> 2 ^ b & (a ^ b) >> 2;
+    C ^= a & c >> 2 ^ b & d >> 2;
+    D ^= b & c >> 2 ^ (a ^ b) & d >> 2;
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    A = a & a >> 4 ^ b & b >> 4;
+    B = a & b >> 4 ^ b & (a ^ b) >> 4;
+    C ^= a & c >> 4 ^ b & d >> 4;
+    D ^= b & c >> 4 ^ (a ^ b) & d >> 4;
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    C ^= a & c >> 8 ^ b & d >> 8;
+    D ^= b & c >> 8 ^ (a ^ b) & d >> 8;
+
+    a = C ^ C >> 1;
+    b = D ^ D >> 1;
+
+    int i0 = x ^ y;
+    int i1 = b | 0xFFFF ^ (i0 | a);
+
+    i0 = (i0 | i0 << 8) & 0x00FF00FF;
+    i0 = (i0 | i0 << 4) & 0x0F0F0F0F;
+    i0 = (i0 | i0 << 2) & 0x33333333;
+    i0 = (i0 | i0 << 1) & 0x55555555;
+
+    i1 = (i1 | i1 << 8) & 0x00FF00FF;
+    i1 = (i1 | i1 << 4) & 0x0F0F0F0F;
+    i1 = (i1 | i1 << 2) & 0x33333333;
+    i1 = (i1 | i1 << 1) & 0x55555555;
+
+    return (i1 << 1 | i0) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Get the spatial index for the shapefile, building it if required.
+   *
+   * @param resource The .shp resource.
+   * @return The index or null if the shapefile is not a file or doesn't have a .shx file.
+   */
+  public static ShapefileSpatialIndex open(final Resource resource) {
+    if (resource.isFile()) {
+      final File shpFile = resource.getFile();
+      final File shxFile = FileUtil.getFileWithExtension(shpFile, "shx");
+      if (shxFile.exists()) {
+        final File indexFile = FileUtil.getFileWithExtension(shpFile, FILE_EXTENSION);
+        try {
+          final ShapefileSpatialIndex index = new ShapefileSpatialIndex(shpFile, shxFile,
+            indexFile);
+          index.init();
+          return index;
+        } catch (final IOException e) {
+          Logs.error(ShapefileSpatialIndex.class, "Unable to open spatial index for " + resource,
+            e);
+        }
+      }
+    }
+    return null;
+  }
+
+  private final File shpFile;
+
+  private final File shxFile;
+
+  private final File indexFile;
+
+  private EndianMappedByteBuffer in;
+
+  private int[] levelCounts;
+
+  private long[] levelOffsets;
+
+  private StrTree<Integer> strTree;
+
+  private ShapefileSpatialIndex(final File shpFile, final File shxFile, final File indexFile) {
+    this.shpFile = shpFile;
+    this.shxFile = shxFile;
+    this.indexFile = indexFile;
+  }
+
+  @Override
+  public synchronized void close() {
+    FileUtil.closeSilent(this.in);
+    this.in = null;
+    this.strTree = null;
+  }
+
+  private void init() throws IOException {
+    if (!openIndexFile()) {
+      final IndexBuilder builder = new IndexBuilder();
+      builder.read();
+      boolean written = false;
+      if (Files.isWritable(this.indexFile.getParentFile().toPath())) {
+        try {
+          builder.write();
+          written = openIndexFile();
+        } catch (final IOException e) {
+          Logs.debug(this, "Unable to write spatial index " + this.indexFile, e);
+        }
+      }
+      if (!written) {
+        this.strTree = builder.newStrTree();
+      }
+    }
+  }
+
+  private boolean openIndexFile() throws IOException {
+    if (this.indexFile.exists() && this.indexFile.length() <= Integer.MAX_VALUE) {
+      final EndianMappedByteBuffer in = new EndianMappedByteBuffer(this.indexFile,
+        MapMode.READ_ONLY);
+      try {
+        if (in.length() >= 32 && in.readInt() == MAGIC && in.readInt() == VERSION
+          && in.readLong() == this.shpFile.length() && in.readLong() == this.shpFile.lastModified()
+          && in.readInt() == NODE_CAPACITY) {
+          final int levelCount = in.readInt();
+          final int[] levelCounts = new int[levelCount];
+          final long[] levelOffsets = new long[levelCount];
+          long offset = 32 + 4 * levelCount;
+          for (int level = 0; level < levelCount; level++) {
+            final int count = in.readInt();
+            levelCounts[level] = count;
+            levelOffsets[level] = offset;
+            if (level == levelCount - 1) {
+              offset += (long)count * LEAF_SIZE;
+            } else {
+              offset += (long)count * NODE_SIZE;
+            }
+          }
+          if (offset == in.length()) {
+            this.in = in;
+            this.levelCounts = levelCounts;
+            this.levelOffsets = levelOffsets;
+            return true;
+          }
+        }
+      } catch (final IOException | RuntimeException e) {
+        Logs.debug(this, "Invalid spatial index " + this.indexFile, e);
+      }
+      in.close();
+    }
+    return false;
+  }
+
+  /**
+   * Get the indexes of the records whose bounding box intersects the bounding box.
+   *
+   * @param boundingBox The bounding box, in the coordinate system of the shapefile.
+   * @return The record indexes in ascending order.
+   */
+  public synchronized int[] query(final BoundingBox boundingBox) {
+    final double minX = boundingBox.getMinX();
+    final double minY = boundingBox.getMinY();
+    final double maxX = boundingBox.getMaxX();
+    final double maxY = boundingBox.getMaxY();
+    final RecordIndexes recordIndexes = new RecordIndexes();
+    if (this.strTree != null) {
+      this.strTree.query(boundingBox, recordIndexes::add);
+    } else if (this.in != null && this.levelCounts.length > 0) {
+      try {
+        query(0, 0, minX, minY, maxX, maxY, recordIndexes);
+      } catch (final IOException e) {
+        throw new RuntimeException("Error reading spatial index " + this.indexFile, e);
+      }
+    }
+    return recordIndexes.toSortedArray();
+  }
+
+  private void query(final int level, final int nodeIndex, final double minX, final double minY,
+    final double maxX, final double maxY, final RecordIndexes recordIndexes) throws IOException {
+    final int levelCount = this.levelCounts.length;
+    final boolean leaf = level == levelCount - 1;
+    final int entrySize = leaf ? LEAF_SIZE : NODE_SIZE;
+    final int count = this.levelCounts[level];
+    final int startIndex;
+    final int endIndex;
+    if (level == 0) {
+      startIndex = 0;
+      endIndex = count;
+    } else {
+      startIndex = nodeIndex * NODE_CAPACITY;
+      endIndex = Math.min(startIndex + NODE_CAPACITY, count);
+    }
+    final EndianMappedByteBuffer in = this.in;
+    for (int i = startIndex; i < endIndex; i++) {
+      in.seek(this.levelOffsets[level] + (long)i * entrySize);
+      final double entryMinX = in.readDouble();
+      final double entryMinY = in.readDouble();
+      final double entryMaxX = in.readDouble();
+      final double entryMaxY = in.readDouble();
+      if (entryMinX <= maxX && entryMaxX >= minX && entryMinY <= maxY && entryMaxY >= minY) {
+        if (leaf) {
+          recordIndexes.add(in.readInt());
+        } else {
+          query(level + 1, i, minX, minY, maxX, maxY, recordIndexes);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.indexFile.toString();
+  }
+
+  private class IndexBuilder {
+    private double[] bounds = new double[4 * 1024];
+
+    private int[] recordIndexes = new int[1024];
+
+    private int count = 0;
+
+    private void add(final int recordIndex, final double minX, final double minY,
+      final double maxX, final double maxY) {
+      if (this.count == this.recordIndexes.length) {
+        final int newLength = this.count + (this.count >> 1);
+        this.recordIndexes = Arrays.copyOf(this.recordIndexes, newLength);
+        this.bounds = Arrays.copyOf(this.bounds, newLength * 4);
+      }
+      this.recordIndexes[this.count] = recordIndex;
+      final int boundsIndex = this.count * 4;
+      this.bounds[boundsIndex] = minX;
+      this.bounds[boundsIndex + 1] = minY;
+      this.bounds[boundsIndex + 2] = maxX;
+      this.bounds[boundsIndex + 3] = maxY;
+      this.count++;
+    }
+
+    private StrTree<Integer> newStrTree() {
+      final StrTree<Integer> tree = new StrTree<>(NODE_CAPACITY);
+      for (int i = 0; i < this.count; i++) {
+        final int boundsIndex = i * 4;
+        final BoundingBox boundingBox = new BoundingBoxDoubleXY(this.bounds[boundsIndex],
+          this.bounds[boundsIndex + 1], this.bounds[boundsIndex + 2], this.bounds[boundsIndex + 3]);
+        tree.insertItem(boundingBox, this.recordIndexes[i]);
+      }
+      tree.build();
+      return tree;
+    }
+
+    /**
+     * Read the bounding box of each record using the offsets from the .shx file. Point records
+     * use the point coordinates, all other shape types have the bounding box at the start of the
+     * record content.
+     */
+    private void read() throws IOException {
+      final EndianMappedByteBuffer shxIn = new EndianMappedByteBuffer(
+        ShapefileSpatialIndex.this.shxFile, MapMode.READ_ONLY);
+      try (
+        FileChannel shpChannel = FileChannel.open(ShapefileSpatialIndex.this.shpFile.toPath(),
+          StandardOpenOption.READ)) {
+        final ByteBuffer buffer = ByteBuffer.allocate(36);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        final int recordCount = (int)((shxIn.length() - 100) / 8);
+        shxIn.seek(100);
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+          final long offset = (shxIn.readInt() & 0xFFFFFFFFL) * 2;
+          shxIn.readInt();
+          buffer.clear();
+          int readCount = 0;
+          while (buffer.hasRemaining()) {
+            final int read = shpChannel.read(buffer, offset + 8 + readCount);
+            if (read == -1) {
+              break;
+            }
+            readCount += read;
+          }
+          if (readCount >= 4) {
+            buffer.flip();
+            final int shapeType = buffer.getInt();
+            switch (shapeType) {
+              case ShapefileConstants.NULL_SHAPE:
+              break;
+              case ShapefileConstants.POINT_SHAPE:
+              case ShapefileConstants.POINT_M_SHAPE:
+              case ShapefileConstants.POINT_Z_SHAPE:
+              case ShapefileConstants.POINT_ZM_SHAPE:
+                if (readCount >= 20) {
+                  final double x = buffer.getDouble();
+                  final double y = buffer.getDouble();
+                  add(recordIndex, x, y, x, y);
+                }
+              break;
+              default:
+                if (readCount >= 36) {
+                  final double minX = buffer.getDouble();
+                  final double minY = buffer.getDouble();
+                  final double maxX = buffer.getDouble();
+                  final double maxY = buffer.getDouble();
+                  add(recordIndex, minX, minY, maxX, maxY);
+                }
+              break;
+            }
+          }
+        }
+      } finally {
+        shxIn.close();
+      }
+    }
+
+    /**
+     * Sort the entries by the hilbert value of their centre and write the levels of the packed
+     * tree to a temporary file which is then moved to the index file.
+     */
+    private void write() throws IOException {
+      final int count = this.count;
+      final double[] bounds = this.bounds;
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < count; i++) {
+        final int boundsIndex = i * 4;
+        minX = Math.min(minX, bounds[boundsIndex]);
+        minY = Math.min(minY, bounds[boundsIndex + 1]);
+        maxX = Math.max(maxX, bounds[boundsIndex + 2]);
+        maxY = Math.max(maxY, bounds[boundsIndex + 3]);
+      }
+      final double width = maxX - minX;
+      final double height = maxY - minY;
+      final long[] sortKeys = new long[count];
+      for (int i = 0; i < count; i++) {
+        final int boundsIndex = i * 4;
+        int hilbertX = 0;
+        int hilbertY = 0;
+        if (width > 0) {
+          final double centreX = (bounds[boundsIndex] + bounds[boundsIndex + 2]) / 2;
+          hilbertX = (int)Math.floor(HILBERT_MAX * (centreX - minX) / width);
+        }
+        if (height > 0) {
+          final double centreY = (bounds[boundsIndex + 1] + bounds[boundsIndex + 3]) / 2;
+          hilbertY = (int)Math.floor(HILBERT_MAX * (centreY - minY) / height);
+        }
+        sortKeys[i] = (hilbert(hilbertX, hilbertY) << 32 | i) ^ Long.MIN_VALUE;
+      }
+      Arrays.sort(sortKeys);
+
+      final int[] order = new int[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = (int)sortKeys[i];
+      }
+
+      int levelCount = 1;
+      for (int levelSize = count; levelSize > 1; levelSize = (levelSize + NODE_CAPACITY - 1)
+        / NODE_CAPACITY) {
+        levelCount++;
+      }
+      if (count <= 1) {
+        levelCount = 1;
+      }
+      final double[][] levelBounds = new double[levelCount][];
+      final int[] levelCounts = new int[levelCount];
+      final double[] leafBounds = new double[count * 4];
+      for (int i = 0; i < count; i++) {
+        System.arraycopy(bounds, order[i] * 4, leafBounds, i * 4, 4);
+      }
+      levelBounds[levelCount - 1] = leafBounds;
+      levelCounts[levelCount - 1] = count;
+      for (int level = levelCount - 2; level >= 0; level--) {
+        final int childCount = levelCounts[level + 1];
+        final double[] childBounds = levelBounds[level + 1];
+        final int nodeCount = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        final double[] nodeBounds = new double[nodeCount * 4];
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++) {
+          double nodeMinX = Double.POSITIVE_INFINITY;
+          double nodeMinY = Double.POSITIVE_INFINITY;
+          double nodeMaxX = Double.NEGATIVE_INFINITY;
+          double nodeMaxY = Double.NEGATIVE_INFINITY;
+          final int endIndex = Math.min((nodeIndex + 1) * NODE_CAPACITY, childCount);
+          for (int childIndex = nodeIndex * NODE_CAPACITY; childIndex < endIndex; childIndex++) {
+            final int boundsIndex = childIndex * 4;
+            nodeMinX = Math.min(nodeMinX, childBounds[boundsIndex]);
+            nodeMinY = Math.min(nodeMinY, childBounds[boundsIndex + 1]);
+            nodeMaxX = Math.max(nodeMaxX, childBounds[boundsIndex + 2]);
+            nodeMaxY = Math.max(nodeMaxY, childBounds[boundsIndex + 3]);
+          }
+          final int boundsIndex = nodeIndex * 4;
+          nodeBounds[boundsIndex] = nodeMinX;
+          nodeBounds[boundsIndex + 1] = nodeMinY;
+          nodeBounds[boundsIndex + 2] = nodeMaxX;
+          nodeBounds[boundsIndex + 3] = nodeMaxY;
+        }
+        levelBounds[level] = nodeBounds;
+        levelCounts[level] = nodeCount;
+      }
+
+      final File indexFile = ShapefileSpatialIndex.this.indexFile;
+      final Path tempPath = Files.createTempFile(indexFile.getParentFile().toPath(),
+        indexFile.getName(), ".tmp");
+      try {
+        try (
+          OutputStream fileOut = Files.newOutputStream(tempPath);
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536))) {
+          final File shpFile = ShapefileSpatialIndex.this.shpFile;
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeLong(shpFile.length());
+          out.writeLong(shpFile.lastModified());
+          out.writeInt(NODE_CAPACITY);
+          out.writeInt(levelCount);
+          for (final int levelSize : levelCounts) {
+            out.writeInt(levelSize);
+          }
+          for (int level = 0; level < levelCount; level++) {
+            final double[] entryBounds = levelBounds[level];
+            final boolean leaf = level == levelCount - 1;
+            for (int i = 0; i < levelCounts[level]; i++) {
+              final int boundsIndex = i * 4;
+              out.writeDouble(entryBounds[boundsIndex]);
+              out.writeDouble(entryBounds[boundsIndex + 1]);
+              out.writeDouble(entryBounds[boundsIndex + 2]);
+              out.writeDouble(entryBounds[boundsIndex + 3]);
+              if (leaf) {
+                out.writeInt(this.recordIndexes[order[i]]);
+              }
+            }
+          }
+        }
+        Files.move(tempPath, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tempPath);
+      }
+    }
+  }
+
+  private static class RecordIndexes {
+    private int[] values = new int[64];
+
+    private int size = 0;
+
+    private void add(final int value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    private int[] toSortedArray() {
+      final int[] values = Arrays.copyOf(this.values, this.size);
+      Arrays.sort(values);
+      return values;
+    }
+  }
+}
@@ -4,13 +4,22 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
@@ -23,11 +32,107 @@ import com.revolsys.io.Buffers;
 import com.revolsys.io.FileUtil;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordRangeSpliterator;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 
 public class XbaseRecordReader extends AbstractIterator<Record> implements RecordReader {
+  /**
+   * Dictionary of the strings read from a character field, keyed by the raw bytes of the field so
+   * that repeated values are returned as the same String instance without decoding the bytes.
+   */
+  private static final class StringDictionary {
+    private static final int MAX_SIZE = 4096;
+
+    private byte[][] keys = new byte[64][];
+
+    private int size;
+
+    private String[] values = new String[64];
+
+    private boolean equalsKey(final byte[] key, final ByteBuffer buffer, final int offset,
+      final int length) {
+      if (key.length == length) {
+        for (int i = 0; i < length; i++) {
+          if (key[i] != buffer.get(offset + i)) {
+            return false;
+          }
+        }
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    /**
+     * Get the string for the bytes, adding it to the dictionary if it doesn't exist.
+     *
+     * @return The string or null if the dictionary is full.
+     */
+    private String getString(final ByteBuffer buffer, final int offset, final int length,
+      final Charset charset) {
+      int hash = 1;
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + buffer.get(offset + i);
+      }
+      hash ^= hash >>> 16;
+      int mask = this.keys.length - 1;
+      int slot = hash & mask;
+      for (byte[] key = this.keys[slot]; key != null; key = this.keys[slot]) {
+        if (equalsKey(key, buffer, offset, length)) {
+          return this.values[slot];
+        }
+        slot = slot + 1 & mask;
+      }
+      if (this.size >= MAX_SIZE) {
+        return null;
+      } else {
+        final byte[] key = new byte[length];
+        for (int i = 0; i < length; i++) {
+          key[i] = buffer.get(offset + i);
+        }
+        final String value = new String(key, charset).trim();
+        if ((this.size + 1) * 2 > this.keys.length) {
+          resize();
+          mask = this.keys.length - 1;
+          slot = hash & mask;
+          while (this.keys[slot] != null) {
+            slot = slot + 1 & mask;
+          }
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        return value;
+      }
+    }
+
+    private void resize() {
+      final byte[][] oldKeys = this.keys;
+      final String[] oldValues = this.values;
+      this.keys = new byte[oldKeys.length * 2][];
+      this.values = new String[oldValues.length * 2];
+      final int mask = this.keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        final byte[] key = oldKeys[i];
+        if (key != null) {
+          int hash = 1;
+          for (final byte b : key) {
+            hash = 31 * hash + b;
+          }
+          hash ^= hash >>> 16;
+          int slot = hash & mask;
+          while (this.keys[slot] != null) {
+            slot = slot + 1 & mask;
+          }
+          this.keys[slot] = key;
+          this.values[slot] = oldValues[i];
+        }
+      }
+    }
+  }
+
   public static final char CHARACTER_TYPE = 'C';
 
   private static final Map<Character, DataType> DATA_TYPES = new HashMap<>();
@@ -59,14 +164,31 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private boolean closeFile = true;
 
-  private int currentDeletedCount = 0;
-
   private int deletedCount = 0;
 
+  private boolean[] fieldIncluded;
+
+  private int[] fieldLengths;
+
+  private Collection<String> fieldNames;
+
+  private int fromIndex = 0;
+
+  private short headerSize;
+
   private ReadableByteChannel in;
 
   private Runnable initCallback;
 
+  private boolean internStrings = false;
+
+  /**
+   * The reader that created this partition reader.
+   */
+  private XbaseRecordReader parentReader;
+
+  private final List<RecordReader> partitionReaders = new ArrayList<>();
+
   private int recordCount;
 
   private int position = 0;
@@ -81,6 +203,16 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private Resource resource;
 
+  private boolean reuseRecord = false;
+
+  private Record reusedRecord;
+
+  private StringDictionary[] stringDictionaries;
+
+  private byte[] stringBytes;
+
+  private int toIndex = Integer.MAX_VALUE;
+
   private PathName typeName;
 
   private final ByteBuffer buffer1 = ByteBuffer.allocate(1);
@@ -113,6 +245,21 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   @Override
   protected void closeDo() {
+    final List<RecordReader> partitionReaders;
+    synchronized (this.partitionReaders) {
+      partitionReaders = new ArrayList<>(this.partitionReaders);
+      this.partitionReaders.clear();
+    }
+    for (final RecordReader reader : partitionReaders) {
+      reader.close();
+    }
+    final XbaseRecordReader parentReader = this.parentReader;
+    if (parentReader != null) {
+      this.parentReader = null;
+      synchronized (parentReader.partitionReaders) {
+        parentReader.partitionReaders.remove(this);
+      }
+    }
     if (this.closeFile) {
       forceClose();
     }
@@ -126,10 +273,11 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.recordDefinition = null;
     this.recordBuffer = null;
     this.resource = null;
+    this.reusedRecord = null;
   }
 
-  private Boolean getBoolean() {
-    final char c = (char)this.recordBuffer.get();
+  private Boolean getBoolean(final int offset) {
+    final char c = (char)this.recordBuffer.get(offset);
     switch (c) {
       case 't':
       case 'T':
@@ -147,8 +295,35 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private Date getDate(final int len) {
-    final String dateString = getString(len);
+  private Date getDate(final int offset, final int length) {
+    if (length == 8) {
+      int year = 0;
+      int month = 0;
+      int day = 0;
+      boolean digits = true;
+      for (int i = 0; i < 8 && digits; i++) {
+        final int digit = this.recordBuffer.get(offset + i) - '0';
+        if (digit < 0 || digit > 9) {
+          digits = false;
+        } else if (i < 4) {
+          year = year * 10 + digit;
+        } else if (i < 6) {
+          month = month * 10 + digit;
+        } else {
+          day = day * 10 + digit;
+        }
+      }
+      if (digits) {
+        try {
+          return java.sql.Date.valueOf(LocalDate.of(year, month, day));
+        } catch (final DateTimeException e) {
+          // Fall back to the lenient date parsing used before the fast path
+          Logs.debug(this, "Invalid date '" + getString(offset, length) + "' in " + this.resource,
+            e);
+        }
+      }
+    }
+    final String dateString = getString(offset, length);
     if (dateString.trim().length() == 0 || dateString.equals("0")) {
       return null;
     } else {
@@ -182,10 +357,12 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   protected Record getNext() {
     try {
       Record record = null;
-      this.deletedCount = this.currentDeletedCount;
-      this.currentDeletedCount = 0;
+      this.deletedCount = 0;
       int deleteFlag = ' ';
       do {
+        if (this.position >= this.toIndex) {
+          throw new NoSuchElementException();
+        }
         this.recordBuffer.clear();
         final int readCount = Buffers.readAll(this.in, this.recordBuffer);
         if (readCount == -1) {
@@ -199,9 +376,10 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
           if (deleteFlag == -1) {
             throw new NoSuchElementException();
           } else if (deleteFlag == ' ') {
+            this.position++;
             record = loadRecord();
           } else if (deleteFlag != 0x1A) {
-            this.currentDeletedCount++;
+            this.deletedCount++;
             this.position++;
           }
         }
@@ -215,9 +393,62 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private BigDecimal getNumber(final int len) {
+  /**
+   * Decode the number directly from the bytes to an unscaled long value and scale. Numbers that
+   * are not simple decimals or have more than 18 digits are parsed using
+   * {@link BigDecimal#BigDecimal(String)}.
+   */
+  private BigDecimal getNumber(final int offset, final int length) {
+    long unscaledValue = 0;
+    int scale = -1;
+    int digitCount = 0;
+    boolean negative = false;
+    boolean started = false;
+    boolean ended = false;
+    boolean simple = true;
+    for (int i = 0; i < length && simple; i++) {
+      final byte b = this.recordBuffer.get(offset + i);
+      if (b == ' ' || b == '*' || b == 0) {
+        ended = started;
+      } else if (ended) {
+        simple = false;
+      } else if (b >= '0' && b <= '9') {
+        if (digitCount == 18) {
+          simple = false;
+        } else {
+          unscaledValue = unscaledValue * 10 + b - '0';
+          digitCount++;
+          if (scale >= 0) {
+            scale++;
+          }
+          started = true;
+        }
+      } else if (b == '.' && scale == -1) {
+        scale = 0;
+        started = true;
+      } else if ((b == '-' || b == '+') && !started) {
+        negative = b == '-';
+        started = true;
+      } else {
+        simple = false;
+      }
+    }
+    if (simple) {
+      if (digitCount > 0) {
+        if (negative) {
+          unscaledValue = -unscaledValue;
+        }
+        return BigDecimal.valueOf(unscaledValue, Math.max(scale, 0));
+      } else if (!started) {
+        return null;
+      }
+    }
+    return getNumberString(offset, length);
+  }
+
+  private BigDecimal getNumberString(final int offset, final int length) {
     BigDecimal number = null;
-    final String string = getString(len);
+    final String string = getString(offset, length);
     final String numberString = string.replace('*', ' ');
     if (numberString.trim().length() != 0) {
       try {
@@ -243,13 +474,31 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.recordDefinition;
   }
 
-  private String getString(final int len) {
-    final byte[] bytes = new byte[len];
-    this.recordBuffer.get(bytes, 0, len);
-    final String text = new String(bytes, this.charset);
+  private String getString(final int offset, final int length) {
+    byte[] bytes = this.stringBytes;
+    if (bytes == null || bytes.length < length) {
+      bytes = new byte[length];
+      this.stringBytes = bytes;
+    }
+    this.recordBuffer.position(offset);
+    this.recordBuffer.get(bytes, 0, length);
+    final String text = new String(bytes, 0, length, this.charset);
     return text.trim();
   }
 
+  private String getString(final int fieldIndex, final int offset, final int length) {
+    final StringDictionary dictionary = this.stringDictionaries[fieldIndex];
+    if (dictionary != null) {
+      final String value = dictionary.getString(this.recordBuffer, offset, length, this.charset);
+      if (value != null) {
+        return value;
+      } else {
+        this.stringDictionaries[fieldIndex] = null;
+      }
+    }
+    return getString(offset, length);
+  }
+
   public PathName getTypeName() {
     return this.typeName;
   }
@@ -257,7 +506,11 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   @Override
   protected void initDo() {
     try {
-      this.in = this.resource.newReadableByteChannel();
+      if (this.resource.isFile() && this.resource.exists()) {
+        this.in = FileChannel.open(this.resource.getFile().toPath(), StandardOpenOption.READ);
+      } else {
+        this.in = this.resource.newReadableByteChannel();
+      }
       if (this.in == null) {
         this.exists = false;
         close();
@@ -271,6 +524,15 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       }
       if (this.exists) {
         this.recordBuffer = ByteBuffer.allocateDirect(this.recordSize);
+        if (this.fromIndex > 0) {
+          if (this.in instanceof SeekableByteChannel) {
+            final SeekableByteChannel channel = (SeekableByteChannel)this.in;
+            channel.position(this.headerSize + (long)this.fromIndex * this.recordSize);
+            this.position = this.fromIndex;
+          } else {
+            throw new IllegalStateException("Random access not supported for " + this.resource);
+          }
+        }
       }
     } catch (final IOException e) {
       throw new RuntimeException("Error initializing mappedFile ", e);
@@ -281,6 +543,24 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.closeFile;
   }
 
+  public boolean isInternStrings() {
+    return this.internStrings;
+  }
+
+  /**
+   * Check if the file can be read using {@link #readRecord(int)}.
+   *
+   * @return True if random access is supported.
+   */
+  public boolean isRandomAccess() {
+    open();
+    return this.in instanceof SeekableByteChannel;
+  }
+
+  public boolean isReuseRecord() {
+    return this.reuseRecord;
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -297,7 +577,7 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       final int d = header.get();
       // properties.put(new QName("date"), new Date(y, m - 1, d));
       this.recordCount = header.getInt();
-      final short headerSize = header.getShort();
+      this.headerSize = header.getShort();
 
       this.recordSize = header.getShort();
     } else {
@@ -306,33 +586,45 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   protected Record loadRecord() throws IOException {
-    final Record record = this.recordFactory.newRecord(this.recordDefinition);
-    for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
-      int length = this.recordDefinition.getFieldLength(i);
-      final DataType type = this.recordDefinition.getFieldType(i);
-      Object value = null;
-
-      if (type == DataTypes.STRING) {
-        if (length < 255) {
-          value = getString(length);
-        } else {
-          value = getMemo(length);
-          length = 10;
+    final Record record;
+    if (this.reuseRecord) {
+      if (this.reusedRecord == null) {
+        this.reusedRecord = this.recordFactory.newRecord(this.recordDefinition);
+      }
+      record = this.reusedRecord;
+    } else {
+      record = this.recordFactory.newRecord(this.recordDefinition);
+    }
+    int offset = 1;
+    for (int i = 0; i < this.fieldLengths.length; i++) {
+      final int length = this.fieldLengths[i];
+      if (this.fieldIncluded == null || this.fieldIncluded[i]) {
+        final DataType type = this.recordDefinition.getFieldType(i);
+        Object value = null;
+
+        if (type == DataTypes.STRING) {
+          if (this.recordDefinition.getFieldLength(i) < 255) {
+            value = getString(i, offset, length);
+          } else {
+            value = getMemo(length);
+          }
+        } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
+          value = getNumber(offset, length);
+        } else if (type == DataTypes.BOOLEAN) {
+          value = getBoolean(offset);
+        } else if (type == DataTypes.DATE_TIME) {
+          value = getDate(offset, length);
         }
-      } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
-        value = getNumber(length);
-      } else if (type == DataTypes.BOOLEAN) {
-        value = getBoolean();
-      } else if (type == DataTypes.DATE_TIME) {
-        value = getDate(length);
+        record.setValue(i, value);
       }
-      record.setValue(i, value);
+      offset += length;
     }
     return record;
   }
 
   private void readRecordDefinition() throws IOException {
     this.recordDefinition = new RecordDefinitionImpl(this.typeName);
+    final List<Integer> fieldLengths = new ArrayList<>();
     if (this.exists) {
       int readCount = Buffers.readAll(this.in, this.buffer1);
       if (readCount == -1) {
@@ -370,12 +662,89 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
         }
         b = this.buffer1.get();
         final DataType dataType = DATA_TYPES.get(fieldType);
+        fieldLengths.add(length);
         if (fieldType == MEMO_TYPE) {
           length = Integer.MAX_VALUE;
         }
         this.recordDefinition.addField(fieldName.toString(), dataType, length, decimalCount, false);
       }
     }
+    final int fieldCount = fieldLengths.size();
+    this.fieldLengths = new int[fieldCount];
+    this.stringDictionaries = new StringDictionary[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      this.fieldLengths[i] = fieldLengths.get(i);
+      if (this.internStrings && this.recordDefinition.getFieldType(i) == DataTypes.STRING) {
+        this.stringDictionaries[i] = new StringDictionary();
+      }
+    }
+    if (this.fieldNames != null) {
+      this.fieldIncluded = new boolean[fieldCount];
+      for (final String fieldName : this.fieldNames) {
+        final int fieldIndex = this.recordDefinition.getFieldIndex(fieldName);
+        if (fieldIndex >= 0) {
+          this.fieldIncluded[fieldIndex] = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the record at the index (including deleted records) from the file. This changes the
+   * position of the file, so it should not be mixed with iteration of the reader.
+   *
+   * @param index The index of the record.
+   * @return The record or null if the record was deleted or the index is past the end of file.
+   */
+  public Record readRecord(final int index) {
+    open();
+    if (this.in instanceof SeekableByteChannel) {
+      if (index < 0 || index >= this.recordCount) {
+        return null;
+      } else {
+        try {
+          final SeekableByteChannel channel = (SeekableByteChannel)this.in;
+          channel.position(this.headerSize + (long)index * this.recordSize);
+          this.recordBuffer.clear();
+          final int readCount = Buffers.readAll(channel, this.recordBuffer);
+          if (readCount != this.recordSize) {
+            return null;
+          } else {
+            final int deleteFlag = this.recordBuffer.get();
+            if (deleteFlag == ' ') {
+              this.position = index + 1;
+              return loadRecord();
+            } else {
+              return null;
+            }
+          }
+        } catch (final IOException e) {
+          throw new RuntimeException("Error reading record " + index + " from " + this.resource,
+            e);
+        }
+      }
+    } else {
+      throw new IllegalStateException("Random access not supported for " + this.resource);
+    }
+  }
+
+  private RecordReader newPartitionReader(final int fromIndex, final int toIndex) {
+    try {
+      final XbaseRecordReader reader = new XbaseRecordReader(this.resource, this.recordFactory);
+      reader.setProperties(getProperties());
+      reader.setTypeName(this.typeName);
+      reader.setReuseRecord(this.reuseRecord);
+      reader.setFieldNames(this.fieldNames);
+      reader.setInternStrings(this.internStrings);
+      reader.setRecordRange(fromIndex, toIndex);
+      reader.parentReader = this;
+      synchronized (this.partitionReaders) {
+        this.partitionReaders.add(reader);
+      }
+      return reader;
+    } catch (final IOException e) {
+      throw new RuntimeException("Error opening " + this.resource, e);
+    }
   }
 
   @Override
@@ -387,10 +756,73 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.closeFile = closeFile;
   }
 
+  /**
+   * Only read the values for the fields, the bytes for the other fields are skipped and their
+   * values will be null. The record definition still contains all the fields. Must be called
+   * before the reader is opened.
+   *
+   * @param fieldNames The names of the fields to read, null to read all fields.
+   */
+  public void setFieldNames(final Collection<String> fieldNames) {
+    if (fieldNames == null || fieldNames.isEmpty() || fieldNames.contains("*")) {
+      this.fieldNames = null;
+    } else {
+      this.fieldNames = new ArrayList<>(fieldNames);
+    }
+  }
+
+  /**
+   * Use a dictionary of the values for each character field so that repeated values share the
+   * same String instance and the bytes are only decoded once. Fields with more than 4096 distinct
+   * values stop using the dictionary. Must be called before the reader is opened.
+   *
+   * @param internStrings True if the string values should be shared.
+   */
+  public void setInternStrings(final boolean internStrings) {
+    this.internStrings = internStrings;
+  }
+
+  /**
+   * Only read the records from fromIndex (inclusive) to toIndex (exclusive). The record indexes
+   * include deleted records. Must be called before the reader is opened.
+   *
+   * @param fromIndex The index of the first record to read.
+   * @param toIndex The index after the last record to read.
+   */
+  public void setRecordRange(final int fromIndex, final int toIndex) {
+    this.fromIndex = Math.max(0, fromIndex);
+    this.toIndex = toIndex;
+  }
+
+  /**
+   * Return the same record instance from each call to next, for streaming pipelines that do not
+   * retain the records. All the values of the record are replaced on each call to next.
+   *
+   * @param reuseRecord True if the record should be re-used.
+   */
+  public void setReuseRecord(final boolean reuseRecord) {
+    this.reuseRecord = reuseRecord;
+  }
+
   public void setTypeName(final PathName typeName) {
     this.typeName = typeName;
   }
 
+  /**
+   * Return a {@link Spliterator} that splits the records of a file into ranges that are read
+   * concurrently by separate readers when used in a parallel stream. The partition readers are
+   * closed when this reader is closed. This reader should not also be iterated.
+   */
+  @Override
+  public Spliterator<Record> spliterator() {
+    if (isRandomAccess()) {
+      final int toIndex = Math.min(this.toIndex, this.recordCount);
+      return new RecordRangeSpliterator(this::newPartitionReader, this.fromIndex, toIndex);
+    } else {
+      return super.spliterator();
+    }
+  }
+
   @Override
   public String toString() {
     if (this.resource == null) {
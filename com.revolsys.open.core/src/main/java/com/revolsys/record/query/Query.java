@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -156,6 +155,8 @@ public class Query extends BaseObjectWithProperties
 
   private RecordFactory<Record> recordFactory;
 
+  private int fetchSize = 0;
+
   private List<String> fieldNames = new ArrayList<>();
 
   private String fromClause;
@@ -302,7 +303,7 @@ public class Query extends BaseObjectWithProperties
     final Query clone = (Query)super.clone();
     clone.fieldNames = new ArrayList<>(clone.fieldNames);
     clone.parameters = new ArrayList<>(this.parameters);
-    clone.orderBy = new HashMap<>(this.orderBy);
+    clone.orderBy = new LinkedHashMap<>(this.orderBy);
     if (this.whereCondition != null) {
       clone.whereCondition = this.whereCondition.clone();
     }
@@ -340,6 +341,16 @@ public class Query extends BaseObjectWithProperties
     return this.cancellable;
   }
 
+  /**
+   * Get the number of rows to fetch from the database in each round trip. 0 uses the record
+   * store's fetch size.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   @Override
   public List<String> getFieldNames() {
     return this.fieldNames;
@@ -447,6 +458,15 @@ public class Query extends BaseObjectWithProperties
     return this;
   }
 
+  public Query setFetchSize(final int fetchSize) {
+    if (fetchSize < 0) {
+      this.fetchSize = 0;
+    } else {
+      this.fetchSize = fetchSize;
+    }
+    return this;
+  }
+
   public Query setFieldNames(final List<String> fieldNames) {
     this.fieldNames = Lists.toArray(fieldNames);
     return this;
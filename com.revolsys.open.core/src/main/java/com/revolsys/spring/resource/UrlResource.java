@@ -23,6 +23,7 @@ import org.springframework.util.StringUtils;
 
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.HttpBlockCache;
 import com.revolsys.io.channels.HttpChannelReader;
 import com.revolsys.io.channels.HttpSeekableByteChannel;
 import com.revolsys.io.file.Paths;
@@ -37,6 +38,11 @@ public class UrlResource extends AbstractResource {
    */
   private final URL cleanedUrl;
 
+  /**
+   * Cache of the blocks read using HTTP range requests, shared by the channels for this resource.
+   */
+  private HttpBlockCache httpBlockCache;
+
   /**
    * Original URI, if available; used for URI and File access.
    */
@@ -332,6 +338,15 @@ public class UrlResource extends AbstractResource {
     return UrlUtil.getFileName(this.url);
   }
 
+  public synchronized HttpBlockCache getHttpBlockCache() {
+    if (this.httpBlockCache == null) {
+      final URL url = this.url;
+      this.httpBlockCache = new HttpBlockCache(url, HttpBlockCache.DEFAULT_BLOCK_SIZE,
+        HttpBlockCache.DEFAULT_MAX_BLOCK_COUNT, connection -> setAuthorization(url, connection));
+    }
+    return this.httpBlockCache;
+  }
+
   /**
    * This implementation opens an InputStream for the given URL.
    * It sets the "UseCaches" flag to {@code false},
@@ -502,7 +517,7 @@ public class UrlResource extends AbstractResource {
   @Override
   public ChannelReader newChannelReader(final ByteBuffer byteBuffer) {
     if (getProtocol().startsWith("http")) {
-      return new HttpChannelReader(this.url);
+      return new HttpChannelReader(getHttpBlockCache(), byteBuffer);
     } else {
       return super.newChannelReader(byteBuffer);
     }
@@ -516,7 +531,7 @@ public class UrlResource extends AbstractResource {
   @Override
   public ReadableByteChannel newReadableByteChannel() {
     if (getProtocol().startsWith("http")) {
-      return new HttpSeekableByteChannel(this.url);
+      return new HttpSeekableByteChannel(getHttpBlockCache());
     } else {
       return super.newReadableByteChannel();
     }
@@ -0,0 +1,71 @@
+package com.revolsys.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter for counts updated by many threads. The count is held in a {@link LongAdder} so
+ * updates don't contend on a single value. Use {@link #increment(long)} when the new total is not
+ * required as the add methods must sum the cells to return the total.
+ */
+public class LongAdderCounter implements Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  private final String name;
+
+  public LongAdderCounter(final String name) {
+    this.name = name;
+  }
+
+  public LongAdderCounter(final String name, final Number count) {
+    this.name = name;
+    increment(count.longValue());
+  }
+
+  @Override
+  public long add() {
+    return add(1L);
+  }
+
+  @Override
+  public long add(final long count) {
+    this.count.add(count);
+    return this.count.sum();
+  }
+
+  @Override
+  public long add(final Number count) {
+    return add(count.longValue());
+  }
+
+  @Override
+  public long decrement() {
+    return add(-1L);
+  }
+
+  @Override
+  public long get() {
+    return this.count.sum();
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  public void increment(final long count) {
+    this.count.add(count);
+  }
+
+  /**
+   * Reset the count to 0. Counts added while the count is being reset may be kept.
+   */
+  public void reset() {
+    this.count.reset();
+  }
+
+  @Override
+  public String toString() {
+    return this.name + "=" + get();
+  }
+}
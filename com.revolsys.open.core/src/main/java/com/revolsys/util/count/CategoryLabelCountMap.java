@@ -10,6 +10,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -34,7 +36,10 @@ public class CategoryLabelCountMap implements Emptyable {
 
   private int providerCount = 0;
 
-  private final Map<String, LabelCounters> labelCountMapByCategory = new TreeMap<>();
+  private final Map<String, LabelCounters> labelCountMapByCategory = new ConcurrentSkipListMap<>();
+
+  /** Cache of the label counts by the category without the prefix. */
+  private final Map<String, LabelCounters> labelCountMapByName = new ConcurrentHashMap<>();
 
   public CategoryLabelCountMap() {
   }
@@ -92,8 +97,9 @@ public class CategoryLabelCountMap implements Emptyable {
     }
   }
 
-  public void clear() {
+  public synchronized void clear() {
     this.labelCountMapByCategory.clear();
+    this.labelCountMapByName.clear();
   }
 
   public void clearCounts(final CharSequence category) {
@@ -131,27 +137,53 @@ public class CategoryLabelCountMap implements Emptyable {
     }
   }
 
+  /**
+   * Get a snapshot of the current counts for each category.
+   *
+   * @return The map from category to the counts by label.
+   */
+  public Map<String, Map<String, Long>> getCounts() {
+    final Map<String, Map<String, Long>> counts = new TreeMap<>();
+    for (final Entry<String, LabelCounters> entry : this.labelCountMapByCategory.entrySet()) {
+      final String category = entry.getKey();
+      final LabelCounters labelCountMap = entry.getValue();
+      counts.put(category, labelCountMap.getCounts());
+    }
+    return counts;
+  }
+
   public synchronized String getCountsText() {
     final StringBuilder sb = new StringBuilder();
     addCountsText(sb);
     return sb.toString();
   }
 
-  public synchronized LabelCounters getLabelCountMap(final CharSequence category) {
+  public LabelCounters getLabelCountMap(final CharSequence category) {
     if (category == null) {
       return null;
     } else {
-      final String categoryString = Strings.toString(" ", this.prefix, category);
-      LabelCounters labelCountMap = this.labelCountMapByCategory.get(categoryString);
+      final String name = category.toString();
+      final LabelCounters labelCountMap = this.labelCountMapByName.get(name);
       if (labelCountMap == null) {
-        labelCountMap = new LabelCountMap(categoryString);
-        labelCountMap.setLogCounts(this.logCounts);
-        this.labelCountMapByCategory.put(categoryString, labelCountMap);
+        return getLabelCountMapDo(name);
+      } else {
+        return labelCountMap;
       }
-      return labelCountMap;
     }
   }
 
+  private synchronized LabelCounters getLabelCountMapDo(final String name) {
+    final String categoryString = Strings.toString(" ", this.prefix, name);
+    LabelCounters labelCountMap = this.labelCountMapByCategory.get(categoryString);
+    if (labelCountMap == null) {
+      labelCountMap = new LabelCountMap(categoryString);
+      labelCountMap.setLogCounts(this.logCounts);
+      this.labelCountMapByCategory.put(categoryString, labelCountMap);
+    }
+    this.labelCountMapByName.put(name, labelCountMap);
+    return labelCountMap;
+  }
+
   public String getLabelTitle() {
     return this.labelTitle;
   }
@@ -171,6 +203,7 @@ public class CategoryLabelCountMap implements Emptyable {
       final String categoryName = Strings.toString(" ", this.prefix, category);
       labelCountMap.setLogCounts(this.logCounts);
       this.labelCountMapByCategory.put(categoryName, labelCountMap);
+      this.labelCountMapByName.remove(category.toString());
     }
   }
 
@@ -186,8 +219,9 @@ public class CategoryLabelCountMap implements Emptyable {
     }
   }
 
-  public void setPrefix(final String prefix) {
+  public synchronized void setPrefix(final String prefix) {
     this.prefix = prefix;
+    this.labelCountMapByName.clear();
   }
 
   public String toTsv() {
@@ -3,13 +3,32 @@ package com.revolsys.util.count;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.jeometry.common.io.PathNameProxy;
+
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
 import com.revolsys.util.Counter;
-import com.revolsys.util.LongCounter;
+import com.revolsys.util.LongAdderCounter;
 
+/**
+ * Counts by label that can be updated concurrently by many threads without locking. The counts
+ * for records are cached by record definition so that the label isn't looked up for each record.
+ */
 public class LabelCountMap extends AbstractLabelCounters {
-  private final Map<String, Counter> counterByLabel = new TreeMap<>();
+  private static void increment(final Counter counter, final long count) {
+    if (counter instanceof LongAdderCounter) {
+      ((LongAdderCounter)counter).increment(count);
+    } else {
+      counter.add(count);
+    }
+  }
+
+  private final Map<String, Counter> counterByLabel = new ConcurrentSkipListMap<>();
+
+  private final Map<RecordDefinition, LongAdderCounter> counterByRecordDefinition = new ConcurrentHashMap<>();
 
   public LabelCountMap() {
     this(null);
@@ -20,35 +39,69 @@ public class LabelCountMap extends AbstractLabelCounters {
   }
 
   @Override
-  public synchronized boolean addCount(final CharSequence label, final long count) {
+  public boolean addCount(final CharSequence label, final long count) {
     if (label == null) {
       return false;
     } else {
       final String labelString = label.toString();
       Counter counter = this.counterByLabel.get(labelString);
       if (counter == null) {
-        counter = new LongCounter(labelString, count);
-        this.counterByLabel.put(labelString, counter);
-        return true;
-      } else {
-        counter.add(count);
-        return false;
+        final Counter newCounter = new LongAdderCounter(labelString, count);
+        counter = this.counterByLabel.putIfAbsent(labelString, newCounter);
+        if (counter == null) {
+          return true;
+        }
+      }
+      increment(counter, count);
+      return false;
+    }
+  }
+
+  @Override
+  public void addCount(final PathNameProxy pathNameProxy) {
+    addCount(pathNameProxy, 1);
+  }
+
+  @Override
+  public void addCount(final PathNameProxy pathNameProxy, final long count) {
+    if (pathNameProxy instanceof RecordDefinitionProxy) {
+      final RecordDefinition recordDefinition = ((RecordDefinitionProxy)pathNameProxy)
+        .getRecordDefinition();
+      if (recordDefinition != null) {
+        final LongAdderCounter counter = this.counterByRecordDefinition.get(recordDefinition);
+        if (counter == null) {
+          final CharSequence label = pathNameProxy.getPathName();
+          addCount(label, count);
+          if (label != null) {
+            final Counter labelCounter = this.counterByLabel.get(label.toString());
+            if (labelCounter instanceof LongAdderCounter) {
+              this.counterByRecordDefinition.put(recordDefinition,
+                (LongAdderCounter)labelCounter);
+            }
+          }
+        } else {
+          counter.increment(count);
+        }
+        return;
       }
     }
+    if (pathNameProxy != null) {
+      final CharSequence label = pathNameProxy.getPathName();
+      addCount(label, count);
+    }
   }
 
   @Override
-  public synchronized void addCountsText(final StringBuilder sb) {
-    int totalCount = 0;
+  public void addCountsText(final StringBuilder sb) {
+    long totalCount = 0;
     if (this.message != null) {
       sb.append(this.message);
     }
     sb.append("\n");
-    for (final Entry<String, Counter> entry : this.counterByLabel.entrySet()) {
+    for (final Entry<String, Long> entry : getCounts().entrySet()) {
       sb.append(entry.getKey());
       sb.append("\t");
-      final Counter counter = entry.getValue();
-      final long count = counter.get();
+      final long count = entry.getValue();
       totalCount += count;
       sb.append(count);
       sb.append("\n");
@@ -59,21 +112,38 @@ public class LabelCountMap extends AbstractLabelCounters {
     sb.append("\n");
   }
 
+  /**
+   * Reset the counts to 0 in place so that threads holding a counter, or the counter cached for a
+   * record definition, continue to count into this map. The labels are kept with a count of 0.
+   * Counts added while the counts are being reset may be kept.
+   */
   @Override
-  public synchronized void clearCounts() {
-    this.counterByLabel.clear();
+  public void clearCounts() {
+    for (final Entry<String, Counter> entry : this.counterByLabel.entrySet()) {
+      final Counter counter = entry.getValue();
+      if (counter instanceof LongAdderCounter) {
+        ((LongAdderCounter)counter).reset();
+      } else {
+        this.counterByLabel.remove(entry.getKey(), counter);
+      }
+    }
   }
 
   @Override
-  public synchronized void clearCounts(final String label) {
+  public void clearCounts(final String label) {
     if (label != null) {
       final String labelString = label.toString();
-      this.counterByLabel.remove(labelString);
+      final Counter counter = this.counterByLabel.get(labelString);
+      if (counter instanceof LongAdderCounter) {
+        ((LongAdderCounter)counter).reset();
+      } else if (counter != null) {
+        this.counterByLabel.remove(labelString, counter);
+      }
     }
   }
 
   @Override
-  public synchronized Long getCount(final CharSequence label) {
+  public Long getCount(final CharSequence label) {
     if (label != null) {
       final String labelString = label.toString();
       final Counter counter = this.counterByLabel.get(labelString);
@@ -85,22 +155,27 @@ public class LabelCountMap extends AbstractLabelCounters {
   }
 
   @Override
-  public synchronized Counter getCounter(final CharSequence label) {
+  public Counter getCounter(final CharSequence label) {
     if (label == null) {
       return null;
     } else {
       final String labelString = label.toString();
-      Counter counter = this.counterByLabel.get(labelString);
+      final Counter counter = this.counterByLabel.get(labelString);
       if (counter == null) {
-        counter = new LongCounter(labelString);
-        this.counterByLabel.put(labelString, counter);
+        final Counter newCounter = new LongAdderCounter(labelString);
+        final Counter existingCounter = this.counterByLabel.putIfAbsent(labelString, newCounter);
+        if (existingCounter == null) {
+          return newCounter;
+        } else {
+          return existingCounter;
+        }
       }
       return counter;
     }
   }
 
   @Override
-  public synchronized Set<String> getLabels() {
+  public Set<String> getLabels() {
     return this.counterByLabel.keySet();
   }
 
@@ -110,8 +185,9 @@ public class LabelCountMap extends AbstractLabelCounters {
   }
 
   @Override
-  public synchronized void setCounter(final CharSequence label, final Counter counter) {
+  public void setCounter(final CharSequence label, final Counter counter) {
     final String labelString = label.toString();
     this.counterByLabel.put(labelString, counter);
+    this.counterByRecordDefinition.clear();
   }
 }
@@ -3,7 +3,9 @@ package com.revolsys.util.count;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.jeometry.common.data.type.DataTypes;
 import org.jeometry.common.io.PathNameProxy;
@@ -62,6 +64,22 @@ public interface LabelCounters {
 
   Counter getCounter(CharSequence label);
 
+  /**
+   * Get a snapshot of the current counts sorted by label.
+   *
+   * @return The counts.
+   */
+  default Map<String, Long> getCounts() {
+    final Map<String, Long> counts = new TreeMap<>();
+    for (final String label : getLabels()) {
+      final Long count = getCount(label);
+      if (count != null) {
+        counts.put(label, count);
+      }
+    }
+    return counts;
+  }
+
   Set<String> getLabels();
 
   String getMessage();
@@ -0,0 +1,123 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.file.Paths;
+
+/**
+ * A read only memory mapped file. Files larger than the maximum size of a mapped buffer are mapped
+ * as a number of segments. Each segment overlaps the next by the maximum size of a block that will
+ * be read so that any block starting in a segment can be read from that segment.
+ */
+class FileGdbMappedFile implements BaseCloseable {
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private FileChannel channel;
+
+  private final Path path;
+
+  private MappedByteBuffer[] segments;
+
+  private final long size;
+
+  public FileGdbMappedFile(final Path path, final int maxBlockSize) {
+    this.path = path;
+    try {
+      this.channel = FileChannel.open(path, Paths.OPEN_OPTIONS_READ_SET,
+        Paths.FILE_ATTRIBUTES_NONE);
+      this.size = this.channel.size();
+      final int segmentCount = (int)Math.max(1, (this.size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+      this.segments = new MappedByteBuffer[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        final long position = i * SEGMENT_SIZE;
+        final long length = Math.min(this.size - position, SEGMENT_SIZE + maxBlockSize);
+        final MappedByteBuffer segment = this.channel.map(MapMode.READ_ONLY, position, length);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        this.segments[i] = segment;
+      }
+    } catch (final IOException e) {
+      close();
+      throw Exceptions.wrap("Unable to open: " + path, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.segments = null;
+    final FileChannel channel = this.channel;
+    this.channel = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (final IOException e) {
+      }
+    }
+  }
+
+  /**
+   * Get a little endian buffer positioned at the start of the block. The buffer is not shared so
+   * it can be used by a single thread without synchronization.
+   *
+   * @param position The position of the block in the file.
+   * @param length The length of the block.
+   * @return The buffer.
+   */
+  public ByteBuffer getBuffer(final long position, final int length) {
+    final MappedByteBuffer[] segments = this.segments;
+    if (segments == null) {
+      throw new IllegalStateException("File closed: " + this.path);
+    } else if (position < 0 || position + length > this.size) {
+      throw new IllegalArgumentException("Block " + position + "+" + length
+        + " is outside the file " + this.path + " size " + this.size);
+    }
+    final int segmentIndex = (int)(position / SEGMENT_SIZE);
+    final ByteBuffer buffer = segments[segmentIndex].duplicate();
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final int offset = (int)(position - segmentIndex * SEGMENT_SIZE);
+    buffer.limit(offset + length);
+    buffer.position(offset);
+    return buffer;
+  }
+
+  public int getInt(final long position) {
+    return getBuffer(position, 4).getInt();
+  }
+
+  public Path getPath() {
+    return this.path;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  /**
+   * Read an unsigned little endian integer of 1 to 8 bytes.
+   *
+   * @param position The position in the file.
+   * @param byteCount The number of bytes.
+   * @return The value.
+   */
+  public long getUnsigned(final long position, final int byteCount) {
+    final ByteBuffer buffer = getBuffer(position, byteCount);
+    long value = 0;
+    for (int i = 0; i < byteCount; i++) {
+      value |= (buffer.get() & 0xffL) << i * 8;
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return this.path.toString();
+  }
+}
@@ -0,0 +1,465 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.io.PathName;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.record.schema.RecordStoreSchema;
+import com.revolsys.util.Property;
+
+/**
+ * A read only table in the OpenFileGDB format. The rows are read from the memory mapped .gdbtable
+ * file using the row offsets from the .gdbtablx index file. The table can be read concurrently by
+ * multiple threads as each read uses its own view of the mapped file.
+ */
+public class FileGdbTable implements BaseCloseable {
+  private static final int INDEX_HEADER_SIZE = 16;
+
+  private static final int ROWS_PER_BLOCK = 1024;
+
+  private static final int TABLE_HEADER_SIZE = 40;
+
+  /**
+   * Check if the .gdbtable and .gdbtablx files exist for the table.
+   *
+   * @param tablePath The .gdbtable file.
+   * @return True if both files exist.
+   */
+  public static boolean exists(final Path tablePath) {
+    return Files.exists(tablePath) && Files.exists(getIndexPath(tablePath));
+  }
+
+  /**
+   * Get the path of the .gdbtablx index file for a .gdbtable file.
+   *
+   * @param tablePath The .gdbtable file.
+   * @return The index file.
+   */
+  public static Path getIndexPath(final Path tablePath) {
+    final String fileName = tablePath.getFileName().toString();
+    return tablePath.resolveSibling(fileName.substring(0, fileName.length() - 1) + "x");
+  }
+
+  private static ByteBuffer order(final ByteBuffer buffer) {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  private int[] blockMap;
+
+  private boolean closed = false;
+
+  private int connectionCount = 0;
+
+  private final List<FileGdbTableField> fields = new ArrayList<>();
+
+  private FileGdbTableGeometryField geometryField;
+
+  private FileGdbMappedFile indexFile;
+
+  private final int maxBlockSize;
+
+  private int nullableFieldCount;
+
+  private int offsetSize;
+
+  private final RecordDefinitionImpl recordDefinition;
+
+  private int rowCount;
+
+  private FileGdbMappedFile tableFile;
+
+  private final Path tablePath;
+
+  private int validRowCount;
+
+  public FileGdbTable(final RecordStoreSchema schema, final PathName pathName,
+    final Path tablePath) {
+    this.recordDefinition = new RecordDefinitionImpl(schema, pathName);
+    this.tablePath = tablePath;
+    try (
+      FileGdbMappedFile headerFile = new FileGdbMappedFile(tablePath, 0)) {
+      final ByteBuffer header = headerFile.getBuffer(0, TABLE_HEADER_SIZE);
+      final int magic = header.getInt();
+      if (magic != 3) {
+        throw new IllegalArgumentException(
+          "Only version 10 file geodatabase tables are supported: " + tablePath);
+      }
+      this.validRowCount = header.getInt();
+      final int largestRowSize = header.getInt();
+      header.position(24);
+      final long fileSize = header.getLong();
+      final long fieldsOffset = header.getLong();
+      if (fileSize != headerFile.getSize()) {
+        throw new IllegalArgumentException("File size " + headerFile.getSize()
+          + " doesn't match header size " + fileSize + ": " + tablePath);
+      }
+      final int fieldsSize = headerFile.getInt(fieldsOffset);
+      readFields(tablePath, headerFile.getBuffer(fieldsOffset + 4, fieldsSize));
+      this.maxBlockSize = Math.max(fieldsSize, largestRowSize) + 4;
+    }
+    openFiles();
+  }
+
+  /**
+   * Close the table. If the table is connected the files are closed when the last connection is
+   * closed.
+   */
+  @Override
+  public synchronized void close() {
+    this.closed = true;
+    if (this.connectionCount <= 0) {
+      closeFiles();
+    }
+  }
+
+  private void closeFiles() {
+    final FileGdbMappedFile tableFile = this.tableFile;
+    this.tableFile = null;
+    if (tableFile != null) {
+      tableFile.close();
+    }
+    final FileGdbMappedFile indexFile = this.indexFile;
+    this.indexFile = null;
+    if (indexFile != null) {
+      indexFile.close();
+    }
+  }
+
+  /**
+   * Connect to the table so the files stay open until the connection is closed, even if the table
+   * is closed by a refresh of the record store's schema. The files of a closed table are reopened
+   * and closed again when the last connection is closed.
+   *
+   * @return The connection.
+   */
+  public synchronized BaseCloseable connect() {
+    if (this.tableFile == null) {
+      openFiles();
+    }
+    this.connectionCount++;
+    return this::disconnect;
+  }
+
+  private synchronized void disconnect() {
+    this.connectionCount--;
+    if (this.connectionCount <= 0 && this.closed) {
+      closeFiles();
+    }
+  }
+
+  /**
+   * Read the rows in parallel using the common fork join pool. The rows are split into ranges and
+   * each range is read by a single thread so the action must be thread safe. Records are passed to
+   * the action in an undefined order.
+   *
+   * @param recordFactory The factory to construct the records.
+   * @param boundingBox The bounding box to filter by, or null for all records.
+   * @param condition The condition to filter by, or null for all records.
+   * @param action The action to perform on each record.
+   */
+  public void forEachRecordParallel(final RecordFactory<Record> recordFactory,
+    final BoundingBox boundingBox, final Condition condition,
+    final Consumer<? super Record> action) {
+    final BoundingBox tableBoundingBox = toTableBoundingBox(boundingBox);
+    try (
+      BaseCloseable connection = connect()) {
+      final int rowCount = this.rowCount;
+      final int partitionCount = Math.max(1,
+        Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, rowCount / ROWS_PER_BLOCK));
+      final int partitionSize = (rowCount + partitionCount - 1) / partitionCount;
+      IntStream.range(0, partitionCount).parallel().forEach(partitionIndex -> {
+        final int fromRowIndex = partitionIndex * partitionSize;
+        final int toRowIndex = Math.min(rowCount, fromRowIndex + partitionSize);
+        for (int rowIndex = fromRowIndex; rowIndex < toRowIndex; rowIndex++) {
+          final Record record = readRecord(recordFactory, rowIndex, tableBoundingBox);
+          if (record != null && (condition == null || condition.test(record))) {
+            action.accept(record);
+          }
+        }
+      });
+    }
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    if (this.geometryField == null) {
+      return null;
+    } else {
+      return this.geometryField.getGeometryFactory();
+    }
+  }
+
+  /**
+   * Get the record with the object id using the .gdbtablx index.
+   *
+   * @param recordFactory The factory to construct the record.
+   * @param objectId The object id.
+   * @return The record or null if it does not exist or was deleted.
+   */
+  public Record getRecord(final RecordFactory<Record> recordFactory, final int objectId) {
+    try (
+      BaseCloseable connection = connect()) {
+      return readRecord(recordFactory, objectId - 1, null);
+    }
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  /**
+   * Get the number of rows in the index, including deleted rows.
+   */
+  public int getRowCount() {
+    return this.rowCount;
+  }
+
+  private long getRowOffset(final int rowIndex) {
+    if (rowIndex < 0 || rowIndex >= this.rowCount) {
+      return 0;
+    } else {
+      int offsetIndex = rowIndex;
+      if (this.blockMap != null) {
+        final int blockIndex = this.blockMap[rowIndex / ROWS_PER_BLOCK];
+        if (blockIndex < 0) {
+          return 0;
+        } else {
+          offsetIndex = blockIndex * ROWS_PER_BLOCK + rowIndex % ROWS_PER_BLOCK;
+        }
+      }
+      return this.indexFile.getUnsigned(INDEX_HEADER_SIZE + (long)offsetIndex * this.offsetSize,
+        this.offsetSize);
+    }
+  }
+
+  /**
+   * Get the number of rows that have not been deleted.
+   */
+  public int getValidRowCount() {
+    return this.validRowCount;
+  }
+
+  public boolean hasGeometryField() {
+    return this.geometryField != null;
+  }
+
+  private void openFiles() {
+    this.tableFile = new FileGdbMappedFile(this.tablePath, this.maxBlockSize);
+    try {
+      final Path indexPath = getIndexPath(this.tablePath);
+      this.indexFile = new FileGdbMappedFile(indexPath, 16);
+      readIndexHeader();
+    } catch (final RuntimeException e) {
+      closeFiles();
+      throw e;
+    }
+  }
+
+  private void readFields(final Path tablePath, final ByteBuffer buffer) {
+    // version
+    buffer.getInt();
+    final int flags = buffer.getInt();
+    final int geometryType = flags & 0xff;
+    final int fieldCount = buffer.getShort() & 0xffff;
+    for (int i = 0; i < fieldCount; i++) {
+      final String name = FileGdbTableField.readUtf16(buffer, buffer.get() & 0xff);
+      // alias
+      FileGdbTableField.readUtf16(buffer, buffer.get() & 0xff);
+      final int type = buffer.get() & 0xff;
+      final FileGdbTableField field;
+      switch (type) {
+        case FileGdbTableField.TYPE_OBJECT_ID: {
+          buffer.get();
+          buffer.get();
+          field = new FileGdbTableField(name, type, 0, false);
+        }
+        break;
+        case FileGdbTableField.TYPE_GEOMETRY: {
+          buffer.get();
+          final boolean nullable = (buffer.get() & 1) != 0;
+          field = new FileGdbTableGeometryField(name, nullable, geometryType, buffer);
+        }
+        break;
+        case FileGdbTableField.TYPE_STRING: {
+          final int length = buffer.getInt();
+          final boolean nullable = (buffer.get() & 1) != 0;
+          final int defaultLength = (int)FileGdbTableField.readVarUInt(buffer);
+          buffer.position(buffer.position() + defaultLength);
+          field = new FileGdbTableField(name, type, length, nullable);
+        }
+        break;
+        case FileGdbTableField.TYPE_SHORT:
+        case FileGdbTableField.TYPE_INT:
+        case FileGdbTableField.TYPE_FLOAT:
+        case FileGdbTableField.TYPE_DOUBLE:
+        case FileGdbTableField.TYPE_DATE: {
+          final int length = buffer.get() & 0xff;
+          final boolean nullable = (buffer.get() & 1) != 0;
+          final int defaultLength = buffer.get() & 0xff;
+          buffer.position(buffer.position() + defaultLength);
+          field = new FileGdbTableField(name, type, length, nullable);
+        }
+        break;
+        case FileGdbTableField.TYPE_BINARY:
+        case FileGdbTableField.TYPE_GUID:
+        case FileGdbTableField.TYPE_GLOBAL_ID:
+        case FileGdbTableField.TYPE_XML: {
+          buffer.get();
+          final boolean nullable = (buffer.get() & 1) != 0;
+          field = new FileGdbTableField(name, type, 0, nullable);
+        }
+        break;
+        case FileGdbTableField.TYPE_RASTER: {
+          buffer.get();
+          final boolean nullable = (buffer.get() & 1) != 0;
+          field = new FileGdbTableRasterField(name, nullable, buffer);
+        }
+        break;
+        default:
+          throw new IllegalArgumentException(
+            "Field " + name + " has an unsupported type " + type + ": " + tablePath);
+      }
+      if (field.isNullable()) {
+        this.nullableFieldCount++;
+      }
+      if (field.isRaster()) {
+        Logs.debug(this, "Raster field " + name + " is not supported and is ignored: " + tablePath);
+      } else {
+        final FieldDefinition fieldDefinition = field.newFieldDefinition();
+        this.recordDefinition.addField(fieldDefinition);
+        field.setFieldIndex(fieldDefinition.getIndex());
+      }
+      if (field.isObjectId()) {
+        this.recordDefinition.setIdFieldName(name);
+      } else if (field instanceof FileGdbTableGeometryField) {
+        this.geometryField = (FileGdbTableGeometryField)field;
+        this.recordDefinition.setGeometryFieldName(name);
+      }
+      this.fields.add(field);
+    }
+  }
+
+  private void readIndexHeader() {
+    final FileGdbMappedFile indexFile = this.indexFile;
+    final ByteBuffer header = indexFile.getBuffer(0, INDEX_HEADER_SIZE);
+    // magic
+    header.getInt();
+    final int blockCount = header.getInt();
+    this.rowCount = header.getInt();
+    this.offsetSize = header.getInt();
+    final long trailerOffset = INDEX_HEADER_SIZE
+      + (long)blockCount * ROWS_PER_BLOCK * this.offsetSize;
+    if (trailerOffset + 16 <= indexFile.getSize()) {
+      final ByteBuffer trailer = indexFile.getBuffer(trailerOffset, 16);
+      final int bitmapWordCount = trailer.getInt();
+      if (bitmapWordCount > 0) {
+        final int blockMapBitCount = trailer.getInt();
+        final int[] blockMap = new int[blockMapBitCount];
+        int presentBlockIndex = 0;
+        for (int blockIndex = 0; blockIndex < blockMapBitCount; blockIndex++) {
+          final long wordOffset = trailerOffset + 16 + blockIndex / 32 * 4;
+          final int word = indexFile.getInt(wordOffset);
+          if ((word & 1 << blockIndex % 32) == 0) {
+            blockMap[blockIndex] = -1;
+          } else {
+            blockMap[blockIndex] = presentBlockIndex++;
+          }
+        }
+        this.blockMap = blockMap;
+        this.rowCount = blockMapBitCount * ROWS_PER_BLOCK;
+      }
+    }
+  }
+
+  /**
+   * Read the record for the row, or null if the row was deleted or the geometry does not
+   * intersect the bounding box. The caller must be connected to the table.
+   *
+   * @param recordFactory The factory to construct the record.
+   * @param rowIndex The index of the row (object id - 1).
+   * @param boundingBox The bounding box in the table's coordinate system, or null.
+   * @return The record.
+   */
+  Record readRecord(final RecordFactory<Record> recordFactory, final int rowIndex,
+    final BoundingBox boundingBox) {
+    final long offset = getRowOffset(rowIndex);
+    if (offset <= 0) {
+      return null;
+    }
+    final FileGdbMappedFile tableFile = this.tableFile;
+    final int size = tableFile.getInt(offset);
+    if (size < 0) {
+      return null;
+    }
+    final ByteBuffer buffer = tableFile.getBuffer(offset + 4, size);
+    final int nullFlagsOffset = buffer.position();
+    buffer.position(nullFlagsOffset + (this.nullableFieldCount + 7) / 8);
+    final Record record = recordFactory.newRecord(this.recordDefinition);
+    record.setState(RecordState.INITIALIZING);
+    int nullableIndex = 0;
+    for (final FileGdbTableField field : this.fields) {
+      final int fieldIndex = field.getFieldIndex();
+      if (field.isObjectId()) {
+        record.setValue(fieldIndex, rowIndex + 1);
+      } else {
+        boolean isNull = false;
+        if (field.isNullable()) {
+          final int nullFlags = buffer.get(nullFlagsOffset + nullableIndex / 8);
+          isNull = (nullFlags & 1 << nullableIndex % 8) != 0;
+          nullableIndex++;
+        }
+        if (isNull) {
+          if (field == this.geometryField && boundingBox != null) {
+            return null;
+          }
+        } else {
+          if (field == this.geometryField && boundingBox != null) {
+            final ByteBuffer geometryBuffer = order(buffer.duplicate());
+            FileGdbTableField.readVarUInt(geometryBuffer);
+            if (!this.geometryField.bboxIntersects(geometryBuffer, boundingBox)) {
+              return null;
+            }
+          }
+          final Object value = field.readValue(buffer);
+          if (fieldIndex >= 0) {
+            record.setValue(fieldIndex, value);
+          }
+        }
+      }
+    }
+    record.setState(RecordState.PERSISTED);
+    return record;
+  }
+
+  BoundingBox toTableBoundingBox(final BoundingBox boundingBox) {
+    if (Property.isEmpty(boundingBox) || this.geometryField == null) {
+      return null;
+    } else {
+      return boundingBox.bboxToCs(this.geometryField.getGeometryFactory());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.recordDefinition.getPath();
+  }
+}
@@ -0,0 +1,250 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A field in a .gdbtable file and the decoding of the field's values from a row.
+ */
+class FileGdbTableField {
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  static final int TYPE_BINARY = 8;
+
+  static final int TYPE_DATE = 5;
+
+  static final int TYPE_DOUBLE = 3;
+
+  static final int TYPE_FLOAT = 2;
+
+  static final int TYPE_GEOMETRY = 7;
+
+  static final int TYPE_GLOBAL_ID = 11;
+
+  static final int TYPE_GUID = 10;
+
+  static final int TYPE_INT = 1;
+
+  static final int TYPE_OBJECT_ID = 6;
+
+  static final int TYPE_RASTER = 9;
+
+  static final int TYPE_SHORT = 0;
+
+  static final int TYPE_STRING = 4;
+
+  static final int TYPE_XML = 12;
+
+  /** The number of days between 1899-12-30, the epoch for dates, and 1970-01-01. */
+  private static final double UNIX_EPOCH_DAYS = 25569;
+
+  private static void appendHex(final StringBuilder string, final byte[] bytes, final int offset,
+    final int count, final boolean littleEndian) {
+    for (int i = 0; i < count; i++) {
+      final int b;
+      if (littleEndian) {
+        b = bytes[offset + count - 1 - i] & 0xff;
+      } else {
+        b = bytes[offset + i] & 0xff;
+      }
+      string.append(HEX_DIGITS[b >> 4]);
+      string.append(HEX_DIGITS[b & 0xf]);
+    }
+  }
+
+  static String readUtf16(final ByteBuffer buffer, final int charCount) {
+    final char[] chars = new char[charCount];
+    for (int i = 0; i < charCount; i++) {
+      chars[i] = buffer.getChar();
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Read a signed variable length integer. The first byte contains the sign in bit 6 and the low 6
+   * bits of the value, the remaining bytes contain 7 bits of the value each. The high bit of each
+   * byte indicates if there is another byte.
+   */
+  static long readVarInt(final ByteBuffer buffer) {
+    int b = buffer.get() & 0xff;
+    long value = b & 0x3f;
+    final boolean negative = (b & 0x40) != 0;
+    int shift = 6;
+    while ((b & 0x80) != 0) {
+      b = buffer.get() & 0xff;
+      value |= (long)(b & 0x7f) << shift;
+      shift += 7;
+    }
+    if (negative) {
+      return -value;
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Read an unsigned variable length integer, 7 bits per byte with the high bit indicating if
+   * there is another byte.
+   */
+  static long readVarUInt(final ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    while (true) {
+      final int b = buffer.get() & 0xff;
+      value |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+    }
+  }
+
+  private int fieldIndex = -1;
+
+  private final int length;
+
+  private final String name;
+
+  private final boolean nullable;
+
+  private final int type;
+
+  public FileGdbTableField(final String name, final int type, final int length,
+    final boolean nullable) {
+    this.name = name;
+    this.type = type;
+    this.length = length;
+    this.nullable = nullable;
+  }
+
+  public DataType getDataType() {
+    switch (this.type) {
+      case TYPE_SHORT:
+        return DataTypes.SHORT;
+      case TYPE_INT:
+      case TYPE_OBJECT_ID:
+        return DataTypes.INT;
+      case TYPE_FLOAT:
+        return DataTypes.FLOAT;
+      case TYPE_DOUBLE:
+        return DataTypes.DOUBLE;
+      case TYPE_DATE:
+        return DataTypes.DATE;
+      case TYPE_BINARY:
+        return DataTypes.BASE64_BINARY;
+      default:
+        return DataTypes.STRING;
+    }
+  }
+
+  public int getFieldIndex() {
+    return this.fieldIndex;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public int getType() {
+    return this.type;
+  }
+
+  public boolean isGeometry() {
+    return this.type == TYPE_GEOMETRY;
+  }
+
+  public boolean isNullable() {
+    return this.nullable;
+  }
+
+  public boolean isObjectId() {
+    return this.type == TYPE_OBJECT_ID;
+  }
+
+  public boolean isRaster() {
+    return this.type == TYPE_RASTER;
+  }
+
+  public FieldDefinition newFieldDefinition() {
+    final DataType dataType = getDataType();
+    final boolean required = !this.nullable;
+    if (this.type == TYPE_STRING) {
+      return new FieldDefinition(this.name, dataType, this.length, required);
+    } else {
+      return new FieldDefinition(this.name, dataType, required);
+    }
+  }
+
+  /**
+   * Read the value of the field from the buffer positioned at the start of the value.
+   *
+   * @param buffer The buffer.
+   * @return The value.
+   */
+  public Object readValue(final ByteBuffer buffer) {
+    switch (this.type) {
+      case TYPE_SHORT:
+        return buffer.getShort();
+      case TYPE_INT:
+        return buffer.getInt();
+      case TYPE_FLOAT:
+        return buffer.getFloat();
+      case TYPE_DOUBLE:
+        return buffer.getDouble();
+      case TYPE_STRING:
+      case TYPE_XML: {
+        final int length = (int)readVarUInt(buffer);
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+      case TYPE_DATE: {
+        final double days = buffer.getDouble();
+        return new Date(Math.round((days - UNIX_EPOCH_DAYS) * 86400000.0));
+      }
+      case TYPE_BINARY:
+      case TYPE_GEOMETRY: {
+        final int length = (int)readVarUInt(buffer);
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+      }
+      case TYPE_GUID:
+      case TYPE_GLOBAL_ID: {
+        final byte[] bytes = new byte[16];
+        buffer.get(bytes);
+        final StringBuilder string = new StringBuilder(38);
+        string.append('{');
+        appendHex(string, bytes, 0, 4, true);
+        string.append('-');
+        appendHex(string, bytes, 4, 2, true);
+        string.append('-');
+        appendHex(string, bytes, 6, 2, true);
+        string.append('-');
+        appendHex(string, bytes, 8, 2, false);
+        string.append('-');
+        appendHex(string, bytes, 10, 6, false);
+        string.append('}');
+        return string.toString();
+      }
+      default:
+        throw new IllegalArgumentException(
+          "Field " + this.name + " has an unsupported type " + this.type);
+    }
+  }
+
+  void setFieldIndex(final int fieldIndex) {
+    this.fieldIndex = fieldIndex;
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+}
@@ -0,0 +1,482 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.record.io.format.shp.ShapefileGeometryHandler;
+import com.revolsys.record.property.FieldProperties;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.util.Property;
+
+/**
+ * The geometry field of a .gdbtable file. The geometries are stored in a compressed form of the
+ * shapefile geometry format. Coordinates are stored as variable length integers on the grid
+ * defined by the origin and scale of each axis, with the vertices stored as deltas from the
+ * previous vertex.
+ */
+class FileGdbTableGeometryField extends FileGdbTableField {
+  private static final int FAMILY_MULTI_POINT = 2;
+
+  private static final int FAMILY_POINT = 1;
+
+  private static final int FAMILY_POLYGON = 4;
+
+  private static final int FAMILY_POLYLINE = 3;
+
+  private static final long FLAG_HAS_CURVES = 0x20000000L;
+
+  private static final long FLAG_HAS_M = 0x40000000L;
+
+  private static final long FLAG_HAS_Z = 0x80000000L;
+
+  private static final ShapefileGeometryHandler SHAPEFILE_GEOMETRY_HANDLER = new ShapefileGeometryHandler(
+    false);
+
+  private static int getFamily(final int shapeType) {
+    switch (shapeType) {
+      case 1:
+      case 9:
+      case 11:
+      case 21:
+      case 52:
+        return FAMILY_POINT;
+      case 8:
+      case 18:
+      case 20:
+      case 28:
+      case 53:
+        return FAMILY_MULTI_POINT;
+      case 3:
+      case 10:
+      case 13:
+      case 23:
+      case 50:
+        return FAMILY_POLYLINE;
+      case 5:
+      case 15:
+      case 19:
+      case 25:
+      case 51:
+        return FAMILY_POLYGON;
+      default:
+        return 0;
+    }
+  }
+
+  private static boolean isHasM(final int shapeType, final long geometryType) {
+    switch (shapeType) {
+      case 11:
+      case 13:
+      case 15:
+      case 18:
+      case 21:
+      case 23:
+      case 25:
+      case 28:
+        return true;
+      case 50:
+      case 51:
+      case 52:
+      case 53:
+        return (geometryType & FLAG_HAS_M) != 0;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isHasZ(final int shapeType, final long geometryType) {
+    switch (shapeType) {
+      case 9:
+      case 10:
+      case 11:
+      case 13:
+      case 15:
+      case 18:
+      case 19:
+      case 20:
+        return true;
+      case 50:
+      case 51:
+      case 52:
+      case 53:
+        return (geometryType & FLAG_HAS_Z) != 0;
+      default:
+        return false;
+    }
+  }
+
+  private final int axisCount;
+
+  private final DataType dataType;
+
+  private final GeometryFactory geometryFactory;
+
+  private final boolean hasM;
+
+  private final boolean hasZ;
+
+  private double mOrigin;
+
+  private double mScale = 1;
+
+  private boolean unsupportedLogged = false;
+
+  private double xOrigin;
+
+  private double xyScale = 1;
+
+  private double yOrigin;
+
+  private double zOrigin;
+
+  private double zScale = 1;
+
+  public FileGdbTableGeometryField(final String name, final boolean nullable,
+    final int tableGeometryType, final ByteBuffer buffer) {
+    super(name, TYPE_GEOMETRY, 0, nullable);
+    switch (tableGeometryType) {
+      case 1:
+        this.dataType = GeometryDataTypes.POINT;
+      break;
+      case 2:
+        this.dataType = GeometryDataTypes.MULTI_POINT;
+      break;
+      case 3:
+        this.dataType = GeometryDataTypes.MULTI_LINE_STRING;
+      break;
+      case 4:
+        this.dataType = GeometryDataTypes.MULTI_POLYGON;
+      break;
+      default:
+        this.dataType = GeometryDataTypes.GEOMETRY;
+      break;
+    }
+    final int wktLength = buffer.getShort() & 0xffff;
+    final String wkt = readUtf16(buffer, wktLength / 2);
+    final int flags = buffer.get() & 0xff;
+    this.hasM = (flags & 2) != 0;
+    this.hasZ = (flags & 4) != 0;
+    this.xOrigin = buffer.getDouble();
+    this.yOrigin = buffer.getDouble();
+    this.xyScale = buffer.getDouble();
+    if (this.hasM) {
+      this.mOrigin = buffer.getDouble();
+      this.mScale = buffer.getDouble();
+    }
+    if (this.hasZ) {
+      this.zOrigin = buffer.getDouble();
+      this.zScale = buffer.getDouble();
+    }
+    // tolerances
+    buffer.getDouble();
+    if (this.hasM) {
+      buffer.getDouble();
+    }
+    if (this.hasZ) {
+      buffer.getDouble();
+    }
+    // extent
+    buffer.position(buffer.position() + 32);
+    // Optional z and m ranges followed by the spatial index grid sizes
+    while (true) {
+      final int position = buffer.position();
+      if (buffer.get(position) == 0 && buffer.get(position + 1) >= 1
+        && buffer.get(position + 1) <= 3 && buffer.get(position + 2) == 0
+        && buffer.get(position + 3) == 0 && buffer.get(position + 4) == 0) {
+        final int gridCount = buffer.get(position + 1);
+        buffer.position(position + 5 + gridCount * 8);
+        break;
+      } else {
+        buffer.position(position + 8);
+      }
+    }
+
+    int axisCount = 2;
+    if (this.hasM) {
+      axisCount = 4;
+    } else if (this.hasZ) {
+      axisCount = 3;
+    }
+    this.axisCount = axisCount;
+    this.geometryFactory = newGeometryFactory(wkt);
+  }
+
+  /**
+   * Check if the envelope of the geometry intersects the bounding box without reading the
+   * coordinates of the geometry.
+   *
+   * @param buffer The buffer positioned at the start of the geometry.
+   * @param boundingBox The bounding box in the coordinate system of the table.
+   * @return True if the geometry's envelope intersects.
+   */
+  public boolean bboxIntersects(final ByteBuffer buffer, final BoundingBox boundingBox) {
+    final long geometryType = readVarUInt(buffer);
+    final int shapeType = (int)(geometryType & 0xff);
+    final int family = getFamily(shapeType);
+    if (family == FAMILY_POINT) {
+      final long x = readVarUInt(buffer);
+      final long y = readVarUInt(buffer);
+      if (x == 0 && y == 0) {
+        return false;
+      } else {
+        return boundingBox.bboxIntersects((x - 1) / this.xyScale + this.xOrigin,
+          (y - 1) / this.xyScale + this.yOrigin);
+      }
+    } else if (family == 0) {
+      return false;
+    } else {
+      final long vertexCount = readVarUInt(buffer);
+      if (vertexCount == 0) {
+        return false;
+      } else {
+        if (family != FAMILY_MULTI_POINT) {
+          readVarUInt(buffer);
+          if ((geometryType & FLAG_HAS_CURVES) != 0) {
+            readVarUInt(buffer);
+          }
+        }
+        final long minX = readVarUInt(buffer);
+        final long minY = readVarUInt(buffer);
+        final long width = readVarUInt(buffer);
+        final long height = readVarUInt(buffer);
+        return boundingBox.bboxIntersects(minX / this.xyScale + this.xOrigin,
+          minY / this.xyScale + this.yOrigin, (minX + width) / this.xyScale + this.xOrigin,
+          (minY + height) / this.xyScale + this.yOrigin);
+      }
+    }
+  }
+
+  @Override
+  public DataType getDataType() {
+    return this.dataType;
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  private Geometry newEmptyGeometry() {
+    if (this.dataType == GeometryDataTypes.POINT || this.dataType == GeometryDataTypes.MULTI_POINT) {
+      return this.geometryFactory.point();
+    } else if (this.dataType == GeometryDataTypes.MULTI_LINE_STRING) {
+      return this.geometryFactory.lineString();
+    } else if (this.dataType == GeometryDataTypes.MULTI_POLYGON) {
+      return this.geometryFactory.polygon();
+    } else {
+      return this.geometryFactory.geometry();
+    }
+  }
+
+  @Override
+  public FieldDefinition newFieldDefinition() {
+    final FieldDefinition field = new FieldDefinition(getName(), this.dataType, !isNullable());
+    field.setProperty(FieldProperties.GEOMETRY_FACTORY, this.geometryFactory);
+    return field;
+  }
+
+  private GeometryFactory newGeometryFactory(final String wkt) {
+    final double[] scales;
+    if (this.axisCount == 2) {
+      scales = new double[] {
+        this.xyScale, this.xyScale
+      };
+    } else if (this.axisCount == 3) {
+      scales = new double[] {
+        this.xyScale, this.xyScale, this.zScale
+      };
+    } else {
+      scales = new double[] {
+        this.xyScale, this.xyScale, this.zScale, this.mScale
+      };
+    }
+    if (Property.hasValue(wkt)) {
+      try {
+        return GeometryFactory.fixed(wkt, this.axisCount, scales);
+      } catch (final RuntimeException e) {
+        Logs.debug(this, "Unable to read coordinate system: " + wkt, e);
+      }
+    }
+    return GeometryFactory.fixed(0, this.axisCount, scales);
+  }
+
+  private double[] readCoordinates(final ByteBuffer buffer, final int vertexCount,
+    final boolean hasZ, final boolean hasM) {
+    final int axisCount = this.axisCount;
+    final double[] coordinates = new double[vertexCount * axisCount];
+    long x = 0;
+    long y = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      x += readVarInt(buffer);
+      y += readVarInt(buffer);
+      final int coordinateIndex = vertexIndex * axisCount;
+      coordinates[coordinateIndex] = x / this.xyScale + this.xOrigin;
+      coordinates[coordinateIndex + 1] = y / this.xyScale + this.yOrigin;
+    }
+    if (hasZ) {
+      long z = 0;
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        z += readVarInt(buffer);
+        if (axisCount > 2) {
+          coordinates[vertexIndex * axisCount + 2] = z / this.zScale + this.zOrigin;
+        }
+      }
+    } else if (axisCount > 2) {
+      setNaN(coordinates, 2);
+    }
+    if (hasM) {
+      if (buffer.get(buffer.position()) == 0x42) {
+        // All M values are undefined
+        buffer.get();
+        if (axisCount > 3) {
+          setNaN(coordinates, 3);
+        }
+      } else {
+        long m = 0;
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+          m += readVarInt(buffer);
+          if (axisCount > 3) {
+            coordinates[vertexIndex * axisCount + 3] = m / this.mScale + this.mOrigin;
+          }
+        }
+      }
+    } else if (axisCount > 3) {
+      setNaN(coordinates, 3);
+    }
+    return coordinates;
+  }
+
+  private Geometry readPoint(final ByteBuffer buffer, final boolean hasZ, final boolean hasM) {
+    final long x = readVarUInt(buffer);
+    final long y = readVarUInt(buffer);
+    if (x == 0 && y == 0) {
+      return this.geometryFactory.point();
+    } else {
+      final double[] coordinates = new double[this.axisCount];
+      Arrays.fill(coordinates, Double.NaN);
+      coordinates[0] = (x - 1) / this.xyScale + this.xOrigin;
+      coordinates[1] = (y - 1) / this.xyScale + this.yOrigin;
+      if (hasZ) {
+        final long z = readVarUInt(buffer);
+        if (this.axisCount > 2) {
+          coordinates[2] = (z - 1) / this.zScale + this.zOrigin;
+        }
+      }
+      if (hasM) {
+        final long m = readVarUInt(buffer);
+        if (this.axisCount > 3 && m > 0) {
+          coordinates[3] = (m - 1) / this.mScale + this.mOrigin;
+        }
+      }
+      return this.geometryFactory.point(coordinates);
+    }
+  }
+
+  /**
+   * Read the geometry from the buffer positioned at the start of the geometry.
+   */
+  @Override
+  public Geometry readValue(final ByteBuffer buffer) {
+    final int length = (int)readVarUInt(buffer);
+    final int endPosition = buffer.position() + length;
+    try {
+      return readValue(buffer, endPosition);
+    } finally {
+      buffer.position(endPosition);
+    }
+  }
+
+  private Geometry readValue(final ByteBuffer buffer, final int endPosition) {
+    final long geometryType = readVarUInt(buffer);
+    final int shapeType = (int)(geometryType & 0xff);
+    final boolean hasZ = isHasZ(shapeType, geometryType);
+    final boolean hasM = isHasM(shapeType, geometryType);
+    final int family = getFamily(shapeType);
+    if (shapeType == 0) {
+      return null;
+    } else if (family == FAMILY_POINT) {
+      return readPoint(buffer, hasZ, hasM);
+    } else if (family == 0) {
+      if (!this.unsupportedLogged) {
+        this.unsupportedLogged = true;
+        Logs.error(this, "Geometry type " + shapeType + " not supported for field " + getName());
+      }
+      return null;
+    } else {
+      final int vertexCount = (int)readVarUInt(buffer);
+      if (vertexCount == 0) {
+        return newEmptyGeometry();
+      }
+      int partCount = 1;
+      if (family != FAMILY_MULTI_POINT) {
+        partCount = (int)readVarUInt(buffer);
+        if ((geometryType & FLAG_HAS_CURVES) != 0) {
+          readVarUInt(buffer);
+        }
+      }
+      // envelope
+      readVarUInt(buffer);
+      readVarUInt(buffer);
+      readVarUInt(buffer);
+      readVarUInt(buffer);
+
+      final int[] partVertexCounts = new int[partCount];
+      int partVertexTotal = 0;
+      for (int partIndex = 0; partIndex < partCount - 1; partIndex++) {
+        final int partVertexCount = (int)readVarUInt(buffer);
+        partVertexCounts[partIndex] = partVertexCount;
+        partVertexTotal += partVertexCount;
+      }
+      partVertexCounts[partCount - 1] = vertexCount - partVertexTotal;
+
+      final double[] coordinates = readCoordinates(buffer, vertexCount, hasZ, hasM);
+      final int axisCount = this.axisCount;
+      if (family == FAMILY_MULTI_POINT) {
+        return this.geometryFactory.punctual(axisCount, coordinates);
+      } else {
+        final List<double[]> parts = new ArrayList<>(partCount);
+        int offset = 0;
+        for (final int partVertexCount : partVertexCounts) {
+          final int length = partVertexCount * axisCount;
+          if (partCount == 1) {
+            parts.add(coordinates);
+          } else {
+            parts.add(Arrays.copyOfRange(coordinates, offset, offset + length));
+          }
+          offset += length;
+        }
+        if (family == FAMILY_POLYLINE) {
+          final List<LineString> lines = new ArrayList<>(partCount);
+          for (final double[] partCoordinates : parts) {
+            lines.add(
+              SHAPEFILE_GEOMETRY_HANDLER.newLineString(this.geometryFactory, axisCount,
+                partCoordinates));
+          }
+          if (lines.size() == 1) {
+            return lines.get(0);
+          } else {
+            return this.geometryFactory.lineal(lines);
+          }
+        } else {
+          return SHAPEFILE_GEOMETRY_HANDLER.newPolygonGeometryFromParts(this.geometryFactory,
+            parts, axisCount);
+        }
+      }
+    }
+  }
+
+  private void setNaN(final double[] coordinates, final int axisIndex) {
+    for (int i = axisIndex; i < coordinates.length; i += this.axisCount) {
+      coordinates[i] = Double.NaN;
+    }
+  }
+}
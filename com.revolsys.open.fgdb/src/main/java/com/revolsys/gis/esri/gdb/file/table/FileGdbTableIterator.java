@@ -0,0 +1,114 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.util.NoSuchElementException;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.util.count.LabelCounters;
+
+/**
+ * Iterate through the rows of a {@link FileGdbTable} in object id order. Rows whose geometry
+ * envelope does not intersect the query's bounding box are skipped before the rest of the row is
+ * read. The iterator is connected to the table until it is closed so the table's files stay open
+ * if the record store's schema is refreshed.
+ */
+public class FileGdbTableIterator extends AbstractIterator<Record> implements RecordReader {
+  private BoundingBox boundingBox;
+
+  private BaseCloseable connection;
+
+  private int count = 0;
+
+  private LabelCounters labelCounters;
+
+  private int limit;
+
+  private int offset;
+
+  private RecordFactory<Record> recordFactory;
+
+  private FileGdbTableRecordStore recordStore;
+
+  private int rowIndex = 0;
+
+  private FileGdbTable table;
+
+  private Condition whereCondition;
+
+  FileGdbTableIterator(final FileGdbTableRecordStore recordStore, final FileGdbTable table,
+    final Query query) {
+    this.recordStore = recordStore;
+    this.table = table;
+    RecordFactory<Record> recordFactory = query.getRecordFactory();
+    if (recordFactory == null) {
+      recordFactory = recordStore.getRecordFactory();
+    }
+    this.recordFactory = recordFactory;
+    this.boundingBox = table.toTableBoundingBox(QueryValue.getBoundingBox(query));
+    this.whereCondition = query.getWhereCondition();
+    this.labelCounters = query.getStatistics();
+    this.offset = query.getOffset();
+    this.limit = query.getLimit();
+    this.connection = table.connect();
+  }
+
+  @Override
+  protected void closeDo() {
+    final BaseCloseable connection = this.connection;
+    this.connection = null;
+    if (connection != null) {
+      connection.close();
+    }
+    this.boundingBox = null;
+    this.labelCounters = null;
+    this.recordFactory = null;
+    this.recordStore = null;
+    this.table = null;
+    this.whereCondition = null;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    final FileGdbTable table = this.table;
+    if (table == null || this.count >= this.limit) {
+      throw new NoSuchElementException();
+    }
+    final int rowCount = table.getRowCount();
+    while (this.rowIndex < rowCount) {
+      final Record record = table.readRecord(this.recordFactory, this.rowIndex++,
+        this.boundingBox);
+      if (record != null && (this.whereCondition == null || this.whereCondition.test(record))) {
+        if (this.offset > 0) {
+          this.offset--;
+        } else {
+          this.count++;
+          if (this.labelCounters == null) {
+            this.recordStore.addStatistic("query", record);
+          } else {
+            this.labelCounters.addCount(record);
+          }
+          return record;
+        }
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    final FileGdbTable table = this.table;
+    if (table == null) {
+      return null;
+    } else {
+      return table.getRecordDefinition();
+    }
+  }
+}
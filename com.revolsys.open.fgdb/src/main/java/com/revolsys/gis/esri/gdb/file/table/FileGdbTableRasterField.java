@@ -0,0 +1,55 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A raster field in a .gdbtable file. Raster values are not supported so the field is not added to
+ * the record definition, the values are skipped when a row is read.
+ */
+class FileGdbTableRasterField extends FileGdbTableField {
+  private static final int RASTER_TYPE_MANAGED = 1;
+
+  private final int rasterType;
+
+  public FileGdbTableRasterField(final String name, final boolean nullable,
+    final ByteBuffer buffer) {
+    super(name, TYPE_RASTER, 0, nullable);
+    // raster column name
+    readUtf16(buffer, buffer.get() & 0xff);
+    final int wktLength = buffer.getShort() & 0xffff;
+    buffer.position(buffer.position() + wktLength);
+    final int flags = buffer.get() & 0xff;
+    if (flags != 0) {
+      // x and y origin, xy scale and xy tolerance
+      int doubleCount = 4;
+      if ((flags & 2) != 0) {
+        // m origin, scale and tolerance
+        doubleCount += 3;
+      }
+      if ((flags & 4) != 0) {
+        // z origin, scale and tolerance
+        doubleCount += 3;
+      }
+      buffer.position(buffer.position() + doubleCount * 8);
+    }
+    this.rasterType = buffer.get() & 0xff;
+  }
+
+  /**
+   * Skip the value of the field. Managed rasters store the id of the raster, external and inline
+   * rasters store the path or the raster bytes.
+   *
+   * @param buffer The buffer.
+   * @return null.
+   */
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    if (this.rasterType == RASTER_TYPE_MANAGED) {
+      buffer.getInt();
+    } else {
+      final int length = (int)readVarUInt(buffer);
+      buffer.position(buffer.position() + length);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,227 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.jeometry.common.io.PathName;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.schema.AbstractRecordStore;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordStoreSchema;
+import com.revolsys.record.schema.RecordStoreSchemaElement;
+
+/**
+ * A read only record store for a file geodatabase that reads the OpenFileGDB .gdbtable files
+ * directly without the Esri File Geodatabase API. Reads are not serialized through a single
+ * thread so multiple tables, or multiple partitions of one table using
+ * {@link #forEachRecordParallel(Query, Consumer)}, can be read concurrently.
+ */
+public class FileGdbTableRecordStore extends AbstractRecordStore {
+  private static final String CATALOG_FILE_NAME = "a00000001.gdbtable";
+
+  public static String getTableFileName(final int tableId) {
+    return String.format("a%08x.gdbtable", tableId);
+  }
+
+  /**
+   * Check if the directory contains a file geodatabase catalog table.
+   *
+   * @param directory The directory.
+   * @return True if the directory is a file geodatabase.
+   */
+  public static boolean isFileGdb(final Path directory) {
+    return Files.exists(directory.resolve(CATALOG_FILE_NAME));
+  }
+
+  private final Path directory;
+
+  private final Map<PathName, FileGdbTable> tableByPath = new HashMap<>();
+
+  public FileGdbTableRecordStore(final Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  @PreDestroy
+  public void close() {
+    try {
+      closeTables();
+    } finally {
+      super.close();
+    }
+  }
+
+  private synchronized void closeTables() {
+    for (final FileGdbTable table : this.tableByPath.values()) {
+      table.close();
+    }
+    this.tableByPath.clear();
+  }
+
+  /**
+   * Read the records for the query in parallel using the common fork join pool. The action must be
+   * thread safe and is called in an undefined order. The offset, limit and order by of the query
+   * are ignored.
+   *
+   * @param query The query.
+   * @param action The action to perform on each record.
+   */
+  public void forEachRecordParallel(final Query query, final Consumer<? super Record> action) {
+    final FileGdbTable table = getTable(query);
+    RecordFactory<Record> recordFactory = query.getRecordFactory();
+    if (recordFactory == null) {
+      recordFactory = getRecordFactory();
+    }
+    final BoundingBox boundingBox = QueryValue.getBoundingBox(query);
+    final Condition whereCondition = query.getWhereCondition();
+    table.forEachRecordParallel(recordFactory, boundingBox, whereCondition, action);
+  }
+
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Get the record with the object id using the table's offset index.
+   *
+   * @param typePath The path of the table.
+   * @param objectId The object id.
+   * @return The record or null if it does not exist.
+   */
+  public Record getRecord(final PathName typePath, final int objectId) {
+    final FileGdbTable table = getTable(typePath);
+    if (table == null) {
+      return null;
+    } else {
+      return table.getRecord(getRecordFactory(), objectId);
+    }
+  }
+
+  @Override
+  public int getRecordCount(final Query query) {
+    if (query == null) {
+      return 0;
+    } else {
+      final FileGdbTable table = getTable(query);
+      final Condition whereCondition = query.getWhereCondition();
+      if (whereCondition == null || whereCondition.isEmpty()) {
+        return table.getValidRowCount();
+      } else {
+        final AtomicInteger count = new AtomicInteger();
+        table.forEachRecordParallel(getRecordFactory(), QueryValue.getBoundingBox(query),
+          whereCondition, record -> count.incrementAndGet());
+        return count.get();
+      }
+    }
+  }
+
+  @Override
+  public String getRecordStoreType() {
+    return "FileGDB";
+  }
+
+  private synchronized FileGdbTable getTable(final PathName typePath) {
+    if (this.tableByPath.isEmpty()) {
+      refreshSchema();
+    }
+    return this.tableByPath.get(typePath);
+  }
+
+  private FileGdbTable getTable(final Query query) {
+    RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (recordDefinition == null) {
+      recordDefinition = getRecordDefinition(query.getTypeName());
+      if (recordDefinition == null) {
+        throw new IllegalArgumentException("Type name does not exist " + query.getTypeName());
+      } else {
+        query.setRecordDefinition(recordDefinition);
+      }
+    }
+    final FileGdbTable table = getTable(recordDefinition.getPathName());
+    if (table == null) {
+      throw new IllegalArgumentException("Table does not exist " + recordDefinition.getPath());
+    } else {
+      return table;
+    }
+  }
+
+  @Override
+  public AbstractIterator<Record> newIterator(final Query query,
+    final Map<String, Object> properties) {
+    final FileGdbTable table = getTable(query);
+    return new FileGdbTableIterator(this, table, query);
+  }
+
+  @Override
+  public RecordWriter newRecordWriter(final boolean throwExceptions) {
+    throw new UnsupportedOperationException("File geodatabase tables are read only");
+  }
+
+  /**
+   * Read the tables from the GDB_SystemCatalog table. System tables and tables that are not
+   * stored in the file geodatabase table format are ignored.
+   */
+  @Override
+  protected synchronized Map<PathName, ? extends RecordStoreSchemaElement> refreshSchemaElements(
+    final RecordStoreSchema schema) {
+    final Map<PathName, RecordStoreSchemaElement> elementsByPath = new TreeMap<>();
+    if (!isClosed() && schema.getPathName().equals(PathName.ROOT)) {
+      closeTables();
+      final Path catalogPath = this.directory.resolve(CATALOG_FILE_NAME);
+      final List<Record> catalogRecords = new ArrayList<>();
+      try (
+        FileGdbTable catalog = new FileGdbTable(null, PathName.newPathName("/GDB_SystemCatalog"),
+          catalogPath)) {
+        final RecordFactory<Record> recordFactory = getRecordFactory();
+        for (int objectId = 1; objectId <= catalog.getRowCount(); objectId++) {
+          final Record record = catalog.getRecord(recordFactory, objectId);
+          if (record != null) {
+            catalogRecords.add(record);
+          }
+        }
+      }
+      for (final Record catalogRecord : catalogRecords) {
+        final String name = catalogRecord.getString("Name");
+        final int fileFormat = catalogRecord.getInteger("FileFormat", 0);
+        if (name != null && !name.startsWith("GDB_") && fileFormat == 0) {
+          final int tableId = catalogRecord.getInteger("ID");
+          final Path tablePath = this.directory.resolve(getTableFileName(tableId));
+          if (FileGdbTable.exists(tablePath)) {
+            final PathName typePath = PathName.newPathName("/" + name);
+            try {
+              final FileGdbTable table = new FileGdbTable(schema, typePath, tablePath);
+              this.tableByPath.put(typePath, table);
+              elementsByPath.put(typePath, table.getRecordDefinition());
+            } catch (final RuntimeException e) {
+              Logs.error(this, "Unable to open table " + name + ": " + tablePath, e);
+            }
+          }
+        }
+      }
+    }
+    return elementsByPath;
+  }
+
+  @Override
+  public String toString() {
+    return this.directory.toString();
+  }
+}
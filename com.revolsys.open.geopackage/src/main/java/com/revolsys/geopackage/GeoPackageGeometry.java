@@ -0,0 +1,297 @@
+package com.revolsys.geopackage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+
+/**
+ * Read and write the GeoPackage binary geometry format (a GP header with the srs_id and envelope
+ * followed by ISO WKB) directly from and to a byte[].
+ */
+public class GeoPackageGeometry {
+  private static final byte FLAG_EMPTY = 1 << 4;
+
+  private static final byte FLAG_ENVELOPE_XY = 1 << 1;
+
+  private static final byte FLAG_LITTLE_ENDIAN = 1;
+
+  private static int getEnvelopeCoordinateCount(final int envelopeType) {
+    switch (envelopeType) {
+      case 1:
+        return 4;
+      case 2:
+      case 3:
+        return 6;
+      case 4:
+        return 8;
+      default:
+        return 0;
+    }
+  }
+
+  private static int getWkbByteCount(final Geometry geometry, final int axisCount) {
+    final int coordinateByteCount = axisCount * 8;
+    if (geometry instanceof Point) {
+      return 5 + coordinateByteCount;
+    } else if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      return 9 + line.getVertexCount() * coordinateByteCount;
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      int byteCount = 9;
+      for (final LinearRing ring : polygon.rings()) {
+        byteCount += 4 + ring.getVertexCount() * coordinateByteCount;
+      }
+      return byteCount;
+    } else {
+      int byteCount = 9;
+      for (final Geometry part : geometry.geometries()) {
+        byteCount += getWkbByteCount(part, axisCount);
+      }
+      return byteCount;
+    }
+  }
+
+  private static int getWkbType(final Geometry geometry) {
+    if (geometry instanceof Point) {
+      return 1;
+    } else if (geometry instanceof LineString) {
+      return 2;
+    } else if (geometry instanceof Polygon) {
+      return 3;
+    } else if (geometry instanceof Punctual) {
+      return 4;
+    } else if (geometry instanceof Lineal) {
+      return 5;
+    } else if (geometry instanceof Polygonal) {
+      return 6;
+    } else {
+      return 7;
+    }
+  }
+
+  /**
+   * Read a geometry from the GeoPackage binary format.
+   *
+   * @param geometryFactory The geometry factory to use if the srs_id matches.
+   * @param bytes The GeoPackage binary geometry.
+   * @return The geometry.
+   */
+  public static Geometry read(GeometryFactory geometryFactory, final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (bytes.length < 8 || buffer.get() != 'G' || buffer.get() != 'P') {
+      throw new IllegalArgumentException("Invalid GeoPackage geometry header, expecting GP");
+    }
+    buffer.get(); // version
+    final byte flags = buffer.get();
+    if ((flags & FLAG_LITTLE_ENDIAN) == 0) {
+      buffer.order(ByteOrder.BIG_ENDIAN);
+    } else {
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    final int coordinateSystemId = buffer.getInt();
+    if (coordinateSystemId > 0) {
+      geometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+    }
+    final int envelopeType = flags >> 1 & 7;
+    final int envelopeCoordinateCount = getEnvelopeCoordinateCount(envelopeType);
+    buffer.position(buffer.position() + envelopeCoordinateCount * 8);
+    if ((flags & FLAG_EMPTY) != 0) {
+      return geometryFactory.geometry();
+    } else {
+      return readWkb(geometryFactory, buffer);
+    }
+  }
+
+  private static double[] readCoordinates(final ByteBuffer buffer, final int axisCount,
+    final boolean hasZ, final boolean hasM) {
+    final int vertexCount = buffer.getInt();
+    final double[] coordinates = new double[vertexCount * axisCount];
+    int coordinateIndex = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      coordinateIndex = readCoordinates(buffer, coordinates, coordinateIndex, axisCount, hasZ,
+        hasM);
+    }
+    return coordinates;
+  }
+
+  private static int readCoordinates(final ByteBuffer buffer, final double[] coordinates,
+    int coordinateIndex, final int axisCount, final boolean hasZ, final boolean hasM) {
+    coordinates[coordinateIndex++] = buffer.getDouble();
+    coordinates[coordinateIndex++] = buffer.getDouble();
+    if (hasZ) {
+      coordinates[coordinateIndex++] = buffer.getDouble();
+    } else if (axisCount > 2) {
+      coordinates[coordinateIndex++] = Double.NaN;
+    }
+    if (hasM) {
+      coordinates[coordinateIndex++] = buffer.getDouble();
+    }
+    return coordinateIndex;
+  }
+
+  private static Geometry readWkb(GeometryFactory geometryFactory, final ByteBuffer buffer) {
+    if (buffer.get() == 0) {
+      buffer.order(ByteOrder.BIG_ENDIAN);
+    } else {
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    final int typeCode = buffer.getInt();
+    final int geometryType = typeCode % 1000;
+    final int mode = typeCode / 1000;
+    final boolean hasZ = mode == 1 || mode == 3;
+    final boolean hasM = mode == 2 || mode == 3;
+    int axisCount = 2;
+    if (hasM) {
+      axisCount = 4;
+    } else if (hasZ) {
+      axisCount = 3;
+    }
+    if (axisCount != geometryFactory.getAxisCount()) {
+      geometryFactory = geometryFactory.convertAxisCount(axisCount);
+    }
+    switch (geometryType) {
+      case 1: {
+        final double[] coordinates = new double[axisCount];
+        readCoordinates(buffer, coordinates, 0, axisCount, hasZ, hasM);
+        if (Double.isNaN(coordinates[0])) {
+          return geometryFactory.point();
+        } else {
+          return geometryFactory.point(coordinates);
+        }
+      }
+      case 2: {
+        final double[] coordinates = readCoordinates(buffer, axisCount, hasZ, hasM);
+        return geometryFactory.lineString(axisCount, coordinates);
+      }
+      case 3: {
+        final LinearRing[] rings = new LinearRing[buffer.getInt()];
+        for (int i = 0; i < rings.length; i++) {
+          final double[] coordinates = readCoordinates(buffer, axisCount, hasZ, hasM);
+          rings[i] = geometryFactory.linearRing(axisCount, coordinates);
+        }
+        return geometryFactory.polygon(rings);
+      }
+      case 4: {
+        final Point[] points = new Point[buffer.getInt()];
+        for (int i = 0; i < points.length; i++) {
+          points[i] = (Point)readWkb(geometryFactory, buffer);
+        }
+        return geometryFactory.punctual(points);
+      }
+      case 5: {
+        final LineString[] lines = new LineString[buffer.getInt()];
+        for (int i = 0; i < lines.length; i++) {
+          lines[i] = (LineString)readWkb(geometryFactory, buffer);
+        }
+        return geometryFactory.lineal(lines);
+      }
+      case 6: {
+        final Polygon[] polygons = new Polygon[buffer.getInt()];
+        for (int i = 0; i < polygons.length; i++) {
+          polygons[i] = (Polygon)readWkb(geometryFactory, buffer);
+        }
+        return geometryFactory.polygonal(polygons);
+      }
+      case 7: {
+        final Geometry[] geometries = new Geometry[buffer.getInt()];
+        for (int i = 0; i < geometries.length; i++) {
+          geometries[i] = readWkb(geometryFactory, buffer);
+        }
+        return geometryFactory.geometry(geometries);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown WKB geometry type: " + typeCode);
+    }
+  }
+
+  /**
+   * Write the geometry in the GeoPackage binary format, using little endian byte order and an XY
+   * envelope.
+   *
+   * @param geometry The geometry.
+   * @param coordinateSystemId The srs_id.
+   * @param axisCount The number of axis to write (2, 3 for Z, 4 for ZM).
+   * @return The bytes.
+   */
+  public static byte[] write(final Geometry geometry, final int coordinateSystemId,
+    final int axisCount) {
+    final boolean empty = geometry.isEmpty();
+    int headerSize = 8;
+    if (!empty) {
+      headerSize += 32;
+    }
+    final int byteCount = headerSize + getWkbByteCount(geometry, axisCount);
+    final ByteBuffer buffer = ByteBuffer.allocate(byteCount);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put((byte)'G');
+    buffer.put((byte)'P');
+    buffer.put((byte)0);
+    if (empty) {
+      buffer.put((byte)(FLAG_LITTLE_ENDIAN | FLAG_EMPTY));
+      buffer.putInt(coordinateSystemId);
+    } else {
+      buffer.put((byte)(FLAG_LITTLE_ENDIAN | FLAG_ENVELOPE_XY));
+      buffer.putInt(coordinateSystemId);
+      final BoundingBox boundingBox = geometry.getBoundingBox();
+      buffer.putDouble(boundingBox.getMinX());
+      buffer.putDouble(boundingBox.getMaxX());
+      buffer.putDouble(boundingBox.getMinY());
+      buffer.putDouble(boundingBox.getMaxY());
+    }
+    writeWkb(buffer, geometry, axisCount);
+    return buffer.array();
+  }
+
+  private static void writeCoordinates(final ByteBuffer buffer, final LineString line,
+    final int axisCount) {
+    final int vertexCount = line.getVertexCount();
+    buffer.putInt(vertexCount);
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        buffer.putDouble(line.getCoordinate(vertexIndex, axisIndex));
+      }
+    }
+  }
+
+  private static void writeWkb(final ByteBuffer buffer, final Geometry geometry,
+    final int axisCount) {
+    buffer.put((byte)1);
+    int typeCode = getWkbType(geometry);
+    if (axisCount == 3) {
+      typeCode += 1000;
+    } else if (axisCount == 4) {
+      typeCode += 3000;
+    }
+    buffer.putInt(typeCode);
+    if (geometry instanceof Point) {
+      final Point point = (Point)geometry;
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        buffer.putDouble(point.getCoordinate(axisIndex));
+      }
+    } else if (geometry instanceof LineString) {
+      writeCoordinates(buffer, (LineString)geometry, axisCount);
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      buffer.putInt(polygon.getRingCount());
+      for (final LinearRing ring : polygon.rings()) {
+        writeCoordinates(buffer, ring, axisCount);
+      }
+    } else {
+      buffer.putInt(geometry.getGeometryCount());
+      for (final Geometry part : geometry.geometries()) {
+        writeWkb(buffer, part, axisCount);
+      }
+    }
+  }
+}
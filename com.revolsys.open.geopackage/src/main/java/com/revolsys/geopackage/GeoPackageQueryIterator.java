@@ -0,0 +1,149 @@
+package com.revolsys.geopackage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.util.count.LabelCounters;
+
+public class GeoPackageQueryIterator extends AbstractIterator<Record> {
+
+  private Connection connection;
+
+  private FieldDefinition[] fields;
+
+  private FieldDefinition geometryField;
+
+  private LabelCounters labelCountMap;
+
+  private Query query;
+
+  private RecordDefinition recordDefinition;
+
+  private RecordFactory<Record> recordFactory;
+
+  private GeoPackageRecordStore recordStore;
+
+  private ResultSet resultSet;
+
+  private PreparedStatement statement;
+
+  protected GeoPackageQueryIterator(final GeoPackageRecordStore recordStore, final Query query) {
+    this.recordStore = recordStore;
+    this.query = query;
+    RecordFactory<Record> recordFactory = query.getRecordFactory();
+    if (recordFactory == null) {
+      recordFactory = recordStore.getRecordFactory();
+    }
+    this.recordFactory = recordFactory;
+    this.recordDefinition = query.getRecordDefinition();
+    this.labelCountMap = query.getStatistics();
+    this.geometryField = this.recordDefinition.getGeometryField();
+    final List<FieldDefinition> fields = recordStore.getSelectFields(query);
+    this.fields = fields.toArray(new FieldDefinition[fields.size()]);
+  }
+
+  @Override
+  protected synchronized void closeDo() {
+    final Connection connection = this.connection;
+    if (connection != null) {
+      synchronized (connection) {
+        JdbcUtils.close(this.statement, this.resultSet);
+      }
+    }
+    this.connection = null;
+    this.fields = null;
+    this.geometryField = null;
+    this.labelCountMap = null;
+    this.query = null;
+    this.recordDefinition = null;
+    this.recordFactory = null;
+    this.recordStore = null;
+    this.resultSet = null;
+    this.statement = null;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    final Connection connection = this.connection;
+    if (connection == null) {
+      throw new NoSuchElementException();
+    } else {
+      synchronized (connection) {
+        try {
+          if (this.resultSet.next()) {
+            final Record record = this.recordFactory.newRecord(this.recordDefinition);
+            record.setState(RecordState.INITIALIZING);
+            final FieldDefinition[] fields = this.fields;
+            for (int i = 0; i < fields.length; i++) {
+              final FieldDefinition field = fields[i];
+              final Object value = this.resultSet.getObject(i + 1);
+              if (value != null) {
+                record.setValue(field.getIndex(), toFieldValue(field, value));
+              }
+            }
+            record.setState(RecordState.PERSISTED);
+            if (this.labelCountMap == null) {
+              this.recordStore.addStatistic("query", record);
+            } else {
+              this.labelCountMap.addCount(record);
+            }
+            return record;
+          } else {
+            throw new NoSuchElementException();
+          }
+        } catch (final SQLException e) {
+          throw Exceptions.wrap("Unable to read: " + this.query, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected synchronized void initDo() {
+    if (this.recordStore != null) {
+      final String sql = this.recordStore.getSql(this.query);
+      final Connection connection = this.recordStore.getJdbcConnection();
+      synchronized (connection) {
+        try {
+          this.statement = connection.prepareStatement(sql);
+          this.resultSet = this.statement.executeQuery();
+          this.connection = connection;
+        } catch (final SQLException e) {
+          JdbcUtils.close(this.statement, this.resultSet);
+          throw Exceptions.wrap("Unable to query: " + sql, e);
+        }
+      }
+    }
+  }
+
+  private Object toFieldValue(final FieldDefinition field, final Object value) {
+    if (field == this.geometryField) {
+      if (value instanceof byte[]) {
+        final GeometryFactory geometryFactory = this.recordDefinition.getGeometryFactory();
+        return GeoPackageGeometry.read(geometryFactory, (byte[])value);
+      } else {
+        return null;
+      }
+    } else if (field.getDataType() == DataTypes.BOOLEAN && value instanceof Number) {
+      return ((Number)value).intValue() != 0;
+    } else {
+      return field.toFieldValue(value);
+    }
+  }
+}
@@ -1,45 +1,315 @@
 package com.revolsys.geopackage;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.date.Dates;
+import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.io.PathName;
 
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.FileUtil;
+import com.revolsys.record.Record;
 import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.query.Column;
+import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.query.SqlCondition;
+import com.revolsys.record.query.Value;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
 import com.revolsys.record.schema.AbstractRecordStore;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionBuilder;
 import com.revolsys.record.schema.RecordStoreSchema;
 import com.revolsys.record.schema.RecordStoreSchemaElement;
 
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.attributes.AttributesColumn;
+import mil.nga.geopackage.attributes.AttributesDao;
+import mil.nga.geopackage.attributes.AttributesTable;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.db.table.Constraint;
+import mil.nga.geopackage.extension.RTreeIndexExtension;
 import mil.nga.geopackage.features.columns.GeometryColumns;
 import mil.nga.geopackage.features.user.FeatureColumn;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureTable;
 import mil.nga.geopackage.manager.GeoPackageManager;
+import mil.nga.geopackage.user.UserColumn;
 
+/**
+ * Record store for a GeoPackage file. The schema is read and the R-tree spatial indexes are
+ * maintained using the NGA GeoPackage library, records are read and written directly using the
+ * SQLite JDBC connection.
+ */
 public class GeoPackageRecordStore extends AbstractRecordStore {
+  private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter
+    .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+    .withZone(ZoneOffset.UTC);
 
-  private final File file;
+  private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("[?]");
+
+  private boolean bulkLoad = false;
 
   private boolean createMissingRecordStore = false;
 
+  private boolean createMissingTables = true;
+
+  private final Set<String> deferredSpatialIndexTableNames = new LinkedHashSet<>();
+
+  private final File file;
+
   private GeoPackage geoPackage;
 
+  private RTreeIndexExtension rtreeIndexExtension;
+
+  private final Map<String, String> rtreeTableNames = new HashMap<>();
+
   public GeoPackageRecordStore(final File file) {
     this.file = file;
     setConnectionProperties(Collections.singletonMap("url", FileUtil.toUrl(file).toString()));
   }
 
+  private void addField(final RecordDefinitionBuilder recordDefinition, final UserColumn column) {
+    final String fieldName = column.getName();
+    final GeoPackageDataType geoPackageDataType = column.getDataType();
+    DataType dataType = null;
+    switch (geoPackageDataType) {
+      case BLOB:
+        dataType = DataTypes.BLOB;
+      break;
+      case BOOLEAN:
+        dataType = DataTypes.BOOLEAN;
+      break;
+      case DATE:
+        dataType = DataTypes.DATE;
+      break;
+      case DATETIME:
+        dataType = DataTypes.DATE_TIME;
+      break;
+      case DOUBLE:
+        dataType = DataTypes.DOUBLE;
+      break;
+      case FLOAT:
+        dataType = DataTypes.FLOAT;
+      break;
+      case INT:
+        dataType = DataTypes.LONG;
+      break;
+      case INTEGER:
+        dataType = DataTypes.LONG;
+      break;
+      case MEDIUMINT:
+        dataType = DataTypes.INT;
+      break;
+      case REAL:
+        dataType = DataTypes.DOUBLE;
+      break;
+      case SMALLINT:
+        dataType = DataTypes.SHORT;
+      break;
+      case TEXT:
+        dataType = DataTypes.STRING;
+      break;
+      case TINYINT:
+        dataType = DataTypes.BYTE;
+      break;
+
+      default:
+        dataType = DataTypes.OBJECT;
+      break;
+    }
+    boolean required = column.isPrimaryKey();
+    for (final Constraint constraint : column.getConstraints()) {
+      switch (constraint.getType()) {
+        case NOT_NULL:
+          required = true;
+        break;
+        default:
+        break;
+      }
+    }
+    recordDefinition.addField(fieldName, dataType, required);
+    if (column.isPrimaryKey()) {
+      recordDefinition.setIdFieldName(fieldName);
+    }
+  }
+
+  /**
+   * Inline the literal values in the SQL as the values can't be bound using JDBC field
+   * definitions. Bounding box intersects conditions use the R-tree index if the table has one.
+   */
+  @Override
+  public void appendQueryValue(final Query query, final StringBuilder sql,
+    final QueryValue condition) {
+    if (condition instanceof Value) {
+      final Value valueCondition = (Value)condition;
+      final Object value = valueCondition.getValue();
+      appendValue(sql, value);
+    } else if (condition instanceof SqlCondition) {
+      final SqlCondition sqlCondition = (SqlCondition)condition;
+      final String where = sqlCondition.getSql();
+      final List<Object> parameters = sqlCondition.getParameterValues();
+      if (parameters.isEmpty()) {
+        if (where.indexOf('?') > -1) {
+          throw new IllegalArgumentException(
+            "No arguments specified for a where clause with placeholders: " + where);
+        } else {
+          sql.append(where);
+        }
+      } else {
+        final Matcher matcher = PLACEHOLDER_PATTERN.matcher(where);
+        int i = 0;
+        while (matcher.find()) {
+          if (i >= parameters.size()) {
+            throw new IllegalArgumentException(
+              "Not enough arguments for where clause with placeholders: " + where);
+          }
+          final Object argument = parameters.get(i);
+          final StringBuffer replacement = new StringBuffer();
+          matcher.appendReplacement(replacement, "");
+          sql.append(replacement);
+          appendValue(sql, argument);
+          i++;
+        }
+        final StringBuffer tail = new StringBuffer();
+        matcher.appendTail(tail);
+        sql.append(tail);
+      }
+    } else if (condition instanceof EnvelopeIntersects) {
+      final EnvelopeIntersects envelopeIntersects = (EnvelopeIntersects)condition;
+      final QueryValue boundingBox1Value = envelopeIntersects.getBoundingBox1Value();
+      final QueryValue boundingBox2Value = envelopeIntersects.getBoundingBox2Value();
+      if (boundingBox1Value instanceof Column && boundingBox2Value instanceof Value) {
+        final String columnName = ((Column)boundingBox1Value).getName();
+        final Object value = ((Value)boundingBox2Value).getValue();
+        if (value instanceof BoundingBox) {
+          appendEnvelopeIntersects(query, sql, columnName, (BoundingBox)value);
+        } else {
+          throw new IllegalArgumentException(
+            "EnvelopeIntersects value must be a BoundingBox: " + condition);
+        }
+      } else {
+        throw new IllegalArgumentException(
+          "EnvelopeIntersects only supports a column and a bounding box value: " + condition);
+      }
+    } else {
+      condition.appendDefaultSql(query, this, sql);
+    }
+  }
+
+  private void appendEnvelopeIntersects(final Query query, final StringBuilder sql,
+    final String columnName, BoundingBox boundingBox) {
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    final FieldDefinition field = recordDefinition.getField(columnName);
+    if (field == null || boundingBox.isEmpty()) {
+      sql.append("1 = 0");
+    } else {
+      final GeometryFactory geometryFactory = recordDefinition.getGeometryFactory();
+      if (geometryFactory != null) {
+        boundingBox = boundingBox.bboxToCs(geometryFactory);
+      }
+      final String tableName = recordDefinition.getName();
+      final String rtreeTableName = getRTreeTableName(tableName);
+      if (rtreeTableName == null) {
+        sql.append("(ST_MinX(\"");
+        sql.append(columnName);
+        sql.append("\") <= ");
+        sql.append(boundingBox.getMaxX());
+        sql.append(" AND ST_MaxX(\"");
+        sql.append(columnName);
+        sql.append("\") >= ");
+        sql.append(boundingBox.getMinX());
+        sql.append(" AND ST_MinY(\"");
+        sql.append(columnName);
+        sql.append("\") <= ");
+        sql.append(boundingBox.getMaxY());
+        sql.append(" AND ST_MaxY(\"");
+        sql.append(columnName);
+        sql.append("\") >= ");
+        sql.append(boundingBox.getMinY());
+        sql.append(")");
+      } else {
+        sql.append('"');
+        sql.append(recordDefinition.getIdFieldName());
+        sql.append("\" IN (SELECT id FROM \"");
+        sql.append(rtreeTableName);
+        sql.append("\" WHERE minx <= ");
+        sql.append(boundingBox.getMaxX());
+        sql.append(" AND maxx >= ");
+        sql.append(boundingBox.getMinX());
+        sql.append(" AND miny <= ");
+        sql.append(boundingBox.getMaxY());
+        sql.append(" AND maxy >= ");
+        sql.append(boundingBox.getMinY());
+        sql.append(")");
+      }
+    }
+  }
+
+  public void appendValue(final StringBuilder sql, final Object value) {
+    if (value == null) {
+      sql.append("NULL");
+    } else if (value instanceof Double || value instanceof Float) {
+      final double number = ((Number)value).doubleValue();
+      if (Double.isNaN(number)) {
+        throw new IllegalArgumentException("NaN cannot be used as a SQL value");
+      } else if (number == Double.POSITIVE_INFINITY) {
+        sql.append("9e999");
+      } else if (number == Double.NEGATIVE_INFINITY) {
+        sql.append("-9e999");
+      } else {
+        sql.append(value);
+      }
+    } else if (value instanceof Number) {
+      sql.append(value);
+    } else if (value instanceof Boolean) {
+      if ((Boolean)value) {
+        sql.append('1');
+      } else {
+        sql.append('0');
+      }
+    } else if (value instanceof java.sql.Date) {
+      sql.append('\'');
+      sql.append(Dates.format("yyyy-MM-dd", (java.util.Date)value));
+      sql.append('\'');
+    } else if (value instanceof java.util.Date) {
+      sql.append('\'');
+      sql.append(toDateTimeString((java.util.Date)value));
+      sql.append('\'');
+    } else {
+      final String stringValue = DataTypes.toString(value);
+      sql.append('\'');
+      sql.append(stringValue.replace("'", "''"));
+      sql.append('\'');
+    }
+  }
+
   @Override
   public void close() {
     try {
@@ -47,16 +317,210 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
     } finally {
       final GeoPackage geoPackage = this.geoPackage;
       this.geoPackage = null;
+      this.rtreeIndexExtension = null;
       if (geoPackage != null) {
         geoPackage.close();
       }
     }
   }
 
+  /**
+   * Create the R-tree indexes for the tables created in bulk load mode.
+   */
+  void createDeferredSpatialIndexes() {
+    final Connection connection = getJdbcConnection();
+    synchronized (connection) {
+      final List<String> tableNames = new ArrayList<>(this.deferredSpatialIndexTableNames);
+      this.deferredSpatialIndexTableNames.clear();
+      for (final String tableName : tableNames) {
+        createSpatialIndex(tableName);
+      }
+    }
+  }
+
+  private void createSpatialIndex(final String tableName) {
+    final FeatureDao featureDao = this.geoPackage.getFeatureDao(tableName);
+    final FeatureTable table = featureDao.getTable();
+    this.rtreeIndexExtension.create(table);
+    final String geometryColumnName = featureDao.getGeometryColumnName();
+    final String rtreeTableName = this.rtreeIndexExtension.getRTreeTableName(tableName,
+      geometryColumnName);
+    synchronized (this.rtreeTableNames) {
+      this.rtreeTableNames.put(tableName, rtreeTableName);
+    }
+  }
+
+  private void createTable(final RecordDefinition sourceRecordDefinition) {
+    final Connection connection = getJdbcConnection();
+    final String tableName = sourceRecordDefinition.getName();
+    String idFieldName = sourceRecordDefinition.getIdFieldName();
+    if (idFieldName == null || !isIntegerType(sourceRecordDefinition.getField(idFieldName))) {
+      idFieldName = "fid";
+    }
+    final FieldDefinition geometryField = sourceRecordDefinition.getGeometryField();
+    final StringBuilder sql = new StringBuilder();
+    sql.append("CREATE TABLE \"");
+    sql.append(tableName);
+    sql.append("\" (\"");
+    sql.append(idFieldName);
+    sql.append("\" INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL");
+    for (final FieldDefinition field : sourceRecordDefinition.getFields()) {
+      final String fieldName = field.getName();
+      if (!fieldName.equalsIgnoreCase(idFieldName)) {
+        sql.append(", \"");
+        sql.append(fieldName);
+        sql.append("\" ");
+        if (field == geometryField) {
+          sql.append(getGeometryTypeName(field));
+        } else {
+          sql.append(getSqliteTypeName(field));
+        }
+        if (field.isRequired()) {
+          sql.append(" NOT NULL");
+        }
+      }
+    }
+    sql.append(")");
+    try {
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+      try (
+        Statement statement = connection.createStatement()) {
+        statement.execute(sql.toString());
+      }
+      if (geometryField == null) {
+        executeUpdate(connection,
+          "INSERT INTO gpkg_contents (table_name, data_type, identifier) VALUES (?, 'attributes', ?)",
+          tableName, tableName);
+      } else {
+        final GeometryFactory geometryFactory = sourceRecordDefinition.getGeometryFactory();
+        int coordinateSystemId = geometryFactory.getCoordinateSystemId();
+        if (coordinateSystemId > 0) {
+          String definition = geometryFactory.toWktCs();
+          if (definition == null) {
+            definition = "undefined";
+          }
+          String coordinateSystemName = geometryFactory.getCoordinateSystemName();
+          if (coordinateSystemName == null) {
+            coordinateSystemName = "EPSG:" + coordinateSystemId;
+          }
+          executeUpdate(connection,
+            "INSERT OR IGNORE INTO gpkg_spatial_ref_sys (srs_name, srs_id, organization, organization_coordsys_id, definition) VALUES (?, ?, 'EPSG', ?, ?)",
+            coordinateSystemName, coordinateSystemId, coordinateSystemId, definition);
+        } else {
+          coordinateSystemId = -1;
+        }
+        final int axisCount = geometryFactory.getAxisCount();
+        executeUpdate(connection,
+          "INSERT INTO gpkg_contents (table_name, data_type, identifier, srs_id) VALUES (?, 'features', ?, ?)",
+          tableName, tableName, coordinateSystemId);
+        executeUpdate(connection,
+          "INSERT INTO gpkg_geometry_columns (table_name, column_name, geometry_type_name, srs_id, z, m) VALUES (?, ?, ?, ?, ?, ?)",
+          tableName, geometryField.getName(), getGeometryTypeName(geometryField),
+          coordinateSystemId, axisCount > 2 ? 1 : 0, axisCount > 3 ? 1 : 0);
+        if (!connection.getAutoCommit()) {
+          connection.commit();
+        }
+        if (this.bulkLoad) {
+          this.deferredSpatialIndexTableNames.add(tableName);
+        } else {
+          createSpatialIndex(tableName);
+        }
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } catch (final SQLException e) {
+      throw Exceptions.wrap("Unable to create table: " + sql, e);
+    }
+  }
+
+  private void executeUpdate(final Connection connection, final String sql,
+    final Object... parameters) throws SQLException {
+    try (
+      PreparedStatement statement = connection.prepareStatement(sql)) {
+      for (int i = 0; i < parameters.length; i++) {
+        statement.setObject(i + 1, parameters[i]);
+      }
+      statement.executeUpdate();
+    }
+  }
+
+  private String getGeometryTypeName(final FieldDefinition field) {
+    final DataType dataType = field.getDataType();
+    if (Geometry.class.isAssignableFrom(dataType.getJavaClass())
+      && dataType != DataTypes.LINEAR_RING) {
+      return dataType.getName().toUpperCase();
+    } else {
+      return "GEOMETRY";
+    }
+  }
+
+  Connection getJdbcConnection() {
+    final GeoPackage geoPackage = this.geoPackage;
+    if (geoPackage == null) {
+      throw new IllegalStateException("GeoPackage is closed: " + this.file);
+    } else {
+      return geoPackage.getConnection().getConnection();
+    }
+  }
+
   @Override
   public int getRecordCount(final Query query) {
-    // TODO Auto-generated method stub
-    return 0;
+    if (query == null) {
+      return 0;
+    } else {
+      RecordDefinition recordDefinition = query.getRecordDefinition();
+      if (recordDefinition == null) {
+        recordDefinition = getRecordDefinition(query.getTypeName());
+        if (recordDefinition == null) {
+          return 0;
+        } else {
+          query.setRecordDefinition(recordDefinition);
+        }
+      }
+      final StringBuilder sql = new StringBuilder();
+      sql.append("SELECT COUNT(*) FROM \"");
+      sql.append(recordDefinition.getName());
+      sql.append('"');
+      final StringBuilder whereClause = getWhereClause(query);
+      if (whereClause.length() > 0) {
+        sql.append(" WHERE ");
+        sql.append(whereClause);
+      }
+      final Connection connection = getJdbcConnection();
+      synchronized (connection) {
+        try (
+          Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(sql.toString())) {
+          if (resultSet.next()) {
+            return resultSet.getInt(1);
+          } else {
+            return 0;
+          }
+        } catch (final SQLException e) {
+          throw Exceptions.wrap("Unable to get count: " + sql, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition(final RecordDefinition sourceRecordDefinition) {
+    RecordDefinition recordDefinition = super.getRecordDefinition(sourceRecordDefinition);
+    if (this.createMissingTables && recordDefinition == null) {
+      final Connection connection = getJdbcConnection();
+      synchronized (connection) {
+        recordDefinition = super.getRecordDefinition(sourceRecordDefinition);
+        if (recordDefinition == null) {
+          createTable(sourceRecordDefinition);
+          refreshSchema();
+          recordDefinition = super.getRecordDefinition(sourceRecordDefinition);
+        }
+      }
+    }
+    return recordDefinition;
   }
 
   @Override
@@ -64,6 +528,119 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
     return GeoPackageFactory.DESCRIPTION;
   }
 
+  private String getRTreeTableName(final String tableName) {
+    synchronized (this.rtreeTableNames) {
+      return this.rtreeTableNames.get(tableName);
+    }
+  }
+
+  protected String getSql(final Query query) {
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    final StringBuilder sql = new StringBuilder();
+    sql.append("SELECT ");
+    boolean first = true;
+    for (final FieldDefinition field : getSelectFields(query)) {
+      if (first) {
+        first = false;
+      } else {
+        sql.append(", ");
+      }
+      sql.append('"');
+      sql.append(field.getName());
+      sql.append('"');
+    }
+    sql.append(" FROM \"");
+    sql.append(recordDefinition.getName());
+    sql.append('"');
+    final StringBuilder whereClause = getWhereClause(query);
+    if (whereClause.length() > 0) {
+      sql.append(" WHERE ");
+      sql.append(whereClause);
+    }
+    first = true;
+    for (final Entry<? extends CharSequence, Boolean> entry : query.getOrderBy().entrySet()) {
+      if (first) {
+        sql.append(" ORDER BY ");
+        first = false;
+      } else {
+        sql.append(", ");
+      }
+      sql.append('"');
+      sql.append(entry.getKey());
+      sql.append('"');
+      if (!entry.getValue()) {
+        sql.append(" DESC");
+      }
+    }
+    final int limit = query.getLimit();
+    final int offset = query.getOffset();
+    if (limit < Integer.MAX_VALUE) {
+      sql.append(" LIMIT ");
+      sql.append(limit);
+    } else if (offset > 0) {
+      sql.append(" LIMIT -1");
+    }
+    if (offset > 0) {
+      sql.append(" OFFSET ");
+      sql.append(offset);
+    }
+    return sql.toString();
+  }
+
+  List<FieldDefinition> getSelectFields(final Query query) {
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    final List<String> fieldNames = query.getFieldNames();
+    if (fieldNames.isEmpty()) {
+      return recordDefinition.getFields();
+    } else {
+      final List<FieldDefinition> fields = new ArrayList<>();
+      for (final String fieldName : fieldNames) {
+        final FieldDefinition field = recordDefinition.getField(fieldName);
+        if (field != null) {
+          fields.add(field);
+        }
+      }
+      return fields;
+    }
+  }
+
+  private String getSqliteTypeName(final FieldDefinition field) {
+    final DataType dataType = field.getDataType();
+    if (dataType == DataTypes.BOOLEAN) {
+      return "BOOLEAN";
+    } else if (dataType == DataTypes.BYTE) {
+      return "TINYINT";
+    } else if (dataType == DataTypes.SHORT) {
+      return "SMALLINT";
+    } else if (dataType == DataTypes.INT) {
+      return "MEDIUMINT";
+    } else if (isIntegerType(field)) {
+      return "INTEGER";
+    } else if (dataType == DataTypes.FLOAT) {
+      return "FLOAT";
+    } else if (dataType == DataTypes.DOUBLE || dataType == DataTypes.DECIMAL) {
+      return "DOUBLE";
+    } else if (dataType == DataTypes.SQL_DATE) {
+      return "DATE";
+    } else if (dataType == DataTypes.DATE || dataType == DataTypes.DATE_TIME
+      || dataType == DataTypes.TIMESTAMP) {
+      return "DATETIME";
+    } else if (dataType == DataTypes.BLOB) {
+      return "BLOB";
+    } else {
+      return "TEXT";
+    }
+  }
+
+  protected StringBuilder getWhereClause(final Query query) {
+    final StringBuilder whereClause = new StringBuilder();
+    final Condition whereCondition = query.getWhereCondition();
+    if (!whereCondition.isEmpty()) {
+      appendQueryValue(query, whereClause, whereCondition);
+    }
+    return whereClause;
+  }
+
   @Override
   protected void initializeDo() {
     if (!this.file.exists()) {
@@ -77,16 +654,60 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
       }
     }
     this.geoPackage = GeoPackageManager.open(this.file);
+    this.rtreeIndexExtension = new RTreeIndexExtension(this.geoPackage);
+    // The R-tree triggers use the ST_ functions which must be registered on each connection
+    this.rtreeIndexExtension.createAllFunctions();
+    super.initializeDo();
+  }
+
+  /**
+   * In bulk load mode the writers disable the rollback journal and synchronous writes, and the
+   * R-tree indexes for new tables are created when the writer is closed.
+   *
+   * @return True if bulk load mode is enabled.
+   */
+  public boolean isBulkLoad() {
+    return this.bulkLoad;
   }
 
   public boolean isCreateMissingRecordStore() {
     return this.createMissingRecordStore;
   }
 
+  public boolean isCreateMissingTables() {
+    return this.createMissingTables;
+  }
+
+  private boolean isIntegerType(final FieldDefinition field) {
+    if (field == null) {
+      return false;
+    } else {
+      final DataType dataType = field.getDataType();
+      return dataType == DataTypes.BYTE || dataType == DataTypes.SHORT
+        || dataType == DataTypes.INT || dataType == DataTypes.LONG
+        || dataType == DataTypes.BIG_INTEGER;
+    }
+  }
+
+  @Override
+  public AbstractIterator<Record> newIterator(final Query query,
+    final Map<String, Object> properties) {
+    RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (recordDefinition == null) {
+      final String typePath = query.getTypeName();
+      recordDefinition = getRecordDefinition(typePath);
+      if (recordDefinition == null) {
+        throw new IllegalArgumentException("Type name does not exist " + typePath);
+      } else {
+        query.setRecordDefinition(recordDefinition);
+      }
+    }
+    return new GeoPackageQueryIterator(this, query);
+  }
+
   @Override
   public RecordWriter newRecordWriter(final boolean throwExceptions) {
-    // TODO Auto-generated method stub
-    return null;
+    return new GeoPackageRecordWriter(this);
   }
 
   @Override
@@ -94,6 +715,8 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
     final RecordStoreSchema schema) {
     synchronized (schema) {
       final Map<PathName, RecordStoreSchemaElement> elementsByPath = new TreeMap<>();
+      final Map<String, String> rtreeTableNames = new HashMap<>();
+      final Set<String> attributesTableNames = new HashSet<>(this.geoPackage.getAttributesTables());
       for (final String tableName : this.geoPackage.getTables()) {
         if (this.geoPackage.isFeatureTable(tableName)) {
           final FeatureDao featureDao = this.geoPackage.getFeatureDao(tableName);
@@ -102,71 +725,18 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
 
           final FeatureTable table = featureDao.getTable();
           for (final FeatureColumn column : table.getColumns()) {
-            final String fieldName = column.getName();
-            final GeoPackageDataType geoPackageDataType = column.getDataType();
-            DataType dataType = null;
-            switch (geoPackageDataType) {
-              case BLOB:
-                dataType = DataTypes.BLOB;
-              break;
-              case BOOLEAN:
-                dataType = DataTypes.BOOLEAN;
-              break;
-              case DATE:
-                dataType = DataTypes.DATE;
-              break;
-              case DATETIME:
-                dataType = DataTypes.DATE_TIME;
-              break;
-              case DOUBLE:
-                dataType = DataTypes.DOUBLE;
-              break;
-              case FLOAT:
-                dataType = DataTypes.FLOAT;
-              break;
-              case INT:
-                dataType = DataTypes.LONG;
-              break;
-              case INTEGER:
-                dataType = DataTypes.LONG;
-              break;
-              case MEDIUMINT:
-                dataType = DataTypes.INT;
-              break;
-              case REAL:
-                dataType = DataTypes.DOUBLE;
-              break;
-              case SMALLINT:
-                dataType = DataTypes.SHORT;
-              break;
-              case TEXT:
-                dataType = DataTypes.STRING;
-              break;
-              case TINYINT:
-                dataType = DataTypes.BYTE;
-              break;
-
-              default:
-                dataType = DataTypes.OBJECT;
-              break;
-            }
-            boolean required = false;
-            for (final Constraint constraint : column.getConstraints()) {
-              switch (constraint.getType()) {
-                case NOT_NULL:
-                  required = true;
-                break;
-                default:
-                break;
-              }
+            if (!column.isGeometry()) {
+              addField(recordDefinition, column);
             }
-            recordDefinition.addField(fieldName, dataType, required);
           }
           final GeometryColumns geometryColumn = featureDao.getGeometryColumns();
           if (geometryColumn != null) {
             final String fieldName = geometryColumn.getColumnName();
             final String geometryTypeName = geometryColumn.getGeometryTypeName();
-            final DataType dataType = DataTypes.getDataType(geometryTypeName);
+            DataType dataType = DataTypes.getDataType(geometryTypeName);
+            if (dataType == null || dataType == DataTypes.OBJECT) {
+              dataType = DataTypes.GEOMETRY;
+            }
             int axisCount = 2;
             if (geometryColumn.getM() == 1) {
               axisCount = 4;
@@ -180,20 +750,50 @@ public class GeoPackageRecordStore extends AbstractRecordStore {
               .addField(fieldName, dataType) //
               .setGeometryFactory(geometryFactory) //
             ;
+            if (this.rtreeIndexExtension.has(tableName, fieldName)) {
+              final String rtreeTableName = this.rtreeIndexExtension.getRTreeTableName(tableName,
+                fieldName);
+              rtreeTableNames.put(tableName, rtreeTableName);
+            }
           }
 
+          final PathName pathName = recordDefinition.getPathName();
+          elementsByPath.put(pathName, recordDefinition.getRecordDefinition());
+        } else if (attributesTableNames.contains(tableName)) {
+          final AttributesDao attributesDao = this.geoPackage.getAttributesDao(tableName);
+          final RecordDefinitionBuilder recordDefinition = new RecordDefinitionBuilder(schema,
+            tableName);
+
+          final AttributesTable table = attributesDao.getTable();
+          for (final AttributesColumn column : table.getColumns()) {
+            addField(recordDefinition, column);
+          }
           final PathName pathName = recordDefinition.getPathName();
           elementsByPath.put(pathName, recordDefinition.getRecordDefinition());
         }
       }
-
+      synchronized (this.rtreeTableNames) {
+        this.rtreeTableNames.clear();
+        this.rtreeTableNames.putAll(rtreeTableNames);
+      }
       return elementsByPath;
     }
   }
 
+  public void setBulkLoad(final boolean bulkLoad) {
+    this.bulkLoad = bulkLoad;
+  }
+
   public GeoPackageRecordStore setCreateMissingRecordStore(final boolean createMissingRecordStore) {
     this.createMissingRecordStore = createMissingRecordStore;
     return this;
   }
 
+  public void setCreateMissingTables(final boolean createMissingTables) {
+    this.createMissingTables = createMissingTables;
+  }
+
+  String toDateTimeString(final java.util.Date date) {
+    return DATE_TIME_FORMAT.format(date.toInstant());
+  }
 }
@@ -0,0 +1,372 @@
+package com.revolsys.geopackage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.date.Dates;
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordStore;
+
+/**
+ * Write records to a {@link GeoPackageRecordStore} using cached prepared statements within a
+ * transaction that is committed every batchSize records. In bulk load mode the rollback journal and
+ * synchronous writes are disabled until the writer is closed.
+ */
+public class GeoPackageRecordWriter extends AbstractRecordWriter {
+  public static final int DEFAULT_BATCH_SIZE = 10000;
+
+  private int batchCount = 0;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  private Connection connection;
+
+  private final Map<String, PreparedStatement> deleteStatements = new HashMap<>();
+
+  private final Map<String, PreparedStatement> insertStatements = new HashMap<>();
+
+  private final Map<String, PreparedStatement> insertWithIdStatements = new HashMap<>();
+
+  private String originalJournalMode;
+
+  private int originalSynchronous = -1;
+
+  private GeoPackageRecordStore recordStore;
+
+  private final Map<String, PreparedStatement> updateStatements = new HashMap<>();
+
+  GeoPackageRecordWriter(final GeoPackageRecordStore recordStore) {
+    this.recordStore = recordStore;
+    this.connection = recordStore.getJdbcConnection();
+  }
+
+  private void beginTransaction() throws SQLException {
+    if (this.connection.getAutoCommit()) {
+      if (this.recordStore.isBulkLoad() && this.originalJournalMode == null) {
+        this.originalJournalMode = queryPragma("journal_mode");
+        this.originalSynchronous = Integer.parseInt(queryPragma("synchronous"));
+        executePragma("journal_mode = OFF");
+        executePragma("synchronous = OFF");
+      }
+      this.connection.setAutoCommit(false);
+    }
+  }
+
+  @Override
+  @PreDestroy
+  public void close() {
+    final Connection connection = this.connection;
+    if (connection != null) {
+      synchronized (connection) {
+        final GeoPackageRecordStore recordStore = this.recordStore;
+        try {
+          commit();
+        } catch (final SQLException e) {
+          throw Exceptions.wrap("Unable to close writer", e);
+        } finally {
+          try {
+            closeStatements(this.deleteStatements);
+            closeStatements(this.insertStatements);
+            closeStatements(this.insertWithIdStatements);
+            closeStatements(this.updateStatements);
+            if (!connection.getAutoCommit()) {
+              connection.setAutoCommit(true);
+            }
+          } catch (final SQLException e) {
+            Logs.error(this, "Unable to restore auto commit", e);
+          }
+          if (this.originalJournalMode != null) {
+            try {
+              executePragma("journal_mode = " + this.originalJournalMode);
+              executePragma("synchronous = " + this.originalSynchronous);
+            } catch (final SQLException e) {
+              Logs.error(this, "Unable to restore journal_mode and synchronous", e);
+            }
+          }
+          if (recordStore.isBulkLoad()) {
+            try {
+              recordStore.createDeferredSpatialIndexes();
+            } catch (final RuntimeException e) {
+              Logs.error(this, "Unable to create spatial indexes", e);
+            }
+          }
+          this.connection = null;
+          this.recordStore = null;
+        }
+      }
+    }
+  }
+
+  private void closeStatements(final Map<String, PreparedStatement> statements) {
+    for (final PreparedStatement statement : statements.values()) {
+      JdbcUtils.close(statement);
+    }
+    statements.clear();
+  }
+
+  private void commit() throws SQLException {
+    if (!this.connection.getAutoCommit()) {
+      this.connection.commit();
+    }
+    this.batchCount = 0;
+  }
+
+  private void delete(final RecordDefinition recordDefinition, final Record record)
+    throws SQLException {
+    final String idFieldName = recordDefinition.getIdFieldName();
+    final Object id = record.getValue(idFieldName);
+    if (id != null) {
+      final String tableName = recordDefinition.getName();
+      PreparedStatement statement = this.deleteStatements.get(tableName);
+      if (statement == null) {
+        final String sql = "DELETE FROM \"" + tableName + "\" WHERE \"" + idFieldName + "\" = ?";
+        statement = this.connection.prepareStatement(sql);
+        this.deleteStatements.put(tableName, statement);
+      }
+      statement.setObject(1, id);
+      statement.executeUpdate();
+      this.recordStore.addStatistic("Delete", record);
+    }
+  }
+
+  private void executePragma(final String pragma) throws SQLException {
+    try (
+      Statement statement = this.connection.createStatement()) {
+      statement.execute("PRAGMA " + pragma);
+    }
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  private void insert(final RecordDefinition recordDefinition, final Record record)
+    throws SQLException {
+    final String tableName = recordDefinition.getName();
+    final String idFieldName = recordDefinition.getIdFieldName();
+    Object id = null;
+    if (idFieldName != null) {
+      id = record.getValue(idFieldName);
+    }
+    final boolean hasId = id != null;
+    final Map<String, PreparedStatement> statements = hasId ? this.insertWithIdStatements
+      : this.insertStatements;
+    PreparedStatement statement = statements.get(tableName);
+    if (statement == null) {
+      final StringBuilder sql = new StringBuilder();
+      sql.append("INSERT INTO \"");
+      sql.append(tableName);
+      sql.append("\" (");
+      int parameterCount = 0;
+      for (final FieldDefinition field : recordDefinition.getFields()) {
+        if (hasId || !field.getName().equals(idFieldName)) {
+          if (parameterCount > 0) {
+            sql.append(", ");
+          }
+          sql.append('"');
+          sql.append(field.getName());
+          sql.append('"');
+          parameterCount++;
+        }
+      }
+      sql.append(") VALUES (");
+      for (int i = 0; i < parameterCount; i++) {
+        if (i > 0) {
+          sql.append(", ");
+        }
+        sql.append('?');
+      }
+      sql.append(')');
+      statement = this.connection.prepareStatement(sql.toString(),
+        Statement.RETURN_GENERATED_KEYS);
+      statements.put(tableName, statement);
+    }
+    int parameterIndex = 1;
+    for (final FieldDefinition field : recordDefinition.getFields()) {
+      final String fieldName = field.getName();
+      if (hasId || !fieldName.equals(idFieldName)) {
+        final Object value = record.getValue(fieldName);
+        if (value == null && field.isRequired() && !fieldName.equals(idFieldName)) {
+          throw new IllegalArgumentException(
+            "Field " + recordDefinition.getPath() + "." + fieldName + " is required");
+        }
+        setValue(recordDefinition, statement, parameterIndex++, value);
+      }
+    }
+    statement.executeUpdate();
+    if (!hasId && idFieldName != null) {
+      try (
+        ResultSet generatedKeys = statement.getGeneratedKeys()) {
+        if (generatedKeys.next()) {
+          record.setValue(idFieldName, generatedKeys.getLong(1));
+        }
+      }
+    }
+    record.setState(RecordState.PERSISTED);
+    this.recordStore.addStatistic("Insert", record);
+  }
+
+  private String queryPragma(final String pragma) throws SQLException {
+    try (
+      Statement statement = this.connection.createStatement();
+      ResultSet resultSet = statement.executeQuery("PRAGMA " + pragma)) {
+      if (resultSet.next()) {
+        return resultSet.getString(1);
+      } else {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Set the number of records to write in each transaction.
+   *
+   * @param batchSize The batch size.
+   */
+  public void setBatchSize(final int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  private void setValue(final RecordDefinition recordDefinition, final PreparedStatement statement,
+    final int parameterIndex, final Object value) throws SQLException {
+    if (value == null) {
+      statement.setObject(parameterIndex, null);
+    } else if (value instanceof Geometry) {
+      final GeometryFactory geometryFactory = recordDefinition.getGeometryFactory();
+      final Geometry geometry = ((Geometry)value).convertGeometry(geometryFactory);
+      final byte[] bytes = GeoPackageGeometry.write(geometry,
+        geometryFactory.getCoordinateSystemId(), geometryFactory.getAxisCount());
+      statement.setBytes(parameterIndex, bytes);
+    } else if (value instanceof Boolean) {
+      if ((Boolean)value) {
+        statement.setInt(parameterIndex, 1);
+      } else {
+        statement.setInt(parameterIndex, 0);
+      }
+    } else if (value instanceof Number || value instanceof byte[]) {
+      statement.setObject(parameterIndex, value);
+    } else if (value instanceof java.sql.Date) {
+      statement.setString(parameterIndex, Dates.format("yyyy-MM-dd", (java.util.Date)value));
+    } else if (value instanceof java.util.Date) {
+      statement.setString(parameterIndex,
+        this.recordStore.toDateTimeString((java.util.Date)value));
+    } else {
+      statement.setString(parameterIndex, DataTypes.toString(value));
+    }
+  }
+
+  private void update(final RecordDefinition recordDefinition, final Record record)
+    throws SQLException {
+    final String idFieldName = recordDefinition.getIdFieldName();
+    final Object id = record.getValue(idFieldName);
+    if (id != null) {
+      final String tableName = recordDefinition.getName();
+      final List<FieldDefinition> fields = new ArrayList<>();
+      for (final FieldDefinition field : recordDefinition.getFields()) {
+        if (!field.getName().equals(idFieldName)) {
+          fields.add(field);
+        }
+      }
+      PreparedStatement statement = this.updateStatements.get(tableName);
+      if (statement == null) {
+        final StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE \"");
+        sql.append(tableName);
+        sql.append("\" SET ");
+        boolean first = true;
+        for (final FieldDefinition field : fields) {
+          if (first) {
+            first = false;
+          } else {
+            sql.append(", ");
+          }
+          sql.append('"');
+          sql.append(field.getName());
+          sql.append("\" = ?");
+        }
+        sql.append(" WHERE \"");
+        sql.append(idFieldName);
+        sql.append("\" = ?");
+        statement = this.connection.prepareStatement(sql.toString());
+        this.updateStatements.put(tableName, statement);
+      }
+      int parameterIndex = 1;
+      for (final FieldDefinition field : fields) {
+        final Object value = record.getValue(field.getName());
+        setValue(recordDefinition, statement, parameterIndex++, value);
+      }
+      statement.setObject(parameterIndex, id);
+      statement.executeUpdate();
+      record.setState(RecordState.PERSISTED);
+      this.recordStore.addStatistic("Update", record);
+    }
+  }
+
+  @Override
+  public void write(final Record record) {
+    final GeoPackageRecordStore recordStore = this.recordStore;
+    if (recordStore == null) {
+      throw new IllegalStateException("Writer is closed");
+    }
+    final Connection connection = this.connection;
+    synchronized (connection) {
+      try {
+        final RecordDefinition sourceRecordDefinition = record.getRecordDefinition();
+        final RecordStore sourceRecordStore = sourceRecordDefinition.getRecordStore();
+        final RecordDefinition recordDefinition = recordStore
+          .getRecordDefinition(sourceRecordDefinition);
+        if (recordDefinition == null) {
+          throw new IllegalArgumentException(
+            "Table does not exist: " + sourceRecordDefinition.getPath());
+        }
+        beginTransaction();
+        if (sourceRecordStore == recordStore) {
+          switch (record.getState()) {
+            case NEW:
+              insert(recordDefinition, record);
+            break;
+            case MODIFIED:
+              update(recordDefinition, record);
+            break;
+            case PERSISTED:
+            // No action required
+            break;
+            case DELETED:
+              delete(recordDefinition, record);
+            break;
+            default:
+              throw new IllegalStateException("State not known");
+          }
+        } else {
+          insert(recordDefinition, record);
+        }
+        if (++this.batchCount >= this.batchSize) {
+          commit();
+        }
+      } catch (final SQLException e) {
+        Logs.debug(this, "Unable to write record:\n" + record);
+        throw Exceptions.wrap("Unable to write record", e);
+      }
+    }
+  }
+}
@@ -9,7 +9,7 @@ import com.revolsys.record.query.Query;
 public class OracleJdbcQueryIterator extends JdbcQueryIterator {
   public OracleJdbcQueryIterator(final AbstractJdbcRecordStore recordStore, final Query query,
     final Map<String, Object> properties) {
-    super(recordStore, query, properties);
+    super(recordStore, query, properties, true);
   }
 
   @Override
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -24,6 +25,15 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
     super(recordStore, properties, query);
   }
 
+  @Override
+  protected String getPageSql(final Query query, final int offset, final int limit) {
+    final String sql = JdbcUtils.getSelectSql(query);
+    final int startRowNum = offset + 1;
+    final int endRowNum = offset + limit;
+    return "SELECT * FROM ( SELECT  T2.*, ROWNUM TROWNUM FROM ( " + sql
+      + ") T2 WHERE ROWNUM <= " + endRowNum + " ) WHERE TROWNUM >= " + startRowNum;
+  }
+
   /**
    * Update the cached results for the current page.
    */
@@ -32,13 +42,14 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
     synchronized (this) {
       final JdbcRecordStore recordStore = getRecordStore();
       final Query query = getQuery();
-      setNumResults(recordStore.getRecordCount(query));
-      updateNumPages();
+      initNumResults();
 
       final ArrayList<Record> results = new ArrayList<>();
       final int pageSize = getPageSize();
       final int pageNumber = getPageNumber();
-      if (pageNumber != -1) {
+      if (getKeysetOrderBy() != null) {
+        setResults(getKeysetResults());
+      } else if (pageNumber != -1) {
         String sql = getSql();
 
         final int startRowNum = (pageNumber - 1) * pageSize + 1;
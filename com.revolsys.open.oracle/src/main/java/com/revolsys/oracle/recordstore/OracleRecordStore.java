@@ -383,6 +383,7 @@ public class OracleRecordStore extends AbstractJdbcRecordStore {
 
   private void initSettings() {
     setExcludeTablePatterns(".*\\$.*");
+    setFetchSize(1000);
     // setSqlPrefix("BEGIN ");
     // setSqlSuffix(";END;");
     setIteratorFactory(new RecordStoreIteratorFactory(this::newOracleIterator));
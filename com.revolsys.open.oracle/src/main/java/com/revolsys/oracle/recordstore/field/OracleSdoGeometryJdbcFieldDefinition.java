@@ -1,6 +1,6 @@
 package com.revolsys.oracle.recordstore.field;
 
-import java.math.BigDecimal;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -13,7 +13,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.jeometry.common.data.type.DataType;
-import org.jeometry.common.number.Numbers;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
@@ -35,14 +34,21 @@ import com.revolsys.record.Record;
 import com.revolsys.record.property.FieldProperties;
 import com.revolsys.util.Property;
 
+import oracle.jdbc.OracleConnection;
+import oracle.sql.ARRAY;
+
 public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
 
   private static final int[] LINESTRING_ELEM_INFO = new int[] {
     1, 2, 1
   };
 
+  private static final String MDSYS_SDO_ELEM_INFO_ARRAY = "MDSYS.SDO_ELEM_INFO_ARRAY";
+
   private static final String MDSYS_SDO_GEOMETRY = "MDSYS.SDO_GEOMETRY";
 
+  private static final String MDSYS_SDO_ORDINATE_ARRAY = "MDSYS.SDO_ORDINATE_ARRAY";
+
   private static final String MDSYS_SDO_POINT_TYPE = "MDSYS.SDO_POINT_TYPE";
 
   private static final int[] RECTANGLE_ELEM_INFO = new int[] {
@@ -51,6 +57,53 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
 
   private static final double NAN_VALUE = 0;
 
+  /**
+   * Get the SDO_ORDINATES as a double[] using the driver's primitive array access, avoiding the
+   * BigDecimal[] created by {@link Array#getArray()}.
+   */
+  private static double[] getDoubleArray(final ResultSet resultSet, final int index)
+    throws SQLException {
+    final Array array = resultSet.getArray(index);
+    if (array == null) {
+      return new double[0];
+    } else if (array instanceof ARRAY) {
+      return ((ARRAY)array).getDoubleArray();
+    } else {
+      final Object[] values = (Object[])array.getArray();
+      final double[] doubles = new double[values.length];
+      for (int i = 0; i < values.length; i++) {
+        final Number value = (Number)values[i];
+        if (value != null) {
+          doubles[i] = value.doubleValue();
+        }
+      }
+      return doubles;
+    }
+  }
+
+  /**
+   * Get the SDO_ELEM_INFO as an int[] using the driver's primitive array access.
+   */
+  private static int[] getIntArray(final ResultSet resultSet, final int index)
+    throws SQLException {
+    final Array array = resultSet.getArray(index);
+    if (array == null) {
+      return new int[0];
+    } else if (array instanceof ARRAY) {
+      return ((ARRAY)array).getIntArray();
+    } else {
+      final Object[] values = (Object[])array.getArray();
+      final int[] ints = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        final Number value = (Number)values[i];
+        if (value != null) {
+          ints[i] = value.intValue();
+        }
+      }
+      return ints;
+    }
+  }
+
   private final int axisCount;
 
   private final GeometryFactory geometryFactory;
@@ -69,21 +122,22 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   }
 
   private int addRingComplex(final List<LinearRing> rings, final int axisCount,
-    final BigDecimal[] elemInfo, final int type, final BigDecimal[] coordinatesArray,
-    int elemInfoOffset, final int offset, final long interpretation) {
+    final int[] elemInfo, final int type, final double[] coordinatesArray, int elemInfoOffset,
+    final int offset, final long interpretation) {
     if (interpretation > 0) {
       int length = 0;
       for (int part = 0; part < interpretation; part++) {
         elemInfoOffset += 3;
         if (elemInfoOffset + 3 < elemInfo.length) {
-          final long nextOffset = elemInfo[elemInfoOffset + 3].longValue();
+          final long nextOffset = elemInfo[elemInfoOffset + 3];
           length = (int)(nextOffset - offset);
         } else {
           final int coordinateCount = coordinatesArray.length;
           length = coordinateCount + 1 - offset;
         }
       }
-      final double[] coordinates = Numbers.toDoubleArray(coordinatesArray, offset - 1, length);
+      final double[] coordinates = new double[length];
+      System.arraycopy(coordinatesArray, offset - 1, coordinates, 0, length);
       final LinearRing ring = this.geometryFactory.linearRing(axisCount, coordinates);
       rings.add(ring);
     } else {
@@ -94,18 +148,19 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   }
 
   private int addRingSimple(final List<LinearRing> rings, final int axisCount,
-    final BigDecimal[] elemInfo, final int type, final BigDecimal[] coordinatesArray,
+    final int[] elemInfo, final int type, final double[] coordinatesArray,
     final int elemInfoOffset, final int offset, final long interpretation) {
     if (interpretation == 1) {
       int length;
       if (elemInfoOffset + 3 < elemInfo.length) {
-        final long nextOffset = elemInfo[elemInfoOffset + 3].longValue();
+        final long nextOffset = elemInfo[elemInfoOffset + 3];
         length = (int)(nextOffset - offset);
       } else {
         final int coordinateCount = coordinatesArray.length;
         length = coordinateCount + 1 - offset;
       }
-      final double[] coordinates = Numbers.toDoubleArray(coordinatesArray, offset - 1, length);
+      final double[] coordinates = new double[length];
+      System.arraycopy(coordinatesArray, offset - 1, coordinates, 0, length);
       final LinearRing ring = this.geometryFactory.linearRing(axisCount, coordinates);
       rings.add(ring);
     } else {
@@ -215,22 +270,23 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     throws SQLException {
     final List<LineString> lines = new ArrayList<>();
 
-    final BigDecimal[] elemInfo = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 4);
-    final BigDecimal[] coordinatesArray = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 5);
+    final int[] elemInfo = getIntArray(resultSet, columnIndex + 4);
+    final double[] coordinatesArray = getDoubleArray(resultSet, columnIndex + 5);
 
     for (int i = 0; i < elemInfo.length; i += 3) {
-      final int offset = elemInfo[i].intValue();
-      final int type = elemInfo[i + 1].intValue();
-      final int interpretation = elemInfo[i + 2].intValue();
+      final int offset = elemInfo[i];
+      final int type = elemInfo[i + 1];
+      final int interpretation = elemInfo[i + 2];
       int length;
       if (i + 3 < elemInfo.length) {
-        final long nextOffset = elemInfo[i + 3].intValue();
+        final long nextOffset = elemInfo[i + 3];
         length = (int)(nextOffset - offset);
       } else {
         length = coordinatesArray.length - offset + 1;
       }
       if (interpretation == 1) {
-        final double[] coordinates = Numbers.toDoubleArray(coordinatesArray, offset - 1, length);
+        final double[] coordinates = new double[length];
+        System.arraycopy(coordinatesArray, offset - 1, coordinates, 0, length);
         final LineString points = this.geometryFactory.lineString(axisCount, coordinates);
         lines.add(points);
       } else {
@@ -248,7 +304,7 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   private LineString toLineString(final ResultSet resultSet, final int columnIndex,
     final int axisCount) throws SQLException {
     final int index = columnIndex + 5;
-    final BigDecimal[] coordinates = JdbcUtils.getBigDecimalArray(resultSet, index);
+    final double[] coordinates = getDoubleArray(resultSet, index);
     return this.geometryFactory.lineString(axisCount, coordinates);
   }
 
@@ -266,16 +322,16 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
 
   private Polygon toPolygon(final ResultSet resultSet, final int columnIndex, final int axisCount)
     throws SQLException {
-    final BigDecimal[] elemInfo = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 4);
-    final BigDecimal[] coordinatesArray = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 5);
+    final int[] elemInfo = getIntArray(resultSet, columnIndex + 4);
+    final double[] coordinatesArray = getDoubleArray(resultSet, columnIndex + 5);
 
     final List<LinearRing> rings = new ArrayList<>();
     int numInteriorRings = 0;
 
     for (int elemInfoOffset = 0; elemInfoOffset < elemInfo.length;) {
-      final int offset = elemInfo[elemInfoOffset].intValue();
-      final int type = (int)elemInfo[elemInfoOffset + 1].longValue();
-      final long interpretation = elemInfo[elemInfoOffset + 2].longValue();
+      final int offset = elemInfo[elemInfoOffset];
+      final int type = elemInfo[elemInfoOffset + 1];
+      final long interpretation = elemInfo[elemInfoOffset + 2];
       switch (type) {
         case 1003:
           if (rings.isEmpty()) {
@@ -324,15 +380,15 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     final int axisCount) throws SQLException {
     final List<Polygon> polygons = new ArrayList<>();
 
-    final BigDecimal[] elemInfo = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 4);
-    final BigDecimal[] coordinatesArray = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 5);
+    final int[] elemInfo = getIntArray(resultSet, columnIndex + 4);
+    final double[] coordinatesArray = getDoubleArray(resultSet, columnIndex + 5);
 
     List<LinearRing> rings = Collections.emptyList();
 
     for (int elemInfoOffset = 0; elemInfoOffset < elemInfo.length;) {
-      final int offset = elemInfo[elemInfoOffset].intValue();
-      final int type = (int)elemInfo[elemInfoOffset + 1].longValue();
-      final long interpretation = elemInfo[elemInfoOffset + 2].longValue();
+      final int offset = elemInfo[elemInfoOffset];
+      final int type = elemInfo[elemInfoOffset + 1];
+      final long interpretation = elemInfo[elemInfoOffset + 2];
 
       switch (type) {
         case 1003:
@@ -379,13 +435,11 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
 
   private Punctual toPunctual(final ResultSet resultSet, final int columnIndex, final int axisCount)
     throws SQLException {
-    final BigDecimal[] coordinatesArray = JdbcUtils.getBigDecimalArray(resultSet, columnIndex + 5);
+    final double[] coordinatesArray = getDoubleArray(resultSet, columnIndex + 5);
     final int vertexCount = coordinatesArray.length / axisCount;
     if (vertexCount == 1) {
       final double[] coordinates = new double[axisCount];
-      for (int i = 0; i < axisCount; i++) {
-        coordinates[i] = coordinatesArray[i].doubleValue();
-      }
+      System.arraycopy(coordinatesArray, 0, coordinates, 0, axisCount);
       final Point point = this.geometryFactory.point(coordinates);
       return point;
     } else {
@@ -393,9 +447,8 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
       int coordinateIndex = 0;
       for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
         final double[] coordinates = new double[axisCount];
-        for (int i = 0; i < axisCount; i++) {
-          coordinates[i] = coordinatesArray[coordinateIndex++].doubleValue();
-        }
+        System.arraycopy(coordinatesArray, coordinateIndex, coordinates, 0, axisCount);
+        coordinateIndex += axisCount;
         final Point point = this.geometryFactory.point(coordinates);
         points[vertexIndex] = point;
       }
@@ -420,8 +473,19 @@ public class OracleSdoGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   private Struct toSdoGeometry(final Connection connection, final int geometryType,
     final Struct pointStruct, final int[] elemInfo, final double... coordinates)
     throws SQLException {
-    return JdbcUtils.struct(connection, MDSYS_SDO_GEOMETRY, geometryType, this.oracleSrid,
-      pointStruct, elemInfo, coordinates);
+    if (elemInfo != null && connection.isWrapperFor(OracleConnection.class)) {
+      final OracleConnection oracleConnection = connection.unwrap(OracleConnection.class);
+      final ARRAY elemInfoArray = oracleConnection.createARRAY(MDSYS_SDO_ELEM_INFO_ARRAY,
+        elemInfo);
+      final ARRAY ordinatesArray = oracleConnection.createARRAY(MDSYS_SDO_ORDINATE_ARRAY,
+        coordinates);
+      return oracleConnection.createStruct(MDSYS_SDO_GEOMETRY, new Object[] {
+        geometryType, this.oracleSrid, pointStruct, elemInfoArray, ordinatesArray
+      });
+    } else {
+      return JdbcUtils.struct(connection, MDSYS_SDO_GEOMETRY, geometryType, this.oracleSrid,
+        pointStruct, elemInfo, coordinates);
+    }
   }
 
   private Struct toSdoGeometry(final Connection connection, final Object object,
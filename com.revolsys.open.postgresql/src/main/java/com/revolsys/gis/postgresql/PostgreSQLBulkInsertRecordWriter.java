@@ -0,0 +1,887 @@
+package com.revolsys.gis.postgresql;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jeometry.common.logging.Logs;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.jdbc.PgConnection;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryJdbcFieldDefinition;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.property.GlobalIdProperty;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * Insert records using <code>COPY ... FROM STDIN (FORMAT BINARY)</code>. The field values and
+ * EWKB geometries are encoded directly into the COPY buffer, which is sent to the server each
+ * time it reaches copyFlushSize bytes. Each COPY statement contains at most copyBatchSize
+ * records.
+ *
+ * Records that can't be copied are written using the batched INSERT statements of a
+ * {@link JdbcRecordWriter} on the same connection. This includes updates and deletes, records
+ * without a value for the id fields, and tables with a column type that doesn't have a binary
+ * encoder. If a COPY statement fails it is rolled back to a savepoint and the records are
+ * inserted one at a time, so only the records that fail are lost.
+ */
+public class PostgreSQLBulkInsertRecordWriter extends AbstractRecordWriter {
+  private static class CopyTable {
+    private final JdbcFieldDefinition[] fields;
+
+    private final String sql;
+
+    private final String[] typeNames;
+
+    private CopyTable(final String sql, final JdbcFieldDefinition[] fields,
+      final String[] typeNames) {
+      this.sql = sql;
+      this.fields = fields;
+      this.typeNames = typeNames;
+    }
+  }
+
+  private static final byte[] COPY_SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0
+  };
+
+  private static final CopyTable NOT_COPYABLE = new CopyTable(null, null, null);
+
+  /** The number of days from 1970-01-01 to the PostgreSQL epoch 2000-01-01. */
+  private static final long POSTGRES_EPOCH_DAY = 10957;
+
+  /** The number of seconds from 1970-01-01 to the PostgreSQL epoch 2000-01-01. */
+  private static final long POSTGRES_EPOCH_SECOND = 946684800;
+
+  /**
+   * Encode the geometry as the little endian EWKB written to the COPY buffer.
+   *
+   * @param geometry The geometry.
+   * @return The EWKB bytes.
+   */
+  public static byte[] toEwkb(final Geometry geometry) {
+    final PostgreSQLBulkInsertRecordWriter writer = new PostgreSQLBulkInsertRecordWriter();
+    writer.putEwkb(geometry, geometry.getGeometryFactory().getAxisCount(),
+      geometry.getHorizontalCoordinateSystemId());
+    return Arrays.copyOf(writer.buffer, writer.bufferPosition);
+  }
+
+  private byte[] buffer = new byte[65536];
+
+  private int bufferPosition;
+
+  private JdbcConnection connection;
+
+  private int copyBatchSize = 10000;
+
+  private int copyFlushSize = 1024 * 1024;
+
+  private CopyIn copyIn;
+
+  private JdbcRecordDefinition copyRecordDefinition;
+
+  private final List<Record> copyRecords = new ArrayList<>();
+
+  private final Map<JdbcRecordDefinition, CopyTable> copyTables = new HashMap<>();
+
+  private final List<Record> fallbackRecords = new ArrayList<>();
+
+  private JdbcRecordWriter fallbackWriter;
+
+  private PostgreSQLRecordStore recordStore;
+
+  private Savepoint savepoint;
+
+  private boolean throwExceptions;
+
+  private PostgreSQLBulkInsertRecordWriter() {
+  }
+
+  public PostgreSQLBulkInsertRecordWriter(final PostgreSQLRecordStore recordStore,
+    final JdbcRecordWriter fallbackWriter) {
+    this.recordStore = recordStore;
+    this.fallbackWriter = fallbackWriter;
+    this.throwExceptions = fallbackWriter.isThrowExceptions();
+    this.connection = fallbackWriter.getConnection();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (this.recordStore != null) {
+      try {
+        flushCopy();
+      } finally {
+        this.recordStore = null;
+        this.copyTables.clear();
+        final JdbcRecordWriter fallbackWriter = this.fallbackWriter;
+        this.fallbackWriter = null;
+        this.connection = null;
+        if (fallbackWriter != null) {
+          fallbackWriter.close();
+        }
+      }
+    }
+  }
+
+  private void copyRecord(final JdbcRecordDefinition recordDefinition, final CopyTable copyTable,
+    final Record record) throws SQLException {
+    if (this.copyIn != null && this.copyRecordDefinition != recordDefinition) {
+      flushCopy();
+    }
+    if (this.copyIn == null) {
+      startCopy(recordDefinition, copyTable);
+    }
+    GlobalIdProperty.setIdentifier(record);
+    final JdbcFieldDefinition[] fields = copyTable.fields;
+    final String[] typeNames = copyTable.typeNames;
+    final int rowStartPosition = this.bufferPosition;
+    try {
+      putShort(fields.length);
+      for (int i = 0; i < fields.length; i++) {
+        final JdbcFieldDefinition field = fields[i];
+        final Object value = record.getValue(field.getIndex());
+        putValue(field, typeNames[i], value);
+      }
+      this.copyRecords.add(record);
+    } catch (final RuntimeException e) {
+      // Values that can't be encoded are inserted after the COPY ends
+      this.bufferPosition = rowStartPosition;
+      this.fallbackRecords.add(record);
+    }
+    if (this.bufferPosition >= this.copyFlushSize) {
+      writeBuffer();
+    }
+    if (this.copyRecords.size() >= this.copyBatchSize) {
+      flushCopy();
+    }
+  }
+
+  private void ensureCapacity(final int count) {
+    final int requiredSize = this.bufferPosition + count;
+    if (requiredSize > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(requiredSize, this.buffer.length * 2));
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    flushCopy();
+    if (this.fallbackWriter != null) {
+      try {
+        this.fallbackWriter.flush();
+      } catch (final RuntimeException e) {
+        if (this.throwExceptions) {
+          throw e;
+        } else {
+          Logs.error(this, "Error writing to database", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * End the current COPY statement. If the COPY fails the transaction is rolled back to the
+   * savepoint created before the COPY and the records are inserted one at a time.
+   */
+  private void flushCopy() {
+    final CopyIn copyIn = this.copyIn;
+    if (copyIn != null) {
+      final List<Record> records = new ArrayList<>(this.copyRecords);
+      final JdbcRecordDefinition recordDefinition = this.copyRecordDefinition;
+      this.copyIn = null;
+      this.copyRecordDefinition = null;
+      this.copyRecords.clear();
+      try {
+        putShort(-1);
+        writeBuffer(copyIn);
+        copyIn.endCopy();
+        releaseSavepoint();
+        for (final Record record : records) {
+          record.setState(RecordState.PERSISTED);
+          this.recordStore.addStatistic("Insert", record);
+        }
+      } catch (final SQLException | RuntimeException e) {
+        this.bufferPosition = 0;
+        try {
+          if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+          }
+        } catch (final SQLException cancelException) {
+        }
+        Logs.debug(this, "COPY failed for " + recordDefinition.getPath()
+          + ", inserting records individually", e);
+        rollbackSavepoint();
+        for (final Record record : records) {
+          insertFallback(record);
+        }
+      }
+      final List<Record> fallbackRecords = new ArrayList<>(this.fallbackRecords);
+      this.fallbackRecords.clear();
+      for (final Record record : fallbackRecords) {
+        insertFallback(record);
+      }
+    }
+  }
+
+  private CopyTable getCopyTable(final JdbcRecordDefinition recordDefinition) {
+    CopyTable copyTable = this.copyTables.get(recordDefinition);
+    if (copyTable == null) {
+      copyTable = newCopyTable(recordDefinition);
+      this.copyTables.put(recordDefinition, copyTable);
+    }
+    return copyTable;
+  }
+
+  public int getCopyBatchSize() {
+    return this.copyBatchSize;
+  }
+
+  public int getCopyFlushSize() {
+    return this.copyFlushSize;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    return null;
+  }
+
+  private void insertFallback(final Record record) {
+    Savepoint savepoint = null;
+    try {
+      if (!this.connection.getAutoCommit()) {
+        savepoint = this.connection.setSavepoint();
+      }
+      this.fallbackWriter.write(record);
+      this.fallbackWriter.flush();
+      if (savepoint != null) {
+        this.connection.releaseSavepoint(savepoint);
+      }
+    } catch (final SQLException | RuntimeException e) {
+      if (savepoint != null) {
+        try {
+          this.connection.rollback(savepoint);
+        } catch (final SQLException rollbackException) {
+          Logs.error(this, "Unable to rollback to savepoint", rollbackException);
+        }
+      }
+      if (this.throwExceptions) {
+        if (e instanceof RuntimeException) {
+          throw (RuntimeException)e;
+        } else {
+          throw new RuntimeException("Unable to write", e);
+        }
+      } else {
+        Logs.error(this, "Unable to write " + record.getPathName(), e);
+      }
+    }
+  }
+
+  private boolean isCopyable(final JdbcRecordDefinition recordDefinition, final Record record) {
+    if (recordDefinition.hasIdField()) {
+      for (final String idFieldName : recordDefinition.getIdFieldNames()) {
+        if (!record.hasValue(idFieldName)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  public boolean isThrowExceptions() {
+    return this.throwExceptions;
+  }
+
+  /**
+   * Get the column type names by preparing a select of the columns that returns no rows. If
+   * any of the columns don't have a binary encoder the table can't be copied.
+   */
+  private CopyTable newCopyTable(final JdbcRecordDefinition recordDefinition) {
+    if (this.recordStore.isIdFieldRowid(recordDefinition)) {
+      return NOT_COPYABLE;
+    }
+    final List<FieldDefinition> fieldDefinitions = recordDefinition.getFields();
+    final JdbcFieldDefinition[] fields = new JdbcFieldDefinition[fieldDefinitions.size()];
+    final StringBuilder columns = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      final JdbcFieldDefinition field = (JdbcFieldDefinition)fieldDefinitions.get(i);
+      fields[i] = field;
+      if (i > 0) {
+        columns.append(", ");
+      }
+      field.appendColumnName(columns);
+    }
+    final String tableName = recordDefinition.getDbTableQualifiedName();
+    final String[] typeNames = new String[fields.length];
+    final String selectSql = "SELECT " + columns + " FROM " + tableName + " LIMIT 0";
+    Statement statement = null;
+    ResultSet resultSet = null;
+    try {
+      statement = this.connection.createStatement();
+      resultSet = statement.executeQuery(selectSql);
+      final ResultSetMetaData metaData = resultSet.getMetaData();
+      for (int i = 0; i < fields.length; i++) {
+        final String typeName = metaData.getColumnTypeName(i + 1);
+        switch (typeName) {
+          case "bool":
+          case "bpchar":
+          case "bytea":
+          case "date":
+          case "float4":
+          case "float8":
+          case "geometry":
+          case "int2":
+          case "int4":
+          case "int8":
+          case "json":
+          case "name":
+          case "numeric":
+          case "text":
+          case "timestamp":
+          case "timestamptz":
+          case "varchar":
+            typeNames[i] = typeName;
+          break;
+
+          default:
+            Logs.debug(this, "COPY not supported for " + tableName + "." + fields[i].getDbName()
+              + " of type " + typeName + ", using INSERT");
+            return NOT_COPYABLE;
+        }
+      }
+    } catch (final SQLException e) {
+      Logs.debug(this, "Unable to get column types for " + tableName + ", using INSERT", e);
+      return NOT_COPYABLE;
+    } finally {
+      JdbcUtils.close(statement, resultSet);
+    }
+    final String sql = "COPY " + tableName + " (" + columns + ") FROM STDIN (FORMAT BINARY)";
+    return new CopyTable(sql, fields, typeNames);
+  }
+
+  private void putBytes(final byte[] bytes) {
+    putBytes(bytes, 0, bytes.length);
+  }
+
+  private void putBytes(final byte[] bytes, final int offset, final int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, this.buffer, this.bufferPosition, length);
+    this.bufferPosition += length;
+  }
+
+  private void putDouble(final double value) {
+    putLong(Double.doubleToLongBits(value));
+  }
+
+  private void putDoubleLittleEndian(final double value) {
+    final long bits = Double.doubleToLongBits(value);
+    ensureCapacity(8);
+    final byte[] buffer = this.buffer;
+    int position = this.bufferPosition;
+    for (int i = 0; i < 8; i++) {
+      buffer[position++] = (byte)(bits >>> i * 8);
+    }
+    this.bufferPosition = position;
+  }
+
+  private void putEwkb(final Geometry geometry, final int axisCount, final int srid) {
+    ensureCapacity(1);
+    this.buffer[this.bufferPosition++] = 1;
+    int type;
+    if (geometry instanceof Point) {
+      type = 1;
+    } else if (geometry instanceof LineString) {
+      type = 2;
+    } else if (geometry instanceof Polygon) {
+      type = 3;
+    } else if (geometry instanceof Punctual) {
+      type = 4;
+    } else if (geometry instanceof Lineal) {
+      type = 5;
+    } else if (geometry instanceof Polygonal) {
+      type = 6;
+    } else if (geometry.isGeometryCollection()) {
+      type = 7;
+    } else {
+      throw new IllegalArgumentException("Unknown geometry type" + geometry.getClass());
+    }
+    if (axisCount > 2) {
+      type |= 0x80000000;
+    }
+    if (axisCount > 3) {
+      type |= 0x40000000;
+    }
+    if (srid > 0) {
+      type |= 0x20000000;
+    }
+    putIntLittleEndian(type);
+    if (srid > 0) {
+      putIntLittleEndian(srid);
+    }
+    if (geometry instanceof Point) {
+      final Point point = (Point)geometry;
+      if (point.isEmpty()) {
+        // PostGIS encodes POINT EMPTY with NaN ordinates
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          putDoubleLittleEndian(Double.NaN);
+        }
+      } else {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          putOrdinate(point.getCoordinate(axisIndex));
+        }
+      }
+    } else if (geometry instanceof LineString) {
+      putEwkbLineString((LineString)geometry, axisCount, false);
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      putIntLittleEndian(polygon.getRingCount());
+      if (!polygon.isEmpty()) {
+        final LineString shell = polygon.getShell();
+        putEwkbLineString(shell, axisCount, shell.isClockwise());
+        for (final LineString hole : polygon.holes()) {
+          putEwkbLineString(hole, axisCount, !hole.isClockwise());
+        }
+      }
+    } else {
+      final int geometryCount = geometry.getGeometryCount();
+      putIntLittleEndian(geometryCount);
+      for (int i = 0; i < geometryCount; i++) {
+        final Geometry part = geometry.getGeometry(i);
+        putEwkb(part, axisCount, 0);
+      }
+    }
+  }
+
+  private void putEwkbLineString(final LineString line, final int axisCount,
+    final boolean reverse) {
+    final int vertexCount = line.getVertexCount();
+    putIntLittleEndian(vertexCount);
+    ensureCapacity(vertexCount * axisCount * 8);
+    for (int i = 0; i < vertexCount; i++) {
+      int vertexIndex = i;
+      if (reverse) {
+        vertexIndex = vertexCount - 1 - i;
+      }
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        putOrdinate(line.getCoordinate(vertexIndex, axisIndex));
+      }
+    }
+  }
+
+  private void putGeometry(final JdbcFieldDefinition field, final Object value) {
+    Geometry geometry = (Geometry)value;
+    GeometryFactory geometryFactory;
+    if (field instanceof PostgreSQLGeometryJdbcFieldDefinition) {
+      geometryFactory = ((PostgreSQLGeometryJdbcFieldDefinition)field).getGeometryFactory();
+      geometry = geometry.convertGeometry(geometryFactory);
+    } else {
+      geometryFactory = geometry.getGeometryFactory();
+    }
+    // Empty geometries are written as empty EWKB (not NULL) so they are read back as empty
+    final int lengthPosition = this.bufferPosition;
+    putInt(0);
+    putEwkb(geometry, geometryFactory.getAxisCount(), geometry.getHorizontalCoordinateSystemId());
+    final int length = this.bufferPosition - lengthPosition - 4;
+    final int position = this.bufferPosition;
+    this.bufferPosition = lengthPosition;
+    putInt(length);
+    this.bufferPosition = position;
+  }
+
+  private void putInt(final int value) {
+    ensureCapacity(4);
+    final byte[] buffer = this.buffer;
+    final int position = this.bufferPosition;
+    buffer[position] = (byte)(value >>> 24);
+    buffer[position + 1] = (byte)(value >>> 16);
+    buffer[position + 2] = (byte)(value >>> 8);
+    buffer[position + 3] = (byte)value;
+    this.bufferPosition = position + 4;
+  }
+
+  private void putIntLittleEndian(final int value) {
+    ensureCapacity(4);
+    final byte[] buffer = this.buffer;
+    final int position = this.bufferPosition;
+    buffer[position] = (byte)value;
+    buffer[position + 1] = (byte)(value >>> 8);
+    buffer[position + 2] = (byte)(value >>> 16);
+    buffer[position + 3] = (byte)(value >>> 24);
+    this.bufferPosition = position + 4;
+  }
+
+  private void putLong(final long value) {
+    putInt((int)(value >>> 32));
+    putInt((int)value);
+  }
+
+  /**
+   * Encode a numeric as the number of base 10000 digits, the weight of the first digit, the
+   * sign, the display scale and the base 10000 digits.
+   */
+  private void putNumeric(final BigDecimal value) {
+    final String plain = value.abs().toPlainString();
+    final int pointIndex = plain.indexOf('.');
+    String integerPart;
+    String fractionPart;
+    if (pointIndex == -1) {
+      integerPart = plain;
+      fractionPart = "";
+    } else {
+      integerPart = plain.substring(0, pointIndex);
+      fractionPart = plain.substring(pointIndex + 1);
+    }
+    int leadingZeroCount = 0;
+    while (leadingZeroCount < integerPart.length()
+      && integerPart.charAt(leadingZeroCount) == '0') {
+      leadingZeroCount++;
+    }
+    integerPart = integerPart.substring(leadingZeroCount);
+    final int integerGroupCount = (integerPart.length() + 3) / 4;
+    final StringBuilder digitChars = new StringBuilder();
+    for (int i = integerPart.length(); i < integerGroupCount * 4; i++) {
+      digitChars.append('0');
+    }
+    digitChars.append(integerPart);
+    digitChars.append(fractionPart);
+    while (digitChars.length() % 4 != 0) {
+      digitChars.append('0');
+    }
+    final int groupCount = digitChars.length() / 4;
+    final short[] digits = new short[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      digits[i] = Short.parseShort(digitChars.substring(i * 4, i * 4 + 4));
+    }
+    int weight = integerGroupCount - 1;
+    int start = 0;
+    while (start < groupCount && digits[start] == 0) {
+      start++;
+      weight--;
+    }
+    int end = groupCount;
+    while (end > start && digits[end - 1] == 0) {
+      end--;
+    }
+    final int digitCount = end - start;
+    if (digitCount == 0) {
+      weight = 0;
+    }
+    int sign = 0;
+    if (value.signum() < 0) {
+      sign = 0x4000;
+    }
+    final int displayScale = Math.max(0, value.scale());
+    putInt(8 + digitCount * 2);
+    putShort(digitCount);
+    putShort(weight);
+    putShort(sign);
+    putShort(displayScale);
+    for (int i = start; i < end; i++) {
+      putShort(digits[i]);
+    }
+  }
+
+  /**
+   * Write an ordinate of a non-empty geometry, using 0 for missing (NaN) z or m values.
+   */
+  private void putOrdinate(final double value) {
+    if (Double.isNaN(value)) {
+      putDoubleLittleEndian(0);
+    } else {
+      putDoubleLittleEndian(value);
+    }
+  }
+
+  private void putShort(final int value) {
+    ensureCapacity(2);
+    this.buffer[this.bufferPosition++] = (byte)(value >>> 8);
+    this.buffer[this.bufferPosition++] = (byte)value;
+  }
+
+  private void putValue(final JdbcFieldDefinition field, final String typeName,
+    final Object value) {
+    if (value == null) {
+      putInt(-1);
+    } else {
+      switch (typeName) {
+        case "bool":
+          putInt(1);
+          ensureCapacity(1);
+          this.buffer[this.bufferPosition++] = (byte)(toBoolean(value) ? 1 : 0);
+        break;
+        case "int2":
+          putInt(2);
+          putShort(toNumber(value).shortValue());
+        break;
+        case "int4":
+          putInt(4);
+          putInt(toNumber(value).intValue());
+        break;
+        case "int8":
+          putInt(8);
+          putLong(toNumber(value).longValue());
+        break;
+        case "float4":
+          putInt(4);
+          putInt(Float.floatToIntBits(toNumber(value).floatValue()));
+        break;
+        case "float8":
+          putInt(8);
+          putDouble(toNumber(value).doubleValue());
+        break;
+        case "numeric":
+          final BigDecimal number;
+          if (value instanceof BigDecimal) {
+            number = (BigDecimal)value;
+          } else {
+            number = new BigDecimal(value.toString());
+          }
+          putNumeric(number);
+        break;
+        case "date":
+          putInt(4);
+          putInt((int)(toLocalDate(value).toEpochDay() - POSTGRES_EPOCH_DAY));
+        break;
+        case "timestamp":
+          final LocalDateTime localDateTime = toLocalDateTime(value);
+          putInt(8);
+          putLong(toPostgresMicroseconds(localDateTime.toEpochSecond(ZoneOffset.UTC),
+            localDateTime.getNano()));
+        break;
+        case "timestamptz":
+          final Instant instant = toInstant(value);
+          putInt(8);
+          putLong(toPostgresMicroseconds(instant.getEpochSecond(), instant.getNano()));
+        break;
+        case "bytea":
+          final byte[] bytes = (byte[])value;
+          putInt(bytes.length);
+          putBytes(bytes);
+        break;
+        case "geometry":
+          putGeometry(field, value);
+        break;
+        default:
+          final byte[] stringBytes = value.toString().getBytes(StandardCharsets.UTF_8);
+          putInt(stringBytes.length);
+          putBytes(stringBytes);
+        break;
+      }
+    }
+  }
+
+  private void releaseSavepoint() throws SQLException {
+    final Savepoint savepoint = this.savepoint;
+    this.savepoint = null;
+    if (savepoint != null) {
+      this.connection.releaseSavepoint(savepoint);
+    }
+  }
+
+  private void rollbackSavepoint() {
+    final Savepoint savepoint = this.savepoint;
+    this.savepoint = null;
+    if (savepoint != null) {
+      try {
+        this.connection.rollback(savepoint);
+      } catch (final SQLException e) {
+        Logs.error(this, "Unable to rollback to savepoint", e);
+      }
+    }
+  }
+
+  /**
+   * Set the maximum number of records in each COPY statement. If a COPY fails all the records
+   * in it are inserted individually.
+   *
+   * @param copyBatchSize The maximum number of records.
+   */
+  public void setCopyBatchSize(final int copyBatchSize) {
+    this.copyBatchSize = Math.max(1, copyBatchSize);
+  }
+
+  /**
+   * Set the number of bytes to buffer before sending them to the server.
+   *
+   * @param copyFlushSize The number of bytes.
+   */
+  public void setCopyFlushSize(final int copyFlushSize) {
+    this.copyFlushSize = Math.max(1024, copyFlushSize);
+  }
+
+  public void setThrowExceptions(final boolean throwExceptions) {
+    this.throwExceptions = throwExceptions;
+    final JdbcRecordWriter fallbackWriter = this.fallbackWriter;
+    if (fallbackWriter != null) {
+      fallbackWriter.setThrowExceptions(throwExceptions);
+    }
+  }
+
+  private void startCopy(final JdbcRecordDefinition recordDefinition, final CopyTable copyTable)
+    throws SQLException {
+    this.fallbackWriter.flush();
+    final JdbcConnection connection = this.connection;
+    if (!connection.getAutoCommit()) {
+      this.savepoint = connection.setSavepoint();
+    }
+    final PgConnection pgConnection = connection.unwrap(PgConnection.class);
+    this.copyIn = pgConnection.getCopyAPI().copyIn(copyTable.sql);
+    this.copyRecordDefinition = recordDefinition;
+    this.bufferPosition = 0;
+    putBytes(COPY_SIGNATURE);
+    putInt(0); // Flags
+    putInt(0); // Header extension length
+  }
+
+  private boolean toBoolean(final Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean)value;
+    } else {
+      final String string = value.toString();
+      return "true".equalsIgnoreCase(string) || "1".equals(string) || "y".equalsIgnoreCase(string);
+    }
+  }
+
+  private Instant toInstant(final Object value) {
+    if (value instanceof Instant) {
+      return (Instant)value;
+    } else if (value instanceof Timestamp) {
+      return ((Timestamp)value).toInstant();
+    } else if (value instanceof java.sql.Date) {
+      return Instant.ofEpochMilli(((java.sql.Date)value).getTime());
+    } else if (value instanceof Date) {
+      return ((Date)value).toInstant();
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime)value).atZone(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof LocalDate) {
+      return ((LocalDate)value).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    } else {
+      return Timestamp.valueOf(value.toString()).toInstant();
+    }
+  }
+
+  private LocalDate toLocalDate(final Object value) {
+    if (value instanceof LocalDate) {
+      return (LocalDate)value;
+    } else if (value instanceof java.sql.Date) {
+      return ((java.sql.Date)value).toLocalDate();
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime)value).toLocalDate();
+    } else if (value instanceof Date || value instanceof Instant) {
+      return toInstant(value).atZone(ZoneId.systemDefault()).toLocalDate();
+    } else {
+      return LocalDate.parse(value.toString());
+    }
+  }
+
+  private LocalDateTime toLocalDateTime(final Object value) {
+    if (value instanceof LocalDateTime) {
+      return (LocalDateTime)value;
+    } else if (value instanceof Timestamp) {
+      return ((Timestamp)value).toLocalDateTime();
+    } else if (value instanceof LocalDate) {
+      return ((LocalDate)value).atStartOfDay();
+    } else if (value instanceof Date || value instanceof Instant) {
+      return LocalDateTime.ofInstant(toInstant(value), ZoneId.systemDefault());
+    } else {
+      return Timestamp.valueOf(value.toString()).toLocalDateTime();
+    }
+  }
+
+  private Number toNumber(final Object value) {
+    if (value instanceof Number) {
+      return (Number)value;
+    } else if (value instanceof Boolean) {
+      return (Boolean)value ? 1 : 0;
+    } else {
+      return new BigDecimal(value.toString());
+    }
+  }
+
+  private long toPostgresMicroseconds(final long epochSecond, final int nano) {
+    return (epochSecond - POSTGRES_EPOCH_SECOND) * 1000000 + nano / 1000;
+  }
+
+  @Override
+  public String toString() {
+    if (this.recordStore == null) {
+      return super.toString();
+    } else {
+      return this.recordStore.toString() + " bulk insert writer";
+    }
+  }
+
+  @Override
+  public synchronized void write(final Record record) {
+    final JdbcRecordDefinition recordDefinition = this.recordStore
+      .getRecordDefinition(record.getPathName());
+    final RecordState state = record.getState();
+    boolean insert;
+    if (recordDefinition.getRecordStore() != this.recordStore) {
+      insert = state != RecordState.DELETED;
+    } else {
+      insert = state == RecordState.NEW;
+    }
+    if (insert) {
+      final CopyTable copyTable = getCopyTable(recordDefinition);
+      if (copyTable != NOT_COPYABLE && isCopyable(recordDefinition, record)) {
+        try {
+          copyRecord(recordDefinition, copyTable, record);
+        } catch (final SQLException e) {
+          throw this.connection.getException("COPY", copyTable.sql, e);
+        }
+        return;
+      }
+    }
+    flushCopy();
+    this.fallbackWriter.write(record);
+  }
+
+  private void writeBuffer() {
+    try {
+      writeBuffer(this.copyIn);
+    } catch (final SQLException e) {
+      // The error will be reported by endCopy and the records inserted individually
+      this.bufferPosition = 0;
+      Logs.debug(this, "Error writing COPY data", e);
+    }
+  }
+
+  private void writeBuffer(final CopyIn copyIn) throws SQLException {
+    if (this.bufferPosition > 0) {
+      copyIn.writeToCopy(this.buffer, 0, this.bufferPosition);
+      this.bufferPosition = 0;
+    }
+  }
+}
@@ -10,7 +10,7 @@ public class PostgreSQLJdbcQueryIterator extends JdbcQueryIterator {
 
   public PostgreSQLJdbcQueryIterator(final JdbcRecordStore recordStore, final Query query,
     final Map<String, Object> properties) {
-    super(recordStore, query, properties);
+    super(recordStore, query, properties, true);
   }
 
   @Override
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -31,7 +32,9 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
   @Override
   public List<Record> getList() {
     synchronized (this) {
-      if (this.results == null) {
+      if (this.results == null && getKeysetOrderBy() != null) {
+        this.results = getKeysetResults();
+      } else if (this.results == null) {
         final ArrayList<Record> results = new ArrayList<>();
         final int pageSize = getPageSize();
         final int pageNumber = getPageNumber();
@@ -85,6 +88,15 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
     return this.numResults;
   }
 
+  @Override
+  protected String getPageSql(final Query query, final int offset, final int limit) {
+    String sql = JdbcUtils.getSelectSql(query);
+    if (offset > 0) {
+      sql += " OFFSET " + offset;
+    }
+    return sql + " LIMIT " + limit;
+  }
+
   /**
    * Update the cached results for the current page.
    */
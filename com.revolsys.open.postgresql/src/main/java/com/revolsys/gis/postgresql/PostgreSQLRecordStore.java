@@ -32,6 +32,7 @@ import com.revolsys.jdbc.io.AbstractJdbcDatabaseFactory;
 import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
 import com.revolsys.jdbc.io.JdbcRecordDefinition;
 import com.revolsys.jdbc.io.JdbcRecordStoreSchema;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
 import com.revolsys.jdbc.io.RecordStoreIteratorFactory;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
@@ -55,6 +56,8 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryIterator((PostgreSQLRecordStore)recordStore, query, properties);
   }
 
+  private boolean binaryGeometryTransfer = false;
+
   private boolean useSchemaSequencePrefix = true;
 
   public PostgreSQLRecordStore() {
@@ -269,6 +272,7 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
   }
 
   protected void initSettings() {
+    setFetchSize(1000);
     setIteratorFactory(
       new RecordStoreIteratorFactory(PostgreSQLRecordStore::newPostgreSQLIterator));
   }
@@ -286,6 +290,16 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return connection.prepareStatement(sql, idColumnNames);
   }
 
+  /**
+   * Check if geometry columns are selected using ST_AsEWKB so that they are returned as bytea
+   * and decoded directly from the bytes instead of from the hex encoded EWKB text.
+   *
+   * @return True if binary geometry transfer is enabled.
+   */
+  public boolean isBinaryGeometryTransfer() {
+    return this.binaryGeometryTransfer;
+  }
+
   @Override
   public boolean isIdFieldRowid(final RecordDefinition recordDefinition) {
     final List<FieldDefinition> idFields = recordDefinition.getIdFields();
@@ -307,6 +321,17 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return this.useSchemaSequencePrefix;
   }
 
+  /**
+   * Construct a new writer that inserts records using COPY BINARY. Records that can't be copied
+   * are written using the batched INSERT, UPDATE and DELETE statements.
+   *
+   * @return The writer.
+   */
+  public PostgreSQLBulkInsertRecordWriter newBulkInsertRecordWriter() {
+    final JdbcRecordWriter fallbackWriter = newRecordWriter(getBatchSize());
+    return new PostgreSQLBulkInsertRecordWriter(this, fallbackWriter);
+  }
+
   @Override
   protected JdbcFieldDefinition newRowIdFieldDefinition() {
     return new PostgreSQLOidFieldDefinition();
@@ -317,6 +342,10 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryResultPager(this, getProperties(), query);
   }
 
+  public void setBinaryGeometryTransfer(final boolean binaryGeometryTransfer) {
+    this.binaryGeometryTransfer = binaryGeometryTransfer;
+  }
+
   public void setUseSchemaSequencePrefix(final boolean useSchemaSequencePrefix) {
     this.useSchemaSequencePrefix = useSchemaSequencePrefix;
   }
@@ -0,0 +1,66 @@
+package com.revolsys.gis.postgresql.type;
+
+/**
+ * Read the values from an EWKB byte array, for example from ST_AsEWKB. The byte order is read
+ * from the first byte.
+ */
+public class ByteArrayValueGetter extends ValueGetter {
+  private final boolean bigEndian;
+
+  private final byte[] bytes;
+
+  private int offset = 1;
+
+  public ByteArrayValueGetter(final byte[] bytes) {
+    super(null);
+    this.bytes = bytes;
+    this.bigEndian = bytes[0] == 0;
+  }
+
+  @Override
+  public int getInt() {
+    final byte[] bytes = this.bytes;
+    final int offset = this.offset;
+    if (offset + 4 > bytes.length) {
+      throw new IllegalStateException();
+    }
+    this.offset = offset + 4;
+    final int b1 = bytes[offset] & 0xFF;
+    final int b2 = bytes[offset + 1] & 0xFF;
+    final int b3 = bytes[offset + 2] & 0xFF;
+    final int b4 = bytes[offset + 3] & 0xFF;
+    if (this.bigEndian) {
+      return b1 << 24 | b2 << 16 | b3 << 8 | b4;
+    } else {
+      return b4 << 24 | b3 << 16 | b2 << 8 | b1;
+    }
+  }
+
+  @Override
+  public long getLong() {
+    final long high;
+    final long low;
+    if (this.bigEndian) {
+      high = getInt();
+      low = getInt();
+    } else {
+      low = getInt();
+      high = getInt();
+    }
+    return high << 32 | low & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public boolean isBigEndian() {
+    return this.bigEndian;
+  }
+
+  @Override
+  public int read() {
+    if (this.offset < this.bytes.length) {
+      return this.bytes[this.offset++] & 0xFF;
+    } else {
+      return -1;
+    }
+  }
+}
@@ -11,7 +11,10 @@ import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryDataTypes;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.postgresql.PostgreSQLRecordStore;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordStore;
 import com.revolsys.util.Property;
 
 public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
@@ -31,6 +34,18 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     this.axisCount = axisCount;
   }
 
+  @Override
+  public void appendSelectColumnName(final StringBuilder sql, final String tablePrefix) {
+    if (isBinaryGeometryTransfer()) {
+      sql.append("ST_AsEWKB(");
+      super.appendSelectColumnName(sql, tablePrefix);
+      sql.append(") AS ");
+      appendColumnName(sql);
+    } else {
+      super.appendSelectColumnName(sql, tablePrefix);
+    }
+  }
+
   @Override
   public JdbcFieldDefinition clone() {
     return new PostgreSQLGeometryJdbcFieldDefinition(getDbName(), getName(), getDataType(),
@@ -68,8 +83,24 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   public Object getValueFromResultSet(final ResultSet resultSet, final int columnIndex,
     final boolean internStrings) throws SQLException {
     final Object postgresValue = resultSet.getObject(columnIndex);
-    final Object value = toJava(postgresValue);
-    return value;
+    if (postgresValue instanceof byte[]) {
+      final byte[] ewkb = (byte[])postgresValue;
+      return PostgreSQLGeometryWrapper.parseEwkb(this.geometryFactory, ewkb);
+    } else {
+      final Object value = toJava(postgresValue);
+      return value;
+    }
+  }
+
+  private boolean isBinaryGeometryTransfer() {
+    final RecordDefinition recordDefinition = getRecordDefinition();
+    if (recordDefinition != null) {
+      final RecordStore recordStore = recordDefinition.getRecordStore();
+      if (recordStore instanceof PostgreSQLRecordStore) {
+        return ((PostgreSQLRecordStore)recordStore).isBinaryGeometryTransfer();
+      }
+    }
+    return false;
   }
 
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
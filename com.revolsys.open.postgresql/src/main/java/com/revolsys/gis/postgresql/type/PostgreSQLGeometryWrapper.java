@@ -120,6 +120,18 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     return wkt.toString();
   }
 
+  /**
+   * Construct a geometry from EWKB bytes, for example the result of ST_AsEWKB.
+   *
+   * @param geometryFactory The geometry factory to convert the geometry to.
+   * @param ewkb The EWKB bytes.
+   * @return The geometry.
+   */
+  public static Geometry parseEwkb(final GeometryFactory geometryFactory, final byte[] ewkb) {
+    final ValueGetter valueGetter = new ByteArrayValueGetter(ewkb);
+    return parseGeometry(geometryFactory, valueGetter);
+  }
+
   /**
    * Generates the WKT for a <tt>POINT</tt>
    * specified by a {@link Coordinates}.
@@ -494,15 +506,16 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private Geometry parseCollection(final GeometryFactory geometryFactory, final ValueGetter data) {
+  private static Geometry parseCollection(final GeometryFactory geometryFactory,
+    final ValueGetter data) {
     final int count = data.getInt();
     final Geometry[] geoms = new Geometry[count];
     parseGeometryArray(geometryFactory, data, geoms);
     return geometryFactory.geometry(geoms);
   }
 
-  private double[] parseCoordinates(final int axisCount, final ValueGetter data, final boolean hasZ,
-    final boolean hasM) {
+  private static double[] parseCoordinates(final int axisCount, final ValueGetter data,
+    final boolean hasZ, final boolean hasM) {
     final int vertexCount = data.getInt();
     final double[] coordinates = new double[axisCount * vertexCount];
     int coordinateIndex = 0;
@@ -550,7 +563,8 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     return coordinates;
   }
 
-  private Geometry parseGeometry(final GeometryFactory geometryFactory, final ValueGetter data) {
+  private static Geometry parseGeometry(final GeometryFactory geometryFactory,
+    final ValueGetter data) {
     final int typeword = data.getInt();
 
     final int realtype = typeword & 0x1FFFFFFF;
@@ -611,29 +625,29 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private void parseGeometryArray(final GeometryFactory geometryFactory, final ValueGetter data,
-    final Geometry[] container) {
+  private static void parseGeometryArray(final GeometryFactory geometryFactory,
+    final ValueGetter data, final Geometry[] container) {
     for (int i = 0; i < container.length; ++i) {
       data.getByte(); // read endian
       container[i] = parseGeometry(geometryFactory, data);
     }
   }
 
-  private LinearRing parseLinearRing(final GeometryFactory geometryFactory, final ValueGetter data,
-    final boolean hasZ, final boolean hasM) {
+  private static LinearRing parseLinearRing(final GeometryFactory geometryFactory,
+    final ValueGetter data, final boolean hasZ, final boolean hasM) {
     final int axisCount = geometryFactory.getAxisCount();
     final double[] coordinates = parseCoordinates(axisCount, data, hasZ, hasM);
     return geometryFactory.linearRing(axisCount, coordinates);
   }
 
-  private LineString parseLineString(final GeometryFactory geometryFactory, final ValueGetter data,
-    final boolean hasZ, final boolean hasM) {
+  private static LineString parseLineString(final GeometryFactory geometryFactory,
+    final ValueGetter data, final boolean hasZ, final boolean hasM) {
     final int axisCount = geometryFactory.getAxisCount();
     final double[] coordinates = parseCoordinates(axisCount, data, hasZ, hasM);
     return geometryFactory.lineString(axisCount, coordinates);
   }
 
-  private Geometry parseMultiLineString(final GeometryFactory geometryFactory,
+  private static Geometry parseMultiLineString(final GeometryFactory geometryFactory,
     final ValueGetter data) {
     final int count = data.getInt();
     final LineString[] lines = new LineString[count];
@@ -645,7 +659,8 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private Geometry parseMultiPoint(final GeometryFactory geometryFactory, final ValueGetter data) {
+  private static Geometry parseMultiPoint(final GeometryFactory geometryFactory,
+    final ValueGetter data) {
     final Point[] points = new Point[data.getInt()];
     parseGeometryArray(geometryFactory, data, points);
     if (points.length == 1) {
@@ -655,7 +670,7 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private Geometry parseMultiPolygon(final GeometryFactory geometryFactory,
+  private static Geometry parseMultiPolygon(final GeometryFactory geometryFactory,
     final ValueGetter data) {
     final int count = data.getInt();
     final Polygon[] polys = new Polygon[count];
@@ -667,12 +682,21 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private Point parsePoint(final GeometryFactory geometryFactory, final ValueGetter data,
+  private static Point parsePoint(final GeometryFactory geometryFactory, final ValueGetter data,
     final boolean hasZ, final boolean hasM) {
     final double x = data.getDouble();
     final double y = data.getDouble();
 
-    if (hasM) {
+    if (Double.isNaN(x) && Double.isNaN(y)) {
+      // POINT EMPTY is encoded with NaN ordinates
+      if (hasZ) {
+        data.getDouble();
+      }
+      if (hasM) {
+        data.getDouble();
+      }
+      return geometryFactory.point();
+    } else if (hasM) {
       if (hasZ) {
         final double z = data.getDouble();
         final double m = data.getDouble();
@@ -689,7 +713,7 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     }
   }
 
-  private Polygon parsePolygon(final GeometryFactory geometryFactory, final ValueGetter data,
+  private static Polygon parsePolygon(final GeometryFactory geometryFactory, final ValueGetter data,
     final boolean hasZ, final boolean hasM) {
     final int count = data.getInt();
     final LinearRing[] rings = new LinearRing[count];
@@ -22,6 +22,7 @@ import com.revolsys.geometry.model.LineString;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.editor.BoundingBoxEditor;
 import com.revolsys.geometry.model.impl.PointDoubleXY;
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.IoFactory;
 import com.revolsys.raster.GeoreferencedImage;
@@ -162,6 +163,15 @@ public class GeoreferencedImageLayer extends AbstractLayer {
     firePropertyChange("hasChanges", true, false);
   }
 
+  @Override
+  public void delete() {
+    final GeoreferencedImage image = this.image;
+    super.delete();
+    if (image instanceof BaseCloseable) {
+      ((BaseCloseable)image).close();
+    }
+  }
+
   public void deleteTiePoint(final MappedLocation tiePoint) {
     if (isEditable()) {
       this.image.deleteTiePoint(tiePoint);
@@ -411,6 +421,9 @@ public class GeoreferencedImageLayer extends AbstractLayer {
       }
     }
     firePropertyChange("image", old, this.image);
+    if (old != image && old instanceof BaseCloseable) {
+      ((BaseCloseable)old).close();
+    }
   }
 
   public void setOpacity(int opacity) {
@@ -6,13 +6,19 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.test.ElevationTestSuite;
 import com.revolsys.core.test.geometry.test.GeometryTestSuite;
+import com.revolsys.core.test.jdbc.JdbcTestSuite;
+import com.revolsys.core.test.parallel.IterableProcessTest;
+import com.revolsys.core.test.raster.RasterTestSuite;
 import com.revolsys.core.test.record.io.test.RecordIoTestSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   GeometryTestSuite.class, //
   ElevationTestSuite.class, //
-  RecordIoTestSuite.class
+  RecordIoTestSuite.class, //
+  RasterTestSuite.class, //
+  JdbcTestSuite.class, //
+  IterableProcessTest.class
 })
 public class AllTestSuite {
 }
@@ -0,0 +1,195 @@
+package com.revolsys.core.test.elevation.cloud.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.LinkedHashMapEx;
+import com.revolsys.elevation.cloud.PointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointColumns;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointWavePackets;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Test that a columnar {@link LasPointCloud} stores all the attributes of the points for every
+ * point format, in memory and when written to and read from a LAS file.
+ */
+public class LasPointColumnsTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .fixed3d(EpsgId.nad83Utm(10), 1000.0, 1000.0, 1000.0);
+
+  private static final int POINT_COUNT = 1000;
+
+  private static void addPoints(final LasPointCloud cloud) {
+    for (int i = 0; i < POINT_COUNT; i++) {
+      final LasPoint point = cloud.addPoint(500000 + i * 1.5, 5500000 + i * 0.25, i % 100 + 0.125);
+      setAttributes(point, i);
+    }
+  }
+
+  private static void assertPointEqual(final String message, final LasPoint point1,
+    final LasPoint point2) {
+    Assert.assertEquals(message + " pointFormat", point1.getPointFormat(),
+      point2.getPointFormat());
+    Assert.assertEquals(message + " xInt", point1.getXInt(), point2.getXInt());
+    Assert.assertEquals(message + " yInt", point1.getYInt(), point2.getYInt());
+    Assert.assertEquals(message + " zInt", point1.getZInt(), point2.getZInt());
+    Assert.assertEquals(message + " intensity", point1.getIntensity(), point2.getIntensity());
+    Assert.assertEquals(message + " returnNumber", point1.getReturnNumber(),
+      point2.getReturnNumber());
+    Assert.assertEquals(message + " numberOfReturns", point1.getNumberOfReturns(),
+      point2.getNumberOfReturns());
+    Assert.assertEquals(message + " scanDirectionFlag", point1.isScanDirectionFlag(),
+      point2.isScanDirectionFlag());
+    Assert.assertEquals(message + " edgeOfFlightLine", point1.isEdgeOfFlightLine(),
+      point2.isEdgeOfFlightLine());
+    Assert.assertEquals(message + " classification", point1.getClassification(),
+      point2.getClassification());
+    Assert.assertEquals(message + " synthetic", point1.isSynthetic(), point2.isSynthetic());
+    Assert.assertEquals(message + " keyPoint", point1.isKeyPoint(), point2.isKeyPoint());
+    Assert.assertEquals(message + " withheld", point1.isWithheld(), point2.isWithheld());
+    Assert.assertEquals(message + " scanAngle", point1.getScanAngle(), point2.getScanAngle());
+    Assert.assertEquals(message + " userData", point1.getUserData(), point2.getUserData());
+    Assert.assertEquals(message + " pointSourceID", point1.getPointSourceID(),
+      point2.getPointSourceID());
+    Assert.assertEquals(message + " gpsTime", point1.getGpsTime(), point2.getGpsTime(), 0);
+    Assert.assertEquals(message + " red", point1.getRed(), point2.getRed());
+    Assert.assertEquals(message + " green", point1.getGreen(), point2.getGreen());
+    Assert.assertEquals(message + " blue", point1.getBlue(), point2.getBlue());
+    Assert.assertEquals(message + " nir", point1.getNir(), point2.getNir());
+    Assert.assertEquals(message + " scannerChannel", point1.getScannerChannel(),
+      point2.getScannerChannel());
+    if (point1 instanceof LasPointWavePackets) {
+      final LasPointWavePackets wavePoint1 = (LasPointWavePackets)point1;
+      final LasPointWavePackets wavePoint2 = (LasPointWavePackets)point2;
+      Assert.assertEquals(message + " wavePacketDescriptorIndex",
+        wavePoint1.getWavePacketDescriptorIndex(), wavePoint2.getWavePacketDescriptorIndex());
+      Assert.assertEquals(message + " byteOffsetToWaveformData",
+        wavePoint1.getByteOffsetToWaveformData(), wavePoint2.getByteOffsetToWaveformData());
+      Assert.assertEquals(message + " waveformPacketSizeInBytes",
+        wavePoint1.getWaveformPacketSizeInBytes(), wavePoint2.getWaveformPacketSizeInBytes());
+      Assert.assertEquals(message + " returnPointWaveformLocation",
+        wavePoint1.getReturnPointWaveformLocation(), wavePoint2.getReturnPointWaveformLocation(),
+        0);
+      Assert.assertEquals(message + " xT", wavePoint1.getXT(), wavePoint2.getXT(), 0);
+      Assert.assertEquals(message + " yT", wavePoint1.getYT(), wavePoint2.getYT(), 0);
+      Assert.assertEquals(message + " zT", wavePoint1.getZT(), wavePoint2.getZT(), 0);
+    }
+  }
+
+  private static void assertPointsEqual(final String message, final List<LasPoint> expected,
+    final LasPointCloud cloud) {
+    Assert.assertEquals(message + " point count", expected.size(), cloud.getPointCount());
+    final List<LasPoint> points = cloud.getPoints();
+    Assert.assertEquals(message + " points size", expected.size(), points.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertPointEqual(message + " getPoints " + i, expected.get(i), points.get(i));
+    }
+    final Iterator<LasPoint> expectedIterator = expected.iterator();
+    cloud.forEachPoint(point -> {
+      assertPointEqual(message + " forEachPoint", expectedIterator.next(), point);
+    });
+    Assert.assertFalse(message + " forEachPoint count", expectedIterator.hasNext());
+  }
+
+  private static void setAttributes(final LasPoint point, final int i) {
+    final LasPointFormat pointFormat = point.getPointFormat();
+    final boolean extended = pointFormat.getId() >= 6;
+    final byte numberOfReturns = (byte)(i % 5 + 1);
+    point.setIntensity(i * 37 % 65536)
+      .setNumberOfReturns(numberOfReturns)
+      .setReturnNumber((byte)(i % numberOfReturns + 1))
+      .setScanDirectionFlag(i % 2 == 0)
+      .setEdgeOfFlightLine(i % 3 == 0)
+      .setSynthetic(i % 5 == 0)
+      .setKeyPoint(i % 7 == 0)
+      .setWithheld(i % 11 == 0)
+      .setUserData((short)(i % 256))
+      .setPointSourceID(i * 13 % 65536);
+    if (extended) {
+      point.setClassification((short)(i % 256));
+      point.setScanAngle((short)(i % 30000 - 15000));
+      point.setScannerChannel((byte)(i % 4));
+    } else {
+      point.setClassification((short)(i % 32));
+      point.setScanAngleRank((byte)(i % 181 - 90));
+    }
+    point.setGpsTime(1000000 + i / 8.0);
+    point.setRed(i * 3 % 65536);
+    point.setGreen(i * 5 % 65536);
+    point.setBlue(i * 7 % 65536);
+    point.setNir(i * 11 % 65536);
+    if (point instanceof LasPointWavePackets) {
+      point.setWavePacketDescriptorIndex((short)(i % 256));
+      point.setByteOffsetToWaveformData(i * 1000L);
+      point.setWaveformPacketSizeInBytes(i * 10L);
+      point.setReturnPointWaveformLocation(i / 4.0f);
+      point.setXT(i / 8.0f);
+      point.setYT(-i / 8.0f);
+      point.setZT(i / 16.0f);
+    }
+  }
+
+  /**
+   * The points returned from a columnar point cloud are copies, so changes to them are not
+   * stored.
+   */
+  @Test
+  public void testCopy() {
+    try (
+      LasPointCloud cloud = new LasPointCloud(LasPointFormat.GpsTime, GEOMETRY_FACTORY)) {
+      cloud.setColumnar(true);
+      addPoints(cloud);
+      final LasPoint point = cloud.getPoints().get(1);
+      final int intensity = point.getIntensity();
+      point.setIntensity(intensity + 1);
+      Assert.assertEquals("Intensity", intensity, cloud.getPoints().get(1).getIntensity());
+      final LasPointColumns columns = cloud.getColumns();
+      Assert.assertEquals("Column intensity", intensity, columns.getIntensity(1));
+      Assert.assertEquals("Column GPS time", point.getGpsTime(), columns.getGpsTime(1), 0);
+      Assert.assertEquals("Column classification", point.getClassification(),
+        columns.getClassification(1));
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    final Path directory = Paths.get("target/test/elevation/columns");
+    com.revolsys.io.file.Paths.createDirectories(directory);
+    for (final LasPointFormat pointFormat : LasPointFormat.values()) {
+      final String message = pointFormat.name();
+      final List<LasPoint> expected = new ArrayList<>();
+      try (
+        LasPointCloud cloud = new LasPointCloud(pointFormat, GEOMETRY_FACTORY)) {
+        addPoints(cloud);
+        expected.addAll(cloud.getPoints());
+      }
+
+      final Path file = directory.resolve(pointFormat.name() + ".las");
+      try (
+        LasPointCloud cloud = new LasPointCloud(pointFormat, GEOMETRY_FACTORY)) {
+        cloud.setColumnar(true);
+        addPoints(cloud);
+        assertPointsEqual(message + " memory", expected, cloud);
+        cloud.writePointCloud(file);
+      }
+
+      try (
+        LasPointCloud cloud = PointCloud.newPointCloud(file,
+          new LinkedHashMapEx("columnar", true))) {
+        Assert.assertTrue(message + " columnar", cloud.isColumnar());
+        assertPointsEqual(message + " file", expected, cloud);
+      }
+    }
+  }
+}
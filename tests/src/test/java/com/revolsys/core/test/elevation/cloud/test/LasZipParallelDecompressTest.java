@@ -0,0 +1,96 @@
+package com.revolsys.core.test.elevation.cloud.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.LinkedHashMapEx;
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.elevation.cloud.PointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Test that the points read from a chunked LAZ file are the same when the chunks are decompressed
+ * sequentially and in parallel.
+ */
+public class LasZipParallelDecompressTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .fixed3d(EpsgId.nad83Utm(10), 1000.0, 1000.0, 1000.0);
+
+  /**
+   * More than the default chunk size of 50000 points so there are 3 chunks.
+   */
+  private static final int POINT_COUNT = 120000;
+
+  private static List<String> readPoints(final Path file, final MapEx properties,
+    final boolean selective) {
+    final List<String> points = new ArrayList<>();
+    try (
+      LasPointCloud cloud = PointCloud.newPointCloud(file, properties)) {
+      if (selective) {
+        cloud.forEachPoint((BoundingBox)null, null, LasZipDecompressSelective.ALL,
+          point -> points.add(toKey(point)));
+      } else {
+        cloud.forEachPoint(point -> points.add(toKey(point)));
+      }
+    }
+    return points;
+  }
+
+  private static String toKey(final LasPoint point) {
+    return point.getXInt() + "," + point.getYInt() + "," + point.getZInt() + ","
+      + point.getIntensity();
+  }
+
+  private static Path writePointCloud() {
+    final Path file = Paths.get("target/test/elevation/parallel/chunked.laz");
+    com.revolsys.io.file.Paths.createParentDirectories(file);
+    try (
+      LasPointCloud cloud = new LasPointCloud(LasPointFormat.Core, GEOMETRY_FACTORY)) {
+      for (int i = 0; i < POINT_COUNT; i++) {
+        final LasPoint point = cloud.addPoint(500000 + i % 1000 * 0.5, 5500000 + i / 1000 * 0.5,
+          i % 100 + 0.125);
+        point.setIntensity(i % 65536);
+      }
+      cloud.writePointCloud(file, new LinkedHashMapEx("lasZipVersion", 2));
+    }
+    return file;
+  }
+
+  @Test
+  public void testForEachPoint() {
+    final Path file = writePointCloud();
+    for (final boolean selective : new boolean[] {
+      false, true
+    }) {
+      final String message = selective ? "forEachPoint(selective)" : "forEachPoint";
+      final List<String> expected = readPoints(file, new LinkedHashMapEx(), selective);
+      Assert.assertEquals(message + " sequential count", POINT_COUNT, expected.size());
+
+      final List<String> ordered = readPoints(file,
+        new LinkedHashMapEx("decompressThreadCount", 4), selective);
+      Assert.assertEquals(message + " ordered", expected, ordered);
+
+      final List<String> unordered = readPoints(file,
+        new LinkedHashMapEx("decompressThreadCount", 4).add("decompressOrdered", false),
+        selective);
+      Assert.assertEquals(message + " unordered count", POINT_COUNT, unordered.size());
+      final List<String> sortedExpected = new ArrayList<>(expected);
+      Collections.sort(sortedExpected);
+      Collections.sort(unordered);
+      Assert.assertEquals(message + " unordered", sortedExpected, unordered);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.LinkedHashMapEx;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.elevation.gridded.scaledint.compressed.BlockedCompressedScaledIntegerGriddedDigitalElevation;
+import com.revolsys.elevation.gridded.scaledint.compressed.BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile;
+import com.revolsys.elevation.gridded.scaledint.compressed.BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader;
+import com.revolsys.elevation.gridded.scaledint.compressed.BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.spring.resource.PathResource;
+
+public class BlockedCompressedScaledIntegerGriddedDigitalElevationModelTest
+  extends GriddedElevationModelTest {
+
+  private static final int BLOCK_SIZE = 64;
+
+  private static final BlockedCompressedScaledIntegerGriddedDigitalElevation FACTORY = new BlockedCompressedScaledIntegerGriddedDigitalElevation();
+
+  private static void assertWindowEquals(final GriddedElevationModel expectedModel,
+    final BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile file, final int gridX,
+    final int gridY, final int width, final int height) {
+    final GriddedElevationModel window = file.readWindow(gridX, gridY, width, height);
+    Assert.assertEquals("Window width", width, window.getGridWidth());
+    Assert.assertEquals("Window height", height, window.getGridHeight());
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int modelX = gridX + x;
+        final int modelY = gridY + y;
+        double expected = Double.NaN;
+        if (modelX >= 0 && modelX < expectedModel.getGridWidth() && modelY >= 0
+          && modelY < expectedModel.getGridHeight()) {
+          expected = expectedModel.getValue(modelX, modelY);
+        }
+        Assert.assertEquals("Window (" + modelX + "," + modelY + ")", expected,
+          window.getValue(x, y), 0);
+      }
+    }
+  }
+
+  /**
+   * A model whose size is not a multiple of the block size so there are full blocks and partial
+   * blocks on the right and top edges, with null cells on the diagonal and one block that is all
+   * null.
+   */
+  private static GriddedElevationModel newModel() {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed3d(3005, 1000.0, 1000.0, 1000.0);
+    final GriddedElevationModel model = new IntArrayScaleGriddedElevationModel(geometryFactory,
+      1000, 2000, 300, 200, 1);
+    for (int gridY = 0; gridY < model.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < model.getGridWidth(); gridX++) {
+        final boolean nullBlock = gridX / BLOCK_SIZE == 1 && gridY / BLOCK_SIZE == 1;
+        if (gridX == gridY || nullBlock) {
+          model.setValue(gridX, gridY, Double.NaN);
+        } else {
+          model.setValue(gridX, gridY, gridX + gridY / 1000.0);
+        }
+      }
+    }
+    return model;
+  }
+
+  private static Path writeBlockedModel(final GriddedElevationModel model, final String fileName) {
+    final Path path = Paths.get("target/test/elevation", fileName);
+    com.revolsys.io.file.Paths.createParentDirectories(path);
+    try (
+      BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter writer = (BlockedCompressedScaledIntegerGriddedDigitalElevationModelWriter)FACTORY
+        .newGriddedElevationModelWriter(new PathResource(path))) {
+      writer.setBlockSize(BLOCK_SIZE);
+      writer.write(model);
+    }
+    return path;
+  }
+
+  @Override
+  public List<String> getFileExtensions() {
+    return Arrays.asList(BlockedCompressedScaledIntegerGriddedDigitalElevation.FILE_EXTENSION);
+  }
+
+  @Test
+  public void testRandomAccess() {
+    final GriddedElevationModel model = newModel();
+    final Path path = writeBlockedModel(model, "blocks.sigdemb");
+    try (
+      BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile actualModel = new BlockedCompressedScaledIntegerGriddedDigitalElevationModelFile(
+        path, 2)) {
+      Assert.assertEquals("Block size", BLOCK_SIZE, actualModel.getBlockSize());
+      Assert.assertEquals("Width", model.getGridWidth(), actualModel.getGridWidth());
+      Assert.assertEquals("Height", model.getGridHeight(), actualModel.getGridHeight());
+      // Only 2 blocks are cached so the blocks are read again as the rows are visited
+      assertModelEquals(model, actualModel);
+
+      // Windows inside one block, across blocks, over the null block and past the edges
+      assertWindowEquals(model, actualModel, 10, 10, 20, 20);
+      assertWindowEquals(model, actualModel, 50, 60, 100, 90);
+      assertWindowEquals(model, actualModel, 64, 64, 64, 64);
+      assertWindowEquals(model, actualModel, 250, 150, 100, 100);
+      assertWindowEquals(model, actualModel, -10, -10, 30, 30);
+    }
+  }
+
+  @Test
+  public void testRead() {
+    final GriddedElevationModel model = newModel();
+    final Path path = writeBlockedModel(model, "blocks.sigdemb");
+    for (final boolean parallel : new boolean[] {
+      true, false
+    }) {
+      try (
+        BlockedCompressedScaledIntegerGriddedDigitalElevationModelReader reader = FACTORY
+          .newGriddedElevationModelReader(new PathResource(path), new LinkedHashMapEx())) {
+        reader.setParallel(parallel);
+        Assert.assertEquals("Block size", BLOCK_SIZE, reader.getBlockSize());
+        final GriddedElevationModel actualModel = reader.read();
+        Assert.assertEquals("Width", model.getGridWidth(), actualModel.getGridWidth());
+        Assert.assertEquals("Height", model.getGridHeight(), actualModel.getGridHeight());
+        Assert.assertEquals("Min X", model.getGridMinX(), actualModel.getGridMinX(), 0);
+        Assert.assertEquals("Min Y", model.getGridMinY(), actualModel.getGridMinY(), 0);
+        assertModelEquals(model, actualModel);
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.elevation.gridded.scaledint.ScaledIntegerGriddedDigitalElevation;
+import com.revolsys.elevation.gridded.scaledint.TiledScaledIntegerGriddedDigitalElevationModel;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Read values from a {@link TiledScaledIntegerGriddedDigitalElevationModel} with fewer cached
+ * tiles than the tiles that are read, so tiles are evicted and read again, sequentially and from
+ * many threads.
+ */
+public class TiledScaledIntegerGriddedDigitalElevationModelTest {
+
+  private static final Path BASE_DIRECTORY = Paths.get("target/test/elevation/tiled");
+
+  private static final int COORDINATE_SYSTEM_ID = 3005;
+
+  private static final String FILE_PREFIX = "dem";
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .fixed3d(COORDINATE_SYSTEM_ID, 1000.0, 1000.0, 1000.0);
+
+  private static final int TILE_COUNT = 4;
+
+  private static final int TILE_SIZE = 10;
+
+  private static final int GRID_SIZE = TILE_COUNT * TILE_SIZE;
+
+  private static void assertValue(final GriddedElevationModel model, final int gridX,
+    final int gridY) {
+    Assert.assertEquals("Value (" + gridX + "," + gridY + ")", getValue(gridX, gridY),
+      model.getValueFast(gridX, gridY), 0);
+  }
+
+  private static double getValue(final int gridX, final int gridY) {
+    return gridX + gridY / 1000.0;
+  }
+
+  private static TiledScaledIntegerGriddedDigitalElevationModel newModel() {
+    final Path tileDirectory = BASE_DIRECTORY
+      .resolve(ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION)
+      .resolve(Integer.toString(COORDINATE_SYSTEM_ID))
+      .resolve(Integer.toString(TILE_SIZE));
+    for (int tileY = 0; tileY < GRID_SIZE; tileY += TILE_SIZE) {
+      for (int tileX = 0; tileX < GRID_SIZE; tileX += TILE_SIZE) {
+        final GriddedElevationModel tile = new IntArrayScaleGriddedElevationModel(
+          GEOMETRY_FACTORY, tileX, tileY, TILE_SIZE, TILE_SIZE, 1);
+        for (int gridY = 0; gridY < TILE_SIZE; gridY++) {
+          for (int gridX = 0; gridX < TILE_SIZE; gridX++) {
+            tile.setValue(gridX, gridY, getValue(tileX + gridX, tileY + gridY));
+          }
+        }
+        final String fileName = FILE_PREFIX + "_" + COORDINATE_SYSTEM_ID + "_" + TILE_SIZE + "_"
+          + tileX + "_" + tileY + "." + ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION;
+        final Path path = tileDirectory.resolve(Integer.toString(tileX)).resolve(fileName);
+        com.revolsys.io.file.Paths.createParentDirectories(path);
+        tile.writeGriddedElevationModel(path);
+      }
+    }
+    return new TiledScaledIntegerGriddedDigitalElevationModel(BASE_DIRECTORY, FILE_PREFIX,
+      GEOMETRY_FACTORY, 0, 0, TILE_SIZE, 1);
+  }
+
+  @Test
+  public void testConcurrentGetValue() throws Exception {
+    final TiledScaledIntegerGriddedDigitalElevationModel model = newModel();
+    model.setMaxTileCount(4);
+    final int threadCount = 8;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        final Random random = new Random(i);
+        futures.add(executor.submit(() -> {
+          startLatch.await();
+          for (int j = 0; j < 20000; j++) {
+            assertValue(model, random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+          }
+          return null;
+        }));
+      }
+      startLatch.countDown();
+      for (final Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+      model.clear();
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    final TiledScaledIntegerGriddedDigitalElevationModel model = newModel();
+    try {
+      // One tile per stripe so tiles in the same stripe evict each other
+      model.setMaxTileCount(1);
+      for (int i = 0; i < 2; i++) {
+        for (int gridX = 0; gridX < GRID_SIZE; gridX++) {
+          for (int gridY = 0; gridY < GRID_SIZE; gridY++) {
+            assertValue(model, gridX, gridY);
+          }
+        }
+      }
+
+      final int count = GRID_SIZE * GRID_SIZE;
+      final double[] xCoordinates = new double[count];
+      final double[] yCoordinates = new double[count];
+      for (int i = 0; i < count; i++) {
+        xCoordinates[i] = i / GRID_SIZE + 0.5;
+        yCoordinates[i] = i % GRID_SIZE + 0.5;
+      }
+      final double[] values = new double[count];
+      model.getValues(xCoordinates, yCoordinates, values);
+      for (int i = 0; i < count; i++) {
+        Assert.assertEquals("getValues " + i, getValue(i / GRID_SIZE, i % GRID_SIZE), values[i],
+          0);
+      }
+
+      // Shrinking the cache closes the tiles over the new limit
+      model.setMaxTileCount(TILE_COUNT * TILE_COUNT * 16);
+      for (int gridX = 0; gridX < GRID_SIZE; gridX += TILE_SIZE) {
+        for (int gridY = 0; gridY < GRID_SIZE; gridY += TILE_SIZE) {
+          assertValue(model, gridX, gridY);
+        }
+      }
+      model.setMaxTileCount(1);
+      for (int gridX = GRID_SIZE - 1; gridX >= 0; gridX -= TILE_SIZE) {
+        for (int gridY = GRID_SIZE - 1; gridY >= 0; gridY -= TILE_SIZE) {
+          assertValue(model, gridX, gridY);
+        }
+      }
+    } finally {
+      model.clear();
+    }
+  }
+}
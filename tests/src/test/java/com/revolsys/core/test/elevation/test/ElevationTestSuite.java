@@ -4,13 +4,21 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.revolsys.core.test.elevation.cloud.test.LasPointColumnsTest;
+import com.revolsys.core.test.elevation.cloud.test.LasZipParallelDecompressTest;
+import com.revolsys.core.test.elevation.gridded.test.BlockedCompressedScaledIntegerGriddedDigitalElevationModelTest;
 import com.revolsys.core.test.elevation.gridded.test.EsriAsciiGriddedElevationModelTest;
 import com.revolsys.core.test.elevation.gridded.test.ScaledIntegerGriddedDigitalElevationModelTest;
+import com.revolsys.core.test.elevation.gridded.test.TiledScaledIntegerGriddedDigitalElevationModelTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   ScaledIntegerGriddedDigitalElevationModelTest.class, //
-  EsriAsciiGriddedElevationModelTest.class //
+  EsriAsciiGriddedElevationModelTest.class, //
+  LasPointColumnsTest.class, //
+  LasZipParallelDecompressTest.class, //
+  BlockedCompressedScaledIntegerGriddedDigitalElevationModelTest.class, //
+  TiledScaledIntegerGriddedDigitalElevationModelTest.class //
 })
 public class ElevationTestSuite {
 
@@ -0,0 +1,364 @@
+package com.revolsys.core.test.io.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.io.channels.HttpBlockCache;
+import com.revolsys.io.channels.HttpSeekableByteChannel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the {@link HttpBlockCache} against a local HTTP server that records the range of each
+ * request.
+ */
+public class HttpBlockCacheTest {
+
+  private static final int BLOCK_SIZE = 16;
+
+  private static final byte[] DATA = new byte[100];
+
+  static {
+    for (int i = 0; i < DATA.length; i++) {
+      DATA[i] = (byte)(i * 7);
+    }
+  }
+
+  private volatile int errorStatus = 0;
+
+  private volatile boolean lengthKnown = true;
+
+  private volatile boolean rangeSupported = true;
+
+  private final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+
+  private volatile long responseDelay = 0;
+
+  private HttpServer server;
+
+  private URL url;
+
+  private void assertRead(final HttpBlockCache cache, final int position, final int length)
+    throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    final int expectedCount = Math.min(length, DATA.length - position);
+    int count = 0;
+    while (buffer.hasRemaining()) {
+      final int readCount = cache.read(position + count, buffer);
+      if (readCount == -1) {
+        break;
+      }
+      count += readCount;
+    }
+    Assert.assertEquals("Read count " + position, expectedCount, count);
+    final byte[] expected = Arrays.copyOfRange(DATA, position, position + expectedCount);
+    final byte[] actual = Arrays.copyOf(buffer.array(), count);
+    Assert.assertArrayEquals("Bytes " + position, expected, actual);
+  }
+
+  private void assertRequests(final String... expected) {
+    final List<String> actual;
+    synchronized (this.ranges) {
+      actual = new ArrayList<>(this.ranges);
+      this.ranges.clear();
+    }
+    Collections.sort(actual);
+    final List<String> expectedList = new ArrayList<>(Arrays.asList(expected));
+    Collections.sort(expectedList);
+    Assert.assertEquals("Requests", expectedList, actual);
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    try {
+      exchange.getRequestBody().close();
+      final String range = exchange.getRequestHeaders().getFirst("Range");
+      this.ranges.add(range);
+      if (this.responseDelay > 0) {
+        try {
+          Thread.sleep(this.responseDelay);
+        } catch (final InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (this.errorStatus != 0) {
+        final byte[] message = "Error".getBytes();
+        exchange.sendResponseHeaders(this.errorStatus, message.length);
+        try (
+          OutputStream out = exchange.getResponseBody()) {
+          out.write(message);
+        }
+        return;
+      }
+      int start = 0;
+      int end = DATA.length - 1;
+      int status = 200;
+      if (this.rangeSupported && range != null) {
+        final String[] parts = range.substring("bytes=".length()).split("-");
+        start = Integer.parseInt(parts[0]);
+        end = Math.min(end, Integer.parseInt(parts[1]));
+        if (start >= DATA.length) {
+          exchange.sendResponseHeaders(416, -1);
+          return;
+        }
+        final String total;
+        if (this.lengthKnown) {
+          total = Integer.toString(DATA.length);
+        } else {
+          total = "*";
+        }
+        exchange.getResponseHeaders()
+          .set("Content-Range", "bytes " + start + "-" + end + "/" + total);
+        status = 206;
+      }
+      final int length = end - start + 1;
+      if (this.lengthKnown) {
+        exchange.sendResponseHeaders(status, length);
+      } else {
+        // Chunked encoding so there is no Content-Length
+        exchange.sendResponseHeaders(status, 0);
+      }
+      try (
+        OutputStream out = exchange.getResponseBody()) {
+        out.write(DATA, start, length);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private HttpBlockCache newCache(final int maxBlockCount, final int readAheadBlockCount) {
+    final HttpBlockCache cache = new HttpBlockCache(this.url, BLOCK_SIZE, maxBlockCount, null);
+    cache.setReadAheadBlockCount(readAheadBlockCount);
+    return cache;
+  }
+
+  @Before
+  public void startServer() throws IOException {
+    final InetAddress address = InetAddress.getLoopbackAddress();
+    this.server = HttpServer.create(new InetSocketAddress(address, 0), 0);
+    this.server.createContext("/data.bin", this::handle);
+    this.server.start();
+    final int port = this.server.getAddress().getPort();
+    this.url = new URL("http://" + address.getHostAddress() + ":" + port + "/data.bin");
+  }
+
+  @After
+  public void stopServer() {
+    this.server.stop(0);
+  }
+
+  @Test
+  public void testCoalesceReadAhead() throws IOException {
+    final HttpBlockCache cache = newCache(16, 3);
+    assertRead(cache, 0, 10);
+    assertRequests("bytes=0-63");
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+
+    assertRead(cache, 10, 50);
+    assertRequests();
+
+    assertRead(cache, 60, 20);
+    assertRequests("bytes=64-99");
+
+    assertRead(cache, 90, 20);
+    assertRequests();
+    Assert.assertEquals("End of resource", -1, cache.read(DATA.length, ByteBuffer.allocate(1)));
+  }
+
+  /**
+   * Threads reading the same block at the same time must share a single request.
+   */
+  @Test
+  public void testConcurrentReads() throws Exception {
+    this.responseDelay = 200;
+    final HttpBlockCache cache = newCache(16, 0);
+    final int threadCount = 8;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        final int position = i;
+        futures.add(executor.submit(() -> {
+          startLatch.await();
+          assertRead(cache, position, 4);
+          return null;
+        }));
+      }
+      startLatch.countDown();
+      for (final Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertRequests("bytes=0-15");
+  }
+
+  @Test
+  public void testErrorStatus() throws IOException {
+    this.errorStatus = 500;
+    final HttpBlockCache cache = newCache(16, 0);
+    try {
+      cache.read(0, ByteBuffer.allocate(1));
+      Assert.fail("Expected IOException");
+    } catch (final IOException e) {
+    }
+    assertRequests("bytes=0-15");
+
+    // The failed block is not cached so it is read again
+    this.errorStatus = 0;
+    assertRead(cache, 0, 10);
+    assertRequests("bytes=0-15");
+  }
+
+  @Test
+  public void testLeastRecentlyUsed() throws IOException {
+    final HttpBlockCache cache = newCache(2, 0);
+    assertRead(cache, 0, 1);
+    assertRead(cache, 16, 1);
+    assertRequests("bytes=0-15", "bytes=16-31");
+
+    // Block 0 is the most recently used so block 1 is evicted
+    assertRead(cache, 0, 1);
+    assertRead(cache, 32, 1);
+    assertRequests("bytes=32-47");
+
+    assertRead(cache, 0, 1);
+    assertRequests();
+    assertRead(cache, 16, 1);
+    assertRequests("bytes=16-31");
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    final HttpBlockCache cache = newCache(16, 0);
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+    assertRequests("bytes=0-15");
+
+    cache.prefetch(new long[] {
+      0, 20, 96, 50
+    }, new long[] {
+      24, 10, 4, 0
+    });
+    assertRequests("bytes=16-31", "bytes=96-99");
+
+    assertRead(cache, 0, 32);
+    assertRead(cache, 96, 4);
+    assertRequests();
+
+    // Only the missing blocks are read
+    cache.prefetch(new long[] {
+      16
+    }, new long[] {
+      40
+    });
+    assertRequests("bytes=32-63");
+  }
+
+  @Test
+  public void testPrefetchMaxRequestBlockCount() throws IOException {
+    final HttpBlockCache cache = newCache(16, 0);
+    cache.setMaxRequestBlockCount(2);
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+    assertRequests("bytes=0-15");
+
+    cache.prefetch(new long[] {
+      0
+    }, new long[] {
+      DATA.length
+    });
+    assertRequests("bytes=16-47", "bytes=48-79", "bytes=80-99");
+    assertRead(cache, 0, DATA.length);
+    assertRequests();
+  }
+
+  @Test
+  public void testSizeUnknownLength() throws IOException {
+    this.lengthKnown = false;
+    try (
+      HttpSeekableByteChannel channel = new HttpSeekableByteChannel(newCache(16, 1))) {
+      try {
+        channel.size();
+        Assert.fail("Expected IOException");
+      } catch (final IOException e) {
+      }
+      channel.position(90);
+      final ByteBuffer buffer = ByteBuffer.allocate(20);
+      channel.read(buffer);
+      Assert.assertEquals("Size", DATA.length, channel.size());
+    }
+  }
+
+  @Test
+  public void testUnknownLength() throws IOException {
+    this.lengthKnown = false;
+    final HttpBlockCache cache = newCache(16, 1);
+    assertRead(cache, 0, 10);
+    assertRequests("bytes=0-31");
+    Assert.assertEquals("Length not known", -1, cache.getLength());
+
+    // The last block is shorter than the block size
+    assertRead(cache, 90, 20);
+    assertRequests("bytes=80-111");
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+    Assert.assertEquals("End of resource", -1, cache.read(DATA.length, ByteBuffer.allocate(1)));
+  }
+
+  @Test
+  public void testWholeResource() throws IOException {
+    this.rangeSupported = false;
+    final HttpBlockCache cache = newCache(16, 1);
+    assertRead(cache, 40, 20);
+    assertRequests("bytes=32-63");
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+
+    // The blocks after the requested blocks were cached from the body
+    assertRead(cache, 90, 10);
+    assertRequests();
+  }
+
+  @Test
+  public void testWholeResourceMaxRequestBlockCount() throws IOException {
+    this.rangeSupported = false;
+    final HttpBlockCache cache = newCache(16, 0);
+    cache.setMaxRequestBlockCount(3);
+    assertRead(cache, 0, 40);
+    assertRequests("bytes=0-15");
+
+    // Only the maximum number of blocks for a request were cached
+    assertRead(cache, 48, 10);
+    assertRequests("bytes=48-63");
+  }
+
+  @Test
+  public void testWholeResourceUnknownLength() throws IOException {
+    this.rangeSupported = false;
+    this.lengthKnown = false;
+    final HttpBlockCache cache = newCache(16, 1);
+    assertRead(cache, 40, 20);
+    assertRequests("bytes=32-63");
+    // The rest of the body was read, giving the length
+    Assert.assertEquals("Length", DATA.length, cache.getLength());
+
+    assertRead(cache, 90, 20);
+    assertRequests();
+  }
+}
@@ -6,7 +6,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-  PathTest.class
+  HttpBlockCacheTest.class, PathTest.class
 })
 public class IoTestSuite {
 }
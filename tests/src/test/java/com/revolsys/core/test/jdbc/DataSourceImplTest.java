@@ -0,0 +1,249 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jdbc.io.DataSourceImpl;
+import com.revolsys.jmx.ConnectionPoolMXBean;
+
+/**
+ * Check out connections from the {@link DataSourceImpl} pool using many threads and check the
+ * statistics exposed through the {@link ConnectionPoolMXBean}. The physical connections are
+ * created by a stub driver that doesn't connect to a database.
+ */
+public class DataSourceImplTest {
+
+  /**
+   * A driver that creates connections that do nothing, counting the open connections.
+   */
+  private static class StubDriver implements Driver {
+    private final AtomicInteger maxOpenCount = new AtomicInteger();
+
+    private final AtomicInteger openCount = new AtomicInteger();
+
+    @Override
+    public boolean acceptsURL(final String url) {
+      return url.startsWith("jdbc:stub:");
+    }
+
+    @Override
+    public Connection connect(final String url, final Properties info) {
+      final int openCount = this.openCount.incrementAndGet();
+      this.maxOpenCount.accumulateAndGet(openCount, Math::max);
+      final boolean[] state = {
+        false, true
+      };
+      return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {
+        Connection.class
+      }, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "close":
+            if (!state[0]) {
+              state[0] = true;
+              this.openCount.decrementAndGet();
+            }
+            return null;
+          case "isClosed":
+            return state[0];
+          case "isValid":
+            return !state[0];
+          case "getAutoCommit":
+            return state[1];
+          case "setAutoCommit":
+            state[1] = (Boolean)args[0];
+            return null;
+          case "getTransactionIsolation":
+            return Connection.TRANSACTION_READ_COMMITTED;
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          case "toString":
+            return "StubConnection";
+          default:
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+              return false;
+            } else if (returnType == int.class) {
+              return 0;
+            } else {
+              return null;
+            }
+        }
+      });
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(final String url, final Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+  }
+
+  private static final int CONNECTIONS_PER_THREAD = 20;
+
+  private static final int MAX_TOTAL = 8;
+
+  private static final int THREAD_COUNT = 64;
+
+  private static Object getAttribute(final ObjectName objectName, final String name)
+    throws Exception {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    return server.getAttribute(objectName, name);
+  }
+
+  private static DataSourceImpl newDataSource(final StubDriver driver, final int maxTotal,
+    final long maxWaitMillis) {
+    final DataSourceImpl dataSource = new DataSourceImpl();
+    dataSource.setDriver(driver);
+    dataSource.setUrl("jdbc:stub:test");
+    dataSource.setMaxTotal(maxTotal);
+    dataSource.setMaxIdle(maxTotal);
+    dataSource.setMaxWaitMillis(maxWaitMillis);
+    return dataSource;
+  }
+
+  private static ObjectName newObjectName(final String poolMetricsName) throws Exception {
+    return new ObjectName(
+      "com.revolsys.jdbc:type=ConnectionPool,name=" + ObjectName.quote(poolMetricsName));
+  }
+
+  @Test
+  public void testContention() throws Exception {
+    final StubDriver driver = new StubDriver();
+    final DataSourceImpl dataSource = newDataSource(driver, MAX_TOTAL, 30000);
+    final String poolMetricsName = "DataSourceImplTest.testContention";
+    dataSource.setPoolMetricsName(poolMetricsName);
+    try {
+      final ObjectName objectName = newObjectName(poolMetricsName);
+      Assert.assertEquals("poolMetricsName", poolMetricsName, dataSource.getPoolMetricsName());
+      Assert.assertEquals("MaxTotal", MAX_TOTAL, getAttribute(objectName, "MaxTotal"));
+
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      final AtomicInteger maxActiveCount = new AtomicInteger();
+      final List<Throwable> errors = new ArrayList<>();
+      final List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        final Thread thread = new Thread(() -> {
+          try {
+            startLatch.await();
+            for (int j = 0; j < CONNECTIONS_PER_THREAD; j++) {
+              try (
+                Connection connection = dataSource.getConnection()) {
+                maxActiveCount.accumulateAndGet(dataSource.getPoolMetrics().getActiveCount(),
+                  Math::max);
+                Thread.sleep(1);
+              }
+            }
+          } catch (final Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }, "DataSourceImplTest-" + i);
+        threads.add(thread);
+        thread.start();
+      }
+      startLatch.countDown();
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+      Assert.assertEquals("Errors", new ArrayList<>(), errors);
+
+      final long expectedConnectionCount = (long)THREAD_COUNT * CONNECTIONS_PER_THREAD;
+      Assert.assertEquals("ConnectionCount", expectedConnectionCount,
+        getAttribute(objectName, "ConnectionCount"));
+      Assert.assertEquals("TimeoutCount", 0L, getAttribute(objectName, "TimeoutCount"));
+      Assert.assertEquals("ActiveCount", 0, getAttribute(objectName, "ActiveCount"));
+      final int idleCount = (Integer)getAttribute(objectName, "IdleCount");
+      Assert.assertTrue("IdleCount " + idleCount, idleCount > 0 && idleCount <= MAX_TOTAL);
+      Assert.assertTrue("Max active " + maxActiveCount,
+        maxActiveCount.get() > 0 && maxActiveCount.get() <= MAX_TOTAL);
+      Assert.assertTrue("Max open " + driver.maxOpenCount, driver.maxOpenCount.get() <= MAX_TOTAL);
+
+      final double waitTimeAverage = (Double)getAttribute(objectName, "WaitTimeAverageMillis");
+      final double waitTimeMax = (Double)getAttribute(objectName, "WaitTimeMaxMillis");
+      Assert.assertTrue("WaitTimeAverageMillis " + waitTimeAverage, waitTimeAverage > 0);
+      Assert.assertTrue("WaitTimeMaxMillis " + waitTimeMax, waitTimeMax >= waitTimeAverage);
+
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.invoke(objectName, "resetStatistics", new Object[0], new String[0]);
+      Assert.assertEquals("ConnectionCount reset", 0L,
+        getAttribute(objectName, "ConnectionCount"));
+      Assert.assertEquals("WaitTimeMaxMillis reset", 0.0,
+        getAttribute(objectName, "WaitTimeMaxMillis"));
+    } finally {
+      dataSource.close();
+    }
+    Assert.assertNull("poolMetricsName after close", dataSource.getPoolMetricsName());
+    Assert.assertFalse("Unregistered after close", ManagementFactory.getPlatformMBeanServer()
+      .isRegistered(newObjectName("DataSourceImplTest.testContention")));
+    Assert.assertEquals("Open connections after close", 0, driver.openCount.get());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    final StubDriver driver = new StubDriver();
+    final DataSourceImpl dataSource = newDataSource(driver, 1, 50);
+    try {
+      final ConnectionPoolMXBean poolMetrics = dataSource.getPoolMetrics();
+      try (
+        Connection connection = dataSource.getConnection()) {
+        Assert.assertEquals("ActiveCount", 1, poolMetrics.getActiveCount());
+        try (
+          Connection connection2 = dataSource.getConnection()) {
+          Assert.fail("Expected a timeout");
+        } catch (final SQLException e) {
+        }
+        // The first attempt and the retry both time out
+        Assert.assertEquals("TimeoutCount", 2, poolMetrics.getTimeoutCount());
+        Assert.assertTrue("WaitTimeMaxMillis", poolMetrics.getWaitTimeMaxMillis() >= 100);
+      }
+      Assert.assertEquals("ActiveCount", 0, poolMetrics.getActiveCount());
+      Assert.assertEquals("IdleCount", 1, poolMetrics.getIdleCount());
+      try (
+        Connection connection = dataSource.getConnection()) {
+        Assert.assertEquals("ConnectionCount", 2, poolMetrics.getConnectionCount());
+      }
+      Assert.assertEquals("TimeoutCount", 2, poolMetrics.getTimeoutCount());
+    } finally {
+      dataSource.close();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.revolsys.core.test.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.jdbc.io.JdbcQueryPartition;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+/**
+ * Test that the bounding box partitions of a query return each record of the query exactly once
+ * by evaluating the partition queries and filters against records in memory.
+ */
+public class JdbcQueryPartitionTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static void assertPartitions(final List<Record> records, final Query query,
+    final BoundingBox boundingBox, final int gridWidth, final int gridHeight) {
+    final String message = gridWidth + "x" + gridHeight + " " + query.getWhereCondition();
+    final List<JdbcQueryPartition> partitions = JdbcQueryPartition.newBoundingBoxPartitions(query,
+      boundingBox, gridWidth, gridHeight);
+    final List<Record> expected = select(records, query.getWhereCondition());
+    final List<Record> actual = new ArrayList<>();
+    for (final JdbcQueryPartition partition : partitions) {
+      for (final Record record : select(records, partition.getQuery().getWhereCondition())) {
+        if (partition.isMatched(record)) {
+          actual.add(record);
+        }
+      }
+    }
+    Assert.assertEquals(message + " count", expected.size(), actual.size());
+    for (final Record record : expected) {
+      Assert.assertTrue(message + " " + record, actual.contains(record));
+    }
+  }
+
+  private static Record newRecord(final RecordDefinitionImpl recordDefinition, final int id,
+    final Object geometry) {
+    final Record record = new ArrayRecord(recordDefinition);
+    record.setValue("ID", id);
+    record.setValue("GEOMETRY", geometry);
+    return record;
+  }
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/TEST/PARTITIONED"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.GEOMETRY, false);
+    recordDefinition.setIdFieldName("ID");
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    return recordDefinition;
+  }
+
+  private static List<Record> newRecords(final RecordDefinitionImpl recordDefinition) {
+    final List<Record> records = new ArrayList<>();
+    int id = 0;
+    // Points on a grid including the tile boundaries and the edges of the bounding box
+    for (int y = 0; y <= 100; y += 5) {
+      for (int x = 0; x <= 100; x += 5) {
+        records.add(newRecord(recordDefinition, ++id, GEOMETRY_FACTORY.point(x, y)));
+      }
+    }
+    // Lines crossing several tiles
+    for (int i = 0; i < 20; i++) {
+      records.add(newRecord(recordDefinition, ++id,
+        GEOMETRY_FACTORY.lineString(2, i * 5.0, 0.0, 100.0 - i * 5, 100.0)));
+    }
+    // Lines that start outside the bounding box and cross into it
+    records.add(newRecord(recordDefinition, ++id,
+      GEOMETRY_FACTORY.lineString(2, -20.0, 50.0, 30.0, 50.0)));
+    records.add(newRecord(recordDefinition, ++id,
+      GEOMETRY_FACTORY.lineString(2, -20.0, -20.0, 10.0, 90.0)));
+    records.add(newRecord(recordDefinition, ++id,
+      GEOMETRY_FACTORY.lineString(2, 150.0, 120.0, 150.0, 80.0, 90.0, 80.0)));
+    // Geometries completely outside the bounding box
+    records.add(newRecord(recordDefinition, ++id, GEOMETRY_FACTORY.point(-50, 50)));
+    records.add(newRecord(recordDefinition, ++id, GEOMETRY_FACTORY.point(200, 200)));
+    records.add(newRecord(recordDefinition, ++id,
+      GEOMETRY_FACTORY.lineString(2, 120.0, -10.0, 130.0, -20.0)));
+    // Null and empty geometries
+    records.add(newRecord(recordDefinition, ++id, null));
+    records.add(newRecord(recordDefinition, ++id, GEOMETRY_FACTORY.point()));
+    records.add(newRecord(recordDefinition, ++id, GEOMETRY_FACTORY.lineString()));
+    return records;
+  }
+
+  private static List<Record> select(final List<Record> records, final Condition condition) {
+    final List<Record> selected = new ArrayList<>();
+    for (final Record record : records) {
+      if (condition == null || condition.test(record)) {
+        selected.add(record);
+      }
+    }
+    return selected;
+  }
+
+  @Test
+  public void testBoundingBoxPartitions() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 100, 100);
+    for (final int gridSize : new int[] {
+      1, 2, 3, 4
+    }) {
+      assertPartitions(records, new Query(recordDefinition), boundingBox, gridSize, gridSize);
+      assertPartitions(records, new Query(recordDefinition, Q.lessThan("ID", 200)), boundingBox,
+        gridSize, gridSize + 1);
+    }
+  }
+
+  /**
+   * A bounding box that only covers part of the records must still return all the records.
+   */
+  @Test
+  public void testBoundingBoxPartitionsPartialExtent() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(20, 30, 60, 70);
+    assertPartitions(records, new Query(recordDefinition), boundingBox, 3, 2);
+  }
+}
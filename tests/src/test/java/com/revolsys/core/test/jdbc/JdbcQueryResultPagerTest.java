@@ -0,0 +1,145 @@
+package com.revolsys.core.test.jdbc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import org.jeometry.common.compare.CompareUtil;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jdbc.io.JdbcQueryResultPager;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+/**
+ * Test the keyset pagination order by and seek conditions by paging over records in memory.
+ */
+public class JdbcQueryResultPagerTest {
+
+  private static Comparator<Record> newComparator(final Map<FieldDefinition, Boolean> orderBy) {
+    return (record1, record2) -> {
+      for (final Entry<FieldDefinition, Boolean> entry : orderBy.entrySet()) {
+        final String name = entry.getKey().getName();
+        int compare = CompareUtil.compare(record1.getValue(name), record2.getValue(name));
+        if (!entry.getValue()) {
+          compare = -compare;
+        }
+        if (compare != 0) {
+          return compare;
+        }
+      }
+      return 0;
+    };
+  }
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/TEST/PAGED"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("CODE", DataTypes.STRING, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.setIdFieldName("ID");
+    return recordDefinition;
+  }
+
+  private static List<Record> newRecords(final RecordDefinitionImpl recordDefinition) {
+    final List<Record> records = new ArrayList<>();
+    final String[] codes = {
+      "B", "A", "C", "A", "B", "A", "C", "B", "A", "C", "A"
+    };
+    for (int i = 0; i < codes.length; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      record.setValue("ID", i + 1);
+      record.setValue("CODE", codes[i]);
+      if (i % 3 != 0) {
+        record.setValue("NAME", "Name " + i % 4);
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  /**
+   * Read the records a page at a time using the keyset seek condition from the last record of
+   * the previous page.
+   */
+  private static List<Record> readPages(final List<Record> records,
+    final Map<FieldDefinition, Boolean> orderBy, final int pageSize) {
+    final Comparator<Record> comparator = newComparator(orderBy);
+    final List<Record> pagedRecords = new ArrayList<>();
+    Object[] key = null;
+    while (true) {
+      final Condition condition;
+      if (key == null) {
+        condition = null;
+      } else {
+        condition = JdbcQueryResultPager.newKeysetCondition(orderBy, key);
+      }
+      final List<Record> page = records.stream()
+        .filter(record -> condition == null || condition.test(record))
+        .sorted(comparator)
+        .limit(pageSize)
+        .collect(Collectors.toList());
+      if (page.isEmpty()) {
+        return pagedRecords;
+      }
+      pagedRecords.addAll(page);
+      final Record lastRecord = page.get(page.size() - 1);
+      key = new Object[orderBy.size()];
+      int i = 0;
+      for (final FieldDefinition field : orderBy.keySet()) {
+        key[i++] = lastRecord.getValue(field.getName());
+      }
+    }
+  }
+
+  @Test
+  public void testKeysetOrderByNullable() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final Query query = new Query(recordDefinition);
+    query.addOrderBy("NAME");
+    Assert.assertNull("Nullable order by must use offset pagination",
+      JdbcQueryResultPager.newKeysetOrderBy(recordDefinition, query));
+
+    final Query requiredQuery = new Query(recordDefinition);
+    requiredQuery.addOrderBy("CODE", false);
+    final Map<FieldDefinition, Boolean> orderBy = JdbcQueryResultPager
+      .newKeysetOrderBy(recordDefinition, requiredQuery);
+    Assert.assertNotNull("Required order by must use keyset pagination", orderBy);
+    final List<String> orderByNames = orderBy.keySet()
+      .stream()
+      .map(FieldDefinition::getName)
+      .collect(Collectors.toList());
+    Assert.assertEquals("Order by", List.of("CODE", "ID"), orderByNames);
+  }
+
+  @Test
+  public void testKeysetPages() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition);
+    for (final boolean ascending : new boolean[] {
+      true, false
+    }) {
+      final Query query = new Query(recordDefinition);
+      query.addOrderBy("CODE", ascending);
+      final Map<FieldDefinition, Boolean> orderBy = JdbcQueryResultPager
+        .newKeysetOrderBy(recordDefinition, query);
+      final List<Record> expected = new ArrayList<>(records);
+      expected.sort(newComparator(orderBy));
+      for (int pageSize = 1; pageSize <= records.size() + 1; pageSize++) {
+        final List<Record> actual = readPages(records, orderBy, pageSize);
+        Assert.assertEquals("Page size " + pageSize + " ascending " + ascending, expected, actual);
+      }
+    }
+  }
+}
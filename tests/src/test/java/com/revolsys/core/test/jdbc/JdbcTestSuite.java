@@ -0,0 +1,12 @@
+package com.revolsys.core.test.jdbc;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  DataSourceImplTest.class, JdbcQueryPartitionTest.class, JdbcQueryResultPagerTest.class
+})
+public class JdbcTestSuite {
+}
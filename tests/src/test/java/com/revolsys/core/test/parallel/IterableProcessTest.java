@@ -0,0 +1,64 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.parallel.IterableProcess;
+import com.revolsys.parallel.channel.Channel;
+
+/**
+ * Test that a parallel {@link IterableProcess} writes every object, one at a time from the
+ * process thread.
+ */
+public class IterableProcessTest {
+
+  private static class RecordingProcess extends IterableProcess<Integer> {
+    private final Set<Thread> threads = new HashSet<>();
+
+    private final List<Integer> values = new ArrayList<>();
+
+    private RecordingProcess(final Iterable<Integer> iterable) {
+      super(iterable);
+      setParallel(true);
+    }
+
+    @Override
+    protected void write(final Channel<Integer> out, final Integer object) {
+      // Not thread safe, so concurrent writes would lose values
+      this.values.add(object);
+      this.threads.add(Thread.currentThread());
+    }
+  }
+
+  private static final List<Integer> VALUES = IntStream.range(0, 200000)
+    .boxed()
+    .collect(Collectors.toList());
+
+  @Test
+  public void testOrdered() {
+    final RecordingProcess process = new RecordingProcess(VALUES);
+    process.setOrdered(true);
+    process.run();
+    Assert.assertEquals("Values", VALUES, process.values);
+  }
+
+  @Test
+  public void testUnordered() {
+    final RecordingProcess process = new RecordingProcess(VALUES);
+    process.setOrdered(false);
+    process.run();
+    Assert.assertEquals("Threads", Collections.singleton(Thread.currentThread()),
+      process.threads);
+    final List<Integer> values = new ArrayList<>(process.values);
+    Collections.sort(values);
+    Assert.assertEquals("Values", VALUES, values);
+  }
+}
@@ -0,0 +1,271 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.FloatArrayGriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImageWriter;
+import com.revolsys.raster.TiledGeoreferencedImage;
+import com.revolsys.raster.io.format.tiff.CloudOptimizedGeoTiffWriter;
+import com.revolsys.raster.io.format.tiff.TiffDirectory;
+import com.revolsys.raster.io.format.tiff.TiffDirectoryIterator;
+import com.revolsys.raster.io.format.tiff.TiffGeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
+import com.revolsys.raster.io.format.tiff.code.TiffExtensionTag;
+import com.revolsys.raster.io.format.tiff.image.TiffImage;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Write images and elevation models with the {@link CloudOptimizedGeoTiffWriter}, read them back
+ * and compare the pixels and georeferencing.
+ */
+public class CloudOptimizedGeoTiffWriterTest {
+
+  private static final double MIN_X = 1000000;
+
+  private static final double MIN_Y = 500000;
+
+  private static void assertBoundingBox(final String message, final BoundingBox expected,
+    final BoundingBox actual) {
+    Assert.assertEquals(message + " minX", expected.getMinX(), actual.getMinX(), 1e-6);
+    Assert.assertEquals(message + " minY", expected.getMinY(), actual.getMinY(), 1e-6);
+    Assert.assertEquals(message + " maxX", expected.getMaxX(), actual.getMaxX(), 1e-6);
+    Assert.assertEquals(message + " maxY", expected.getMaxY(), actual.getMaxY(), 1e-6);
+    Assert.assertEquals(message + " coordinate system", expected.getCoordinateSystemId(),
+      actual.getCoordinateSystemId());
+  }
+
+  private static void assertPixels(final String message, final BufferedImage expected,
+    final BufferedImage actual) {
+    Assert.assertEquals(message + " width", expected.getWidth(), actual.getWidth());
+    Assert.assertEquals(message + " height", expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        final int expectedPixel = expected.getRGB(x, y);
+        final int actualPixel = actual.getRGB(x, y);
+        if (expectedPixel != actualPixel) {
+          Assert.fail(message + " pixel (" + x + "," + y + ") expected "
+            + Integer.toHexString(expectedPixel) + " not " + Integer.toHexString(actualPixel));
+        }
+      }
+    }
+  }
+
+  private static List<TiffDirectory> getDirectories(final TiffDirectoryIterator iterator) {
+    final List<TiffDirectory> directories = new ArrayList<>();
+    for (final TiffDirectory directory : iterator) {
+      directories.add(directory);
+    }
+    return directories;
+  }
+
+  private static BufferedImage newBufferedImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, (x & 0xff) << 16 | (y & 0xff) << 8 | x * 7 + y * 13 & 0xff);
+      }
+    }
+    return image;
+  }
+
+  private static Path newPath(final String fileName) {
+    final Path path = Paths.get("target/test/raster", fileName);
+    com.revolsys.io.file.Paths.createParentDirectories(path);
+    return path;
+  }
+
+  private static float[] readTile(final TiffDirectory directory, final long offset,
+    final long byteCount) throws IOException {
+    try (
+      ChannelReader in = directory.newChannelReader();
+      InputStream tileIn = new InflaterInputStream(in.getInputStream(offset, (int)byteCount))) {
+      final byte[] bytes = tileIn.readAllBytes();
+      final float[] values = new float[bytes.length / 4];
+      ByteBuffer.wrap(bytes).order(directory.getByteOrder()).asFloatBuffer().get(values);
+      return values;
+    }
+  }
+
+  @Test
+  public void testElevation() throws IOException {
+    final int gridWidth = 150;
+    final int gridHeight = 100;
+    final int tileSize = 64;
+    final GriddedElevationModel model = new FloatArrayGriddedElevationModel(
+      GeometryFactory.floating3d(3005), MIN_X, MIN_Y, gridWidth, gridHeight, 5);
+    for (int gridY = 0; gridY < gridHeight; gridY++) {
+      for (int gridX = 0; gridX < gridWidth; gridX++) {
+        if (gridX == gridY) {
+          model.setValue(gridX, gridY, Double.NaN);
+        } else {
+          model.setValue(gridX, gridY, gridX + gridY / 1000.0);
+        }
+      }
+    }
+    final Path path = newPath("elevation.tif");
+    final PathResource resource = new PathResource(path);
+    new CloudOptimizedGeoTiffWriter(resource).setTileSize(tileSize).write(model);
+
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final List<TiffDirectory> directories = getDirectories(iterator);
+      Assert.assertEquals("Directory count", 3, directories.size());
+      final TiffDirectory directory = directories.get(0);
+      Assert.assertEquals("Width", gridWidth, directory.getInt(TiffBaselineTag.ImageWidth));
+      Assert.assertEquals("Height", gridHeight, directory.getInt(TiffBaselineTag.ImageLength));
+      Assert.assertEquals("Bits per sample", 32, directory.getInt(TiffBaselineTag.BitsPerSample));
+      Assert.assertEquals("Sample format", 3, directory.getInt(TiffExtensionTag.SampleFormat));
+      Assert.assertEquals("Tile width", tileSize, directory.getInt(TiffExtensionTag.TileWidth));
+
+      final TiffImage image = directory.getImage();
+      assertBoundingBox("Bounding box", model.getBoundingBox(), image.getBoundingBox());
+      Assert.assertEquals("Resolution X", 5, image.getResolutionX(), 0);
+      Assert.assertEquals("Resolution Y", 5, image.getResolutionY(), 0);
+
+      final long[] offsets = directory.getLongArray(TiffExtensionTag.TileOffsets);
+      final long[] byteCounts = directory.getLongArray(TiffExtensionTag.TileByteCounts);
+      final int tileCountX = (gridWidth + tileSize - 1) / tileSize;
+      for (int tileIndex = 0; tileIndex < offsets.length; tileIndex++) {
+        final float[] values = readTile(directory, offsets[tileIndex], byteCounts[tileIndex]);
+        Assert.assertEquals("Tile value count", tileSize * tileSize, values.length);
+        final int minX = tileIndex % tileCountX * tileSize;
+        final int minRow = tileIndex / tileCountX * tileSize;
+        for (int row = 0; row < tileSize; row++) {
+          for (int column = 0; column < tileSize; column++) {
+            final int gridX = minX + column;
+            final int gridY = gridHeight - 1 - (minRow + row);
+            float expected = Float.NaN;
+            if (gridX < gridWidth && gridY >= 0) {
+              expected = (float)model.getValue(gridX, gridY);
+            }
+            Assert.assertEquals("Elevation (" + gridX + "," + gridY + ")", expected,
+              values[row * tileSize + column], 0);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testImage() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = GeometryFactory.floating2d(3005)
+      .newBoundingBox(MIN_X, MIN_Y, MIN_X + width * 2, MIN_Y + height * 2);
+    final GeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox, bufferedImage);
+
+    final Path path = newPath("image.tif");
+    final PathResource resource = new PathResource(path);
+    new CloudOptimizedGeoTiffWriter(resource).setTileSize(64).write(image);
+
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final List<TiffDirectory> directories = getDirectories(iterator);
+      Assert.assertEquals("Directory count", 4, directories.size());
+      final TiffImage actualImage = directories.get(0).getImage();
+      assertBoundingBox("Bounding box", boundingBox, actualImage.getBoundingBox());
+      Assert.assertEquals("Resolution X", 2, actualImage.getResolutionX(), 0);
+      Assert.assertEquals("Resolution Y", 2, actualImage.getResolutionY(), 0);
+      assertPixels("Image", bufferedImage, actualImage.getBufferedImage());
+    }
+  }
+
+  /**
+   * The GeoTIFF writer writes a strip image by default and a cloud optimized GeoTIFF only when
+   * the property is set.
+   */
+  @Test
+  public void testTiffGeoreferencedImageWriter() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = GeometryFactory.floating2d(3005)
+      .newBoundingBox(MIN_X, MIN_Y, MIN_X + width * 2, MIN_Y + height * 2);
+    final GeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox, bufferedImage);
+    for (final boolean cloudOptimized : new boolean[] {
+      false, true
+    }) {
+      final String message = "cloudOptimized=" + cloudOptimized;
+      final PathResource resource = new PathResource(
+        newPath("writer-" + cloudOptimized + ".tif"));
+      try (
+        GeoreferencedImageWriter writer = new TiffGeoreferencedImageWriter(resource)) {
+        if (cloudOptimized) {
+          writer.setProperty(TiffGeoreferencedImageWriter.CLOUD_OPTIMIZED_PROPERTY, true);
+        }
+        writer.write(image);
+      }
+
+      try (
+        TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+        final List<TiffDirectory> directories = getDirectories(iterator);
+        final TiffDirectory directory = directories.get(0);
+        if (cloudOptimized) {
+          Assert.assertEquals(message + " directory count", 4, directories.size());
+          Assert.assertNotNull(message + " tiled",
+            directory.getEntry(TiffExtensionTag.TileWidth));
+        } else {
+          Assert.assertEquals(message + " directory count", 1, directories.size());
+          Assert.assertNull(message + " tiled", directory.getEntry(TiffExtensionTag.TileWidth));
+        }
+        final TiffImage actualImage = directory.getImage();
+        assertBoundingBox(message + " bounding box", boundingBox, actualImage.getBoundingBox());
+        assertPixels(message + " image", bufferedImage, actualImage.getBufferedImage());
+      }
+    }
+  }
+
+  /**
+   * Write a tiled image whose tiles do not line up with the bands of rows read by the writer.
+   */
+  @Test
+  public void testTiledImage() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = GeometryFactory.floating2d(3005)
+      .newBoundingBox(MIN_X, MIN_Y, MIN_X + width * 2, MIN_Y + height * 2);
+    final PathResource sourceResource = new PathResource(newPath("tiledSource.tif"));
+    new CloudOptimizedGeoTiffWriter(sourceResource).setTileSize(48)
+      .write(new BufferedGeoreferencedImage(boundingBox, bufferedImage));
+
+    final PathResource resource = new PathResource(newPath("tiled.tif"));
+    final GeoreferencedImage sourceImage = GeoreferencedImage.newGeoreferencedImage(sourceResource);
+    try {
+      Assert.assertTrue("Tiled source", sourceImage instanceof TiledGeoreferencedImage);
+      new CloudOptimizedGeoTiffWriter(resource).setTileSize(64).write(sourceImage);
+    } finally {
+      if (sourceImage instanceof BaseCloseable) {
+        ((BaseCloseable)sourceImage).close();
+      }
+    }
+
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final TiffImage actualImage = iterator.next().getImage();
+      assertBoundingBox("Bounding box", boundingBox, actualImage.getBoundingBox());
+      Assert.assertEquals("Resolution X", 2, actualImage.getResolutionX(), 0);
+      Assert.assertEquals("Resolution Y", 2, actualImage.getResolutionY(), 0);
+      assertPixels("Image", bufferedImage, actualImage.getBufferedImage());
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImageMapTile;
+import com.revolsys.raster.ImageProjector;
+import com.revolsys.raster.ImageResampling;
+import com.revolsys.raster.TiledGeoreferencedImage;
+
+/**
+ * Project images with the {@link ImageProjector} and compare the pixels with the source image.
+ */
+public class ImageProjectorTest {
+
+  /**
+   * An image split into tiles whose bounding boxes are padded by one pixel, like the tiles of a
+   * TIFF image.
+   */
+  private static class PaddedTiledImage extends BufferedGeoreferencedImage
+    implements TiledGeoreferencedImage {
+
+    private final BufferedImage image;
+
+    private final int tileSize;
+
+    private PaddedTiledImage(final BoundingBox boundingBox, final BufferedImage image,
+      final int tileSize) {
+      super(boundingBox, image);
+      this.image = image;
+      this.tileSize = tileSize;
+    }
+
+    @Override
+    public List<GeoreferencedImageMapTile> getOverlappingMapTiles(final BoundingBox boundingBox,
+      final double resolution) {
+      final List<GeoreferencedImageMapTile> tiles = new ArrayList<>();
+      final BoundingBox imageBoundingBox = getBoundingBox();
+      final GeometryFactory geometryFactory = imageBoundingBox.getGeometryFactory();
+      final double resolutionX = getResolutionX();
+      final double resolutionY = getResolutionY();
+      final int tileSize = this.tileSize;
+      for (int minY = 0; minY < getImageHeight(); minY += tileSize) {
+        for (int minX = 0; minX < getImageWidth(); minX += tileSize) {
+          final int width = Math.min(tileSize, getImageWidth() - minX);
+          final int height = Math.min(tileSize, getImageHeight() - minY);
+          final double tileMinX = imageBoundingBox.getMinX() + minX * resolutionX;
+          final double tileMaxY = imageBoundingBox.getMaxY() - minY * resolutionY;
+          final BoundingBox tileBoundingBox = geometryFactory.newBoundingBox(tileMinX,
+            tileMaxY - (height + 1) * resolutionY, tileMinX + (width + 1) * resolutionX,
+            tileMaxY);
+          if (tileBoundingBox.bboxIntersects(boundingBox)) {
+            final BufferedImage tileImage = this.image.getSubimage(minX, minY, width, height);
+            tiles.add(new GeoreferencedImageMapTile(tileBoundingBox, width, height) {
+              @Override
+              protected BufferedImage loadBuffferedImage() {
+                return tileImage;
+              }
+            });
+          }
+        }
+      }
+      return tiles;
+    }
+
+    @Override
+    public double getResolution(final BoundingBox boundingBox, final double resolution) {
+      return getResolutionX();
+    }
+  }
+
+  private static final int COLOR = 0xff3c78b4;
+
+  private static final double MIN_X = 1000000;
+
+  private static final double MIN_Y = 500000;
+
+  private static void assertPixels(final String message, final RenderedImage expected,
+    final RenderedImage actual) {
+    Assert.assertEquals(message + " width", expected.getWidth(), actual.getWidth());
+    Assert.assertEquals(message + " height", expected.getHeight(), actual.getHeight());
+    final BufferedImage expectedImage = (BufferedImage)expected;
+    final BufferedImage actualImage = (BufferedImage)actual;
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        final int expectedPixel = expectedImage.getRGB(x, y);
+        final int actualPixel = actualImage.getRGB(x, y);
+        if (expectedPixel != actualPixel) {
+          Assert.fail(message + " pixel (" + x + "," + y + ") expected "
+            + Integer.toHexString(expectedPixel) + " not " + Integer.toHexString(actualPixel));
+        }
+      }
+    }
+  }
+
+  private static BoundingBox newBoundingBox(final int width, final int height) {
+    return GeometryFactory.floating2d(3005)
+      .newBoundingBox(MIN_X, MIN_Y, MIN_X + width * 2, MIN_Y + height * 2);
+  }
+
+  private static BufferedImage newBufferedImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, 0xff000000 | (x & 0xff) << 16 | (y & 0xff) << 8 | x * 7 + y * 13 & 0xff);
+      }
+    }
+    return image;
+  }
+
+  private static BufferedImage toBufferedImage(final TiledGeoreferencedImage image,
+    final int width, final int height) {
+    final BufferedImage bufferedImage = new BufferedImage(width, height,
+      BufferedImage.TYPE_INT_ARGB);
+    final BoundingBox boundingBox = image.getBoundingBox();
+    final double resolutionX = image.getResolutionX();
+    final double resolutionY = image.getResolutionY();
+    for (final GeoreferencedImageMapTile tile : image.getOverlappingMapTiles(boundingBox,
+      resolutionX)) {
+      final BufferedImage tileImage = (BufferedImage)tile.loadData().getRenderedImage();
+      final BoundingBox tileBoundingBox = tile.getBoundingBox();
+      final int minX = (int)Math
+        .round((tileBoundingBox.getMinX() - boundingBox.getMinX()) / resolutionX);
+      final int minY = (int)Math
+        .round((boundingBox.getMaxY() - tileBoundingBox.getMaxY()) / resolutionY);
+      for (int y = 0; y < tileImage.getHeight(); y++) {
+        for (int x = 0; x < tileImage.getWidth(); x++) {
+          bufferedImage.setRGB(minX + x, minY + y, tileImage.getRGB(x, y));
+        }
+      }
+    }
+    return bufferedImage;
+  }
+
+  /**
+   * Interpolating an image with one color must not change the color, except for the transparent
+   * pixels outside the source image.
+   */
+  @Test
+  public void testConstantColor() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = new BufferedImage(width, height,
+      BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        bufferedImage.setRGB(x, y, COLOR);
+      }
+    }
+    final BoundingBox boundingBox = newBoundingBox(width, height);
+    final GeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox, bufferedImage);
+    final GeometryFactory geographicGeometryFactory = boundingBox.getGeometryFactory()
+      .getGeographicGeometryFactory();
+    for (final ImageResampling resampling : ImageResampling.values()) {
+      final BufferedImage projectedImage = (BufferedImage)new ImageProjector(image,
+        geographicGeometryFactory).setResampling(resampling)
+          .setTileSize(64)
+          .newImage()
+          .getRenderedImage();
+      int colorCount = 0;
+      for (int y = 0; y < projectedImage.getHeight(); y++) {
+        for (int x = 0; x < projectedImage.getWidth(); x++) {
+          final int pixel = projectedImage.getRGB(x, y);
+          if (pixel == COLOR) {
+            colorCount++;
+          } else if (pixel != 0) {
+            Assert.fail(resampling + " pixel (" + x + "," + y + ") expected "
+              + Integer.toHexString(COLOR) + " not " + Integer.toHexString(pixel));
+          }
+        }
+      }
+      final int pixelCount = projectedImage.getWidth() * projectedImage.getHeight();
+      Assert.assertTrue(resampling + " color count " + colorCount, colorCount > pixelCount / 2);
+    }
+  }
+
+  /**
+   * Projecting to the same coordinate system with the nearest pixel must return the source pixels.
+   */
+  @Test
+  public void testIdentityNearest() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = newBoundingBox(width, height);
+    final GeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox, bufferedImage);
+    final ImageProjector projector = new ImageProjector(image, boundingBox.getGeometryFactory())
+      .setResampling(ImageResampling.NEAREST)
+      .setTileSize(64);
+    Assert.assertEquals("Width", width, projector.getTargetImageWidth());
+    Assert.assertEquals("Height", height, projector.getTargetImageHeight());
+    assertPixels("Image", bufferedImage, projector.newImage().getRenderedImage());
+  }
+
+  /**
+   * Projecting a tiled source image must draw each source tile at its pixel offset without
+   * stretching it to the padded tile bounding box.
+   */
+  @Test
+  public void testIdentityNearestTiledSource() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = newBoundingBox(width, height);
+    final GeoreferencedImage image = new PaddedTiledImage(boundingBox, bufferedImage, 48);
+    final ImageProjector projector = new ImageProjector(image, boundingBox.getGeometryFactory())
+      .setResampling(ImageResampling.NEAREST)
+      .setTileSize(64);
+    assertPixels("Image", bufferedImage, projector.newImage().getRenderedImage());
+  }
+
+  /**
+   * The tiles of {@link ImageProjector#newTiledImage()} must match the image from
+   * {@link ImageProjector#newImage()}.
+   */
+  @Test
+  public void testTiledImage() {
+    final int width = 300;
+    final int height = 200;
+    final BufferedImage bufferedImage = newBufferedImage(width, height);
+    final BoundingBox boundingBox = newBoundingBox(width, height);
+    final GeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox, bufferedImage);
+    final GeometryFactory geographicGeometryFactory = boundingBox.getGeometryFactory()
+      .getGeographicGeometryFactory();
+    final ImageProjector projector = new ImageProjector(image, geographicGeometryFactory)
+      .setTileSize(64);
+    final RenderedImage expected = projector.newImage().getRenderedImage();
+    final TiledGeoreferencedImage tiledImage = projector.newTiledImage();
+    final BufferedImage actual = toBufferedImage(tiledImage, projector.getTargetImageWidth(),
+      projector.getTargetImageHeight());
+    assertPixels("Tiled image", expected, actual);
+  }
+}
@@ -0,0 +1,13 @@
+package com.revolsys.core.test.raster;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  CloudOptimizedGeoTiffWriterTest.class, ImageProjectorTest.class, TiffLzwStreamTest.class,
+  TiffTileCacheTest.class
+})
+public class RasterTestSuite {
+}
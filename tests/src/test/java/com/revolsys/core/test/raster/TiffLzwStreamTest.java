@@ -0,0 +1,79 @@
+package com.revolsys.core.test.raster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwInputStream;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwOutputStream;
+
+/**
+ * Test that bytes compressed with {@link TiffLzwOutputStream} are read back unchanged by
+ * {@link TiffLzwInputStream}, including data that fills the code table and forces a clear code.
+ */
+public class TiffLzwStreamTest {
+
+  private static void assertRoundTrip(final String message, final byte[] bytes)
+    throws IOException {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (
+      TiffLzwOutputStream out = new TiffLzwOutputStream(compressed)) {
+      out.write(bytes);
+    }
+    final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    try (
+      InputStream in = new TiffLzwInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      for (int b = in.read(); b != -1; b = in.read()) {
+        uncompressed.write(b);
+      }
+    }
+    Assert.assertArrayEquals(message, bytes, uncompressed.toByteArray());
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    assertRoundTrip("Empty", new byte[0]);
+  }
+
+  @Test
+  public void testRandom() throws IOException {
+    final Random random = new Random(1);
+    for (final int length : new int[] {
+      1, 2, 3, 255, 256, 4096, 65536, 300000
+    }) {
+      final byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      assertRoundTrip("Random " + length, bytes);
+    }
+  }
+
+  @Test
+  public void testRepeated() throws IOException {
+    for (final int length : new int[] {
+      1, 2, 3, 1000, 100000
+    }) {
+      final byte[] bytes = new byte[length];
+      assertRoundTrip("Zeros " + length, bytes);
+    }
+    final byte[] bytes = new byte[200000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte)(i / 7 % 50);
+    }
+    assertRoundTrip("Runs", bytes);
+  }
+
+  @Test
+  public void testSmallAlphabet() throws IOException {
+    final Random random = new Random(2);
+    final byte[] bytes = new byte[300000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte)random.nextInt(4);
+    }
+    assertRoundTrip("Small alphabet", bytes);
+  }
+}
@@ -0,0 +1,167 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImageMapTile;
+import com.revolsys.raster.GeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.TiffDirectoryIterator;
+import com.revolsys.raster.io.format.tiff.TiffGeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.image.AbstractTiffImage;
+import com.revolsys.raster.io.format.tiff.image.TiffTileCache;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Read the map tiles of a strip TIFF a tile at a time, checking that consecutive strips are
+ * grouped into map tiles, that the tiles are only decoded when loaded and that the decoded tiles
+ * are kept in the {@link TiffTileCache}.
+ */
+public class TiffTileCacheTest {
+
+  private static final int HEIGHT = 700;
+
+  private static final double MIN_X = 1000000;
+
+  private static final double MIN_Y = 500000;
+
+  private static final int WIDTH = 400;
+
+  private static void assertTile(final String message, final BufferedImage image,
+    final int imageY, final BufferedImage tileImage) {
+    Assert.assertEquals(message + " width", image.getWidth(), tileImage.getWidth());
+    for (int y = 0; y < tileImage.getHeight(); y++) {
+      for (int x = 0; x < tileImage.getWidth(); x++) {
+        final int expectedPixel = image.getRGB(x, imageY + y);
+        final int actualPixel = tileImage.getRGB(x, y);
+        if (expectedPixel != actualPixel) {
+          Assert.fail(message + " pixel (" + x + "," + (imageY + y) + ") expected "
+            + Integer.toHexString(expectedPixel) + " not " + Integer.toHexString(actualPixel));
+        }
+      }
+    }
+  }
+
+  private static BufferedImage newBufferedImage() {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        image.setRGB(x, y, (x & 0xff) << 16 | (y & 0xff) << 8 | x * 7 + y * 13 & 0xff);
+      }
+    }
+    return image;
+  }
+
+  private static PathResource writeStripImage(final BufferedImage bufferedImage) {
+    final BoundingBox boundingBox = GeometryFactory.floating2d(3005)
+      .newBoundingBox(MIN_X, MIN_Y, MIN_X + WIDTH * 2, MIN_Y + HEIGHT * 2);
+    final Path path = Paths.get("target/test/raster/strips.tif");
+    com.revolsys.io.file.Paths.createParentDirectories(path);
+    final PathResource resource = new PathResource(path);
+    try (
+      GeoreferencedImageWriter writer = new TiffGeoreferencedImageWriter(resource)) {
+      writer.write(new BufferedGeoreferencedImage(boundingBox, bufferedImage));
+    }
+    return resource;
+  }
+
+  @Test
+  public void testStripMapTiles() {
+    final BufferedImage bufferedImage = newBufferedImage();
+    final PathResource resource = writeStripImage(bufferedImage);
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final AbstractTiffImage image = (AbstractTiffImage)iterator.next().getImage();
+      try {
+        Assert.assertFalse("Tiled", image.isTiled());
+        final int rowsPerStrip = image.getRowsPerStrip();
+        Assert.assertTrue("Rows per strip " + rowsPerStrip, rowsPerStrip < 256);
+
+        // Strips are grouped into map tiles at least 256 pixels high
+        final int stripsPerMapTile = image.getStripsPerMapTile();
+        final int mapTileHeight = rowsPerStrip * stripsPerMapTile;
+        Assert.assertTrue("Map tile height " + mapTileHeight, mapTileHeight >= 256);
+        Assert.assertTrue("Map tile height " + mapTileHeight,
+          mapTileHeight - rowsPerStrip < 256);
+        final int mapTileCount = (HEIGHT + mapTileHeight - 1) / mapTileHeight;
+        Assert.assertEquals("Map tile count", mapTileCount, image.getMapTileCount());
+
+        // Map tiles are decoded when they are loaded
+        final BoundingBox imageBoundingBox = image.getBoundingBox();
+        final BoundingBox topLeft = imageBoundingBox.getGeometryFactory()
+          .newBoundingBox(MIN_X + 1, imageBoundingBox.getMaxY() - 2, MIN_X + 2,
+            imageBoundingBox.getMaxY() - 1);
+        final List<GeoreferencedImageMapTile> topLeftTiles = image
+          .getOverlappingMapTiles(topLeft);
+        Assert.assertEquals("Top left tile count", 1, topLeftTiles.size());
+        final GeoreferencedImageMapTile topLeftTile = topLeftTiles.get(0);
+        Assert.assertEquals("Top left tile height", mapTileHeight,
+          topLeftTile.getHeightPixels());
+        Assert.assertFalse("Cached before load", TiffTileCache.containsTile(image, 0));
+        final BufferedImage topLeftImage = topLeftTile.loadData().getBufferedImage();
+        Assert.assertTrue("Cached after load", TiffTileCache.containsTile(image, 0));
+        Assert.assertSame("Cached tile", image.getTileImage(0), image.getTileImage(0));
+        assertTile("Tile 0", bufferedImage, 0, topLeftImage);
+
+        // Load all the map tiles in parallel
+        final List<GeoreferencedImageMapTile> tiles = image
+          .getOverlappingMapTiles(imageBoundingBox);
+        Assert.assertEquals("Tile count", mapTileCount, tiles.size());
+        image.loadMapTiles(tiles);
+        for (int tileIndex = 0; tileIndex < mapTileCount; tileIndex++) {
+          Assert.assertTrue("Cached " + tileIndex, TiffTileCache.containsTile(image, tileIndex));
+          final int imageY = tileIndex * mapTileHeight;
+          final BufferedImage tileImage = tiles.get(tileIndex).loadData().getBufferedImage();
+          Assert.assertEquals("Tile " + tileIndex + " height",
+            Math.min(mapTileHeight, HEIGHT - imageY), tileImage.getHeight());
+          assertTile("Tile " + tileIndex, bufferedImage, imageY, tileImage);
+        }
+      } finally {
+        image.close();
+      }
+      Assert.assertFalse("Cached after close", TiffTileCache.containsTile(image, 0));
+    }
+  }
+
+  @Test
+  public void testTileCacheMaxSize() {
+    final BufferedImage bufferedImage = newBufferedImage();
+    final PathResource resource = writeStripImage(bufferedImage);
+    final long maxSize = TiffTileCache.getMaxSize();
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final AbstractTiffImage image = (AbstractTiffImage)iterator.next().getImage();
+      try {
+        TiffTileCache.clear();
+        final int mapTileHeight = image.getRowsPerStrip() * image.getStripsPerMapTile();
+        assertTile("Tile 0", bufferedImage, 0, image.getTileImage(0));
+        // Room for one full map tile
+        final long tileSize = TiffTileCache.getSize();
+        Assert.assertTrue("Tile size " + tileSize, tileSize > 0);
+        TiffTileCache.setMaxSize(tileSize);
+        Assert.assertTrue("Tile 0 cached", TiffTileCache.containsTile(image, 0));
+        for (int tileIndex = 1; tileIndex < image.getMapTileCount(); tileIndex++) {
+          final BufferedImage tileImage = image.getTileImage(tileIndex);
+          assertTile("Tile " + tileIndex, bufferedImage, tileIndex * mapTileHeight, tileImage);
+          Assert.assertTrue("Size " + TiffTileCache.getSize(),
+            TiffTileCache.getSize() <= tileSize);
+          Assert.assertFalse("Tile " + (tileIndex - 1) + " evicted",
+            TiffTileCache.containsTile(image, tileIndex - 1));
+        }
+
+        TiffTileCache.setMaxSize(0);
+        Assert.assertEquals("Size after shrink", 0, TiffTileCache.getSize());
+      } finally {
+        TiffTileCache.setMaxSize(maxSize);
+        image.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.record.io.format.json.JsonParser;
+import com.revolsys.record.io.format.json.JsonParser.EventType;
+
+/**
+ * Test the number parsing in {@link JsonParser}, comparing the fast numbers mode against
+ * {@link Double#parseDouble(String)} and the default mode against {@link BigDecimal}.
+ */
+public class JsonParserTest {
+
+  private static void assertFastDouble(final String text) {
+    final double expected = Double.parseDouble(text);
+    final Object value = parseNumber(text, true);
+    Assert.assertEquals(text + " type", Double.class, value.getClass());
+    Assert.assertEquals(text, Double.doubleToRawLongBits(expected),
+      Double.doubleToRawLongBits((Double)value));
+  }
+
+  private static void assertFastLong(final String text) {
+    final Object value = parseNumber(text, true);
+    Assert.assertEquals(text, Long.valueOf(Long.parseLong(text)), value);
+  }
+
+  private static Object parseNumber(final String text, final boolean fastNumbers) {
+    try (
+      JsonParser parser = new JsonParser(new StringReader("[" + text + "]"))) {
+      parser.setFastNumbers(fastNumbers);
+      Assert.assertEquals(text, EventType.startDocument, parser.next());
+      Assert.assertEquals(text, EventType.startArray, parser.next());
+      Assert.assertEquals(text, EventType.number, parser.next());
+      final double doubleValue = parser.getDouble();
+      final Object value = parser.getCurrentValue();
+      Assert.assertEquals(text + " getDouble", ((Number)value).doubleValue(), doubleValue, 0);
+      Assert.assertEquals(text, EventType.endArray, parser.next());
+      return value;
+    }
+  }
+
+  @Test
+  public void testBigDecimal() {
+    for (final String text : new String[] {
+      "0", "-0", "1", "-1.5", "0.1", "1e22", "1.5E-300", "12345678901234567890.123",
+      "-9223372036854775809"
+    }) {
+      final Object value = parseNumber(text, false);
+      Assert.assertEquals(text, new BigDecimal(text), value);
+    }
+  }
+
+  @Test
+  public void testDoubleArray() {
+    try (
+      JsonParser parser = new JsonParser(new StringReader("[1, -2.5, 3e2, 0.1]"))) {
+      parser.setFastNumbers(true);
+      Assert.assertEquals(EventType.startDocument, parser.next());
+      Assert.assertArrayEquals(new double[] {
+        1, -2.5, 300, 0.1
+      }, parser.getDoubleArray(), 0);
+    }
+    try (
+      JsonParser parser = new JsonParser(new StringReader("[]"))) {
+      Assert.assertEquals(EventType.startDocument, parser.next());
+      Assert.assertArrayEquals(new double[0], parser.getDoubleArray(), 0);
+    }
+  }
+
+  @Test
+  public void testFastDecimals() {
+    for (final String text : new String[] {
+      "0.0", "1.0", "0.1", "-0.1", "123.456", "0.000001", "1.7976931348623157",
+      "9007199254740992.5", "9007199254740993.0", "3.141592653589793238", "2.2250738585072014e-308",
+      "4.9e-324", "1.7976931348623157e308", "1e-400", "1e400", "-1e400"
+    }) {
+      assertFastDouble(text);
+    }
+  }
+
+  @Test
+  public void testFastExponentBounds() {
+    for (final String text : new String[] {
+      "1e22", "1e23", "1e-22", "1e-23", "1.5e21", "1.5e22", "1.5e-21", "1.5e-22", "9e22",
+      "-1E+22", "-1E+23", "123456789e-22", "123456789e-23", "0.1e23", "10e21", "1e0", "1e-0",
+      "1e00000000000000000022", "1e99999999999"
+    }) {
+      assertFastDouble(text);
+    }
+  }
+
+  @Test
+  public void testFastIntegers() {
+    for (final String text : new String[] {
+      "0", "1", "-1", "9007199254740993", "123456789012345678", "-123456789012345678",
+      "000123"
+    }) {
+      assertFastLong(text);
+    }
+  }
+
+  @Test
+  public void testFastLongDigits() {
+    // More than 18 significant digits can't be accumulated in a long
+    for (final String text : new String[] {
+      "1234567890123456789.0", "0.1234567890123456789", "12345678901234567890e-5",
+      "0.00000000000000000000001234567890123456789", "9223372036854775807.5"
+    }) {
+      assertFastDouble(text);
+    }
+    for (final String text : new String[] {
+      "1234567890123456789", "9223372036854775807", "-9223372036854775808",
+      "12345678901234567890", "-123456789012345678901234567890"
+    }) {
+      final Object value = parseNumber(text, true);
+      Assert.assertEquals(text, new BigDecimal(text), value);
+    }
+  }
+
+  @Test
+  public void testFastNegativeZero() {
+    assertFastLong("-0");
+    for (final String text : new String[] {
+      "-0.0", "-0e0", "-0.000", "-0E-5", "-0.0e400"
+    }) {
+      assertFastDouble(text);
+      final double value = (Double)parseNumber(text, true);
+      Assert.assertTrue(text + " sign", 1 / value < 0);
+    }
+  }
+}
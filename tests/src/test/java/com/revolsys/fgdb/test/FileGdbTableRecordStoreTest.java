@@ -0,0 +1,532 @@
+package com.revolsys.fgdb.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.gis.esri.gdb.file.table.FileGdbTableRecordStore;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.Reader;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * Write small .gdbtable files in the OpenFileGDB format and read them using the
+ * {@link FileGdbTableRecordStore}.
+ */
+public class FileGdbTableRecordStoreTest {
+
+  /**
+   * Little endian output for the table files.
+   */
+  private static class TableBytes {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    public int size() {
+      return this.out.size();
+    }
+
+    public byte[] toByteArray() {
+      return this.out.toByteArray();
+    }
+
+    public TableBytes write(final byte[] bytes) {
+      this.out.write(bytes, 0, bytes.length);
+      return this;
+    }
+
+    public TableBytes writeByte(final int value) {
+      this.out.write(value);
+      return this;
+    }
+
+    public TableBytes writeDouble(final double value) {
+      return writeLong(Double.doubleToLongBits(value));
+    }
+
+    public TableBytes writeInt(final int value) {
+      return write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array());
+    }
+
+    public TableBytes writeLong(final long value) {
+      return write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+    }
+
+    public TableBytes writeShort(final int value) {
+      return write(
+        ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort((short)value).array());
+    }
+
+    public TableBytes writeString(final String value) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarUInt(bytes.length);
+      return write(bytes);
+    }
+
+    public TableBytes writeUtf16(final String value) {
+      for (int i = 0; i < value.length(); i++) {
+        writeShort(value.charAt(i));
+      }
+      return this;
+    }
+
+    public TableBytes writeVarInt(final long value) {
+      long remaining = Math.abs(value);
+      int b = (int)(remaining & 0x3f);
+      if (value < 0) {
+        b |= 0x40;
+      }
+      remaining >>>= 6;
+      while (remaining != 0) {
+        writeByte(b | 0x80);
+        b = (int)(remaining & 0x7f);
+        remaining >>>= 7;
+      }
+      return writeByte(b);
+    }
+
+    public TableBytes writeVarUInt(final long value) {
+      long remaining = value;
+      while (remaining >= 0x80) {
+        writeByte((int)(remaining & 0x7f | 0x80));
+        remaining >>>= 7;
+      }
+      return writeByte((int)remaining);
+    }
+  }
+
+  /**
+   * Build a .gdbtable and .gdbtablx file. All fields except the object id are nullable.
+   */
+  private static class TableBuilder {
+    private int fieldCount;
+
+    private final TableBytes fields = new TableBytes();
+
+    private final int geometryType;
+
+    private final List<byte[]> rows = new ArrayList<>();
+
+    public TableBuilder(final int geometryType) {
+      this.geometryType = geometryType;
+    }
+
+    private void addField(final String name, final int type) {
+      this.fields.writeByte(name.length()).writeUtf16(name);
+      this.fields.writeByte(0);
+      this.fields.writeByte(type);
+      this.fieldCount++;
+    }
+
+    public TableBuilder addGeometryField(final String name, final boolean hasZ,
+      final boolean hasM) {
+      addField(name, 7);
+      this.fields.writeByte(0).writeByte(1);
+      final String wkt = "";
+      this.fields.writeShort(wkt.length() * 2).writeUtf16(wkt);
+      int flags = 1;
+      if (hasM) {
+        flags |= 2;
+      }
+      if (hasZ) {
+        flags |= 4;
+      }
+      this.fields.writeByte(flags);
+      this.fields.writeDouble(X_ORIGIN).writeDouble(Y_ORIGIN).writeDouble(XY_SCALE);
+      if (hasM) {
+        this.fields.writeDouble(M_ORIGIN).writeDouble(M_SCALE);
+      }
+      if (hasZ) {
+        this.fields.writeDouble(Z_ORIGIN).writeDouble(Z_SCALE);
+      }
+      this.fields.writeDouble(0.001);
+      if (hasM) {
+        this.fields.writeDouble(0.001);
+      }
+      if (hasZ) {
+        this.fields.writeDouble(0.001);
+      }
+      // extent
+      this.fields.writeDouble(0).writeDouble(0).writeDouble(100).writeDouble(100);
+      // spatial index grid sizes
+      this.fields.writeByte(0).writeByte(1).writeByte(0).writeByte(0).writeByte(0);
+      this.fields.writeDouble(100);
+      return this;
+    }
+
+    public TableBuilder addIntField(final String name) {
+      addField(name, 1);
+      this.fields.writeByte(4).writeByte(1).writeByte(0);
+      return this;
+    }
+
+    public TableBuilder addObjectIdField(final String name) {
+      addField(name, 6);
+      this.fields.writeByte(4).writeByte(2);
+      return this;
+    }
+
+    /**
+     * Add a row. The values (excluding the object id) must be written in field order after a
+     * single byte of null flags, so tables can have at most 8 nullable fields.
+     */
+    /**
+     * Add a managed raster field with an x/y origin and scale.
+     */
+    public TableBuilder addRasterField(final String name) {
+      addField(name, 9);
+      this.fields.writeByte(0).writeByte(1);
+      final String rasterColumn = name + "_RASTER";
+      this.fields.writeByte(rasterColumn.length()).writeUtf16(rasterColumn);
+      final String wkt = "";
+      this.fields.writeShort(wkt.length() * 2).writeUtf16(wkt);
+      this.fields.writeByte(1);
+      this.fields.writeDouble(X_ORIGIN).writeDouble(Y_ORIGIN).writeDouble(XY_SCALE);
+      this.fields.writeDouble(0.001);
+      // managed raster
+      this.fields.writeByte(1);
+      return this;
+    }
+
+    public TableBuilder addRow(final TableBytes values) {
+      this.rows.add(values.toByteArray());
+      return this;
+    }
+
+    public TableBuilder addStringField(final String name) {
+      addField(name, 4);
+      this.fields.writeInt(50).writeByte(1).writeVarUInt(0);
+      return this;
+    }
+
+    public void write(final Path directory, final int tableId) throws IOException {
+      final TableBytes fieldDescriptor = new TableBytes();
+      fieldDescriptor.writeInt(4).writeInt(this.geometryType).writeShort(this.fieldCount);
+      fieldDescriptor.write(this.fields.toByteArray());
+
+      final TableBytes body = new TableBytes();
+      body.writeInt(fieldDescriptor.size()).write(fieldDescriptor.toByteArray());
+      final long[] rowOffsets = new long[this.rows.size()];
+      int largestRowSize = 0;
+      for (int i = 0; i < rowOffsets.length; i++) {
+        final byte[] row = this.rows.get(i);
+        rowOffsets[i] = TABLE_HEADER_SIZE + body.size();
+        body.writeInt(row.length).write(row);
+        largestRowSize = Math.max(largestRowSize, row.length);
+      }
+
+      final TableBytes table = new TableBytes();
+      table.writeInt(3).writeInt(this.rows.size()).writeInt(largestRowSize);
+      table.writeInt(5).writeInt(0).writeInt(0);
+      table.writeLong(TABLE_HEADER_SIZE + body.size()).writeLong(TABLE_HEADER_SIZE);
+      table.write(body.toByteArray());
+      final String fileName = FileGdbTableRecordStore.getTableFileName(tableId);
+      Files.write(directory.resolve(fileName), table.toByteArray());
+
+      final TableBytes index = new TableBytes();
+      index.writeInt(3).writeInt(1).writeInt(this.rows.size()).writeInt(OFFSET_SIZE);
+      for (int i = 0; i < 1024; i++) {
+        long offset = 0;
+        if (i < rowOffsets.length) {
+          offset = rowOffsets[i];
+        }
+        for (int j = 0; j < OFFSET_SIZE; j++) {
+          index.writeByte((int)(offset >>> j * 8 & 0xff));
+        }
+      }
+      // trailer without a block map
+      index.writeInt(0).writeInt(0).writeInt(0).writeInt(0);
+      Files.write(directory.resolve(fileName + "x"), index.toByteArray());
+    }
+  }
+
+  private static final double M_ORIGIN = -100000;
+
+  private static final double M_SCALE = 10000;
+
+  private static final int OFFSET_SIZE = 5;
+
+  private static final int TABLE_HEADER_SIZE = 40;
+
+  private static final double X_ORIGIN = -400;
+
+  private static final double XY_SCALE = 1000;
+
+  private static final double Y_ORIGIN = -400;
+
+  private static final double Z_ORIGIN = -100;
+
+  private static final double Z_SCALE = 1000;
+
+  private static void assertLine(final LineString line, final double... coordinates) {
+    final int axisCount = line.getAxisCount();
+    Assert.assertEquals("Vertex Count", coordinates.length / axisCount, line.getVertexCount());
+    for (int vertexIndex = 0; vertexIndex < line.getVertexCount(); vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        Assert.assertEquals("Vertex " + vertexIndex + " axis " + axisIndex,
+          coordinates[vertexIndex * axisCount + axisIndex],
+          line.getCoordinate(vertexIndex, axisIndex), 1e-9);
+      }
+    }
+  }
+
+  private static TableBytes newCatalogRow(final String name) {
+    return new TableBytes().writeByte(0).writeString(name).writeInt(0);
+  }
+
+  private static Path newGdb() throws IOException {
+    final Path directory = Files.createTempDirectory("fgdbtable").resolve("test.gdb");
+    Files.createDirectories(directory);
+    return directory;
+  }
+
+  private static TableBytes newPolylineRow(final String name, final boolean hasZ,
+    final boolean hasM, final double[]... parts) {
+    final int axisCount = hasM ? 4 : hasZ ? 3 : 2;
+    int vertexCount = 0;
+    for (final double[] part : parts) {
+      vertexCount += part.length / axisCount;
+    }
+    final long[][] values = new long[axisCount][vertexCount];
+    final double[] origins = {
+      X_ORIGIN, Y_ORIGIN, Z_ORIGIN, M_ORIGIN
+    };
+    final double[] scales = {
+      XY_SCALE, XY_SCALE, Z_SCALE, M_SCALE
+    };
+    int vertexIndex = 0;
+    for (final double[] part : parts) {
+      for (int i = 0; i < part.length; i += axisCount) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          values[axisIndex][vertexIndex] = Math
+            .round((part[i + axisIndex] - origins[axisIndex]) * scales[axisIndex]);
+        }
+        vertexIndex++;
+      }
+    }
+
+    final TableBytes geometry = new TableBytes();
+    if (hasZ && hasM) {
+      geometry.writeVarUInt(13);
+    } else {
+      geometry.writeVarUInt(3);
+    }
+    geometry.writeVarUInt(vertexCount).writeVarUInt(parts.length);
+    long minX = Long.MAX_VALUE;
+    long minY = Long.MAX_VALUE;
+    long maxX = Long.MIN_VALUE;
+    long maxY = Long.MIN_VALUE;
+    for (int i = 0; i < vertexCount; i++) {
+      minX = Math.min(minX, values[0][i]);
+      minY = Math.min(minY, values[1][i]);
+      maxX = Math.max(maxX, values[0][i]);
+      maxY = Math.max(maxY, values[1][i]);
+    }
+    geometry.writeVarUInt(minX).writeVarUInt(minY);
+    geometry.writeVarUInt(maxX - minX).writeVarUInt(maxY - minY);
+    for (int partIndex = 0; partIndex < parts.length - 1; partIndex++) {
+      geometry.writeVarUInt(parts[partIndex].length / axisCount);
+    }
+    long x = 0;
+    long y = 0;
+    for (int i = 0; i < vertexCount; i++) {
+      geometry.writeVarInt(values[0][i] - x).writeVarInt(values[1][i] - y);
+      x = values[0][i];
+      y = values[1][i];
+    }
+    for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+      long previous = 0;
+      for (int i = 0; i < vertexCount; i++) {
+        geometry.writeVarInt(values[axisIndex][i] - previous);
+        previous = values[axisIndex][i];
+      }
+    }
+    final byte[] geometryBytes = geometry.toByteArray();
+    final TableBytes row = new TableBytes().writeByte(0).writeString(name);
+    row.writeVarUInt(geometryBytes.length).write(geometryBytes);
+    return row;
+  }
+
+  private static List<Record> readRecords(final FileGdbTableRecordStore recordStore,
+    final String path) {
+    try (
+      Reader<Record> reader = recordStore.getRecords(PathName.newPathName(path))) {
+      return reader.toList();
+    }
+  }
+
+  /**
+   * Raster fields are not supported, the table can be read without the raster field.
+   */
+  @Test
+  public void testRasterField() throws IOException {
+    final Path directory = newGdb();
+    try {
+      new TableBuilder(0) //
+        .addObjectIdField("ID")
+        .addStringField("Name")
+        .addIntField("FileFormat")
+        .addRow(newCatalogRow("GDB_SystemCatalog"))
+        .addRow(newCatalogRow("Images"))
+        .write(directory, 1);
+
+      new TableBuilder(0) //
+        .addObjectIdField("OBJECTID")
+        .addRasterField("IMAGE")
+        .addStringField("NAME")
+        .addRow(new TableBytes().writeByte(0).writeInt(12).writeString("First"))
+        .addRow(new TableBytes().writeByte(1).writeString("Null raster"))
+        .write(directory, 2);
+
+      try (
+        FileGdbTableRecordStore recordStore = new FileGdbTableRecordStore(directory)) {
+        recordStore.initialize();
+        final RecordDefinition recordDefinition = recordStore
+          .getRecordDefinition(PathName.newPathName("/Images"));
+        Assert.assertNotNull("Images", recordDefinition);
+        Assert.assertFalse("Raster field", recordDefinition.hasField("IMAGE"));
+
+        final List<Record> images = readRecords(recordStore, "/Images");
+        Assert.assertEquals("Images count", 2, images.size());
+        Assert.assertEquals("NAME", "First", images.get(0).getString("NAME"));
+        Assert.assertEquals("NAME", "Null raster", images.get(1).getString("NAME"));
+      }
+    } finally {
+      FileUtil.deleteDirectory(directory.getParent().toFile());
+    }
+  }
+
+  @Test
+  public void testReadPolylines() throws IOException {
+    final Path directory = newGdb();
+    try {
+      new TableBuilder(0) //
+        .addObjectIdField("ID")
+        .addStringField("Name")
+        .addIntField("FileFormat")
+        .addRow(newCatalogRow("GDB_SystemCatalog"))
+        .addRow(newCatalogRow("Roads"))
+        .addRow(newCatalogRow("RoadsZM"))
+        .write(directory, 1);
+
+      new TableBuilder(3) //
+        .addObjectIdField("OBJECTID")
+        .addStringField("NAME")
+        .addGeometryField("SHAPE", false, false)
+        .addRow(newPolylineRow("Main", false, false, new double[] {
+          1, 2, 3, 4, 5, 7
+        }))
+        .addRow(newPolylineRow("Split", false, false, new double[] {
+          10, 10, 11, 12.5
+        }, new double[] {
+          20, 20, 21, 22, 23.125, 25
+        }))
+        .write(directory, 2);
+
+      new TableBuilder(3) //
+        .addObjectIdField("OBJECTID")
+        .addStringField("NAME")
+        .addGeometryField("SHAPE", true, true)
+        .addRow(newPolylineRow("Measured", true, true, new double[] {
+          1, 2, 3, 4.0001, 5, 6, 7, 8.5
+        }))
+        .write(directory, 3);
+
+      try (
+        FileGdbTableRecordStore recordStore = new FileGdbTableRecordStore(directory)) {
+        recordStore.initialize();
+
+        final List<Record> roads = readRecords(recordStore, "/Roads");
+        Assert.assertEquals("Roads count", 2, roads.size());
+        final Record main = roads.get(0);
+        Assert.assertEquals("OBJECTID", 1, main.getInteger("OBJECTID").intValue());
+        Assert.assertEquals("NAME", "Main", main.getString("NAME"));
+        final Lineal mainGeometry = main.getGeometry();
+        Assert.assertEquals("Part count", 1, mainGeometry.getGeometryCount());
+        assertLine(mainGeometry.getLineString(0), 1, 2, 3, 4, 5, 7);
+
+        final Record split = roads.get(1);
+        Assert.assertEquals("NAME", "Split", split.getString("NAME"));
+        final Lineal splitGeometry = split.getGeometry();
+        Assert.assertEquals("Part count", 2, splitGeometry.getGeometryCount());
+        assertLine(splitGeometry.getLineString(0), 10, 10, 11, 12.5);
+        assertLine(splitGeometry.getLineString(1), 20, 20, 21, 22, 23.125, 25);
+
+        final List<Record> measured = readRecords(recordStore, "/RoadsZM");
+        Assert.assertEquals("RoadsZM count", 1, measured.size());
+        final Lineal measuredGeometry = measured.get(0).getGeometry();
+        final LineString measuredLine = measuredGeometry.getLineString(0);
+        final GeometryFactory geometryFactory = measuredLine.getGeometryFactory();
+        Assert.assertEquals("Axis count", 4, geometryFactory.getAxisCount());
+        Assert.assertTrue("M scale", geometryFactory.equalsScales(new double[] {
+          XY_SCALE, XY_SCALE, Z_SCALE, M_SCALE
+        }));
+        assertLine(measuredLine, 1, 2, 3, 4.0001, 5, 6, 7, 8.5);
+      }
+    } finally {
+      FileUtil.deleteDirectory(directory.getParent().toFile());
+    }
+  }
+
+  /**
+   * Refreshing the schema closes the tables, an open iterator must still be able to read the rest
+   * of its table.
+   */
+  @Test
+  public void testRefreshSchemaWhileReading() throws IOException {
+    final Path directory = newGdb();
+    try {
+      new TableBuilder(0) //
+        .addObjectIdField("ID")
+        .addStringField("Name")
+        .addIntField("FileFormat")
+        .addRow(newCatalogRow("GDB_SystemCatalog"))
+        .addRow(newCatalogRow("Names"))
+        .write(directory, 1);
+
+      final TableBuilder names = new TableBuilder(0) //
+        .addObjectIdField("OBJECTID")
+        .addStringField("NAME");
+      for (int i = 0; i < 10; i++) {
+        names.addRow(new TableBytes().writeByte(0).writeString("Name " + i));
+      }
+      names.write(directory, 2);
+
+      try (
+        FileGdbTableRecordStore recordStore = new FileGdbTableRecordStore(directory)) {
+        recordStore.initialize();
+        try (
+          Reader<Record> reader = recordStore.getRecords(PathName.newPathName("/Names"))) {
+          final Iterator<Record> iterator = reader.iterator();
+          int count = 0;
+          while (iterator.hasNext()) {
+            final Record record = iterator.next();
+            Assert.assertEquals("NAME", "Name " + count, record.getString("NAME"));
+            count++;
+            if (count == 3) {
+              recordStore.getRootSchema().refresh();
+            }
+          }
+          Assert.assertEquals("Count", 10, count);
+        }
+        Assert.assertEquals("Count after refresh", 10, readRecords(recordStore, "/Names").size());
+      }
+    } finally {
+      FileUtil.deleteDirectory(directory.getParent().toFile());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.revolsys.geopackage.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geopackage.GeoPackageGeometry;
+
+/**
+ * Write geometries in the GeoPackage binary format and read them back.
+ */
+public class GeoPackageGeometryTest {
+
+  private static final int COORDINATE_SYSTEM_ID = 3005;
+
+  private static void assertRoundTrip(final int axisCount, final String wkt) {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(COORDINATE_SYSTEM_ID,
+      axisCount);
+    final Geometry expected = geometryFactory.geometry(wkt);
+    final byte[] bytes = GeoPackageGeometry.write(expected, COORDINATE_SYSTEM_ID, axisCount);
+    Assert.assertEquals(wkt + " magic", 'G', bytes[0]);
+    Assert.assertEquals(wkt + " magic", 'P', bytes[1]);
+    final int coordinateSystemId = ByteBuffer.wrap(bytes, 4, 4)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .getInt();
+    Assert.assertEquals(wkt + " srs_id", COORDINATE_SYSTEM_ID, coordinateSystemId);
+
+    final Geometry actual = GeoPackageGeometry.read(GeometryFactory.DEFAULT_2D, bytes);
+    Assert.assertEquals(wkt + " srs_id", COORDINATE_SYSTEM_ID, actual.getCoordinateSystemId());
+    Assert.assertEquals(wkt + " axis count", axisCount, actual.getAxisCount());
+    Assert.assertEquals(wkt + " type", expected.getDataType(), actual.getDataType());
+    if (!actual.equals(axisCount, expected)) {
+      Assert.fail(wkt + " != " + actual);
+    }
+  }
+
+  @Test
+  public void testBigEndian() {
+    final ByteBuffer buffer = ByteBuffer.allocate(8 + 21);
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    buffer.put((byte)'G');
+    buffer.put((byte)'P');
+    buffer.put((byte)0);
+    buffer.put((byte)0);
+    buffer.putInt(COORDINATE_SYSTEM_ID);
+    buffer.put((byte)0);
+    buffer.putInt(1);
+    buffer.putDouble(1000.5);
+    buffer.putDouble(2000.25);
+
+    final Point point = (Point)GeoPackageGeometry.read(GeometryFactory.DEFAULT_2D,
+      buffer.array());
+    Assert.assertEquals("srs_id", COORDINATE_SYSTEM_ID, point.getCoordinateSystemId());
+    Assert.assertEquals("x", 1000.5, point.getX(), 0);
+    Assert.assertEquals("y", 2000.25, point.getY(), 0);
+  }
+
+  @Test
+  public void testEmpty() {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(COORDINATE_SYSTEM_ID, 2);
+    final byte[] bytes = GeoPackageGeometry.write(geometryFactory.lineString(),
+      COORDINATE_SYSTEM_ID, 2);
+    Assert.assertEquals("empty flag", 1 << 4, bytes[3] & 1 << 4);
+    final Geometry actual = GeoPackageGeometry.read(GeometryFactory.DEFAULT_2D, bytes);
+    Assert.assertTrue("empty", actual.isEmpty());
+    Assert.assertEquals("srs_id", COORDINATE_SYSTEM_ID, actual.getCoordinateSystemId());
+  }
+
+  @Test
+  public void testRoundTrip2d() {
+    assertRoundTrip(2, "POINT(1000 2000)");
+    assertRoundTrip(2, "LINESTRING(1000 2000,1100 2100,1200 2050)");
+    assertRoundTrip(2,
+      "POLYGON((0 0,100 0,100 100,0 100,0 0),(10 10,10 20,20 20,20 10,10 10))");
+    assertRoundTrip(2, "MULTIPOINT((1 2),(3 4))");
+    assertRoundTrip(2, "MULTILINESTRING((1 2,3 4),(5 6,7 8,9 10))");
+    assertRoundTrip(2,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((20 20,30 20,30 30,20 30,20 20)))");
+  }
+
+  @Test
+  public void testRoundTrip3d() {
+    assertRoundTrip(3, "POINT Z(1000 2000 10)");
+    assertRoundTrip(3, "LINESTRING Z(1000 2000 10,1100 2100 11,1200 2050 12)");
+    assertRoundTrip(3, "POLYGON Z((0 0 1,100 0 2,100 100 3,0 100 4,0 0 1))");
+    assertRoundTrip(3, "MULTILINESTRING Z((1 2 3,4 5 6),(7 8 9,10 11 12))");
+  }
+
+  @Test
+  public void testRoundTrip4d() {
+    assertRoundTrip(4, "POINT ZM(1000 2000 10 5)");
+    assertRoundTrip(4, "LINESTRING ZM(1000 2000 10 0,1100 2100 11 1,1200 2050 12 2)");
+    assertRoundTrip(4, "MULTIPOINT ZM((1 2 3 4),(5 6 7 8))");
+  }
+}
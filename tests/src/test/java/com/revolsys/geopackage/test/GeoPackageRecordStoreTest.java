@@ -0,0 +1,176 @@
+package com.revolsys.geopackage.test;
+
+import java.io.File;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geopackage.GeoPackageRecordStore;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.Value;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
+import com.revolsys.record.query.functions.F;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+/**
+ * Write records to a {@link GeoPackageRecordStore} with and without bulk load and read them back
+ * using counts and bounding box queries that use the R-tree index.
+ */
+public class GeoPackageRecordStoreTest {
+
+  private static final File DIRECTORY = new File("target/test/geopackage");
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static final int GRID_SIZE = 20;
+
+  private static final PathName TYPE_PATH = PathName.newPathName("/POINTS");
+
+  private static void assertRecords(final GeoPackageRecordStore recordStore) {
+    final RecordDefinition recordDefinition = recordStore.getRecordDefinition(TYPE_PATH);
+    Assert.assertNotNull("Record definition", recordDefinition);
+    final FieldDefinition geometryField = recordDefinition.getGeometryField();
+    Assert.assertNotNull("Geometry field", geometryField);
+
+    final int recordCount = GRID_SIZE * GRID_SIZE;
+    Assert.assertEquals("Count", recordCount, recordStore.getRecordCount(new Query(TYPE_PATH)));
+    Assert.assertEquals("Count where", GRID_SIZE,
+      recordStore.getRecordCount(new Query(TYPE_PATH, Q.equal("ROW", 3))));
+
+    final List<Record> records = getRecords(recordStore, new Query(TYPE_PATH));
+    Assert.assertEquals("Records", recordCount, records.size());
+    for (final Record record : records) {
+      final Point point = record.getGeometry();
+      Assert.assertEquals("Row", (int)point.getY() / 10, record.getInteger("ROW").intValue());
+      Assert.assertEquals("Name", "Point " + point.getX() + "," + point.getY(),
+        record.getValue("NAME"));
+    }
+
+    // 5 x 3 points inside the bounding box including the points on the edges
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(45, 95, 85, 115);
+    final Query query = new Query(recordDefinition,
+      F.envelopeIntersects(geometryField, boundingBox));
+    final StringBuilder sql = new StringBuilder();
+    recordStore.appendQueryValue(query, sql, query.getWhereCondition());
+    Assert.assertTrue("R-tree " + sql, sql.toString().contains("SELECT id FROM \"rtree_"));
+
+    Assert.assertEquals("Count bounding box", 15, recordStore.getRecordCount(query.clone()));
+    final List<Record> boundingBoxRecords = getRecords(recordStore, query.clone());
+    Assert.assertEquals("Records bounding box", 15, boundingBoxRecords.size());
+    for (final Record record : boundingBoxRecords) {
+      final Point point = record.getGeometry();
+      Assert.assertTrue("Intersects " + point, boundingBox.bboxIntersects(point));
+    }
+  }
+
+  private static List<Record> getRecords(final GeoPackageRecordStore recordStore,
+    final Query query) {
+    try (
+      RecordReader reader = recordStore.getRecords(query)) {
+      return reader.toList();
+    }
+  }
+
+  private static GeoPackageRecordStore newRecordStore(final String fileName) {
+    final File file = new File(DIRECTORY, fileName);
+    FileUtil.delete(file);
+    return new GeoPackageRecordStore(file);
+  }
+
+  private static void writeRecords(final GeoPackageRecordStore recordStore) {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(TYPE_PATH);
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("ROW", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, false);
+    recordDefinition.setIdFieldName("ID");
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    try (
+      RecordWriter writer = recordStore.newRecordWriter()) {
+      int id = 0;
+      for (int row = 0; row < GRID_SIZE; row++) {
+        for (int column = 0; column < GRID_SIZE; column++) {
+          final double x = column * 10.0;
+          final double y = row * 10.0;
+          final Record record = new ArrayRecord(recordDefinition);
+          record.setValue("ID", ++id);
+          record.setValue("ROW", row);
+          record.setValue("NAME", "Point " + x + "," + y);
+          record.setGeometryValue(GEOMETRY_FACTORY.point(x, y));
+          writer.write(record);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBulkLoad() {
+    try (
+      GeoPackageRecordStore recordStore = newRecordStore("bulkLoad.gpkg")) {
+      recordStore.setBulkLoad(true);
+      recordStore.initialize();
+      writeRecords(recordStore);
+      assertRecords(recordStore);
+    }
+  }
+
+  @Test
+  public void testReopen() {
+    try (
+      GeoPackageRecordStore recordStore = newRecordStore("reopen.gpkg")) {
+      recordStore.setBulkLoad(true);
+      recordStore.initialize();
+      writeRecords(recordStore);
+    }
+    try (
+      GeoPackageRecordStore recordStore = new GeoPackageRecordStore(
+        new File(DIRECTORY, "reopen.gpkg"))) {
+      recordStore.setCreateMissingRecordStore(false);
+      recordStore.initialize();
+      assertRecords(recordStore);
+    }
+  }
+
+  @Test
+  public void testUnsupportedEnvelopeIntersects() {
+    try (
+      GeoPackageRecordStore recordStore = newRecordStore("unsupported.gpkg")) {
+      recordStore.initialize();
+      writeRecords(recordStore);
+      final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 10, 10);
+      final EnvelopeIntersects condition = new EnvelopeIntersects(new Value(boundingBox),
+        new Value(boundingBox));
+      final Query query = new Query(recordStore.getRecordDefinition(TYPE_PATH), condition);
+      try {
+        recordStore.appendQueryValue(query, new StringBuilder(), condition);
+        Assert.fail("Expected IllegalArgumentException");
+      } catch (final IllegalArgumentException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testWriter() {
+    try (
+      GeoPackageRecordStore recordStore = newRecordStore("writer.gpkg")) {
+      recordStore.initialize();
+      writeRecords(recordStore);
+      assertRecords(recordStore);
+    }
+  }
+}
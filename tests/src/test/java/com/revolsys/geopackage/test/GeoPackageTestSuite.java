@@ -0,0 +1,12 @@
+package com.revolsys.geopackage.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  GeoPackageGeometryTest.class, GeoPackageRecordStoreTest.class
+})
+public class GeoPackageTestSuite {
+}
@@ -0,0 +1,62 @@
+package com.revolsys.postgresql.test;
+
+import java.sql.SQLException;
+
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+
+/**
+ * Decode the same rows using the binary EWKB and the hex encoded EWKB text transfer formats and
+ * print the rows per second. The driver returns the text format as a hex string, so the time to
+ * decode the hex is included.
+ */
+public class PostgreSQLGeometryTransferPerformanceTest {
+
+  private static final int ROW_COUNT = 20000;
+
+  public static void main(final String[] args) throws SQLException {
+    final byte[][] ewkbs = new byte[ROW_COUNT][];
+    final String[] hexs = new String[ROW_COUNT];
+    for (int rowIndex = 0; rowIndex < ROW_COUNT; rowIndex++) {
+      ewkbs[rowIndex] = PostgreSQLGeometryTransferTest.newEwkb(rowIndex);
+      hexs[rowIndex] = PostgreSQLGeometryTransferTest.toHex(ewkbs[rowIndex]);
+    }
+    // Warm up both code paths before timing
+    long vertexCount = 0;
+    for (int i = 0; i < 3; i++) {
+      vertexCount += parseEwkb(ewkbs);
+      vertexCount += decodeHex(hexs);
+    }
+
+    final long binaryStart = System.nanoTime();
+    vertexCount += parseEwkb(ewkbs);
+    final long binaryTime = System.nanoTime() - binaryStart;
+
+    final long hexStart = System.nanoTime();
+    vertexCount += decodeHex(hexs);
+    final long hexTime = System.nanoTime() - hexStart;
+
+    final long binaryRowsPerSecond = ROW_COUNT * 1000000000L / Math.max(1, binaryTime);
+    final long hexRowsPerSecond = ROW_COUNT * 1000000000L / Math.max(1, hexTime);
+    System.out.println("EWKB " + binaryRowsPerSecond + " rows/s, hex " + hexRowsPerSecond
+      + " rows/s (" + PostgreSQLGeometryTransferTest.VERTEX_COUNT + " vertices per row, "
+      + vertexCount + " vertices decoded)");
+  }
+
+  private static long decodeHex(final String[] hexs) throws SQLException {
+    long vertexCount = 0;
+    for (final String hex : hexs) {
+      vertexCount += PostgreSQLGeometryTransferTest.decodeHex(hex).getVertexCount();
+    }
+    return vertexCount;
+  }
+
+  private static long parseEwkb(final byte[][] ewkbs) {
+    long vertexCount = 0;
+    for (final byte[] ewkb : ewkbs) {
+      vertexCount += PostgreSQLGeometryWrapper
+        .parseEwkb(PostgreSQLGeometryTransferTest.GEOMETRY_FACTORY, ewkb)
+        .getVertexCount();
+    }
+    return vertexCount;
+  }
+}
@@ -0,0 +1,124 @@
+package com.revolsys.postgresql.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.gis.postgresql.PostgreSQLBulkInsertRecordWriter;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+
+/**
+ * Compare decoding geometries from the binary EWKB (ST_AsEWKB) and the hex encoded EWKB text
+ * returned by the PostgreSQL driver.
+ */
+public class PostgreSQLGeometryTransferTest {
+
+  private static final int COORDINATE_SYSTEM_ID = 3005;
+
+  static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .floating(COORDINATE_SYSTEM_ID, 2);
+
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  static final int VERTEX_COUNT = 50;
+
+  static Geometry decodeHex(final String hex) throws SQLException {
+    final PostgreSQLGeometryWrapper wrapper = new PostgreSQLGeometryWrapper();
+    wrapper.setValue(hex);
+    return wrapper.getGeometry(GEOMETRY_FACTORY);
+  }
+
+  /**
+   * Little endian EWKB for a line string with an SRID.
+   */
+  static byte[] newEwkb(final int rowIndex) {
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 4 + VERTEX_COUNT * 16);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put((byte)1);
+    buffer.putInt(2 | 0x20000000);
+    buffer.putInt(COORDINATE_SYSTEM_ID);
+    buffer.putInt(VERTEX_COUNT);
+    for (int i = 0; i < VERTEX_COUNT; i++) {
+      buffer.putDouble(1000000 + rowIndex + i * 0.5);
+      buffer.putDouble(500000 + rowIndex - i * 0.25);
+    }
+    return buffer.array();
+  }
+
+  static String toHex(final byte[] bytes) {
+    final char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      final int b = bytes[i] & 0xFF;
+      chars[i * 2] = HEX_DIGITS[b >>> 4];
+      chars[i * 2 + 1] = HEX_DIGITS[b & 0xF];
+    }
+    return new String(chars);
+  }
+
+  @Test
+  public void testDecode() throws SQLException {
+    for (int rowIndex = 0; rowIndex < 10; rowIndex++) {
+      final byte[] ewkb = newEwkb(rowIndex);
+      final Geometry binaryGeometry = PostgreSQLGeometryWrapper.parseEwkb(GEOMETRY_FACTORY, ewkb);
+      final Geometry hexGeometry = decodeHex(toHex(ewkb));
+      Assert.assertTrue("LineString", binaryGeometry instanceof LineString);
+      Assert.assertEquals("Vertex count", VERTEX_COUNT, binaryGeometry.getVertexCount());
+      Assert.assertEquals("srid", COORDINATE_SYSTEM_ID, binaryGeometry.getCoordinateSystemId());
+      if (!binaryGeometry.equals(2, hexGeometry)) {
+        Assert.fail(binaryGeometry + " != " + hexGeometry);
+      }
+      final LineString line = (LineString)binaryGeometry;
+      Assert.assertEquals("x", 1000000 + rowIndex + 0.5, line.getX(1), 0);
+      Assert.assertEquals("y", 500000 + rowIndex - 0.25, line.getY(1), 0);
+    }
+  }
+
+  /**
+   * Check that empty geometries are encoded for COPY as empty EWKB values (NaN ordinates for
+   * POINT EMPTY) and are read back as empty geometries.
+   */
+  @Test
+  public void testEmptyGeometryEwkb() {
+    for (int axisCount = 2; axisCount <= 4; axisCount++) {
+      final GeometryFactory geometryFactory = GeometryFactory.floating(COORDINATE_SYSTEM_ID,
+        axisCount);
+      final byte[] ewkb = PostgreSQLBulkInsertRecordWriter.toEwkb(geometryFactory.point());
+      final ByteBuffer buffer = ByteBuffer.wrap(ewkb).order(ByteOrder.LITTLE_ENDIAN);
+      Assert.assertEquals("Byte order", 1, buffer.get());
+      Assert.assertEquals("Type", 1, buffer.getInt() & 0xFF);
+      Assert.assertEquals("srid", COORDINATE_SYSTEM_ID, buffer.getInt());
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        Assert.assertTrue("NaN ordinate " + axisIndex, Double.isNaN(buffer.getDouble()));
+      }
+      Assert.assertEquals("Remaining bytes", 0, buffer.remaining());
+
+      final Geometry point = PostgreSQLGeometryWrapper.parseEwkb(geometryFactory, ewkb);
+      Assert.assertTrue("Point", point instanceof Point);
+      Assert.assertTrue("Empty point " + axisCount, point.isEmpty());
+
+      final Geometry line = PostgreSQLGeometryWrapper.parseEwkb(geometryFactory,
+        PostgreSQLBulkInsertRecordWriter.toEwkb(geometryFactory.lineString()));
+      Assert.assertTrue("LineString", line instanceof LineString);
+      Assert.assertTrue("Empty line " + axisCount, line.isEmpty());
+
+      final Geometry polygon = PostgreSQLGeometryWrapper.parseEwkb(geometryFactory,
+        PostgreSQLBulkInsertRecordWriter.toEwkb(geometryFactory.polygon()));
+      Assert.assertTrue("Polygon", polygon instanceof Polygon);
+      Assert.assertTrue("Empty polygon " + axisCount, polygon.isEmpty());
+    }
+    final GeometryFactory geometryFactory = GeometryFactory.floating(COORDINATE_SYSTEM_ID, 3);
+    final Geometry point = PostgreSQLGeometryWrapper.parseEwkb(geometryFactory,
+      PostgreSQLBulkInsertRecordWriter.toEwkb(geometryFactory.point(1, 2)));
+    Assert.assertFalse("Not empty", point.isEmpty());
+    Assert.assertEquals("x", 1, point.getPoint().getX(), 0);
+    Assert.assertEquals("y", 2, point.getPoint().getY(), 0);
+  }
+}